@@ -0,0 +1,167 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import net.sf.jailer.ExecutionContext;
+import net.sf.jailer.database.BasicDataSource;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.datamodel.DataModel;
+import net.sf.jailer.modelbuilder.MemorizedResultSet;
+
+/**
+ * Private copy of one of the bundled H2 demo databases ("demo-scott-1.4", "demo-sakila-1.4").<br>
+ * The demo databases and the data models are looked up in the folder given by
+ * the system property "jailer.home" (default is the current folder).
+ *
+ * @author Ralf Wisser
+ */
+public class BenchmarkDatabase {
+
+	public static final String SCOTT = "scott";
+	public static final String SAKILA = "sakila";
+
+	/**
+	 * Extraction model for the sakila database.
+	 */
+	private static final String SAKILA_EXTRACTION_MODEL =
+			"# subject; condition\n" +
+			"CUSTOMER; T.CUSTOMER_ID < 8\n" +
+			"\n" +
+			"#! block datamodelfolder\n" +
+			"Demo-Sakila\n";
+
+	private static final int POOL_SIZE = 10;
+
+	private final String name;
+	private final File folder;
+
+	/**
+	 * Data source for the copy.
+	 */
+	public final BasicDataSource dataSource;
+
+	/**
+	 * Constructor. Copies the demo database into a temporary folder.
+	 *
+	 * @param name {@link #SCOTT} or {@link #SAKILA}
+	 */
+	public BenchmarkDatabase(String name) throws IOException {
+		this.name = name;
+		this.folder = Files.createTempDirectory("jailer-benchmark").toFile();
+		Files.copy(new File(getHome(), "demo-" + name + "-1.4.mv.db").toPath(), new File(folder, name + ".mv.db").toPath(), StandardCopyOption.REPLACE_EXISTING);
+		dataSource = new BasicDataSource("org.h2.Driver", "jdbc:h2:" + new File(folder, name).getAbsolutePath(), "sa", "", POOL_SIZE, new File(getHome(), "lib/h2-1.4.199.jar"));
+	}
+
+	/**
+	 * Gets Jailer's home folder.
+	 */
+	public static File getHome() {
+		return new File(System.getProperty("jailer.home", "."));
+	}
+
+	/**
+	 * Creates a session.
+	 */
+	public Session createSession() throws SQLException {
+		return new Session(dataSource, dataSource.dbms, null, null, false);
+	}
+
+	/**
+	 * Reads the result of a query into memory.
+	 *
+	 * @param session the session
+	 * @param sqlQuery the query
+	 */
+	public static MemorizedResultSet query(Session session, String sqlQuery) throws SQLException {
+		Statement statement = session.getConnection().createStatement();
+		try {
+			return new MemorizedResultSet(statement.executeQuery(sqlQuery), null, session, null);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Gets the URL of the data model of the database.
+	 */
+	public URL getDataModelURL() throws IOException {
+		return new File(getHome(), "datamodel/" + (SCOTT.equals(name)? "Demo-Scott" : "Demo-Sakila")).toURI().toURL();
+	}
+
+	/**
+	 * Loads the data model of the database.
+	 *
+	 * @param executionContext the execution context
+	 */
+	public DataModel loadDataModel(ExecutionContext executionContext) throws IOException {
+		executionContext.setDataModelURL(getDataModelURL());
+		return new DataModel(executionContext);
+	}
+
+	/**
+	 * Gets the URL of the extraction model.
+	 */
+	public URL getExtractionModelURL() throws IOException {
+		if (SCOTT.equals(name)) {
+			return new File(getHome(), "extractionmodel/Demo-Scott.jm").toURI().toURL();
+		}
+		File extractionModel = new File(folder, "Demo-Sakila.jm");
+		if (!extractionModel.exists()) {
+			Writer out = new OutputStreamWriter(new FileOutputStream(extractionModel), "UTF-8");
+			out.write(SAKILA_EXTRACTION_MODEL);
+			out.close();
+		}
+		return extractionModel.toURI().toURL();
+	}
+
+	/**
+	 * Creates a file in the temporary folder.
+	 *
+	 * @param fileName the file name
+	 */
+	public File createFile(String fileName) {
+		return new File(folder, fileName);
+	}
+
+	/**
+	 * Deletes the copy.
+	 */
+	public void delete() {
+		delete(folder);
+	}
+
+	static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f: files) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+}
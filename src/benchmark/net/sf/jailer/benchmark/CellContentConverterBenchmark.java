@@ -0,0 +1,88 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sf.jailer.database.Session;
+import net.sf.jailer.modelbuilder.MemorizedResultSet;
+import net.sf.jailer.util.CellContentConverter;
+
+/**
+ * Measures rendering of cell contents as SQL literals ({@link CellContentConverter#toSql(Object)}).
+ *
+ * @author Ralf Wisser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CellContentConverterBenchmark {
+
+	@Param({ "PAYMENT", "FILM", "ADDRESS" })
+	public String table;
+
+	private BenchmarkDatabase database;
+	private Session session;
+	private CellContentConverter cellContentConverter;
+	private final List<Object> values = new ArrayList<Object>();
+
+	@Setup
+	public void setUp() throws Exception {
+		database = new BenchmarkDatabase(BenchmarkDatabase.SAKILA);
+		session = database.createSession();
+		MemorizedResultSet resultSet = BenchmarkDatabase.query(session, "Select * from " + table);
+		cellContentConverter = new CellContentConverter(resultSet.getMetaData(), session, session.dbms);
+		int columnCount = resultSet.getMetaData().getColumnCount();
+		while (resultSet.next()) {
+			for (int i = 1; i <= columnCount; ++i) {
+				values.add(cellContentConverter.getObject(resultSet, i));
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		session.shutDown();
+		database.delete();
+	}
+
+	@Benchmark
+	public void toSql(Blackhole blackhole) {
+		for (Object value: values) {
+			blackhole.consume(cellContentConverter.toSql(value));
+		}
+	}
+
+}
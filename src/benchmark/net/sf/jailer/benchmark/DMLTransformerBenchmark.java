@@ -0,0 +1,103 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.benchmark;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sf.jailer.ExecutionContext;
+import net.sf.jailer.database.DMLTransformer;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.database.Session.ResultSetReader;
+import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.modelbuilder.MemorizedResultSet;
+
+/**
+ * Measures rendering of rows as insert statements ({@link DMLTransformer#readCurrentRow(java.sql.ResultSet)}).
+ *
+ * @author Ralf Wisser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DMLTransformerBenchmark {
+
+	@Param({ "PAYMENT", "FILM", "ADDRESS" })
+	public String tableName;
+
+	@Param({ "false", "true" })
+	public boolean upsertOnly;
+
+	private BenchmarkDatabase database;
+	private Session session;
+	private MemorizedResultSet rows;
+	private DMLTransformer.Factory factory;
+	private Table table;
+	private OutputStreamWriter scriptFileWriter;
+
+	@Setup
+	public void setUp() throws Exception {
+		database = new BenchmarkDatabase(BenchmarkDatabase.SAKILA);
+		session = database.createSession();
+		ExecutionContext executionContext = new ExecutionContext();
+		table = database.loadDataModel(executionContext).getTable(tableName);
+		rows = BenchmarkDatabase.query(session, "Select * from " + tableName);
+		scriptFileWriter = new OutputStreamWriter(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		factory = new DMLTransformer.Factory(scriptFileWriter, upsertOnly, 10, session, session.dbms, executionContext);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		session.shutDown();
+		database.delete();
+	}
+
+	@Benchmark
+	public void readCurrentRow() throws Exception {
+		ResultSetReader reader = factory.create(table);
+		rows.reset();
+		while (rows.next()) {
+			reader.readCurrentRow(rows);
+		}
+		reader.close();
+		scriptFileWriter.flush();
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sf.jailer.ExecutionContext;
+import net.sf.jailer.datamodel.DataModel;
+import net.sf.jailer.util.CsvFile;
+
+/**
+ * Measures loading of a large, generated data model,
+ * both the parsing of the CSV files ({@link CsvFile}) and the construction of the {@link DataModel}.
+ *
+ * @author Ralf Wisser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataModelLoadingBenchmark {
+
+	/**
+	 * Number of tables of the generated data model.
+	 */
+	@Param({ "1000", "10000" })
+	public int numberOfTables;
+
+	private File folder;
+
+	@Setup
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("jailer-benchmark").toFile();
+		PrintWriter tables = createCsvFile("table.csv", "# Name; Upsert; Primary Key; ; Author");
+		PrintWriter columns = createCsvFile("column.csv", "# Table; Columns");
+		PrintWriter associations = createCsvFile("association.csv", "# Table A; Table B; First-insert; Cardinality (opt); Join-condition; Name; Author");
+		for (int i = 0; i < numberOfTables; ++i) {
+			tables.println("TABLE_" + i + "; N; ID INTEGER; ; Benchmark; ; ");
+			columns.println("TABLE_" + i + "; ID INTEGER; NAME VARCHAR(100) null; PARENT_ID INTEGER null; OWNER_ID INTEGER null; LAST_UPDATE TIMESTAMP; ; ");
+			if (i > 0) {
+				associations.println("TABLE_" + i + "; TABLE_" + (i / 2) + "; B; n:1; A.PARENT_ID=B.ID; FK_PARENT_" + i + "; Benchmark; ; ");
+				associations.println("TABLE_" + i + "; TABLE_" + ((i * 7) % numberOfTables) + "; ; n:1; A.OWNER_ID=B.ID; FK_OWNER_" + i + "; Benchmark; ; ");
+			}
+		}
+		tables.close();
+		columns.close();
+		associations.close();
+	}
+
+	private PrintWriter createCsvFile(String name, String header) throws IOException {
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(folder, name)), "UTF-8"));
+		out.println(header);
+		return out;
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkDatabase.delete(folder);
+	}
+
+	@Benchmark
+	public void readCsvFiles(Blackhole blackhole) throws IOException {
+		blackhole.consume(new CsvFile(new File(folder, "table.csv")).getLines());
+		blackhole.consume(new CsvFile(new File(folder, "column.csv")).getLines());
+		blackhole.consume(new CsvFile(new File(folder, "association.csv")).getLines());
+	}
+
+	@Benchmark
+	public DataModel loadDataModel() throws IOException {
+		ExecutionContext executionContext = new ExecutionContext();
+		executionContext.setDataModelURL(folder.toURI().toURL());
+		return new DataModel(executionContext);
+	}
+
+}
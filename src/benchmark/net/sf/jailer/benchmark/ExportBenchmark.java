@@ -0,0 +1,85 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sf.jailer.api.Subsetter;
+import net.sf.jailer.database.WorkingTableScope;
+import net.sf.jailer.subsetting.ExportStatistic;
+import net.sf.jailer.subsetting.ScriptFormat;
+
+/**
+ * Measures a complete export (collection and writing of the export script)
+ * against the bundled demo databases.
+ *
+ * @author Ralf Wisser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+	@Param({ BenchmarkDatabase.SCOTT, BenchmarkDatabase.SAKILA })
+	public String databaseName;
+
+	@Param({ "GLOBAL", "LOCAL_DATABASE", "MEMORY" })
+	public String scope;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	private BenchmarkDatabase database;
+	private Subsetter subsetter;
+	private File exportScriptFile;
+
+	@Setup
+	public void setUp() throws Exception {
+		database = new BenchmarkDatabase(databaseName);
+		subsetter = new Subsetter(database.dataSource, database.dataSource.dbms, database.getDataModelURL(), database.getExtractionModelURL(), ScriptFormat.SQL);
+		subsetter.setScope(WorkingTableScope.valueOf(scope));
+		subsetter.setNumberOfThreads(threads);
+		exportScriptFile = database.createFile("export.sql");
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.delete();
+	}
+
+	@Benchmark
+	public ExportStatistic export() throws Exception {
+		return subsetter.execute(null, exportScriptFile);
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sf.jailer.util.CsvFile;
+import net.sf.jailer.util.SqlUtil;
+
+/**
+ * Measures resolution of pseudo-columns in restriction conditions ({@link SqlUtil#resolvePseudoColumns}).
+ * The conditions are the join-conditions of the sakila data model, extended by pseudo-columns.
+ *
+ * @author Ralf Wisser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PseudoColumnsBenchmark {
+
+	private final List<String> conditions = new ArrayList<String>();
+
+	@Setup
+	public void setUp() throws Exception {
+		for (CsvFile.Line line: new CsvFile(new File(BenchmarkDatabase.getHome(), "datamodel/Demo-Sakila/association.csv")).getLines()) {
+			conditions.add(line.cells.get(4));
+			conditions.add(line.cells.get(4) + " and A.$DISTANCE < 3 and (B.$IS_SUBJECT or $IN_DELETE_MODE)");
+		}
+	}
+
+	@Benchmark
+	public void resolvePseudoColumnsWithAliases(Blackhole blackhole) {
+		for (String condition: conditions) {
+			blackhole.consume(SqlUtil.resolvePseudoColumns(condition, "E1", "E2", 3, 1, false));
+		}
+	}
+
+	@Benchmark
+	public void resolvePseudoColumns(Blackhole blackhole) {
+		for (String condition: conditions) {
+			blackhole.consume(SqlUtil.resolvePseudoColumns(condition, 3, 1, false, false));
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sf.jailer.database.InlineViewBuilder;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.database.StatementBuilder;
+import net.sf.jailer.modelbuilder.MemorizedResultSet;
+import net.sf.jailer.util.CellContentConverter;
+
+/**
+ * Measures building of multi-row statements ({@link StatementBuilder})
+ * and of inline-views holding primary keys ({@link InlineViewBuilder}).
+ *
+ * @author Ralf Wisser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatementBuilderBenchmark {
+
+	private static final String HEAD = "Insert into PAYMENT(PAYMENT_ID, CUSTOMER_ID, STAFF_ID, RENTAL_ID, AMOUNT, PAYMENT_DATE, LAST_UPDATE) values ";
+
+	private BenchmarkDatabase database;
+	private Session session;
+	private MemorizedResultSet keys;
+	private final List<String> items = new ArrayList<String>();
+
+	@Setup
+	public void setUp() throws Exception {
+		database = new BenchmarkDatabase(BenchmarkDatabase.SAKILA);
+		session = database.createSession();
+		MemorizedResultSet rows = BenchmarkDatabase.query(session, "Select PAYMENT_ID, CUSTOMER_ID, STAFF_ID, RENTAL_ID, AMOUNT, PAYMENT_DATE, LAST_UPDATE from PAYMENT");
+		CellContentConverter cellContentConverter = new CellContentConverter(rows.getMetaData(), session, session.dbms);
+		while (rows.next()) {
+			StringBuilder item = new StringBuilder("(");
+			for (int i = 1; i <= 7; ++i) {
+				if (i > 1) {
+					item.append(", ");
+				}
+				item.append(cellContentConverter.toSql(cellContentConverter.getObject(rows, i)));
+			}
+			items.add(item.append(")").toString());
+		}
+		keys = BenchmarkDatabase.query(session, "Select PAYMENT_ID, CUSTOMER_ID from PAYMENT");
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		session.shutDown();
+		database.delete();
+	}
+
+	@Benchmark
+	public void statementBuilder(Blackhole blackhole) {
+		StatementBuilder statementBuilder = new StatementBuilder(10);
+		for (String item: items) {
+			if (!statementBuilder.isAppendable(HEAD, item)) {
+				blackhole.consume(statementBuilder.build());
+			}
+			statementBuilder.append(HEAD, item, ", ", ";");
+		}
+		blackhole.consume(statementBuilder.build());
+	}
+
+	@Benchmark
+	public void inlineViewBuilder(final Blackhole blackhole) throws SQLException {
+		InlineViewBuilder inlineViewBuilder = new InlineViewBuilder(session.getInlineViewStyle(), session, new String[] { "A", "B" }) {
+			@Override
+			protected CellContentConverter createCellContentConverter() {
+				return new CellContentConverter(resultSetMetaData, session, session.dbms);
+			}
+			@Override
+			protected void process(String inlineView) {
+				blackhole.consume(inlineView);
+			}
+		};
+		keys.reset();
+		while (keys.next()) {
+			inlineViewBuilder.readCurrentRow(keys);
+		}
+		inlineViewBuilder.close();
+	}
+
+}
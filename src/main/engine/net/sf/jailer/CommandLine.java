@@ -117,7 +117,7 @@ public class CommandLine {
 	@Option(name="-upsert-only",usage="generate 'upsert'-statements for all entities (in export-file)")
 	public boolean upsertOnly = false;
 	
-	@Option(name="-scope",usage="scope of working tables, GLOBAL, SESSION_LOCAL or LOCAL_DATABASE")
+	@Option(name="-scope",usage="scope of working tables, GLOBAL, SESSION_LOCAL, LOCAL_DATABASE or MEMORY")
 	public String scope = null;
 
 	@Option(name="-working-table-schema", usage="schema in which the working tables will be created")
@@ -144,12 +144,36 @@ public class CommandLine {
 	@Option(name="-order-by-pk", usage="Orders the exported rows according to the primary key.")
 	public boolean orderByPK = false;
 
+	@Option(name="-pipelined-collection", usage="resolves the associations of a table as soon as the rows of the table are collected instead of day by day")
+	public boolean pipelinedCollection = false;
+
+	@Option(name="-chunk-size", usage="collects the subject rows in chunks of at most #rows rows (partitioned by primary key ranges) and records a checkpoint after each chunk", metaVar="#rows")
+	public int chunkSize = 0;
+
+	@Option(name="-resume", usage="resumes the interrupted chunked collection of the given entity graph from its last checkpoint (requires -scope GLOBAL)", metaVar="graph-id")
+	public Integer resumeGraphID = null;
+
+	@Option(name="-incremental", usage="exports only the rows which entered or changed since the previous export with the same snapshot file and deletes the rows which left the subset. The snapshot is updated after the script has been imported with the same option", metaVar="snapshot-file")
+	public String snapshotFile = null;
+
+	@Option(name="-change-indicators", usage="timestamp or row-version columns used by incremental exports to detect changed rows (rows of other tables are compared by content)", metaVar="<table>=<column>[';'<table>=<column>]*")
+	public String changeIndicators = null;
+
+	@Option(name="-metrics", usage="writes timing and row-count metrics per association and table into the given file (JSON if it ends with '.json', else CSV)", metaVar="file")
+	public String metricsFile = null;
+
 	@Option(name="-independent-working-tables", usage="create working tables that are independent of the extraction model. (Potentially less efficient)")
 	public boolean independentWorkingTables = false;
 	
 	@Option(name="-transactional", usage="import rows in a single transaction")
 	public boolean transactional = false;
 	
+	@Option(name="-batch-size", usage="import statements between two sync points as JDBC batches of the given size (default is 0, no batching)", metaVar="#statements")
+	public int batchSize = 0;
+	
+	@Option(name="-commit-interval", usage="commit after the given number of statements when importing in batches (if not transactional)", metaVar="#statements")
+	public int commitInterval = 0;
+	
 	@Option(name="-isolation-level", usage="isolation level (optional), 1=READ_UNCOMMITTED, 2=READ_COMMITTED, 4=REPEATABLE_READ, 8=SERIALIZABLE")
 	public Integer isolationLevel = null;
 	
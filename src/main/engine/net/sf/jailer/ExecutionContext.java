@@ -77,6 +77,16 @@ public class ExecutionContext {
 		this.datamodelFolder = other.datamodelFolder;
 		this.noSorting = other.noSorting;
 		this.orderByPK = other.orderByPK;
+		this.pipelinedCollection = other.pipelinedCollection;
+		this.chunkSize = other.chunkSize;
+		this.resumeGraphID = other.resumeGraphID;
+		this.snapshotFile = other.snapshotFile;
+		this.rawChangeIndicators = other.rawChangeIndicators;
+		if (other.changeIndicators != null) {
+			this.changeIndicators = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+			this.changeIndicators.putAll(other.changeIndicators);
+		}
+		this.metricsFile = other.metricsFile;
 		this.transactional = other.transactional;
 		this.isolationLevel = other.isolationLevel;
 		this.noRowid = other.noRowid;
@@ -365,20 +375,20 @@ public class ExecutionContext {
 	}
 
 	/**
-	 * Gets scope of working tables, GLOBAL, SESSION_LOCAL or LOCAL_DATABASE
+	 * Gets scope of working tables, GLOBAL, SESSION_LOCAL, LOCAL_DATABASE or MEMORY
 	 *
-	 * @return scope of working tables, GLOBAL, SESSION_LOCAL or LOCAL_DATABASE
+	 * @return scope of working tables, GLOBAL, SESSION_LOCAL, LOCAL_DATABASE or MEMORY
 	 */
 	public WorkingTableScope getScope() {
 		return scope;
 	}
 
 	/**
-	 * Sets scope of working tables, GLOBAL, SESSION_LOCAL or LOCAL_DATABASE
+	 * Sets scope of working tables, GLOBAL, SESSION_LOCAL, LOCAL_DATABASE or MEMORY
 	 *
 	 * @param scope
-	 *            scope of working tables, GLOBAL, SESSION_LOCAL or
-	 *            LOCAL_DATABASE
+	 *            scope of working tables, GLOBAL, SESSION_LOCAL,
+	 *            LOCAL_DATABASE or MEMORY
 	 */
 	public void setScope(WorkingTableScope scope) {
 		this.scope = scope;
@@ -469,6 +479,128 @@ public class ExecutionContext {
 		this.orderByPK = orderByPK;
 	}
 
+	/**
+	 * If <code>true</code>, the associations of a table are resolved as soon as the rows of the table are collected,
+	 * without waiting until all associations of the previous day are resolved.
+	 */
+	public boolean isPipelinedCollection() {
+		return pipelinedCollection;
+	}
+
+	/**
+	 * @param pipelinedCollection if <code>true</code>, the associations of a table are resolved as soon as the rows of the table are collected
+	 */
+	public void setPipelinedCollection(boolean pipelinedCollection) {
+		this.pipelinedCollection = pipelinedCollection;
+	}
+
+	/**
+	 * Gets the maximum number of subject rows collected at once. The subject rows are partitioned
+	 * into chunks by ranges of the primary key and the rows associated with each chunk are collected
+	 * before the next chunk is started. 0 if the subject rows are collected at once.
+	 *
+	 * @return maximum number of subject rows per chunk, 0 for no chunking
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Sets the maximum number of subject rows collected at once.
+	 *
+	 * @param chunkSize maximum number of subject rows per chunk, 0 for no chunking
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Gets the ID of the entity graph of an interrupted chunked collection to be resumed.
+	 *
+	 * @return the graph ID or <code>null</code>
+	 */
+	public Integer getResumeGraphID() {
+		return resumeGraphID;
+	}
+
+	/**
+	 * Sets the ID of the entity graph of an interrupted chunked collection to be resumed.
+	 *
+	 * @param resumeGraphID the graph ID or <code>null</code>
+	 */
+	public void setResumeGraphID(Integer resumeGraphID) {
+		this.resumeGraphID = resumeGraphID;
+	}
+
+	/**
+	 * Gets the file holding the snapshot of the rows exported in the previous run of an incremental export.
+	 * Only rows which entered or changed since the previous run are exported, rows which left the subset are deleted.
+	 *
+	 * @return the snapshot file, <code>null</code> if the export is not incremental
+	 */
+	public String getSnapshotFile() {
+		return snapshotFile;
+	}
+
+	/**
+	 * Sets the file holding the snapshot of the rows exported in the previous run of an incremental export.
+	 *
+	 * @param snapshotFile the snapshot file, <code>null</code> if the export is not incremental
+	 */
+	public void setSnapshotFile(String snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	/**
+	 * Gets the change indicator columns (timestamp or row-version columns) per table, used by incremental exports
+	 * to detect changed rows. Rows of tables without change indicator are compared by content.
+	 *
+	 * @return change indicator column per table name
+	 */
+	public Map<String, String> getChangeIndicators() {
+		if (changeIndicators == null) {
+			Map<String, String> map = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+			if (rawChangeIndicators != null) {
+				for (String tc: CsvFile.decodeLine(rawChangeIndicators)) {
+					int i = tc.indexOf('=');
+					if (i >= 0) {
+						map.put(tc.substring(0, i).trim(), tc.substring(i + 1).trim());
+					}
+				}
+			}
+			changeIndicators = map;
+		}
+		return changeIndicators;
+	}
+
+	/**
+	 * Sets the change indicator column of a table.
+	 *
+	 * @param tableName the table name
+	 * @param column the timestamp or row-version column
+	 */
+	public void setChangeIndicator(String tableName, String column) {
+		getChangeIndicators().put(tableName, column);
+	}
+
+	/**
+	 * Gets the name of the file into which timing and row-count metrics per association and table are written.
+	 *
+	 * @return the file name (JSON if it ends with ".json", else CSV) or <code>null</code>
+	 */
+	public String getMetricsFile() {
+		return metricsFile;
+	}
+
+	/**
+	 * Sets the name of the file into which timing and row-count metrics per association and table are written.
+	 *
+	 * @param metricsFile the file name (JSON if it ends with ".json", else CSV) or <code>null</code>
+	 */
+	public void setMetricsFile(String metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+
 	/**
 	 * If <code>true</code>, Import rows in a single transaction
 	 *
@@ -841,6 +973,25 @@ public class ExecutionContext {
 	// orders the exported rows according to the primary key
 	private boolean orderByPK = false;
 
+	// resolves the associations of a table as soon as the rows of the table are collected
+	private boolean pipelinedCollection = false;
+
+	// maximum number of subject rows collected at once, 0 for no chunking
+	private int chunkSize = 0;
+
+	// ID of the entity graph of an interrupted chunked collection to be resumed
+	private Integer resumeGraphID = null;
+
+	// snapshot of the rows exported in the previous run of an incremental export
+	private String snapshotFile = null;
+
+	// change indicator column per table
+	private Map<String, String> changeIndicators = null;
+	private String rawChangeIndicators = null;
+
+	// file into which timing and row-count metrics are written
+	private String metricsFile = null;
+
 	// import rows in a single transaction
 	private boolean transactional = false;
 	
@@ -961,6 +1112,12 @@ public class ExecutionContext {
 		datamodelFolder = commandLine.datamodelFolder;
 		noSorting = commandLine.noSorting;
 		orderByPK = commandLine.orderByPK;
+		pipelinedCollection = commandLine.pipelinedCollection;
+		chunkSize = commandLine.chunkSize;
+		resumeGraphID = commandLine.resumeGraphID;
+		snapshotFile = commandLine.snapshotFile;
+		rawChangeIndicators = commandLine.changeIndicators;
+		metricsFile = commandLine.metricsFile;
 		independentWorkingTables = commandLine.independentWorkingTables;
 		transactional = commandLine.transactional;
 		isolationLevel = commandLine.isolationLevel;
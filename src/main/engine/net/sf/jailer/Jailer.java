@@ -32,6 +32,8 @@ import javax.sql.DataSource;
 
 import org.apache.log4j.Logger;
 
+import net.sf.jailer.binary.BinaryFormat;
+import net.sf.jailer.binary.BinaryScriptExecutor;
 import net.sf.jailer.configuration.Configuration;
 import net.sf.jailer.configuration.DBMS;
 import net.sf.jailer.database.BasicDataSource;
@@ -47,6 +49,7 @@ import net.sf.jailer.modelbuilder.ModelBuilder;
 import net.sf.jailer.progress.ProgressListener;
 import net.sf.jailer.render.DataModelRenderer;
 import net.sf.jailer.restrictionmodel.RestrictionModel;
+import net.sf.jailer.subsetting.ExportSnapshot;
 import net.sf.jailer.subsetting.SubsettingEngine;
 import net.sf.jailer.util.CancellationException;
 import net.sf.jailer.util.CancellationHandler;
@@ -192,7 +195,17 @@ public class Jailer {
 							commandLine.arguments.get(5), 0, jdbcJarURLs);
 					Session session = new Session(dataSource, dataSource.dbms, commandLine.isolationLevel, null, commandLine.transactional);
 					try {
-						new SqlScriptExecutor(session, commandLine.numberOfThreads, false).executeScript(commandLine.arguments.get(1), commandLine.transactional);
+						if (BinaryFormat.isBinaryScript(commandLine.arguments.get(1))) {
+							new BinaryScriptExecutor(session, commandLine.numberOfThreads).executeScript(commandLine.arguments.get(1), commandLine.transactional);
+						} else {
+							SqlScriptExecutor sqlScriptExecutor = new SqlScriptExecutor(session, commandLine.numberOfThreads, false);
+							sqlScriptExecutor.setBatchSize(commandLine.batchSize);
+							sqlScriptExecutor.setCommitInterval(commandLine.commitInterval);
+							sqlScriptExecutor.executeScript(commandLine.arguments.get(1), commandLine.transactional);
+						}
+						if (commandLine.snapshotFile != null) {
+							ExportSnapshot.commit(new File(commandLine.snapshotFile));
+						}
 					} finally {
 						try {
 							session.shutDown();
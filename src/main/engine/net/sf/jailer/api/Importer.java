@@ -22,7 +22,10 @@ import java.sql.SQLException;
 
 import javax.sql.DataSource;
 
+import net.sf.jailer.binary.BinaryFormat;
+import net.sf.jailer.binary.BinaryScriptExecutor;
 import net.sf.jailer.database.Session;
+import net.sf.jailer.subsetting.ExportSnapshot;
 import net.sf.jailer.util.SqlScriptExecutor;
 
 /**
@@ -48,13 +51,23 @@ public class Importer {
 	}
 
 	/**
-	 * Imports a SQL-script-file.
+	 * Imports a SQL-script-file or a script in binary format.
 	 * 
 	 * @param inputScript the SQL-script-file
 	 */
 	public void execute(File inputScript) throws IOException, SQLException {
 		Session session = new Session(getDataSource(), null, isolationLevel, null, getTransactional());
-		new SqlScriptExecutor(session, getNumberOfThreads(), false).executeScript(inputScript.getPath(), getTransactional());
+		if (BinaryFormat.isBinaryScript(inputScript.getPath())) {
+			new BinaryScriptExecutor(session, getNumberOfThreads()).executeScript(inputScript.getPath(), getTransactional());
+		} else {
+			SqlScriptExecutor sqlScriptExecutor = new SqlScriptExecutor(session, getNumberOfThreads(), false);
+			sqlScriptExecutor.setBatchSize(getBatchSize());
+			sqlScriptExecutor.setCommitInterval(getCommitInterval());
+			sqlScriptExecutor.executeScript(inputScript.getPath(), getTransactional());
+		}
+		if (snapshotFile != null) {
+			ExportSnapshot.commit(new File(snapshotFile));
+		}
 	}
 	
 	/**
@@ -113,6 +126,46 @@ public class Importer {
 		this.transactional = transactional;
 	}
 
+	/**
+	 * Gets number of statements per JDBC batch. (default is 0, no batching)
+	 *
+	 * @return number of statements per JDBC batch
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets number of statements per JDBC batch. (default is 0, no batching)<br>
+	 * If greater than 0, the statements between two sync points are executed as JDBC batches.
+	 *
+	 * @param batchSize
+	 *            number of statements per JDBC batch
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Gets number of statements after which the rows are committed. (default is 0, no intermediate commits)
+	 *
+	 * @return number of statements after which the rows are committed
+	 */
+	public int getCommitInterval() {
+		return commitInterval;
+	}
+
+	/**
+	 * Sets number of statements after which the rows are committed. (default is 0, no intermediate commits)<br>
+	 * Only applies to batch mode and non-transactional imports.
+	 *
+	 * @param commitInterval
+	 *            number of statements after which the rows are committed
+	 */
+	public void setCommitInterval(int commitInterval) {
+		this.commitInterval = commitInterval;
+	}
+
 	/**
 	 * Gets IsolationLevel.
 	 * 
@@ -131,9 +184,32 @@ public class Importer {
 		this.isolationLevel = isolationLevel;
 	}
 
+	/**
+	 * Gets the snapshot file of the incremental export whose script is imported.
+	 * 
+	 * @return the snapshot file, <code>null</code> if the script is not the result of an incremental export
+	 */
+	public String getSnapshotFile() {
+		return snapshotFile;
+	}
+
+	/**
+	 * Sets the snapshot file of the incremental export whose script is imported.
+	 * The snapshot of the export is committed after the script has been imported successfully,
+	 * so that the next export computes the delta against the imported rows.
+	 * 
+	 * @param snapshotFile the snapshot file, <code>null</code> if the script is not the result of an incremental export
+	 */
+	public void setSnapshotFile(String snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
 	private DataSource dataSource;
+	private String snapshotFile;
 	private int numberOfThreads = 1;
 	private boolean transactional = true;
+	private int batchSize = 0;
+	private int commitInterval = 0;
 	private Integer isolationLevel;
 
 }
@@ -35,6 +35,7 @@ import net.sf.jailer.subsetting.ExportStatistic;
 import net.sf.jailer.subsetting.InconsistentSubsettingResultException;
 import net.sf.jailer.subsetting.ScriptFormat;
 import net.sf.jailer.subsetting.SubsettingEngine;
+import net.sf.jailer.util.JobManager;
 
 /**
  * Generates a subset of a relational database that respects foreign key constraints. <br>
@@ -138,6 +139,22 @@ public class Subsetter {
 	 * @throws InconsistentSubsettingResultException if {@link ExecutionContext#isAbortInCaseOfInconsistency()} and the number of exported rows differs from that of the collected ones
 	 */
 	public ExportStatistic execute(String whereClause, File exportScriptFile, File deleteScriptFile) throws SQLException, IOException {
+		return execute(whereClause, exportScriptFile, deleteScriptFile, null, false, null);
+	}
+
+	/**
+	 * Generates the export- and/or delete-script.
+	 * 
+	 * @param whereClause if not <code>null</code>, overrides the extraction model's subject condition 
+	 * @param exportScriptFile the export-script file (compressed if it ends with '.zip' or '.gz'), optional
+	 * @param deleteScriptFile the delete-script file (compressed if it ends with '.zip' or '.gz'), optional
+	 * @param sharedJobManager job manager shared with other exports, <code>null</code> if the export uses its own one
+	 * @param workingTablesUptodate if <code>true</code>, the working tables are known to be up-to-date and are not checked
+	 * @param workingTablesLock lock held while the working tables are checked and created, shared with other exports, <code>null</code> if not shared
+	 * 
+	 * @return export statistic
+	 */
+	ExportStatistic execute(String whereClause, File exportScriptFile, File deleteScriptFile, JobManager sharedJobManager, boolean workingTablesUptodate, Object workingTablesLock) throws SQLException, IOException {
 		try {
 			if (getDataModelURL() == null) {
 				throw new IllegalStateException("missing DataModelURL");
@@ -159,7 +176,12 @@ public class Subsetter {
 					throw new IllegalStateException("no DBMS set but data-source is not net.sf.jailer.database.BasicDataSource");
 				}
 			}
-			return new SubsettingEngine(executionContext).export(
+			SubsettingEngine subsettingEngine = new SubsettingEngine(executionContext, sharedJobManager);
+			subsettingEngine.setWorkingTablesUptodate(workingTablesUptodate);
+			if (workingTablesLock != null) {
+				subsettingEngine.setWorkingTablesLock(workingTablesLock);
+			}
+			return subsettingEngine.export(
 					whereClause,
 					getExtractionModelURL(), 
 					exportScriptFile == null? null : exportScriptFile.getAbsolutePath(),
@@ -488,21 +510,21 @@ public class Subsetter {
 	}
 
 	/**
-	 * Gets scope of working tables, GLOBAL, SESSION_LOCAL or LOCAL_DATABASE <br>
+	 * Gets scope of working tables, GLOBAL, SESSION_LOCAL, LOCAL_DATABASE or MEMORY <br>
 	 * Default is GLOBAL.
 	 *
-	 * @return scope of working tables, GLOBAL, SESSION_LOCAL or LOCAL_DATABASE
+	 * @return scope of working tables, GLOBAL, SESSION_LOCAL, LOCAL_DATABASE or MEMORY
 	 */
 	public WorkingTableScope getScope() {
 		return executionContext.getScope();
 	}
 
 	/**
-	 * Sets scope of working tables, GLOBAL, SESSION_LOCAL or LOCAL_DATABASE
+	 * Sets scope of working tables, GLOBAL, SESSION_LOCAL, LOCAL_DATABASE or MEMORY
 	 *
 	 * @param scope
-	 *            scope of working tables, GLOBAL, SESSION_LOCAL or
-	 *            LOCAL_DATABASE
+	 *            scope of working tables, GLOBAL, SESSION_LOCAL,
+	 *            LOCAL_DATABASE or MEMORY
 	 */
 	public void setScope(WorkingTableScope scope) {
 		executionContext.setScope(scope);
@@ -550,6 +572,120 @@ public class Subsetter {
 		executionContext.setNoSorting(noSorting);
 	}
 
+	/**
+	 * If <code>true</code>, the associations of a table are resolved as soon as the rows of the table are collected,
+	 * without waiting until all associations of the previous day are resolved.
+	 *
+	 * @return <code>true</code> if the collection is pipelined
+	 */
+	public boolean isPipelinedCollection() {
+		return executionContext.isPipelinedCollection();
+	}
+
+	/**
+	 * If <code>true</code>, the associations of a table are resolved as soon as the rows of the table are collected,
+	 * without waiting until all associations of the previous day are resolved.
+	 *
+	 * @param pipelinedCollection <code>true</code> if the collection is pipelined
+	 */
+	public void setPipelinedCollection(boolean pipelinedCollection) {
+		executionContext.setPipelinedCollection(pipelinedCollection);
+	}
+
+	/**
+	 * Gets the maximum number of subject rows collected at once. The subject rows are partitioned
+	 * into chunks by ranges of the primary key and the rows associated with each chunk are collected
+	 * before the next chunk is started. With global working tables, a checkpoint is recorded after each chunk.
+	 *
+	 * @return maximum number of subject rows per chunk, 0 for no chunking
+	 */
+	public int getChunkSize() {
+		return executionContext.getChunkSize();
+	}
+
+	/**
+	 * Sets the maximum number of subject rows collected at once. The subject rows are partitioned
+	 * into chunks by ranges of the primary key and the rows associated with each chunk are collected
+	 * before the next chunk is started. With global working tables, a checkpoint is recorded after each chunk.
+	 *
+	 * @param chunkSize maximum number of subject rows per chunk, 0 for no chunking
+	 */
+	public void setChunkSize(int chunkSize) {
+		executionContext.setChunkSize(chunkSize);
+	}
+
+	/**
+	 * Gets the ID of the entity graph of an interrupted chunked collection to be resumed.
+	 *
+	 * @return the graph ID or <code>null</code>
+	 */
+	public Integer getResumeGraphID() {
+		return executionContext.getResumeGraphID();
+	}
+
+	/**
+	 * Sets the ID of the entity graph of an interrupted chunked collection to be resumed.
+	 * The collection continues with the first chunk after the last checkpoint.
+	 * Requires working table scope {@link WorkingTableScope#GLOBAL}.
+	 *
+	 * @param resumeGraphID the graph ID or <code>null</code>
+	 */
+	public void setResumeGraphID(Integer resumeGraphID) {
+		executionContext.setResumeGraphID(resumeGraphID);
+	}
+
+	/**
+	 * Gets the file holding the snapshot of the rows exported in the previous run of an incremental export.
+	 *
+	 * @return the snapshot file, <code>null</code> if the export is not incremental
+	 */
+	public String getSnapshotFile() {
+		return executionContext.getSnapshotFile();
+	}
+
+	/**
+	 * Sets the file holding the snapshot of the rows exported in the previous run of an incremental export.
+	 * Only rows which entered or changed since the previous run are exported (changed rows as upsert statements),
+	 * rows which left the subset are deleted. The snapshot of an export is pending until the script has been imported
+	 * with an {@link Importer} with the same snapshot file (see {@link Importer#setSnapshotFile(String)}).
+	 * Supported for SQL scripts only.
+	 *
+	 * @param snapshotFile the snapshot file, <code>null</code> if the export is not incremental
+	 */
+	public void setSnapshotFile(String snapshotFile) {
+		executionContext.setSnapshotFile(snapshotFile);
+	}
+
+	/**
+	 * Sets the change indicator column (a timestamp or row-version column) of a table,
+	 * used by incremental exports to detect changed rows. Rows of tables without change indicator are compared by content.
+	 *
+	 * @param tableName the table name
+	 * @param column the change indicator column
+	 */
+	public void setChangeIndicator(String tableName, String column) {
+		executionContext.setChangeIndicator(tableName, column);
+	}
+
+	/**
+	 * Gets the name of the file into which timing and row-count metrics per association and table are written.
+	 *
+	 * @return the file name (JSON if it ends with ".json", else CSV) or <code>null</code>
+	 */
+	public String getMetricsFile() {
+		return executionContext.getMetricsFile();
+	}
+
+	/**
+	 * Sets the name of the file into which timing and row-count metrics per association and table are written.
+	 * The metrics are also available via {@link ExportStatistic#getMetrics()}.
+	 *
+	 * @param metricsFile the file name (JSON if it ends with ".json", else CSV) or <code>null</code>
+	 */
+	public void setMetricsFile(String metricsFile) {
+		executionContext.setMetricsFile(metricsFile);
+	}
+
 	/**
 	 * If <code>true</code>, Use primary keys to determine row identity (instead
 	 * of rowid-column)
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import net.sf.jailer.database.WorkingTableScope;
+import net.sf.jailer.subsetting.ExportStatistic;
+import net.sf.jailer.util.JobManager;
+
+/**
+ * Long-lived service for repeated exports with the same configuration. <br>
+ * Unlike {@link Subsetter#execute(String, File, File)}, which sets up everything for a single export,
+ * the service keeps the parsed extraction models (see {@link Subsetter#getModelPoolSize()}), the job-runner threads
+ * and the knowledge that the working tables are up-to-date, and runs up to a given number of exports concurrently.
+ * Each export uses an entity-graph of its own. <br>
+ * Connections are taken from the data-source of the {@link Subsetter}, use a pooling data-source to keep them open.
+ *
+ * <pre>
+ * SubsettingService service = new SubsettingService(subsetter, 4);
+ * try {
+ *     Future&lt;ExportStatistic&gt; result = service.submit("CUSTOMER_ID=4711", new File("customer-4711.sql"), null);
+ *     ...
+ * } finally {
+ *     service.shutdown();
+ * }
+ * </pre>
+ *
+ * @author Ralf Wisser
+ */
+public class SubsettingService {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(SubsettingService.class);
+
+	/**
+	 * Configuration of the exports.
+	 */
+	private final Subsetter subsetter;
+
+	/**
+	 * Runs the exports.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Job manager shared by all exports.
+	 */
+	private final JobManager jobManager;
+
+	/**
+	 * Are the working tables known to be up-to-date?
+	 */
+	private volatile boolean workingTablesUptodate = false;
+
+	/**
+	 * Lock for preparing the working tables.
+	 */
+	private final Object workingTablesLock = new Object();
+
+	/**
+	 * Points in time (in milliseconds) at which exports have been finished during the last minute.
+	 */
+	private final LinkedList<Long> finishTimes = new LinkedList<Long>();
+
+	/**
+	 * Total number of finished exports.
+	 */
+	private long numberOfExports = 0;
+
+	/**
+	 * Total time (in milliseconds) spent executing exports.
+	 */
+	private long totalExportTime = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param subsetter configuration of the exports (will be copied)
+	 * @param maxConcurrentExports maximum number of exports running concurrently
+	 */
+	public SubsettingService(Subsetter subsetter, int maxConcurrentExports) {
+		if (maxConcurrentExports < 1) {
+			throw new IllegalArgumentException("maxConcurrentExports < 1");
+		}
+		this.subsetter = new Subsetter(subsetter);
+		if (this.subsetter.getModelPoolSize() < maxConcurrentExports) {
+			this.subsetter.setModelPoolSize(maxConcurrentExports);
+		}
+		this.jobManager = new JobManager(Math.max(1, subsetter.getNumberOfThreads()) * maxConcurrentExports);
+		final AtomicInteger threadNumber = new AtomicInteger(0);
+		this.executor = Executors.newFixedThreadPool(maxConcurrentExports, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "export-runner " + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Submits an export. The export is executed as soon as less than the maximum number of exports are running.
+	 *
+	 * @param whereClause if not <code>null</code>, overrides the extraction model's subject condition
+	 * @param exportScriptFile the export-script file (compressed if it ends with '.zip' or '.gz'), optional
+	 * @param deleteScriptFile the delete-script file (compressed if it ends with '.zip' or '.gz'), optional
+	 *
+	 * @return the future export statistic
+	 */
+	public Future<ExportStatistic> submit(final String whereClause, final File exportScriptFile, final File deleteScriptFile) {
+		return executor.submit(new Callable<ExportStatistic>() {
+			@Override
+			public ExportStatistic call() throws Exception {
+				return export(whereClause, exportScriptFile, deleteScriptFile);
+			}
+		});
+	}
+
+	/**
+	 * Executes an export and waits until it is finished.
+	 *
+	 * @param whereClause if not <code>null</code>, overrides the extraction model's subject condition
+	 * @param exportScriptFile the export-script file (compressed if it ends with '.zip' or '.gz'), optional
+	 * @param deleteScriptFile the delete-script file (compressed if it ends with '.zip' or '.gz'), optional
+	 *
+	 * @return export statistic
+	 */
+	public ExportStatistic execute(String whereClause, File exportScriptFile, File deleteScriptFile) throws SQLException, IOException {
+		try {
+			return submit(whereClause, exportScriptFile, deleteScriptFile).get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Executes an export in the current thread.
+	 */
+	private ExportStatistic export(String whereClause, File exportScriptFile, File deleteScriptFile) throws SQLException, IOException {
+		long startTime = System.currentTimeMillis();
+		Subsetter exportSubsetter = new Subsetter(subsetter);
+		// until an export has succeeded, each export checks (and creates) the working tables while holding the lock
+		ExportStatistic exportStatistic = exportSubsetter.execute(whereClause, exportScriptFile, deleteScriptFile, jobManager, workingTablesUptodate, workingTablesLock);
+		if (subsetter.getScope() == WorkingTableScope.GLOBAL) {
+			workingTablesUptodate = true;
+		}
+		long finishTime = System.currentTimeMillis();
+		synchronized (finishTimes) {
+			++numberOfExports;
+			totalExportTime += finishTime - startTime;
+			finishTimes.add(finishTime);
+			removeOldFinishTimes(finishTime);
+		}
+		_log.info("export finished in " + (finishTime - startTime) + " ms, " + getExportsPerMinute() + " exports/minute");
+		return exportStatistic;
+	}
+
+	/**
+	 * Gets the number of exports finished during the last minute.
+	 *
+	 * @return throughput in exports/minute
+	 */
+	public int getExportsPerMinute() {
+		synchronized (finishTimes) {
+			removeOldFinishTimes(System.currentTimeMillis());
+			return finishTimes.size();
+		}
+	}
+
+	/**
+	 * Gets the total number of finished exports.
+	 */
+	public long getNumberOfExports() {
+		synchronized (finishTimes) {
+			return numberOfExports;
+		}
+	}
+
+	/**
+	 * Gets the average time (in milliseconds) an export needed.
+	 */
+	public long getAverageExportTime() {
+		synchronized (finishTimes) {
+			return numberOfExports == 0? 0 : totalExportTime / numberOfExports;
+		}
+	}
+
+	private void removeOldFinishTimes(long now) {
+		while (!finishTimes.isEmpty() && finishTimes.getFirst() <= now - TimeUnit.MINUTES.toMillis(1)) {
+			finishTimes.removeFirst();
+		}
+	}
+
+	/**
+	 * Shuts the service down. Exports already submitted will be finished.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		jobManager.shutdown();
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.binary;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+
+import net.sf.jailer.configuration.DBMS;
+
+/**
+ * Binary export format.<br>
+ * <br>
+ * A binary script starts with {@link #MAGIC} followed by a sequence of records.
+ * Each record starts with a tag:
+ * <ul>
+ * <li>{@link #TEXT}: length (int) and UTF-8 encoded content of the text part of the script
+ * (comments, "-- sync" markers, SQL statements)</li>
+ * <li>{@link #ROWS}: length (int) and a block of rows of a table</li>
+ * <li>{@link #END}: end of script</li>
+ * </ul>
+ * A block of rows consists of the qualified table name, the identity-insert flag,
+ * the column descriptors (name, SQL type, value kind), the number of rows and
+ * the column values, one column after the other. Each value is preceded by
+ * a null-flag.
+ *
+ * @author Ralf Wisser
+ */
+public class BinaryFormat {
+
+	/**
+	 * Start of binary scripts.
+	 */
+	static final byte[] MAGIC = "JAILER-BINARY-1\n".getBytes(Charset.forName("US-ASCII"));
+
+	/**
+	 * Record tags.
+	 */
+	static final byte TEXT = 'S';
+	static final byte ROWS = 'R';
+	static final byte END = 'E';
+
+	/**
+	 * Value kinds.
+	 */
+	static final byte LONG = 1;
+	static final byte DOUBLE = 2;
+	static final byte DECIMAL = 3;
+	static final byte STRING = 4;
+	static final byte BYTES = 5;
+	static final byte BOOLEAN = 6;
+	static final byte DATE = 7;
+	static final byte TIME = 8;
+	static final byte TIMESTAMP = 9;
+	static final byte OBJECT = 10;
+
+	/**
+	 * Gets the kind of the values of a column.
+	 *
+	 * @param sqlType the SQL type of the column (see {@link Types})
+	 * @param dbms the source DBMS
+	 * @return the value kind
+	 */
+	static byte valueKind(int sqlType, DBMS dbms) {
+		switch (sqlType) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+		case Types.BIGINT:
+			return LONG;
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return DOUBLE;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			return DECIMAL;
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+		case Types.LONGNVARCHAR:
+		case Types.CLOB:
+		case Types.NCLOB:
+			return STRING;
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+			return BYTES;
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return BOOLEAN;
+		case Types.DATE:
+			if (DBMS.ORACLE.equals(dbms)) {
+				// Oracle's DATE has a time part
+				return TIMESTAMP;
+			}
+			return DATE;
+		case Types.TIME:
+			return TIME;
+		case Types.TIMESTAMP:
+			return TIMESTAMP;
+		default:
+			return OBJECT;
+		}
+	}
+
+	/**
+	 * Opens a script file for reading. Decompresses ".gz" and ".zip" files.
+	 *
+	 * @param scriptFileName name of the file
+	 * @return input stream
+	 */
+	static InputStream openInputStream(String scriptFileName) throws IOException {
+		InputStream inputStream = new FileInputStream(scriptFileName);
+		if (scriptFileName.toLowerCase().endsWith(".gz")) {
+			return new GZIPInputStream(inputStream);
+		} else if (scriptFileName.toLowerCase().endsWith(".zip")) {
+			ZipInputStream zis = new ZipInputStream(inputStream);
+			zis.getNextEntry();
+			return zis;
+		}
+		return inputStream;
+	}
+
+	/**
+	 * Checks whether a file is a binary script.
+	 *
+	 * @param scriptFileName name of the file
+	 * @return <code>true</code> if the file starts with {@link #MAGIC}
+	 */
+	public static boolean isBinaryScript(String scriptFileName) throws IOException {
+		InputStream in = openInputStream(scriptFileName);
+		try {
+			byte[] start = new byte[MAGIC.length];
+			int n = 0;
+			while (n < start.length) {
+				int r = in.read(start, n, start.length - n);
+				if (r < 0) {
+					return false;
+				}
+				n += r;
+			}
+			return Arrays.equals(start, MAGIC);
+		} finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.binary;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import net.sf.jailer.database.Session;
+import net.sf.jailer.util.CancellationHandler;
+import net.sf.jailer.util.Pair;
+
+/**
+ * Reads in and executes scripts in {@link BinaryFormat}.<br>
+ * Rows are inserted via batched prepared statements. Blocks of rows between
+ * two "sync" markers are inserted in parallel.
+ *
+ * @author Ralf Wisser
+ */
+public class BinaryScriptExecutor {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(BinaryScriptExecutor.class);
+
+	/**
+	 * The session.
+	 */
+	private final Session session;
+
+	/**
+	 * Number of threads to use.
+	 */
+	private final int threads;
+
+	/**
+	 * Inserts blocks of rows in parallel.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Blocks of rows which are not yet inserted.
+	 */
+	private final LinkedList<Future<Long>> pendingBlocks = new LinkedList<Future<Long>>();
+
+	private int statementCount;
+	private long rowCount;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param session for execution of statements
+	 * @param threads number of threads to use
+	 */
+	public BinaryScriptExecutor(Session session, int threads) {
+		this.session = session;
+		this.threads = threads;
+	}
+
+	/**
+	 * Reads in and executes a binary script.
+	 *
+	 * @param scriptFileName the name of the script-file
+	 * @param transactional execute script in a single transaction?
+	 *
+	 * @return Pair(statementCount, rowCount)
+	 */
+	public Pair<Integer, Long> executeScript(String scriptFileName, boolean transactional) throws IOException, SQLException {
+		if (!transactional) {
+			return executeScript(scriptFileName);
+		}
+		try {
+			Pair<Integer, Long> r = executeScript(scriptFileName);
+			session.commitAll();
+			return r;
+		} catch (IOException e) {
+			session.rollbackAll();
+			throw e;
+		} catch (SQLException e) {
+			session.rollbackAll();
+			throw e;
+		} catch (RuntimeException e) {
+			session.rollbackAll();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads in and executes a binary script.
+	 *
+	 * @param scriptFileName the name of the script-file
+	 *
+	 * @return Pair(statementCount, rowCount)
+	 */
+	public Pair<Integer, Long> executeScript(String scriptFileName) throws IOException, SQLException {
+		_log.info("reading file '" + scriptFileName + "'");
+		DataInputStream in = new DataInputStream(new BufferedInputStream(BinaryFormat.openInputStream(scriptFileName)));
+		statementCount = 0;
+		rowCount = 0;
+		executor = threads > 1? Executors.newFixedThreadPool(threads) : null;
+		CancellationHandler.reset(null);
+		try {
+			byte[] magic = new byte[BinaryFormat.MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, BinaryFormat.MAGIC)) {
+				throw new IOException("'" + scriptFileName + "' is not a binary script");
+			}
+			ByteArrayOutputStream text = new ByteArrayOutputStream();
+			StringBuilder currentStatement = new StringBuilder();
+			long t = System.currentTimeMillis();
+			for (;;) {
+				byte tag = in.readByte();
+				if (tag == BinaryFormat.TEXT) {
+					byte[] content = new byte[in.readInt()];
+					in.readFully(content);
+					text.write(content);
+					executeText(text, false, currentStatement);
+				} else if (tag == BinaryFormat.ROWS) {
+					byte[] block = new byte[in.readInt()];
+					in.readFully(block);
+					executeBlock(block);
+				} else if (tag == BinaryFormat.END) {
+					executeText(text, true, currentStatement);
+					break;
+				} else {
+					throw new IOException("corrupt binary script '" + scriptFileName + "'");
+				}
+				CancellationHandler.checkForCancellation(null);
+				if (System.currentTimeMillis() > t + 1000) {
+					t = System.currentTimeMillis();
+					_log.info(statementCount + " statements, " + rowCount + " rows");
+				}
+			}
+			sync();
+			_log.info(statementCount + " statements, " + rowCount + " rows (100%)");
+			_log.info("successfully read file '" + scriptFileName + "'");
+			return new Pair<Integer, Long>(statementCount, rowCount);
+		} finally {
+			in.close();
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+	}
+
+	/**
+	 * Executes the complete lines of the text part.
+	 *
+	 * @param text the text not yet executed
+	 * @param eof <code>true</code> at end of script
+	 * @param currentStatement the incomplete statement
+	 */
+	private void executeText(ByteArrayOutputStream text, boolean eof, StringBuilder currentStatement) throws IOException, SQLException {
+		byte[] bytes = text.toByteArray();
+		int end = bytes.length;
+		if (!eof) {
+			while (end > 0 && bytes[end - 1] != '\n') {
+				--end;
+			}
+		}
+		if (end == 0) {
+			return;
+		}
+		text.reset();
+		text.write(bytes, end, bytes.length - end);
+		for (String line: new String(bytes, 0, end, "UTF-8").split("\n")) {
+			line = line.trim();
+			if (line.length() == 0) {
+				continue;
+			}
+			if (line.startsWith("--")) {
+				String uncommentedLine = line.substring(2).trim();
+				if (uncommentedLine.equals("sync") || uncommentedLine.equals("epilog")) {
+					sync();
+				}
+				continue;
+			}
+			if (line.endsWith(";")) {
+				currentStatement.append(line.substring(0, line.length() - 1));
+				String stmt = currentStatement.toString();
+				currentStatement.setLength(0);
+				if (stmt.trim().length() > 0) {
+					sync();
+					rowCount += session.execute(stmt);
+					++statementCount;
+				}
+			} else {
+				currentStatement.append(line + " ");
+			}
+		}
+	}
+
+	/**
+	 * Inserts a block of rows.
+	 *
+	 * @param block the block
+	 */
+	private void executeBlock(byte[] block) throws IOException, SQLException {
+		final RowBlock rowBlock = new RowBlock(block);
+		if (rowBlock.identityInsert || executor == null) {
+			sync();
+			rowCount += rowBlock.insert();
+		} else {
+			if (pendingBlocks.size() >= 2 * threads) {
+				rowCount += await(pendingBlocks.removeFirst());
+			}
+			pendingBlocks.add(executor.submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					return rowBlock.insert();
+				}
+			}));
+		}
+		++statementCount;
+	}
+
+	/**
+	 * Waits until all pending blocks are inserted.
+	 */
+	private void sync() throws SQLException {
+		while (!pendingBlocks.isEmpty()) {
+			rowCount += await(pendingBlocks.removeFirst());
+		}
+	}
+
+	private long await(Future<Long> future) throws SQLException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * A decoded block of rows.
+	 */
+	private class RowBlock {
+		final String tableName;
+		final boolean identityInsert;
+		final String[] columnNames;
+		final int[] columnTypes;
+		final byte[] valueKinds;
+		final Object[][] values;
+		final int rows;
+
+		RowBlock(byte[] block) throws IOException {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+			tableName = readString(in);
+			identityInsert = in.readBoolean();
+			int columnCount = in.readInt();
+			columnNames = new String[columnCount];
+			columnTypes = new int[columnCount];
+			valueKinds = new byte[columnCount];
+			for (int i = 0; i < columnCount; ++i) {
+				columnNames[i] = readString(in);
+				columnTypes[i] = in.readInt();
+				valueKinds[i] = in.readByte();
+			}
+			rows = in.readInt();
+			values = new Object[columnCount][rows];
+			for (int i = 0; i < columnCount; ++i) {
+				for (int r = 0; r < rows; ++r) {
+					values[i][r] = readValue(in, valueKinds[i]);
+				}
+			}
+		}
+
+		/**
+		 * Inserts the rows.
+		 *
+		 * @return row count
+		 */
+		long insert() throws SQLException {
+			StringBuilder sql = new StringBuilder("Insert into " + tableName + "(");
+			StringBuilder params = new StringBuilder();
+			for (int i = 0; i < columnNames.length; ++i) {
+				if (i > 0) {
+					sql.append(", ");
+					params.append(", ");
+				}
+				sql.append(columnNames[i]);
+				params.append("?");
+			}
+			sql.append(") values (").append(params).append(")");
+
+			Connection connection = session.getConnection();
+			if (identityInsert) {
+				session.execute("SET IDENTITY_INSERT " + tableName + " ON");
+			}
+			PreparedStatement statement = connection.prepareStatement(sql.toString());
+			try {
+				for (int r = 0; r < rows; ++r) {
+					for (int i = 0; i < columnNames.length; ++i) {
+						setParameter(statement, i + 1, values[i][r], valueKinds[i], columnTypes[i]);
+					}
+					statement.addBatch();
+				}
+				long rc = 0;
+				for (int n: statement.executeBatch()) {
+					rc += n == Statement.SUCCESS_NO_INFO? 1 : n;
+				}
+				return rc;
+			} catch (SQLException e) {
+				_log.warn(sql, e);
+				throw e;
+			} finally {
+				statement.close();
+				if (identityInsert) {
+					session.execute("SET IDENTITY_INSERT " + tableName + " OFF");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a value.
+	 *
+	 * @param in to read from
+	 * @param valueKind kind of value
+	 * @return the value
+	 */
+	private static Object readValue(DataInputStream in, byte valueKind) throws IOException {
+		if (in.readBoolean()) {
+			return null;
+		}
+		switch (valueKind) {
+		case BinaryFormat.LONG:
+			return in.readLong();
+		case BinaryFormat.DOUBLE:
+			return in.readDouble();
+		case BinaryFormat.DECIMAL:
+			return new BigDecimal(readString(in));
+		case BinaryFormat.BYTES:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return bytes;
+		case BinaryFormat.BOOLEAN:
+			return in.readBoolean();
+		case BinaryFormat.DATE:
+			return new Date(in.readLong());
+		case BinaryFormat.TIME:
+			return new Time(in.readLong());
+		case BinaryFormat.TIMESTAMP:
+			Timestamp timestamp = new Timestamp(in.readLong());
+			timestamp.setNanos(in.readInt());
+			return timestamp;
+		default:
+			return readString(in);
+		}
+	}
+
+	/**
+	 * Sets a parameter of a prepared statement.
+	 */
+	private static void setParameter(PreparedStatement statement, int index, Object value, byte valueKind, int sqlType) throws SQLException {
+		if (value == null) {
+			statement.setNull(index, sqlType);
+			return;
+		}
+		switch (valueKind) {
+		case BinaryFormat.LONG:
+			statement.setLong(index, (Long) value);
+			break;
+		case BinaryFormat.DOUBLE:
+			statement.setDouble(index, (Double) value);
+			break;
+		case BinaryFormat.DECIMAL:
+			statement.setBigDecimal(index, (BigDecimal) value);
+			break;
+		case BinaryFormat.BYTES:
+			statement.setBytes(index, (byte[]) value);
+			break;
+		case BinaryFormat.BOOLEAN:
+			statement.setBoolean(index, (Boolean) value);
+			break;
+		case BinaryFormat.DATE:
+			statement.setDate(index, (Date) value);
+			break;
+		case BinaryFormat.TIME:
+			statement.setTime(index, (Time) value);
+			break;
+		case BinaryFormat.TIMESTAMP:
+			statement.setTimestamp(index, (Timestamp) value);
+			break;
+		case BinaryFormat.STRING:
+			statement.setString(index, (String) value);
+			break;
+		default:
+			statement.setObject(index, value, sqlType);
+			break;
+		}
+	}
+
+	/**
+	 * Reads a string (length and UTF-8 encoded content).
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.binary;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Writes a script in {@link BinaryFormat}.<br>
+ * Text written into this writer becomes the text part of the script,
+ * rows are written as blocks via {@link #writeRowBlock(byte[])}.
+ *
+ * @author Ralf Wisser
+ */
+public class BinaryScriptWriter extends OutputStreamWriter {
+
+	/**
+	 * The underlying stream.
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param outputStream the stream to write the script into
+	 */
+	public BinaryScriptWriter(OutputStream outputStream) throws IOException {
+		this(new DataOutputStream(outputStream));
+	}
+
+	private BinaryScriptWriter(DataOutputStream out) throws IOException {
+		super(new TextRecordStream(out), "UTF-8");
+		this.out = out;
+		out.write(BinaryFormat.MAGIC);
+	}
+
+	/**
+	 * Writes a block of rows.
+	 *
+	 * @param block the block (see {@link BinaryTransformer})
+	 */
+	public void writeRowBlock(byte[] block) throws IOException {
+		synchronized (lock) {
+			flush();
+			out.writeByte(BinaryFormat.ROWS);
+			out.writeInt(block.length);
+			out.write(block);
+		}
+	}
+
+	/**
+	 * Frames the encoded text into text records.
+	 */
+	private static class TextRecordStream extends OutputStream {
+
+		private final DataOutputStream out;
+
+		TextRecordStream(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len > 0) {
+				out.writeByte(BinaryFormat.TEXT);
+				out.writeInt(len);
+				out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// records are written on close
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.writeByte(BinaryFormat.END);
+			out.close();
+		}
+	}
+
+}
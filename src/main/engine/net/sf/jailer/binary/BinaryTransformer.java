@@ -0,0 +1,380 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import net.sf.jailer.ExecutionContext;
+import net.sf.jailer.configuration.DBMS;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.database.Session.AbstractResultSetReader;
+import net.sf.jailer.database.Session.ResultSetReader;
+import net.sf.jailer.datamodel.Column;
+import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.subsetting.TransformerFactory;
+import net.sf.jailer.util.Quoting;
+
+/**
+ * Reads a JDBC result set and writes the read rows as typed column blocks
+ * into a script in {@link BinaryFormat}.
+ *
+ * @author Ralf Wisser
+ */
+public class BinaryTransformer extends AbstractResultSetReader {
+
+	/**
+	 * Maximum number of rows per block.
+	 */
+	private static final int MAX_ROWS_PER_BLOCK = 1000;
+
+	/**
+	 * A block is written as soon as its size exceeds this limit.
+	 */
+	private static final int MAX_BLOCK_SIZE = 1024 * 1024;
+
+	/**
+	 * The table to read from.
+	 */
+	private final Table table;
+
+	/**
+	 * The script to write to.
+	 */
+	private final BinaryScriptWriter scriptWriter;
+
+	/**
+	 * Current session.
+	 */
+	private final Session session;
+
+	/**
+	 * For quoting of column names.
+	 */
+	private final Quoting quoting;
+
+	/**
+	 * The execution context.
+	 */
+	private final ExecutionContext executionContext;
+
+	/**
+	 * If table has identity column (MSSQL/Sybase)
+	 */
+	private boolean tableHasIdentityColumn;
+
+	/**
+	 * Number of columns.
+	 */
+	private int columnCount;
+
+	/**
+	 * Labels of columns.
+	 */
+	private String[] columnLabel = null;
+
+	/**
+	 * SQL types of columns.
+	 */
+	private int[] columnType;
+
+	/**
+	 * Value kinds of columns.
+	 */
+	private byte[] valueKind;
+
+	/**
+	 * Values of the current block, per column.
+	 */
+	private ByteArrayOutputStream[] columnBuffer;
+	private DataOutputStream[] columnData;
+
+	/**
+	 * Number of rows in current block.
+	 */
+	private int rowCount = 0;
+
+	/**
+	 * Factory.
+	 */
+	public static class Factory implements TransformerFactory {
+
+		private final BinaryScriptWriter scriptWriter;
+		private final Session session;
+		private final DBMS targetDBMSConfiguration;
+
+		/**
+		 * The execution context.
+		 */
+		private final ExecutionContext executionContext;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param scriptWriter the script to write to
+		 * @param session the session
+		 * @param targetDBMSConfiguration configuration of the target DBMS
+		 */
+		public Factory(BinaryScriptWriter scriptWriter, Session session, DBMS targetDBMSConfiguration, ExecutionContext executionContext) {
+			this.scriptWriter = scriptWriter;
+			this.session = session;
+			this.targetDBMSConfiguration = targetDBMSConfiguration;
+			this.executionContext = executionContext;
+		}
+
+		/**
+		 * Creates transformer (as {@link ResultSetReader} which
+		 * transforms rows of a given table into an external representation.
+		 *
+		 * @param table the table
+		 * @return a transformer
+		 */
+		@Override
+		public ResultSetReader create(Table table) throws SQLException {
+			return new BinaryTransformer(table, scriptWriter, session, targetDBMSConfiguration, executionContext);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param table the table to read from
+	 * @param scriptWriter the script to write to
+	 * @param session the session
+	 * @param targetDBMSConfiguration configuration of the target DBMS
+	 */
+	private BinaryTransformer(Table table, BinaryScriptWriter scriptWriter, Session session, DBMS targetDBMSConfiguration, ExecutionContext executionContext) throws SQLException {
+		this.table = table;
+		this.scriptWriter = scriptWriter;
+		this.session = session;
+		this.executionContext = executionContext;
+		this.quoting = new Quoting(session);
+		if (targetDBMSConfiguration != null && targetDBMSConfiguration != session.dbms) {
+			if (targetDBMSConfiguration.getIdentifierQuoteString() != null) {
+				this.quoting.setIdentifierQuoteString(targetDBMSConfiguration.getIdentifierQuoteString());
+			}
+		}
+		tableHasIdentityColumn = false;
+		if (targetDBMSConfiguration != null && targetDBMSConfiguration.isIdentityInserts()) {
+			for (Column c: table.getColumns()) {
+				if (c.isIdentityColumn) {
+					tableHasIdentityColumn = true;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads result-set and writes into the script.
+	 */
+	@Override
+	public void readCurrentRow(ResultSet resultSet) throws SQLException {
+		if (columnLabel == null) {
+			ResultSetMetaData metaData = getMetaData(resultSet);
+			columnCount = metaData.getColumnCount();
+			columnLabel = new String[columnCount + 1];
+			columnType = new int[columnCount + 1];
+			valueKind = new byte[columnCount + 1];
+			columnBuffer = new ByteArrayOutputStream[columnCount + 1];
+			columnData = new DataOutputStream[columnCount + 1];
+			for (int i = 1; i <= columnCount; ++i) {
+				columnLabel[i] = quoting.quote(metaData.getColumnLabel(i));
+				columnType[i] = metaData.getColumnType(i);
+				valueKind[i] = BinaryFormat.valueKind(columnType[i], session.dbms);
+				columnBuffer[i] = new ByteArrayOutputStream();
+				columnData[i] = new DataOutputStream(columnBuffer[i]);
+			}
+		}
+		try {
+			int size = 0;
+			for (int i = 1; i <= columnCount; ++i) {
+				writeValue(resultSet, i, columnData[i]);
+				size += columnBuffer[i].size();
+			}
+			++rowCount;
+			if (rowCount >= MAX_ROWS_PER_BLOCK || size >= MAX_BLOCK_SIZE) {
+				writeBlock();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes a value.
+	 *
+	 * @param resultSet the result set
+	 * @param i column index
+	 * @param out to write into
+	 */
+	private void writeValue(ResultSet resultSet, int i, DataOutputStream out) throws SQLException, IOException {
+		switch (valueKind[i]) {
+		case BinaryFormat.LONG: {
+			long value = resultSet.getLong(i);
+			if (!writeNullFlag(resultSet, out)) {
+				out.writeLong(value);
+			}
+			break;
+		}
+		case BinaryFormat.DOUBLE: {
+			double value = resultSet.getDouble(i);
+			if (!writeNullFlag(resultSet, out)) {
+				out.writeDouble(value);
+			}
+			break;
+		}
+		case BinaryFormat.DECIMAL: {
+			BigDecimal value = resultSet.getBigDecimal(i);
+			if (!writeNullFlag(resultSet, out)) {
+				writeString(value.toString(), out);
+			}
+			break;
+		}
+		case BinaryFormat.BYTES: {
+			byte[] value = resultSet.getBytes(i);
+			if (!writeNullFlag(resultSet, out)) {
+				out.writeInt(value.length);
+				out.write(value);
+			}
+			break;
+		}
+		case BinaryFormat.BOOLEAN: {
+			boolean value = resultSet.getBoolean(i);
+			if (!writeNullFlag(resultSet, out)) {
+				out.writeBoolean(value);
+			}
+			break;
+		}
+		case BinaryFormat.DATE: {
+			Date value = resultSet.getDate(i);
+			if (!writeNullFlag(resultSet, out)) {
+				out.writeLong(value.getTime());
+			}
+			break;
+		}
+		case BinaryFormat.TIME: {
+			Time value = resultSet.getTime(i);
+			if (!writeNullFlag(resultSet, out)) {
+				out.writeLong(value.getTime());
+			}
+			break;
+		}
+		case BinaryFormat.TIMESTAMP: {
+			Timestamp value = resultSet.getTimestamp(i);
+			if (!writeNullFlag(resultSet, out)) {
+				out.writeLong(value.getTime());
+				out.writeInt(value.getNanos());
+			}
+			break;
+		}
+		default: {
+			String value = resultSet.getString(i);
+			if (!writeNullFlag(resultSet, out)) {
+				writeString(value, out);
+			}
+			break;
+		}
+		}
+	}
+
+	/**
+	 * Writes the null-flag of the last read value.
+	 *
+	 * @return <code>true</code> if value is null
+	 */
+	private boolean writeNullFlag(ResultSet resultSet, DataOutputStream out) throws SQLException, IOException {
+		boolean isNull = resultSet.wasNull();
+		out.writeBoolean(isNull);
+		return isNull;
+	}
+
+	/**
+	 * Writes a string (length and UTF-8 encoded content).
+	 */
+	static void writeString(String value, DataOutputStream out) throws IOException {
+		byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Writes the current block into the script.
+	 */
+	private void writeBlock() throws IOException {
+		if (rowCount == 0) {
+			return;
+		}
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(block);
+		writeString(qualifiedTableName(table), out);
+		out.writeBoolean(tableHasIdentityColumn);
+		out.writeInt(columnCount);
+		for (int i = 1; i <= columnCount; ++i) {
+			writeString(columnLabel[i], out);
+			out.writeInt(columnType[i]);
+			out.writeByte(valueKind[i]);
+		}
+		out.writeInt(rowCount);
+		for (int i = 1; i <= columnCount; ++i) {
+			columnData[i].flush();
+			columnBuffer[i].writeTo(out);
+			columnBuffer[i].reset();
+		}
+		out.flush();
+		rowCount = 0;
+		scriptWriter.writeRowBlock(block.toByteArray());
+	}
+
+	/**
+	 * Gets qualified table name.
+	 *
+	 * @param t the table
+	 * @return qualified name of t
+	 */
+	private String qualifiedTableName(Table t) {
+		String schema = t.getOriginalSchema("");
+		String mappedSchema = executionContext.getSchemaMapping().get(schema);
+		if (mappedSchema != null) {
+			schema = mappedSchema;
+		}
+		if (schema.length() == 0) {
+			return quoting.requote(t.getUnqualifiedName());
+		}
+		return quoting.requote(schema) + "." + quoting.requote(t.getUnqualifiedName());
+	}
+
+	/**
+	 * Writes the remaining rows.
+	 */
+	@Override
+	public void close() {
+		try {
+			writeBlock();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -97,6 +97,7 @@ public class DBMS {
 		this.embeddedLobSizeLimit = other.embeddedLobSizeLimit;
 		this.binaryPattern = other.binaryPattern;
 		this.avoidLeftJoin = other.avoidLeftJoin;
+		this.batchInsert = other.batchInsert;
 		this.timestampPattern = other.timestampPattern;
 		this.timestampFormat = other.timestampFormat;
 		this.datePattern = other.datePattern;
@@ -108,11 +109,13 @@ public class DBMS {
 		this.viewTextOrDDLQuery = other.viewTextOrDDLQuery;
 		this.synonymTableQuery = other.synonymTableQuery;
 		this.estimatedRowCountQuery = other.estimatedRowCountQuery;
+		this.selectListParameterMarker = other.selectListParameterMarker;
 		this.virtualColumnsQuery = other.virtualColumnsQuery;
 		this.userDefinedColumnsQuery = other.userDefinedColumnsQuery;
 		this.importedKeysQuery = other.importedKeysQuery;
 		this.primaryKeysQuery = other.primaryKeysQuery;
 		this.indexInfoQuery = other.indexInfoQuery;
+		this.lastDDLQuery = other.lastDDLQuery;
 		this.identifierQuoteString = other.identifierQuoteString;
 		this.rowidType = other.rowidType;
 		this.sessionTemporaryTableManager = other.sessionTemporaryTableManager;
@@ -289,6 +292,7 @@ public class DBMS {
 	private int embeddedLobSizeLimit = 3980;
 	private String binaryPattern = "x'%s'";
 	private boolean avoidLeftJoin = false;
+	private boolean batchInsert = false;
 	private String timestampPattern = null;
 	private String datePattern = null;
 	@XmlTransient
@@ -302,10 +306,12 @@ public class DBMS {
 	private String synonymTableQuery;
 	private String viewTextOrDDLQuery = "SELECT VIEW_DEFINITION FROM INFORMATION_SCHEMA.VIEWS WHERE TABLE_SCHEMA = '%1$s' and TABLE_NAME = '%2$s'";
 	private String estimatedRowCountQuery = null;
+	private String selectListParameterMarker = null;
 	private String userDefinedColumnsQuery = null;
 	private String importedKeysQuery = null;
 	private String primaryKeysQuery = null;
 	private String indexInfoQuery = null;
+	private String lastDDLQuery = null;
 	private String identifierQuoteString = "\"";
 
 	private String explainCreateExplainTable = null;
@@ -656,6 +662,23 @@ public class DBMS {
 		this.avoidLeftJoin = avoidLeftJoin;
 	}
 
+	/**
+	 * If <code>true</code>, keys are inserted into a local database of this DBMS
+	 * using batched prepared statements instead of inline-views.
+	 * 
+	 * @return the batchInsert
+	 */
+	public boolean isBatchInsert() {
+		return batchInsert;
+	}
+
+	/**
+	 * @param batchInsert the batchInsert to set
+	 */
+	public void setBatchInsert(boolean batchInsert) {
+		this.batchInsert = batchInsert;
+	}
+
 	/**
 	 * @param sqlLimitSuffix the sqlLimitSuffix to set
 	 */
@@ -874,6 +897,23 @@ public class DBMS {
 		this.indexInfoQuery = indexInfoQuery;
 	}
 
+	/**
+	 * Gets the query for the time of the last DDL of each table of schema "${SCHEMA}".
+	 * The query returns the table name and a value which changes whenever the table is changed.
+	 * 
+	 * @return the lastDDLQuery, <code>null</code> if the DBMS doesn't keep track of the changes
+	 */
+	public String getLastDDLQuery() {
+		return lastDDLQuery;
+	}
+
+	/**
+	 * @param lastDDLQuery the lastDDLQuery to set
+	 */
+	public void setLastDDLQuery(String lastDDLQuery) {
+		this.lastDDLQuery = lastDDLQuery;
+	}
+
 	/**
 	 * @return the toNClob
 	 */
@@ -1056,6 +1096,22 @@ public class DBMS {
 		this.estimatedRowCountQuery = estimatedRowCountQuery;
 	}
 
+	/**
+	 * Gets parameter marker for integer parameters in select lists (for example "CAST(? AS INTEGER)"),
+	 * or <code>null</code> if such parameters must be inlined as literals.
+	 */
+	public String getSelectListParameterMarker() {
+		return selectListParameterMarker;
+	}
+
+	/**
+	 * Sets parameter marker for integer parameters in select lists (for example "CAST(? AS INTEGER)"),
+	 * or <code>null</code> if such parameters must be inlined as literals.
+	 */
+	public void setSelectListParameterMarker(String selectListParameterMarker) {
+		this.selectListParameterMarker = selectListParameterMarker;
+	}
+
 	/**
 	 * Gets query to get view text.
 	 */
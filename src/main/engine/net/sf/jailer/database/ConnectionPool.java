@@ -0,0 +1,471 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jailer.database.Session.ConnectionFactory;
+
+/**
+ * Bounded pool of the connections of a {@link Session}.<br>
+ * A connection is bound to the thread which acquired it (thread affinity), so that each thread
+ * keeps working with the same connection. The connection is returned into the pool when the
+ * thread has died. Idle connections are validated before they are reused
+ * and closed after they have been idle for a while.<br>
+ * If the maximum number of connections is reached, a thread waits for an idle connection.
+ * If none becomes idle in time, the thread shares the connection with the least number of threads.
+ *
+ * @author Ralf Wisser
+ */
+public class ConnectionPool {
+
+	/**
+	 * Default maximum number of connections.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+	/**
+	 * Maximum time (in milliseconds) a thread waits for an idle connection before it shares a connection.
+	 */
+	private static final long MAX_WAIT_TIME = 2000;
+
+	/**
+	 * Interval (in milliseconds) in which waiting threads look for connections of died threads.
+	 */
+	private static final long WAIT_INTERVAL = 100;
+
+	/**
+	 * Connections which have been idle for longer than this time (in milliseconds) are validated before they are reused.
+	 */
+	private static final long VALIDATION_INTERVAL = 10000;
+
+	/**
+	 * Timeout (in seconds) for validating a connection.
+	 */
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	/**
+	 * Connections which have been idle for longer than this time (in milliseconds) are closed.
+	 */
+	private static final long IDLE_TIMEOUT = 60000;
+
+	/**
+	 * Creates new connections.
+	 */
+	private final ConnectionFactory connectionFactory;
+
+	/**
+	 * Maximum number of connections.
+	 */
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+	/**
+	 * All connections, in order of creation.
+	 */
+	private final List<Connection> connections = new ArrayList<Connection>();
+
+	/**
+	 * Threads bound to each connection.
+	 */
+	private final Map<Connection, List<Thread>> threads = new IdentityHashMap<Connection, List<Thread>>();
+
+	/**
+	 * Idle connections.
+	 */
+	private final LinkedList<Connection> idle = new LinkedList<Connection>();
+
+	/**
+	 * Point in time at which each idle connection became idle.
+	 */
+	private final Map<Connection, Long> idleSince = new IdentityHashMap<Connection, Long>();
+
+	/**
+	 * Connection which is never returned into the pool implicitly (the default connection of a session).
+	 */
+	private Connection pinnedConnection;
+
+	private long acquisitions = 0;
+	private long createdConnections = 0;
+	private long reusedConnections = 0;
+	private long invalidConnections = 0;
+	private long evictedConnections = 0;
+	private long sharedConnections = 0;
+	private long waits = 0;
+	private long totalWaitTime = 0;
+	private long maxWaitTime = 0;
+	private int peakConnections = 0;
+	private int peakInUse = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param connectionFactory creates new connections
+	 */
+	ConnectionPool(ConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
+
+	/**
+	 * Acquires a connection for the current thread.
+	 *
+	 * @return the connection, bound to the current thread
+	 */
+	synchronized Connection acquire() throws SQLException {
+		Thread thread = Thread.currentThread();
+		++acquisitions;
+		long startTime = System.currentTimeMillis();
+		boolean waited = false;
+		try {
+			for (;;) {
+				reclaim();
+				Connection con = pollIdle();
+				if (con == null && connections.size() < maxConnections) {
+					try {
+						con = connectionFactory.getConnection();
+					} catch (SQLException e) {
+						if (connections.isEmpty()) {
+							throw e;
+						}
+						// fall back to a shared connection
+						con = leastSharedConnection();
+						++sharedConnections;
+						bind(con, thread);
+						return con;
+					}
+					++createdConnections;
+					connections.add(con);
+					peakConnections = Math.max(peakConnections, connections.size());
+				}
+				if (con != null) {
+					bind(con, thread);
+					return con;
+				}
+				long waitTime = System.currentTimeMillis() - startTime;
+				if (waitTime >= MAX_WAIT_TIME) {
+					con = leastSharedConnection();
+					++sharedConnections;
+					bind(con, thread);
+					return con;
+				}
+				waited = true;
+				try {
+					wait(Math.min(WAIT_INTERVAL, MAX_WAIT_TIME - waitTime));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		} finally {
+			if (waited) {
+				long waitTime = System.currentTimeMillis() - startTime;
+				++waits;
+				totalWaitTime += waitTime;
+				maxWaitTime = Math.max(maxWaitTime, waitTime);
+			}
+		}
+	}
+
+	/**
+	 * Binds a connection to the current thread.
+	 *
+	 * @param con the connection
+	 */
+	synchronized void bind(Connection con) {
+		Thread thread = Thread.currentThread();
+		for (List<Thread> threadList: threads.values()) {
+			threadList.remove(thread);
+		}
+		if (!connections.contains(con)) {
+			connections.add(con);
+			peakConnections = Math.max(peakConnections, connections.size());
+		}
+		if (idle.remove(con)) {
+			idleSince.remove(con);
+		}
+		bind(con, thread);
+	}
+
+	/**
+	 * Removes a connection from the pool (e.g. if it is invalid). The connection will not be closed.
+	 *
+	 * @param con the connection
+	 */
+	synchronized void remove(Connection con) {
+		connections.remove(con);
+		threads.remove(con);
+		if (idle.remove(con)) {
+			idleSince.remove(con);
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Sets the connection which is never returned into the pool implicitly.
+	 *
+	 * @param con the connection
+	 */
+	synchronized void setPinnedConnection(Connection con) {
+		pinnedConnection = con;
+	}
+
+	/**
+	 * Removes all connections from the pool. The connections will not be closed.
+	 *
+	 * @return the connections
+	 */
+	synchronized List<Connection> clear() {
+		List<Connection> result = new ArrayList<Connection>(connections);
+		connections.clear();
+		threads.clear();
+		idle.clear();
+		idleSince.clear();
+		notifyAll();
+		return result;
+	}
+
+	/**
+	 * Gets all connections.
+	 *
+	 * @return all connections (in use or idle)
+	 */
+	synchronized List<Connection> getConnections() {
+		return new ArrayList<Connection>(connections);
+	}
+
+	private void bind(Connection con, Thread thread) {
+		List<Thread> threadList = threads.get(con);
+		if (threadList == null) {
+			threadList = new ArrayList<Thread>(1);
+			threads.put(con, threadList);
+		}
+		if (!threadList.contains(thread)) {
+			threadList.add(thread);
+		}
+		peakInUse = Math.max(peakInUse, threads.size());
+	}
+
+	private void makeIdle(Connection con) {
+		idle.addLast(con);
+		idleSince.put(con, System.currentTimeMillis());
+		notifyAll();
+	}
+
+	/**
+	 * Returns the connections of died threads into the pool and closes connections which have been idle for too long.
+	 */
+	private void reclaim() {
+		Iterator<Map.Entry<Connection, List<Thread>>> i = threads.entrySet().iterator();
+		List<Connection> reclaimed = new ArrayList<Connection>();
+		while (i.hasNext()) {
+			Map.Entry<Connection, List<Thread>> e = i.next();
+			Iterator<Thread> ti = e.getValue().iterator();
+			while (ti.hasNext()) {
+				if (!ti.next().isAlive()) {
+					ti.remove();
+				}
+			}
+			Connection con = e.getKey();
+			if (e.getValue().isEmpty() && con != pinnedConnection) {
+				i.remove();
+				reclaimed.add(con);
+			}
+		}
+		for (Connection con: reclaimed) {
+			makeIdle(con);
+		}
+		long now = System.currentTimeMillis();
+		while (!idle.isEmpty() && now - idleSince.get(idle.getFirst()) > IDLE_TIMEOUT) {
+			Connection con = idle.removeFirst();
+			idleSince.remove(con);
+			connections.remove(con);
+			++evictedConnections;
+			close(con);
+		}
+	}
+
+	/**
+	 * Takes the most recently used valid connection from the idle connections.
+	 *
+	 * @return idle connection or <code>null</code>
+	 */
+	private Connection pollIdle() {
+		while (!idle.isEmpty()) {
+			Connection con = idle.removeLast();
+			long idleTime = System.currentTimeMillis() - idleSince.remove(con);
+			if (idleTime > VALIDATION_INTERVAL && !isValid(con)) {
+				connections.remove(con);
+				++invalidConnections;
+				close(con);
+				continue;
+			}
+			++reusedConnections;
+			return con;
+		}
+		return null;
+	}
+
+	private Connection leastSharedConnection() {
+		Connection result = null;
+		int min = Integer.MAX_VALUE;
+		for (Connection con: connections) {
+			List<Thread> threadList = threads.get(con);
+			int n = threadList == null? 0 : threadList.size();
+			if (n < min) {
+				min = n;
+				result = con;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Called before the pool closes a connection (because it has been idle for too long or is invalid).
+	 *
+	 * @param con the connection
+	 */
+	protected void closed(Connection con) {
+	}
+
+	private static boolean isValid(Connection con) {
+		try {
+			return con.isValid(VALIDATION_TIMEOUT);
+		} catch (SQLException e) {
+			return false;
+		} catch (Throwable t) {
+			// isValid is not supported by the driver
+			return true;
+		}
+	}
+
+	/**
+	 * Closes a connection which the pool discarded.
+	 *
+	 * @param con the connection
+	 */
+	private void close(Connection con) {
+		closed(con);
+		try {
+			con.close();
+		// catch all because ucanaccess throws non-SQLException
+		} catch (Throwable e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * Gets the maximum number of connections.
+	 */
+	public synchronized int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Sets the maximum number of connections.
+	 *
+	 * @param maxConnections maximum number of connections
+	 */
+	public synchronized void setMaxConnections(int maxConnections) {
+		this.maxConnections = Math.max(1, maxConnections);
+		notifyAll();
+	}
+
+	/**
+	 * Gets the number of connections (in use or idle).
+	 */
+	public synchronized int getSize() {
+		return connections.size();
+	}
+
+	/**
+	 * Gets the number of connections bound to at least one thread.
+	 */
+	public synchronized int getInUse() {
+		return threads.size();
+	}
+
+	/**
+	 * Gets the utilization of the pool (connections in use relative to the maximum number of connections).
+	 *
+	 * @return utilization between 0 and 1
+	 */
+	public synchronized double getUtilization() {
+		return threads.size() / (double) maxConnections;
+	}
+
+	/**
+	 * Gets the number of times a thread acquired a connection.
+	 */
+	public synchronized long getAcquisitions() {
+		return acquisitions;
+	}
+
+	/**
+	 * Gets the number of times a thread had to wait for a connection.
+	 */
+	public synchronized long getWaits() {
+		return waits;
+	}
+
+	/**
+	 * Gets the total time (in milliseconds) threads have been waiting for a connection.
+	 */
+	public synchronized long getTotalWaitTime() {
+		return totalWaitTime;
+	}
+
+	/**
+	 * Gets the maximum time (in milliseconds) a thread has been waiting for a connection.
+	 */
+	public synchronized long getMaxWaitTime() {
+		return maxWaitTime;
+	}
+
+	/**
+	 * Gets the maximum number of connections which have been open at the same time.
+	 */
+	public synchronized int getPeakConnections() {
+		return peakConnections;
+	}
+
+	/**
+	 * Gets the maximum number of connections which have been in use at the same time.
+	 */
+	public synchronized int getPeakInUse() {
+		return peakInUse;
+	}
+
+	/**
+	 * Gets the number of times a thread shared a connection with other threads because no connection was available.
+	 */
+	public synchronized long getSharedConnections() {
+		return sharedConnections;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return connections.size() + " connections (max " + maxConnections + ", peak " + peakConnections + ", peak in use " + peakInUse + "), "
+				+ acquisitions + " acquisitions, " + createdConnections + " created, " + reusedConnections + " reused, "
+				+ invalidConnections + " invalid, " + evictedConnections + " evicted, " + sharedConnections + " shared, "
+				+ waits + " waits (" + totalWaitTime + " ms total, " + maxWaitTime + " ms max)";
+	}
+
+}
@@ -34,6 +34,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.log4j.Logger;
+
 import net.sf.jailer.ExecutionContext;
 import net.sf.jailer.configuration.Configuration;
 import net.sf.jailer.configuration.DBMS;
@@ -43,6 +45,8 @@ import net.sf.jailer.datamodel.Column;
 import net.sf.jailer.datamodel.DataModel;
 import net.sf.jailer.datamodel.Filter;
 import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.subsetting.ExportSnapshot;
+import net.sf.jailer.subsetting.ExportSnapshot.RowState;
 import net.sf.jailer.subsetting.TransformerFactory;
 import net.sf.jailer.util.Base64;
 import net.sf.jailer.util.CellContentConverter;
@@ -59,6 +63,11 @@ import net.sf.jailer.util.SqlUtil;
  */
 public class DMLTransformer extends AbstractResultSetReader {
 
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(DMLTransformer.class);
+
 	/**
 	 * The table to read from.
 	 */
@@ -69,6 +78,16 @@ public class DMLTransformer extends AbstractResultSetReader {
 	 */
 	private final OutputStreamWriter scriptFileWriter;
 	
+	/**
+	 * Content rendered by this transformer which is not yet written into the script.
+	 */
+	private final StringBuilder chunk = new StringBuilder();
+
+	/**
+	 * Content is written into the script as soon as the size of {@link #chunk} exceeds this limit.
+	 */
+	private static final int MAX_CHUNK_SIZE = 64 * 1024;
+	
 	/**
 	 * Number of columns.
 	 */
@@ -177,6 +196,18 @@ public class DMLTransformer extends AbstractResultSetReader {
 	
 	private final Set<String> primaryKeyColumnNames;
 
+	/**
+	 * Rows of the table exported in the previous run of an incremental export, <code>null</code> if the export is not incremental.
+	 */
+	private ExportSnapshot exportSnapshot;
+	private ExportSnapshot.TableSnapshot tableSnapshot;
+
+	/**
+	 * Result set indexes of the primary key columns and of the change indicator column (0 if there is none).
+	 */
+	private int[] primaryKeyIndex;
+	private int changeIndicatorIndex;
+
 	/**
 	 * Factory.
 	 */
@@ -188,6 +219,7 @@ public class DMLTransformer extends AbstractResultSetReader {
 		private final Session session;
 		private final DBMS targetDBMSConfiguration;
 		private ImportFilterTransformer importFilterTransformer;
+		private ExportSnapshot exportSnapshot;
 		
 		/**
 		 * The execution context.
@@ -219,7 +251,9 @@ public class DMLTransformer extends AbstractResultSetReader {
 		 */
 		@Override
 		public ResultSetReader create(Table table) throws SQLException {
-			return new DMLTransformer(table, scriptFileWriter, upsertOnly, maxBodySize, session, targetDBMSConfiguration, importFilterTransformer, executionContext);
+			DMLTransformer transformer = new DMLTransformer(table, scriptFileWriter, upsertOnly, maxBodySize, session, targetDBMSConfiguration, importFilterTransformer, executionContext);
+			transformer.exportSnapshot = exportSnapshot;
+			return transformer;
 		}
 		
 		/**
@@ -229,6 +263,13 @@ public class DMLTransformer extends AbstractResultSetReader {
 			this.importFilterTransformer = importFilterManager;
 		}
 
+		/**
+		 * Sets the snapshot of the rows exported in the previous run of an incremental export.
+		 */
+		public void setExportSnapshot(ExportSnapshot exportSnapshot) {
+			this.exportSnapshot = exportSnapshot;
+		}
+
 	};
 
 	private final List<Column> selectionClause;
@@ -324,6 +365,9 @@ public class DMLTransformer extends AbstractResultSetReader {
 				}
 				labelCSL += columnLabel[i];
 			}
+			if (exportSnapshot != null) {
+				initTableSnapshot(resultSet);
+			}
 		}
 		try {
 			StringBuffer valueList = new StringBuffer("");
@@ -331,6 +375,14 @@ public class DMLTransformer extends AbstractResultSetReader {
 			boolean f = true;
 			Map<Integer, String> smallLobsPerIndex = new HashMap<Integer, String>();
 			CellContentConverter cellContentConverter = getCellContentConverter(resultSet, session, targetDBMSConfiguration);
+			boolean changed = false;
+			if (tableSnapshot != null) {
+				RowState state = tableSnapshot.put(primaryKey(cellContentConverter, resultSet), fingerprint(cellContentConverter, resultSet));
+				if (state == RowState.UNCHANGED) {
+					return;
+				}
+				changed = state == RowState.CHANGED;
+			}
 			for (int i = 1; i <= columnCount; ++i) {
 				Object content = null;
 				if (columnLabel[i] == null) {
@@ -363,7 +415,7 @@ public class DMLTransformer extends AbstractResultSetReader {
 				valueList.append(cVal);
 				namedValues.append(cVal + " " + columnLabel[i]);
 			}
-			if (table.getUpsert() || upsertOnly) {
+			if (table.getUpsert() || upsertOnly || changed) {
 				if (table.getNonVirtualPKColumns(session).isEmpty()) {
 					throw new DataModel.NoPrimaryKeyException(table, "has no primary key. Upsert statement can not be generated.");
 				}
@@ -782,6 +834,91 @@ public class DMLTransformer extends AbstractResultSetReader {
 
 	private Map<Integer, IdentityHashMap<Filter, Filter>> seen = new HashMap<Integer, IdentityHashMap<Filter,Filter>>();
 
+	/**
+	 * Looks up the primary key columns and the change indicator column of the table in the result set
+	 * and gets the rows of the table exported in the previous run.
+	 */
+	private void initTableSnapshot(ResultSet resultSet) throws SQLException {
+		List<Column> pkColumns = table.getNonVirtualPKColumns(session);
+		String changeIndicator = executionContext.getChangeIndicators().get(table.getName());
+		if (changeIndicator == null) {
+			changeIndicator = executionContext.getChangeIndicators().get(table.getUnqualifiedName());
+		}
+		primaryKeyIndex = new int[pkColumns.size()];
+		changeIndicatorIndex = 0;
+		List<String> pkColumnNames = new ArrayList<String>();
+		for (int i = 1; i <= columnCount; ++i) {
+			String label = getMetaData(resultSet).getColumnLabel(i);
+			for (int k = 0; k < pkColumns.size(); ++k) {
+				if (label.equalsIgnoreCase(quoting.unquote(pkColumns.get(k).name))) {
+					primaryKeyIndex[k] = i;
+				}
+			}
+			if (changeIndicator != null && label.equalsIgnoreCase(quoting.unquote(changeIndicator))) {
+				changeIndicatorIndex = i;
+			}
+		}
+		for (int k = 0; k < pkColumns.size(); ++k) {
+			if (primaryKeyIndex[k] == 0 || columnLabel[primaryKeyIndex[k]] == null) {
+				_log.warn("primary key of " + table.getName() + " is not exported, all rows are exported");
+				return;
+			}
+			pkColumnNames.add(quoting.requote(pkColumns.get(k).name));
+		}
+		if (pkColumns.isEmpty()) {
+			_log.warn(table.getName() + " has no primary key, all rows are exported");
+			return;
+		}
+		if (changeIndicator != null && changeIndicatorIndex == 0) {
+			_log.warn("change indicator " + changeIndicator + " of " + table.getName() + " is not exported, rows are compared by content");
+		}
+		tableSnapshot = exportSnapshot.getTableSnapshot(qualifiedTableName(table), pkColumnNames);
+	}
+
+	/**
+	 * Gets the primary key of the current row as SQL literals.
+	 */
+	private String[] primaryKey(CellContentConverter cellContentConverter, ResultSet resultSet) throws SQLException {
+		String[] key = new String[primaryKeyIndex.length];
+		for (int k = 0; k < primaryKeyIndex.length; ++k) {
+			int i = primaryKeyIndex[k];
+			Object content = cellContentConverter.getObject(resultSet, i);
+			if (resultSet.wasNull()) {
+				content = null;
+			}
+			String cVal = convertToSql(cellContentConverter, resultSet, i, content, 2, null);
+			Filter filter = selectionClause.get(i - 1).getFilter();
+			if (filter != null && filter.getReason() != null) {
+				String comment = " /*" + filter.getReason() + "*/";
+				if (cVal.endsWith(comment)) {
+					cVal = cVal.substring(0, cVal.length() - comment.length());
+				}
+			}
+			key[k] = cVal;
+		}
+		return key;
+	}
+
+	/**
+	 * Gets the fingerprint of the current row, which is the value of the change indicator column
+	 * or a hash of the content of the row (LOBs excluded).
+	 */
+	private String fingerprint(CellContentConverter cellContentConverter, ResultSet resultSet) throws SQLException {
+		if (changeIndicatorIndex > 0) {
+			Object content = cellContentConverter.getObject(resultSet, changeIndicatorIndex);
+			return resultSet.wasNull()? "null" : cellContentConverter.toSql(content);
+		}
+		List<String> values = new ArrayList<String>(columnCount);
+		for (int i = 1; i <= columnCount; ++i) {
+			if (columnLabel[i] == null || isLobColumn[i]) {
+				continue;
+			}
+			Object content = cellContentConverter.getObject(resultSet, i);
+			values.add(resultSet.wasNull()? "null" : cellContentConverter.toSql(content));
+		}
+		return ExportSnapshot.hash(values);
+	}
+
 	/**
 	 * Gets qualified table name.
 	 * 
@@ -942,6 +1079,7 @@ public class DMLTransformer extends AbstractResultSetReader {
 			for (StatementBuilder sb: upsertInsertStatementBuilder.values()) {
 				writeToScriptFile(sb.build(), true);
 			}
+			flushChunk();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -971,9 +1109,29 @@ public class DMLTransformer extends AbstractResultSetReader {
 	private static Table identityInsertTable = null;
 	
 	/**
-	 * Writes into script.
+	 * Writes into script.<br>
+	 * The content is collected in a chunk which is appended to the script as a whole,
+	 * so that export threads don't have to compete for the writer for each statement.
 	 */
 	private void writeToScriptFile(String content, boolean wrap) throws IOException {
+		if (wrap && DBMS.ORACLE.equals(targetDBMSConfiguration)) {
+			chunk.append(SqlUtil.splitDMLStatement(content, 2400));
+		} else {
+			chunk.append(content);
+		}
+		// LOB content is written immediately (while holding the lock), so it can't get mixed up with other chunks
+		if (chunk.length() >= MAX_CHUNK_SIZE || Thread.holdsLock(scriptFileWriter)) {
+			flushChunk();
+		}
+	}
+
+	/**
+	 * Appends the collected chunk to the script.
+	 */
+	private void flushChunk() throws IOException {
+		if (chunk.length() == 0) {
+			return;
+		}
 		synchronized (scriptFileWriter) {
 			if (tableHasIdentityColumn) {
 				if (identityInsertTable != table) {
@@ -985,12 +1143,9 @@ public class DMLTransformer extends AbstractResultSetReader {
 					identityInsertTable = table;
 				}
 			}
-			if (wrap && DBMS.ORACLE.equals(targetDBMSConfiguration)) {
-				   scriptFileWriter.write(SqlUtil.splitDMLStatement(content, 2400));
-			} else {
-				scriptFileWriter.write(content);
-			}
+			scriptFileWriter.append(chunk);
 		}
+		chunk.setLength(0);
 	}
 	
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of the prepared statements of a connection.<br>
+ * A statement is taken out of the cache while it is in use, so that a connection which is shared
+ * by several threads never executes the same statement object concurrently.
+ *
+ * @author Ralf Wisser
+ */
+class PreparedStatementCache {
+
+	/**
+	 * Maximum number of cached statements per connection.
+	 */
+	static final int MAX_SIZE = 64;
+
+	/**
+	 * The connection.
+	 */
+	private final Connection connection;
+
+	/**
+	 * Cached statements by SQL, least recently used first.
+	 */
+	private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+		private static final long serialVersionUID = 5313497564131622934L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if (size() > MAX_SIZE) {
+				close(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param connection the connection
+	 */
+	PreparedStatementCache(Connection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Takes a statement out of the cache, prepares a new one if there is none.
+	 *
+	 * @param sql the statement in SQL
+	 * @return the statement, to be returned with {@link #checkIn(String, PreparedStatement)} after use
+	 */
+	PreparedStatement checkOut(String sql) throws SQLException {
+		PreparedStatement statement;
+		synchronized (this) {
+			statement = statements.remove(sql);
+			if (statement != null) {
+				++hits;
+				return statement;
+			}
+			++misses;
+		}
+		return connection.prepareStatement(sql);
+	}
+
+	/**
+	 * Returns a statement into the cache.
+	 *
+	 * @param sql the statement in SQL
+	 * @param statement the statement
+	 */
+	void checkIn(String sql, PreparedStatement statement) {
+		try {
+			statement.clearParameters();
+		} catch (SQLException e) {
+			close(statement);
+			return;
+		}
+		synchronized (this) {
+			if (!statements.containsKey(sql)) {
+				statements.put(sql, statement);
+				return;
+			}
+		}
+		close(statement);
+	}
+
+	/**
+	 * Closes all cached statements.
+	 */
+	void close() {
+		List<PreparedStatement> toClose;
+		synchronized (this) {
+			toClose = new ArrayList<PreparedStatement>(statements.values());
+			statements.clear();
+		}
+		for (PreparedStatement statement: toClose) {
+			close(statement);
+		}
+	}
+
+	/**
+	 * Gets the number of times a cached statement was reused.
+	 */
+	synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of times a statement had to be prepared.
+	 */
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	private static void close(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			// ignore
+		}
+	}
+
+}
@@ -29,13 +29,13 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -44,6 +44,7 @@ import javax.sql.DataSource;
 import org.apache.log4j.Logger;
 
 import net.sf.jailer.configuration.DBMS;
+import net.sf.jailer.progress.MetricsRegistry;
 import net.sf.jailer.util.CancellationHandler;
 import net.sf.jailer.util.CellContentConverter;
 
@@ -61,9 +62,14 @@ public class Session {
 	protected ThreadLocal<Connection> connection = new ThreadLocal<Connection>();
 	
 	/**
-	 * Holds all connections.
+	 * Holds all connections (except the one in which temporary tables lives).
 	 */
-	private final List<Connection> connections = Collections.synchronizedList(new ArrayList<Connection>());
+	private final ConnectionPool connectionPool;
+	
+	/**
+	 * The first opened connection, used by threads which share the connection.
+	 */
+	private volatile Connection defaultConnection = null;
 	
 	/**
 	 * The session in which temporary tables lives, if any.
@@ -250,65 +256,75 @@ public class Session {
 		this.schema = (dataSource instanceof BasicDataSource)? ((BasicDataSource) dataSource).dbUser : "";
 		this.temporaryTableScope = scope;
 		
-		connectionFactory = new ConnectionFactory() {
-			private Connection defaultConnection = null;
-			private Random random = new Random();
+		final ConnectionFactory newConnectionFactory = new ConnectionFactory() {
 			@Override
-			public synchronized Connection getConnection() throws SQLException {
-				@SuppressWarnings("resource")
-				Connection con = local? connection.get() : temporaryTableSession == null? connection.get() : temporaryTableSession;
-
-				if (con == null && Boolean.TRUE.equals(sharesConnection.get())) {
-					con = defaultConnection;
+			public Connection getConnection() throws SQLException {
+				Connection con = dataSource.getConnection();
+				boolean ac = scope == null || scope != WorkingTableScope.TRANSACTION_LOCAL;
+				if (Session.this.transactional) {
+					ac = false;
 				}
-
-				if (con == null) {
-					try {
-						con = dataSource.getConnection();
-						defaultConnection = con;
-					} catch (SQLException e) {
-						if (connections != null && connections.size() > 1) {
-							con = connections.get(random.nextInt(connections.size()));
-						} else if (defaultConnection != null) {
-							// fall back to default connection
-							con = defaultConnection;
-						} else {
-							throw e;
-						}
+				_log.info("set auto commit to " + ac);
+				con.setAutoCommit(ac);
+				try {
+					if (isolationLevel != null) {
+						_log.info("set isolation level to " + isolationLevel);
+						con.setTransactionIsolation(isolationLevel);
+						_log.info("isolation level is " + con.getTransactionIsolation());
 					}
-					boolean ac = scope == null || scope != WorkingTableScope.TRANSACTION_LOCAL;
-					if (Session.this.transactional) {
-						ac = false;
+				} catch (SQLException e) {
+					_log.warn("can't set isolation level to UR. Reason: " + e.getMessage());
+				}
+				boolean isDefault = false;
+				synchronized (this) {
+					if (defaultConnection == null) {
+						defaultConnection = con;
+						isDefault = true;
 					}
-					_log.info("set auto commit to " + ac);
-					con.setAutoCommit(ac);
-					try {
-						if (isolationLevel != null) {
-							_log.info("set isolation level to " + isolationLevel);
-							con.setTransactionIsolation(isolationLevel);
-							_log.info("isolation level is " + con.getTransactionIsolation());
-						}
-					} catch (SQLException e) {
-						_log.warn("can't set isolation level to UR. Reason: " + e.getMessage());
+				}
+				if (isDefault) {
+					connectionPool.setPinnedConnection(con);
+				}
+				return con;
+			}
+		};
+		connectionPool = new ConnectionPool(newConnectionFactory) {
+			@Override
+			protected void closed(Connection con) {
+				closeStatementCache(con);
+			}
+		};
+		
+		connectionFactory = new ConnectionFactory() {
+			@Override
+			public Connection getConnection() throws SQLException {
+				@SuppressWarnings("resource")
+				Connection con;
+				synchronized (this) {
+					con = local? connection.get() : temporaryTableSession == null? connection.get() : temporaryTableSession;
+	
+					if (con == null && Boolean.TRUE.equals(sharesConnection.get())) {
+						con = defaultConnection;
 					}
-					if ((Session.this.transactional && !local) || scope == WorkingTableScope.SESSION_LOCAL || scope == WorkingTableScope.TRANSACTION_LOCAL) {
-						temporaryTableSession = con;
-					} else {
-						connection.set(con);
-						boolean addCon = true;
-						synchronized (connections) {
-							for (Connection c: connections) {
-								if (c == con) {
-									addCon = false;
-									break;
-								}
-							}
-							if (addCon) {
-								connections.add(con);
+	
+					if (con == null && ((Session.this.transactional && !local) || scope == WorkingTableScope.SESSION_LOCAL || scope == WorkingTableScope.TRANSACTION_LOCAL)) {
+						try {
+							con = newConnectionFactory.getConnection();
+						} catch (SQLException e) {
+							if (defaultConnection == null) {
+								throw e;
 							}
+							// fall back to default connection
+							con = defaultConnection;
 						}
+						temporaryTableSession = con;
 					}
 				}
+				if (con == null) {
+					// the pool shares connections if no new one can be opened
+					con = connectionPool.acquire();
+					connection.set(con);
+				}
 				return con;
 			}
 		};
@@ -323,10 +339,16 @@ public class Session {
 
 	/**
 	 * Closes current connection and opens a new one.
+	 * The connections of the other threads are kept.
 	 */
 	public void reconnect() {
 		Connection con = connection.get();
 		if (con != null) {
+			connectionPool.remove(con);
+			closeStatementCache(con);
+			if (con == defaultConnection) {
+				defaultConnection = null;
+			}
 			if (temporaryTableScope == WorkingTableScope.TRANSACTION_LOCAL) {
 				try {
 					con.commit();
@@ -347,6 +369,7 @@ public class Session {
 			}
 		}
 		if (temporaryTableSession != null) {
+			closeStatementCache(temporaryTableSession);
 			if (temporaryTableScope == WorkingTableScope.TRANSACTION_LOCAL) {
 				try {
 					temporaryTableSession.commit();
@@ -479,11 +502,53 @@ public class Session {
 		return executeQuery(sqlQuery, reader, alternativeSQL, context, limit, 0, false);
 	}
 
+	/**
+	 * Executes a parameterized SQL-Query (SELECT) using a cached prepared statement.
+	 * 
+	 * @param sqlQuery the query in SQL
+	 * @param parameters the parameters
+	 * @param reader the reader for the result
+	 * @param withExplicitCommit if <code>true</code>, switch of autocommit and commit explicitly
+	 */
+	public long executeQuery(String sqlQuery, Object[] parameters, ResultSetReader reader, boolean withExplicitCommit) throws SQLException {
+		return executeQuery(sqlQuery, parameters, reader, null, null, 0, withExplicitCommit);
+	}
+	
+	/**
+	 * Executes a parameterized SQL-Query (SELECT) using a cached prepared statement.
+	 * 
+	 * @param sqlQuery the query in SQL
+	 * @param parameters the parameters
+	 * @param reader the reader for the result
+	 * @param alternativeSQL query to be executed if sqlQuery fails (with the same parameters)
+	 * @param limit row limit, 0 for unlimited
+	 * @param context cancellation context
+	 * @param withExplicitCommit if <code>true</code>, switch of autocommit and commit explicitly
+	 */
+	public long executeQuery(String sqlQuery, Object[] parameters, ResultSetReader reader, String alternativeSQL, Object context, int limit, boolean withExplicitCommit) throws SQLException {
+		if (getLogStatements()) {
+			_log.info(sqlQuery + parameterList(parameters));
+		}
+		try {
+			return executeQuery(connectionFactory.getConnection(), sqlQuery, parameters, reader, alternativeSQL, context, limit, 0, withExplicitCommit);
+		} catch (SQLException e) {
+			CancellationHandler.checkForCancellation(context);
+			if (!silent) {
+				_log.error("Error executing query", e);
+			}
+			if (e instanceof SqlException) {
+				throw e;
+			}
+			throw new SqlException("\"" + e.getMessage() + "\" in statement \"" + sqlQuery + "\"" + parameterList(parameters), sqlQuery, e);
+		}
+	}
+
 	/**
 	 * Executes a SQL-Query (SELECT) with timeout.
 	 * 
 	 * @param theConnection connection to use
 	 * @param sqlQuery the query in SQL
+	 * @param parameters the parameters, <code>null</code> if the query is not parameterized
 	 * @param reader the reader for the result
 	 * @param alternativeSQL query to be executed if sqlQuery fails
 	 * @param limit row limit, 0 for unlimited
@@ -491,13 +556,13 @@ public class Session {
 	 * @param timeout the timeout in sec
 	 * @param withExplicitCommit if <code>true</code>, switch of autocommit and commit explicitly
 	 */
-	private long executeQuery(Connection theConnection, String sqlQuery, ResultSetReader reader, String alternativeSQL, Object context, int limit, int timeout, boolean withExplicitCommit) throws SQLException {
+	private long executeQuery(Connection theConnection, String sqlQuery, Object[] parameters, ResultSetReader reader, String alternativeSQL, Object context, int limit, int timeout, boolean withExplicitCommit) throws SQLException {
 		if (withExplicitCommit) {
 			synchronized (theConnection) {
 				if (theConnection.getAutoCommit()) {
 					try {
 						theConnection.setAutoCommit(false);
-						return executeQuery(theConnection, sqlQuery, reader, alternativeSQL, context, limit, timeout, false);
+						return executeQuery(theConnection, sqlQuery, parameters, reader, alternativeSQL, context, limit, timeout, false);
 					} finally {
 						try {
 							theConnection.commit();
@@ -512,9 +577,16 @@ public class Session {
 		long rc = 0;
 		CancellationHandler.checkForCancellation(context);
 		long startTime = System.currentTimeMillis();
+		long startNanoTime = System.nanoTime();
 		Statement statement = null;
+		PreparedStatementCache statementCache = parameters == null? null : getStatementCache(theConnection);
+		String preparedSQL = sqlQuery;
 		try {
-			statement = theConnection.createStatement();
+			if (statementCache == null) {
+				statement = theConnection.createStatement();
+			} else {
+				statement = prepare(statementCache, sqlQuery, parameters);
+			}
 			if (dbms != null) {
 				if (dbms.getFetchSize() != null) {
 					statement.setFetchSize(dbms.getFetchSize());
@@ -523,16 +595,33 @@ public class Session {
 			CancellationHandler.begin(statement, context);
 			ResultSet resultSet;
 			try {
-				if (timeout > 0) {
+				if (timeout > 0 || statementCache != null) {
 					statement.setQueryTimeout(timeout);
 				}
-				resultSet = statement.executeQuery(sqlQuery);
+				if (statementCache == null) {
+					resultSet = statement.executeQuery(sqlQuery);
+				} else {
+					resultSet = ((PreparedStatement) statement).executeQuery();
+				}
 			} catch (SQLException e) {
 				if (alternativeSQL != null) {
 					_log.warn("query failed, using alternative query. Reason: " + e.getMessage());
 					_log.info(alternativeSQL);
 					CancellationHandler.checkForCancellation(context);
-					resultSet = statement.executeQuery(alternativeSQL);
+					if (statementCache == null) {
+						resultSet = statement.executeQuery(alternativeSQL);
+					} else {
+						CancellationHandler.end(statement, context);
+						try {
+							statement.close();
+						} catch (SQLException e2) {
+							// ignore
+						}
+						statement = prepare(statementCache, alternativeSQL, parameters);
+						preparedSQL = alternativeSQL;
+						CancellationHandler.begin(statement, context);
+						resultSet = ((PreparedStatement) statement).executeQuery();
+					}
 				} else {
 					throw e;
 				}
@@ -552,6 +641,11 @@ public class Session {
 			}
 			reader.close();
 			resultSet.close();
+			if (statementCache != null) {
+				CancellationHandler.end(statement, context);
+				statementCache.checkIn(preparedSQL, (PreparedStatement) statement);
+				statement = null;
+			}
 		} finally {
 			if (statement != null) {
 				try {
@@ -562,6 +656,7 @@ public class Session {
 				CancellationHandler.end(statement, context);
 			}
 		}
+		MetricsRegistry.statementExecuted(System.nanoTime() - startNanoTime, rc);
 		if (getLogStatements()) {
 			_log.info(rc + " row(s) in " + (System.currentTimeMillis() - startTime) + " ms");
 		}
@@ -584,7 +679,7 @@ public class Session {
 			_log.info(sqlQuery);
 		}
 		try {
-			return executeQuery(connectionFactory.getConnection(), sqlQuery, reader, alternativeSQL, context, limit, timeout, withExplicitCommit);
+			return executeQuery(connectionFactory.getConnection(), sqlQuery, null, reader, alternativeSQL, context, limit, timeout, withExplicitCommit);
 		} catch (SQLException e) {
 			CancellationHandler.checkForCancellation(context);
 			if (!silent) {
@@ -636,8 +731,20 @@ public class Session {
 	 * @return update-count
 	 */
 	public int executeUpdate(String sqlUpdate) throws SQLException {
+		return executeUpdate(sqlUpdate, null);
+	}
+
+	/**
+	 * Executes a SQL-Update (INSERT, DELETE or UPDATE) with parameters using a cached prepared statement.
+	 * 
+	 * @param sqlUpdate the update in SQL
+	 * @param parameters the parameters, <code>null</code> if the update is not parameterized
+	 * 
+	 * @return update-count
+	 */
+	public int executeUpdate(String sqlUpdate, Object[] parameters) throws SQLException {
 		if (getLogStatements()) {
-			_log.info(sqlUpdate);
+			_log.info(sqlUpdate + parameterList(parameters));
 		}
 		CancellationHandler.checkForCancellation(null);
 		final int maximumNumberOfFailures = 10;
@@ -649,46 +756,46 @@ public class Session {
 
 			while (!ok) {
 				long startTime = System.currentTimeMillis();
+				long startNanoTime = System.nanoTime();
 				Statement statement = null;
+				PreparedStatementCache statementCache = null;
 				try {
-					statement = connectionFactory.getConnection().createStatement();
+					Connection con = connectionFactory.getConnection();
+					if (parameters == null) {
+						statement = con.createStatement();
+					} else {
+						statementCache = getStatementCache(con);
+						statement = prepare(statementCache, sqlUpdate, parameters);
+					}
 					CancellationHandler.begin(statement, null);
-					if (serializeAccess) {
-						boolean acquired;
-						try {
-							semaphore.acquire(PERMITS);
-							acquired = true;
-						} catch (InterruptedException e) {
-							acquired = false;
-						}
+					int permits = serializeAccess? PERMITS : 1;
+					boolean acquired;
+					try {
+						semaphore.acquire(permits);
+						acquired = true;
+					} catch (InterruptedException e) {
+						acquired = false;
+					}
 
-						try {
+					try {
+						if (parameters == null) {
 							rowCount = statement.executeUpdate(sqlUpdate);
-						} finally {
-							if (acquired) {
-								semaphore.release(PERMITS);
-							}
-						}
-					} else {
-						boolean acquired;
-						try {
-							semaphore.acquire(1);
-							acquired = true;
-						} catch (InterruptedException e) {
-							acquired = false;
+						} else {
+							rowCount = ((PreparedStatement) statement).executeUpdate();
 						}
-
-						try {
-							rowCount = statement.executeUpdate(sqlUpdate);
-						} finally {
-							if (acquired) {
-								semaphore.release(1);
-							}
+					} finally {
+						if (acquired) {
+							semaphore.release(permits);
 						}
 					}
 
 					CancellationHandler.end(statement, null);
+					if (statementCache != null) {
+						statementCache.checkIn(sqlUpdate, (PreparedStatement) statement);
+						statement = null;
+					}
 					ok = true;
+					MetricsRegistry.statementExecuted(System.nanoTime() - startNanoTime, rowCount);
 					if (getLogStatements()) {
 						_log.info("" + rowCount + " row(s) in " + (System.currentTimeMillis() - startTime) + " ms");
 					}
@@ -700,7 +807,7 @@ public class Session {
 					boolean crf = DBMS.ORACLE.equals(dbms) && e.getErrorCode() == 8176; // ORA-08176: consistent read failure; rollback data not available
 					
 					if (++failures > maximumNumberOfFailures || !(deadlock || crf)) {
-						throw new SqlException("\"" + e.getMessage() + "\" in statement \"" + sqlUpdate + "\"", sqlUpdate, e);
+						throw new SqlException("\"" + e.getMessage() + "\" in statement \"" + sqlUpdate + "\"" + parameterList(parameters), sqlUpdate, e);
 					}
 					// deadlock
 					serializeAccess = true;
@@ -733,31 +840,43 @@ public class Session {
 	}
 	
 	/**
-	 * Executes a SQL-Update (INSERT, DELETE or UPDATE) with parameters.
+	 * Executes a SQL-Update (INSERT, DELETE or UPDATE) once for each given set of parameters as a batch.
 	 * 
 	 * @param sqlUpdate the update in SQL
-	 * @param parameter the parameters
+	 * @param parameters the parameters
 	 * 
-	 * @return update-count
+	 * @return total update-count
 	 */
-	public int executeUpdate(String sqlUpdate, Object[] parameter) throws SQLException {
+	public long executeUpdateBatch(String sqlUpdate, List<Object[]> parameters) throws SQLException {
 		if (getLogStatements()) {
-			_log.info(sqlUpdate);
+			_log.info(sqlUpdate + " (" + parameters.size() + " times)");
 		}
 		try {
 			CancellationHandler.checkForCancellation(null);
-			int rowCount = 0;
+			long rowCount = 0;
 			long startTime = System.currentTimeMillis();
+			long startNanoTime = System.nanoTime();
 			PreparedStatement statement = null;
 			try {
-				statement = connectionFactory.getConnection().prepareStatement(sqlUpdate);
+				PreparedStatementCache statementCache = getStatementCache(connectionFactory.getConnection());
+				statement = statementCache.checkOut(sqlUpdate);
 				CancellationHandler.begin(statement, null);
-				int i = 1;
-				for (Object p: parameter) {
-					statement.setObject(i++, p);
+				for (Object[] parameter: parameters) {
+					int i = 1;
+					for (Object p: parameter) {
+						statement.setObject(i++, p);
+					}
+					statement.addBatch();
+				}
+				for (int rc: statement.executeBatch()) {
+					if (rc > 0) {
+						rowCount += rc;
+					}
 				}
-				rowCount = statement.executeUpdate();
 				CancellationHandler.end(statement, null);
+				statementCache.checkIn(sqlUpdate, statement);
+				statement = null;
+				MetricsRegistry.statementExecuted(System.nanoTime() - startNanoTime, rowCount);
 				if (getLogStatements()) {
 					_log.info("" + rowCount + " row(s) in " + (System.currentTimeMillis() - startTime) + " ms");
 				}
@@ -776,6 +895,41 @@ public class Session {
 		}
 	}
 
+	/**
+	 * Takes a prepared statement out of a statement cache and binds the parameters.
+	 * 
+	 * @param statementCache the cache
+	 * @param sql the statement in SQL
+	 * @param parameters the parameters
+	 * @return the statement, to be returned into the cache after use
+	 */
+	private PreparedStatement prepare(PreparedStatementCache statementCache, String sql, Object[] parameters) throws SQLException {
+		PreparedStatement statement = statementCache.checkOut(sql);
+		try {
+			int i = 1;
+			for (Object p: parameters) {
+				statement.setObject(i++, p);
+			}
+		} catch (SQLException e) {
+			try { statement.close(); } catch (SQLException e2) { }
+			throw e;
+		}
+		return statement;
+	}
+
+	/**
+	 * Renders parameters for logging.
+	 * 
+	 * @param parameters the parameters or <code>null</code>
+	 * @return parameter list (empty if there are no parameters)
+	 */
+	private static String parameterList(Object[] parameters) {
+		if (parameters == null || parameters.length == 0) {
+			return "";
+		}
+		return " -- " + Arrays.toString(parameters);
+	}
+
 	/**
 	 * Inserts a CLob.
 	 */
@@ -882,12 +1036,14 @@ public class Session {
 		}
 		long rc = 0;
 		long startTime = System.currentTimeMillis();
+		long startNanoTime = System.nanoTime();
 		Statement statement = null;
 		try {
 			CancellationHandler.checkForCancellation(cancellationContext);
 			statement = connectionFactory.getConnection().createStatement();
 			CancellationHandler.begin(statement, cancellationContext);
 			rc = statement.executeUpdate(sql);
+			MetricsRegistry.statementExecuted(System.nanoTime() - startNanoTime, rc);
 			if (getLogStatements()) {
 				_log.info("" + rc + " row(s) in " + (System.currentTimeMillis() - startTime) + " ms");
 			}
@@ -938,6 +1094,61 @@ public class Session {
 		return mData;
 	}
 
+	/**
+	 * Cached prepared statements per connection.
+	 */
+	private final Map<Connection, PreparedStatementCache> statementCaches = Collections.synchronizedMap(new IdentityHashMap<Connection, PreparedStatementCache>());
+
+	/**
+	 * Gets the prepared statement cache of a connection.
+	 * 
+	 * @param con the connection
+	 * @return the cache
+	 */
+	private PreparedStatementCache getStatementCache(Connection con) {
+		synchronized (statementCaches) {
+			PreparedStatementCache statementCache = statementCaches.get(con);
+			if (statementCache == null) {
+				statementCache = new PreparedStatementCache(con);
+				statementCaches.put(con, statementCache);
+			}
+			return statementCache;
+		}
+	}
+
+	/**
+	 * Closes the cached prepared statements of a connection.
+	 * 
+	 * @param con the connection
+	 */
+	private void closeStatementCache(Connection con) {
+		PreparedStatementCache statementCache = statementCaches.remove(con);
+		if (statementCache != null) {
+			statementCache.close();
+		}
+	}
+
+	/**
+	 * Closes all cached prepared statements.
+	 */
+	private void closeStatementCaches() {
+		List<PreparedStatementCache> caches;
+		synchronized (statementCaches) {
+			caches = new ArrayList<PreparedStatementCache>(statementCaches.values());
+			statementCaches.clear();
+		}
+		long hits = 0;
+		long misses = 0;
+		for (PreparedStatementCache statementCache: caches) {
+			hits += statementCache.getHits();
+			misses += statementCache.getMisses();
+			statementCache.close();
+		}
+		if (hits + misses > 0) {
+			_log.info("prepared statement cache: " + hits + " hits, " + misses + " misses");
+		}
+	}
+
 	protected AtomicBoolean down = new AtomicBoolean(false);
 
 	/**
@@ -945,6 +1156,9 @@ public class Session {
 	 */
 	public void shutDown() throws SQLException {
 		down.set(true);
+		_log.info("connection pool: " + connectionPool);
+		closeStatementCaches();
+		List<Connection> connections = connectionPool.clear();
 		_log.info("closing connections... (" + connections.size() + ")");
 		for (Connection con: connections) {
 			try {
@@ -965,7 +1179,11 @@ public class Session {
 	 * Rolls back and closes all connections.
 	 */
 	public void rollbackAll() throws SQLException {
-		for (Connection con: connections) {
+		closeStatementCaches();
+		for (Connection con: connectionPool.clear()) {
+			if (con == defaultConnection) {
+				defaultConnection = null;
+			}
 			try {
 				con.rollback();
 			} catch(SQLException e) {
@@ -991,7 +1209,7 @@ public class Session {
 	 * Commits all connections.
 	 */
 	public void commitAll() throws SQLException {
-		for (Connection con: connections) {
+		for (Connection con: connectionPool.getConnections()) {
 			try {
 				con.commit();
 			} catch(SQLException e) {
@@ -1089,6 +1307,25 @@ public class Session {
 		return connectionFactory.getConnection();
 	}
 	
+	/**
+	 * Makes a connection the connection of the current thread.
+	 * 
+	 * @param con the connection
+	 */
+	protected void setConnection(Connection con) {
+		connection.set(con);
+		connectionPool.bind(con);
+	}
+	
+	/**
+	 * Gets the pool of the connections.
+	 * 
+	 * @return the connection pool
+	 */
+	public ConnectionPool getConnectionPool() {
+		return connectionPool;
+	}
+	
 	private InlineViewStyle inlineViewStyle;
 	private boolean noInlineViewStyleFound = false;
 	
@@ -22,6 +22,7 @@ import java.io.PrintWriter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import net.sf.jailer.ExecutionContext;
 import net.sf.jailer.configuration.Configuration;
@@ -36,6 +37,11 @@ import net.sf.jailer.util.SqlScriptExecutor;
  */
 public class SqlScriptBasedStatisticRenovator implements StatisticRenovator {
 
+	/**
+	 * Names of the working-tables.
+	 */
+	private static final String[] WORKING_TABLES = new String[] { "JAILER_ENTITY", "JAILER_GRAPH", "JAILER_DEPENDENCY", "JAILER_SET" };
+
 	/**
 	 * Name of SQL-script file.
 	 */
@@ -82,6 +88,17 @@ public class SqlScriptBasedStatisticRenovator implements StatisticRenovator {
 	 */
 	@Override
 	public void renew(Session session, ExecutionContext executionContext) throws Exception {
+		renew(session, executionContext, null);
+	}
+
+	/**
+	 * Renews the DB table statistics for some of the working-tables
+	 * by executing those statements of the SQL-script which refer to one of the tables.
+	 * 
+	 * @param session for execution of SQL-statements
+	 * @param workingTables names of the working-tables ("JAILER_ENTITY", "JAILER_DEPENDENCY", ...), <code>null</code> for all
+	 */
+	public void renew(Session session, ExecutionContext executionContext, Set<String> workingTables) throws Exception {
 		Map<String, String> arguments = new HashMap<String, String>();
 		arguments.put("JAILER_ENTITY", SQLDialect.dmlTableReference("JAILER_ENTITY", session, executionContext));
 		arguments.put("JAILER_GRAPH", SQLDialect.dmlTableReference("JAILER_GRAPH", session, executionContext));
@@ -106,7 +123,24 @@ public class SqlScriptBasedStatisticRenovator implements StatisticRenovator {
 		arguments.putAll(splittedArguments);
 		File file = Configuration.getInstance().createTempFile();
 		PrintWriter out = new PrintWriter(new FileOutputStream(file));
-		out.print(new PrintUtil().applyTemplate(scriptFileName.replace('/', File.separatorChar), arguments, null));
+		String script = new PrintUtil().applyTemplate(scriptFileName.replace('/', File.separatorChar), arguments, null);
+		if (workingTables != null) {
+			StringBuilder sb = new StringBuilder();
+			for (String line: script.split("\n")) {
+				boolean skip = false;
+				for (String table: WORKING_TABLES) {
+					if (line.contains(table) && !workingTables.contains(table)) {
+						skip = true;
+						break;
+					}
+				}
+				if (!skip) {
+					sb.append(line).append("\n");
+				}
+			}
+			script = sb.toString();
+		}
+		out.print(script);
 		out.close();
 		boolean silent = session.getSilent();
 		session.setSilent(true);
@@ -40,6 +40,11 @@ public enum WorkingTableScope {
 	/**
 	 * Create a local database (H2) for the working-tables (JAILER_*).
 	 */
-	LOCAL_DATABASE
+	LOCAL_DATABASE,
+	
+	/**
+	 * Keep the entity-graph in memory, no working-tables are needed.
+	 */
+	MEMORY
 	
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.entitygraph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact in-memory graph of the dependencies between entities.<br>
+ * Computes for each entity the level on which it becomes independent (Kahn's algorithm):
+ * entities without dependencies are on level 0, all other entities are on the level
+ * following the highest level of the entities they depend on.
+ * Entities which (transitively) depend on a cycle or on a blocked entity get no level.
+ *
+ * @author Ralf Wisser
+ */
+public class DependencyLevels {
+
+	/**
+	 * No level (entity is part of or depends on a cycle or on a blocked entity).
+	 */
+	public static final int NO_LEVEL = -1;
+
+	/**
+	 * Entity IDs per entity key.
+	 */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	/**
+	 * Source entity of each dependency.
+	 */
+	private int[] from = new int[1024];
+
+	/**
+	 * Destination entity of each dependency.
+	 */
+	private int[] to = new int[1024];
+
+	/**
+	 * Number of dependencies.
+	 */
+	private int numEdges = 0;
+
+	/**
+	 * Blocked entities.
+	 */
+	private boolean[] blocked = new boolean[1024];
+
+	/**
+	 * Gets the ID of an entity, registers the entity if it is not yet known.
+	 *
+	 * @param key unique key of the entity
+	 * @return the ID
+	 */
+	public int getID(String key) {
+		Integer id = ids.get(key);
+		if (id == null) {
+			id = ids.size();
+			ids.put(key, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Gets the number of entities.
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Gets the number of dependencies.
+	 */
+	public int getNumberOfDependencies() {
+		return numEdges;
+	}
+
+	/**
+	 * Adds a dependency.
+	 *
+	 * @param fromID ID of the entity which depends on the other one
+	 * @param toID ID of the entity on which the other one depends
+	 */
+	public void addDependency(int fromID, int toID) {
+		if (numEdges == from.length) {
+			from = Arrays.copyOf(from, numEdges * 2);
+			to = Arrays.copyOf(to, numEdges * 2);
+		}
+		from[numEdges] = fromID;
+		to[numEdges] = toID;
+		++numEdges;
+	}
+
+	/**
+	 * Blocks an entity. A blocked entity never becomes independent.
+	 *
+	 * @param id ID of the entity
+	 */
+	public void block(int id) {
+		if (id >= blocked.length) {
+			blocked = Arrays.copyOf(blocked, Math.max(id + 1, blocked.length * 2));
+		}
+		blocked[id] = true;
+	}
+
+	/**
+	 * Computes the levels.
+	 *
+	 * @return level per entity ID, {@link #NO_LEVEL} for entities which never become independent
+	 */
+	public int[] computeLevels() {
+		int n = ids.size();
+		int[] outDegree = new int[n];
+		int[] inStart = new int[n + 1];
+		for (int i = 0; i < numEdges; ++i) {
+			++outDegree[from[i]];
+			++inStart[to[i] + 1];
+		}
+		for (int i = 0; i < n; ++i) {
+			inStart[i + 1] += inStart[i];
+		}
+		// sources of the dependencies per destination
+		int[] inSources = new int[numEdges];
+		int[] pos = Arrays.copyOf(inStart, n);
+		for (int i = 0; i < numEdges; ++i) {
+			inSources[pos[to[i]]++] = from[i];
+		}
+
+		int[] level = new int[n];
+		Arrays.fill(level, NO_LEVEL);
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		for (int id = 0; id < n; ++id) {
+			if (outDegree[id] == 0 && !isBlocked(id)) {
+				level[id] = 0;
+				queue[tail++] = id;
+			}
+		}
+		int[] maxLevel = new int[n];
+		while (head < tail) {
+			int id = queue[head++];
+			for (int i = inStart[id]; i < inStart[id + 1]; ++i) {
+				int source = inSources[i];
+				maxLevel[source] = Math.max(maxLevel[source], level[id] + 1);
+				if (--outDegree[source] == 0 && !isBlocked(source)) {
+					level[source] = maxLevel[source];
+					queue[tail++] = source;
+				}
+			}
+		}
+		return level;
+	}
+
+	private boolean isBlocked(int id) {
+		return id < blocked.length && blocked[id];
+	}
+
+}
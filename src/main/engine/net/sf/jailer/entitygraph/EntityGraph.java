@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.jailer.ExecutionContext;
 import net.sf.jailer.configuration.DBMS;
@@ -125,6 +126,44 @@ public abstract class EntityGraph {
 	 */
 	public abstract void setAge(int age) throws SQLException;
 	
+	/**
+	 * Whether the graph outlives the session and can be used to resume an interrupted collection.
+	 * 
+	 * @return <code>true</code> if the graph supports checkpoints
+	 */
+	public boolean isResumable() {
+		return false;
+	}
+
+	/**
+	 * Gets the number of chunks of subject rows whose collection is completed.
+	 * 
+	 * @return the checkpoint, 0 if no chunk is completed
+	 */
+	public int getCheckpoint() throws SQLException {
+		return 0;
+	}
+
+	/**
+	 * Gets the upper bound of the last chunk of subject rows whose collection is completed.
+	 * 
+	 * @return SQL literal of the first primary key column of the subject at which the next chunk starts,
+	 *         <code>null</code> if no chunk is completed or if all chunks are completed
+	 */
+	public String getCheckpointKey() throws SQLException {
+		return null;
+	}
+
+	/**
+	 * Records that the collection of a number of chunks of subject rows is completed.
+	 * 
+	 * @param checkpoint number of completed chunks
+	 * @param checkpointKey SQL literal of the first primary key column of the subject at which the next chunk starts,
+	 *        <code>null</code> if all chunks are completed
+	 */
+	public void setCheckpoint(int checkpoint, String checkpointKey) throws SQLException {
+	}
+
 	/**
 	 * Gets the number of entities in the graph.
 	 * 
@@ -172,6 +211,17 @@ public abstract class EntityGraph {
 	 */
 	public abstract long addEntities(Table table, String condition, int today) throws SQLException;
 	
+	/**
+	 * Adds entities to the graph, skipping those which are already part of it.
+	 * 
+	 * @param table the table 
+	 * @param condition the condition in SQL that the entities must fulfill
+	 * @param today the birthday of the new entities
+	 * 
+	 * @return row-count
+	 */
+	public abstract long addNewEntities(Table table, String condition, int today) throws SQLException;
+	
 	/**
 	 * Resolves an association. Retrieves and adds all entities 
 	 * associated with an entity born yesterday in the graph 
@@ -209,6 +259,43 @@ public abstract class EntityGraph {
 	 */
 	public abstract void markIndependentEntities(Table table) throws SQLException;
 
+	/**
+	 * Loads the dependencies between the entities of the given tables into memory and assigns
+	 * to each entity the level on which it becomes independent (see {@link DependencyLevels}).
+	 * The entities of a level can then be marked with {@link #markIndependentEntities(Table, int)}
+	 * instead of iteratively marking and deleting independent entities.
+	 * 
+	 * @param tables the tables
+	 * @return the tables having entities on a level, per level
+	 */
+	public abstract List<Set<Table>> assignIndependenceLevels(Set<Table> tables) throws SQLException;
+
+	/**
+	 * Marks all entities of a given table on a given level,
+	 * s.t. they can be read and deleted.
+	 * 
+	 * @param table the table
+	 * @param level the level
+	 * @see #assignIndependenceLevels(Set)
+	 */
+	public abstract void markIndependentEntities(Table table, int level) throws SQLException;
+
+	/**
+	 * Deletes all entities of a given table which are marked as independent,
+	 * but keeps their dependencies.
+	 * 
+	 * @param table the table
+	 * @see #deleteDanglingDependencies(Set)
+	 */
+	public abstract void deleteMarkedEntities(Table table) throws SQLException;
+
+	/**
+	 * Deletes all dependencies from or to entities of given tables which are no longer part of the graph.
+	 * 
+	 * @param tables the tables
+	 */
+	public abstract void deleteDanglingDependencies(Set<Table> tables) throws SQLException;
+
 	/**
 	 * Marks all rows which are not target of a dependency.
 	 */
@@ -282,6 +369,20 @@ public abstract class EntityGraph {
 	 */
 	public abstract long countEntities(Table table) throws SQLException;
 
+	/**
+	 * Counts the entities of some given tables in this graph.
+	 * 
+	 * @param tables the tables
+	 * @return the number of entities per table (tables without entities may be missing)
+	 */
+	public Map<Table, Long> countEntities(Set<Table> tables) throws SQLException {
+		Map<Table, Long> counts = new HashMap<Table, Long>();
+		for (Table table: tables) {
+			counts.put(table, countEntities(table));
+		}
+		return counts;
+	}
+
 	/**
 	 * Removes all entities from this graph which are associated with an entity
 	 * outside the graph.
@@ -311,6 +412,44 @@ public abstract class EntityGraph {
 	 * @param resultSet current row is given entity
 	 */
 	public abstract void markDependentEntitiesAsTraversed(Association association, ResultSet resultSet, ResultSetMetaData resultSetMetaData, Map<String, Integer> typeCache) throws SQLException;
+
+	/**
+	 * Name of the column holding the index of the given entity on which a dependent entity depends.
+	 * 
+	 * @see #readDependentEntities(Table, Association, List, ResultSetReader, String, String)
+	 */
+	public static final String PARENT_INDEX_COLUMN = "JAILER_PARENT";
+
+	/**
+	 * Whether the dependent entities of a set of entities should be read at once.
+	 * 
+	 * @return <code>true</code> if {@link #readDependentEntities(Table, Association, List, ResultSetReader, String, String)}
+	 *         and {@link #markDependentEntitiesAsTraversed(Association, List)} need fewer statements than reading entity by entity
+	 */
+	public boolean supportsSetBasedDependentEntities() {
+		return false;
+	}
+
+	/**
+	 * Reads all entities which depend on a set of given entities.
+	 * The last column ({@link #PARENT_INDEX_COLUMN}) of the rows passed to the reader contains the index of
+	 * the given entity on which the read entity depends. An entity depending on more than one of the given entities is read once per given entity.
+	 * 
+	 * @param table the table from which to read entities
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association), distinct
+	 * @param reader reads the entities
+	 * @param selectionSchema the selection schema
+	 */
+	public abstract void readDependentEntities(Table table, Association association, List<String[]> parentKeys, ResultSetReader reader, String selectionSchema, String originalPKAliasPrefix) throws SQLException;
+
+	/**
+	 * Marks all entities which depend on a set of given entities as traversed.
+	 * 
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association)
+	 */
+	public abstract void markDependentEntitiesAsTraversed(Association association, List<String[]> parentKeys) throws SQLException;
 	
 	/**
 	 * Reads all non-traversed dependencies. 
@@ -360,13 +499,19 @@ public abstract class EntityGraph {
 	 */
 	public abstract Session getSession();
 
+	/**
+	 * Last graph ID created in this VM.
+	 */
+	private static final AtomicInteger lastGraphID = new AtomicInteger(Math.abs((int) System.currentTimeMillis()) % 65536);
+
 	/**
 	 * Creates a unique ID for a new graph.
+	 * IDs are time-based for the first graph and consecutive afterwards, so that graphs created concurrently get different IDs.
 	 * 
 	 * @return a unique ID
 	 */
 	public static int createUniqueGraphID() {
-		return Math.abs((int) System.currentTimeMillis()) % 65536;
+		return (lastGraphID.incrementAndGet() & Integer.MAX_VALUE) % 65536;
 	}
 	
 	private int lobCount = 0;
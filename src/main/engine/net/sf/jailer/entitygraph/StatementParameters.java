@@ -0,0 +1,132 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.entitygraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jailer.configuration.DBMS;
+
+/**
+ * Collects the parameters of a statement on the entity-graph tables (graph-ID, birthday, type),
+ * so that the statement text does not change from day to day and can be executed as cached prepared statement.<br>
+ * The parameter markers must be rendered in the order in which they appear in the statement.
+ * Values are inlined as literals if the statement contains user-defined SQL fragments with question marks
+ * (which the JDBC driver might take for parameter markers).
+ *
+ * @author Ralf Wisser
+ */
+public class StatementParameters {
+
+	/**
+	 * The parameter values.
+	 */
+	private final List<Object> values = new ArrayList<Object>();
+
+	/**
+	 * Marker for parameters in select lists, <code>null</code> if such parameters must be inlined.
+	 */
+	private final String selectListParameterMarker;
+
+	/**
+	 * Whether parameters are used at all.
+	 */
+	private final boolean enabled;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dbms the DBMS
+	 * @param userFragments user-defined SQL fragments which become part of the statement (may be <code>null</code>)
+	 */
+	public StatementParameters(DBMS dbms, String... userFragments) {
+		boolean enabled = true;
+		for (String fragment: userFragments) {
+			if (fragment != null && fragment.indexOf('?') >= 0) {
+				enabled = false;
+				break;
+			}
+		}
+		this.enabled = enabled;
+		this.selectListParameterMarker = enabled? dbms.getSelectListParameterMarker() : null;
+	}
+
+	/**
+	 * Creates an empty parameter list for a statement which contains the same user-defined SQL fragments as another one.
+	 *
+	 * @param other the other parameter list
+	 */
+	public StatementParameters(StatementParameters other) {
+		this.enabled = other.enabled;
+		this.selectListParameterMarker = other.selectListParameterMarker;
+	}
+
+	/**
+	 * Adds a parameter.
+	 *
+	 * @param value the value
+	 * @return the parameter marker (or the literal)
+	 */
+	public String bind(int value) {
+		if (!enabled) {
+			return Integer.toString(value);
+		}
+		values.add(value);
+		return "?";
+	}
+
+	/**
+	 * Adds a parameter which is part of a select list.
+	 *
+	 * @param value the value
+	 * @return the parameter marker (or the literal)
+	 */
+	public String bindInSelectList(int value) {
+		if (selectListParameterMarker == null) {
+			return Integer.toString(value);
+		}
+		values.add(value);
+		return selectListParameterMarker;
+	}
+
+	/**
+	 * Adds the parameters of a fragment which is part of the statement.
+	 *
+	 * @param fragment the fragment
+	 * @param fragmentParameters the parameters of the fragment
+	 * @return the fragment
+	 */
+	public String bind(String fragment, StatementParameters fragmentParameters) {
+		if (fragmentParameters.enabled != enabled) {
+			throw new IllegalArgumentException("fragment parameters are incompatible");
+		}
+		values.addAll(fragmentParameters.values);
+		return fragment;
+	}
+
+	/**
+	 * Gets the parameter values.
+	 *
+	 * @return the values, or <code>null</code> if all values are inlined
+	 */
+	public Object[] toArray() {
+		if (!enabled) {
+			return null;
+		}
+		return values.toArray();
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.entitygraph.inmemory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set of entities of a table. Maps the encoded primary key of an entity to its birthday.<br>
+ * Uses open addressing with primitive arrays to keep the memory footprint small.
+ *
+ * @author Ralf Wisser
+ */
+class EntitySet {
+
+	/**
+	 * Result of {@link #get(String)} if the entity is not in the set.
+	 */
+	static final int NONE = Integer.MIN_VALUE;
+
+	/**
+	 * Marks removed slots.
+	 */
+	private static final String REMOVED = new String("");
+
+	/**
+	 * Changes the birthday of an entity.
+	 */
+	interface BirthdayFunction {
+
+		/**
+		 * Gets the new birthday of an entity.
+		 *
+		 * @param key the encoded primary key
+		 * @param birthday the current birthday
+		 * @return the new birthday, or {@link EntitySet#NONE} to remove the entity
+		 */
+		int apply(String key, int birthday);
+	}
+
+	private String[] keys;
+	private int[] birthdays;
+	private int size = 0;
+	private int usedSlots = 0;
+
+	/**
+	 * Constructor.
+	 */
+	EntitySet() {
+		this(16);
+	}
+
+	private EntitySet(int capacity) {
+		keys = new String[capacity];
+		birthdays = new int[capacity];
+	}
+
+	/**
+	 * Gets the birthday of an entity.
+	 *
+	 * @param key the encoded primary key
+	 * @return the birthday or {@link #NONE} if the entity is not in the set
+	 */
+	synchronized int get(String key) {
+		int i = indexOf(key);
+		return i < 0? NONE : birthdays[i];
+	}
+
+	/**
+	 * Adds an entity if it is not already in the set.
+	 *
+	 * @param key the encoded primary key
+	 * @param birthday the birthday
+	 * @return <code>true</code> if the entity has been added
+	 */
+	synchronized boolean add(String key, int birthday) {
+		if (indexOf(key) >= 0) {
+			return false;
+		}
+		if ((usedSlots + 1) * 2 > keys.length) {
+			rehash(size * 4 > keys.length? keys.length * 2 : keys.length);
+		}
+		int i = slot(key, keys.length);
+		while (keys[i] != null && keys[i] != REMOVED) {
+			i = (i + 1) & (keys.length - 1);
+		}
+		if (keys[i] == null) {
+			++usedSlots;
+		}
+		keys[i] = key;
+		birthdays[i] = birthday;
+		++size;
+		return true;
+	}
+
+	/**
+	 * Removes an entity.
+	 *
+	 * @param key the encoded primary key
+	 * @return <code>true</code> if the entity has been removed
+	 */
+	synchronized boolean remove(String key) {
+		int i = indexOf(key);
+		if (i < 0) {
+			return false;
+		}
+		keys[i] = REMOVED;
+		--size;
+		return true;
+	}
+
+	/**
+	 * Updates the birthdays of all entities.
+	 *
+	 * @param function gets the new birthday
+	 * @return number of entities whose birthday has been changed or which have been removed
+	 */
+	synchronized long update(BirthdayFunction function) {
+		long count = 0;
+		for (int i = 0; i < keys.length; ++i) {
+			if (keys[i] != null && keys[i] != REMOVED) {
+				int birthday = function.apply(keys[i], birthdays[i]);
+				if (birthday != birthdays[i]) {
+					++count;
+					if (birthday == NONE) {
+						keys[i] = REMOVED;
+						--size;
+					} else {
+						birthdays[i] = birthday;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the keys of all entities whose birthday is in a given range.
+	 *
+	 * @param minBirthday minimum birthday
+	 * @param maxBirthday maximum birthday
+	 * @return the keys
+	 */
+	synchronized List<String> keys(int minBirthday, int maxBirthday) {
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < keys.length; ++i) {
+			if (keys[i] != null && keys[i] != REMOVED && birthdays[i] >= minBirthday && birthdays[i] <= maxBirthday) {
+				result.add(keys[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the entities whose birthday is in a given range.
+	 *
+	 * @param minBirthday minimum birthday
+	 * @param maxBirthday maximum birthday
+	 * @return the number of entities
+	 */
+	synchronized long count(int minBirthday, int maxBirthday) {
+		long count = 0;
+		for (int i = 0; i < keys.length; ++i) {
+			if (keys[i] != null && keys[i] != REMOVED && birthdays[i] >= minBirthday && birthdays[i] <= maxBirthday) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the number of entities.
+	 *
+	 * @return the number of entities
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Adds all entities of another set which are not already in this set.
+	 *
+	 * @param other the other set
+	 * @return number of added entities
+	 */
+	long addAll(EntitySet other) {
+		String[] otherKeys;
+		int[] otherBirthdays;
+		synchronized (other) {
+			otherKeys = other.keys.clone();
+			otherBirthdays = other.birthdays.clone();
+		}
+		long count = 0;
+		for (int i = 0; i < otherKeys.length; ++i) {
+			if (otherKeys[i] != null && otherKeys[i] != REMOVED) {
+				if (add(otherKeys[i], otherBirthdays[i])) {
+					++count;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Creates a copy of this set.
+	 *
+	 * @return the copy
+	 */
+	synchronized EntitySet copy() {
+		EntitySet copy = new EntitySet(keys.length);
+		copy.keys = keys.clone();
+		copy.birthdays = birthdays.clone();
+		copy.size = size;
+		copy.usedSlots = usedSlots;
+		return copy;
+	}
+
+	private int indexOf(String key) {
+		int i = slot(key, keys.length);
+		while (keys[i] != null) {
+			if (keys[i] != REMOVED && keys[i].equals(key)) {
+				return i;
+			}
+			i = (i + 1) & (keys.length - 1);
+		}
+		return -1;
+	}
+
+	private static int slot(String key, int capacity) {
+		int h = key.hashCode() * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (capacity - 1);
+	}
+
+	private void rehash(int capacity) {
+		String[] oldKeys = keys;
+		int[] oldBirthdays = birthdays;
+		keys = new String[capacity];
+		birthdays = new int[capacity];
+		usedSlots = 0;
+		for (int j = 0; j < oldKeys.length; ++j) {
+			if (oldKeys[j] != null && oldKeys[j] != REMOVED) {
+				int i = slot(oldKeys[j], capacity);
+				while (keys[i] != null) {
+					i = (i + 1) & (capacity - 1);
+				}
+				keys[i] = oldKeys[j];
+				birthdays[i] = oldBirthdays[j];
+				++usedSlots;
+			}
+		}
+	}
+
+}
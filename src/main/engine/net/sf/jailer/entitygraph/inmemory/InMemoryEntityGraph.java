@@ -0,0 +1,1709 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.entitygraph.inmemory;
+
+import java.io.OutputStreamWriter;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.jailer.ExecutionContext;
+import net.sf.jailer.configuration.DBMS;
+import net.sf.jailer.database.InlineViewBuilder;
+import net.sf.jailer.database.InlineViewStyle;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.database.Session.ResultSetReader;
+import net.sf.jailer.database.UpdateTransformer;
+import net.sf.jailer.datamodel.Association;
+import net.sf.jailer.datamodel.Column;
+import net.sf.jailer.datamodel.DataModel;
+import net.sf.jailer.datamodel.PrimaryKey;
+import net.sf.jailer.datamodel.RowIdSupport;
+import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.entitygraph.DependencyLevels;
+import net.sf.jailer.entitygraph.EntityGraph;
+import net.sf.jailer.modelbuilder.MemorizedResultSet;
+import net.sf.jailer.util.CellContentConverter;
+import net.sf.jailer.util.Quoting;
+import net.sf.jailer.util.SqlUtil;
+
+/**
+ * Entity graph which is held in memory.<br>
+ * Entities are identified by table and the SQL-literals of their primary key values.
+ * No working tables are needed, the keys are passed to the source database
+ * as inline-views when joining with the tables of the data model.
+ *
+ * @author Ralf Wisser
+ */
+public class InMemoryEntityGraph extends EntityGraph {
+
+	/**
+	 * For access to the source database.
+	 */
+	private final Session session;
+
+	/**
+	 * Style of inline-views for the source database.
+	 */
+	private final InlineViewStyle inlineViewStyle;
+
+	/**
+	 * The entities per table.
+	 */
+	private final Map<Table, EntitySet> entities = new HashMap<Table, EntitySet>();
+
+	/**
+	 * The dependencies.
+	 */
+	private final Dependencies dependencies = new Dependencies();
+
+	/**
+	 * Estimated number of bytes held by this graph.
+	 */
+	private final AtomicLong estimatedSize = new AtomicLong();
+
+	/**
+	 * Maximum number of bytes this graph may hold.
+	 */
+	private final long memoryBudget;
+
+	/**
+	 * Fraction of the maximum heap size which may be used by the graph.
+	 */
+	private static final double MEMORY_BUDGET_FRACTION = 0.5;
+
+	/**
+	 * Estimated number of bytes per entity (without primary key).
+	 */
+	private static final int ENTITY_OVERHEAD = 56;
+
+	/**
+	 * Estimated number of bytes per dependency.
+	 */
+	private static final int DEPENDENCY_OVERHEAD = 96;
+
+	private final RowIdSupport rowIdSupport;
+	private final Quoting quoting;
+
+	/**
+	 * The age of the graph.
+	 */
+	private int age = 1;
+
+	/**
+	 * Birthday of subject rows.
+	 */
+	private int birthdayOfSubject = 0;
+
+	/**
+	 * Total row-count.
+	 */
+	private final AtomicLong totalRowcount = new AtomicLong();
+
+	/**
+	 * An edge between two entities.
+	 */
+	private static class Dependency {
+		final int assoc;
+		final int dependId;
+		final Table from;
+		final Table to;
+		final String fromKey;
+		final String toKey;
+		boolean traversed = false;
+
+		Dependency(int assoc, int dependId, Table from, Table to, String fromKey, String toKey) {
+			this.assoc = assoc;
+			this.dependId = dependId;
+			this.from = from;
+			this.to = to;
+			this.fromKey = fromKey;
+			this.toKey = toKey;
+		}
+	}
+
+	/**
+	 * The dependencies, indexed by source and by destination entity.
+	 */
+	private static class Dependencies {
+		private final Map<Table, Map<String, List<Dependency>>> outgoing = new HashMap<Table, Map<String, List<Dependency>>>();
+		private final Map<Table, Map<String, List<Dependency>>> incoming = new HashMap<Table, Map<String, List<Dependency>>>();
+		private int size = 0;
+
+		synchronized void add(Dependency dependency) {
+			index(outgoing, dependency.from, dependency.fromKey).add(dependency);
+			index(incoming, dependency.to, dependency.toKey).add(dependency);
+			++size;
+		}
+
+		synchronized List<Dependency> outgoing(Table table, String key) {
+			return find(outgoing, table, key);
+		}
+
+		synchronized List<Dependency> incoming(Table table, String key) {
+			return find(incoming, table, key);
+		}
+
+		synchronized List<Dependency> outgoing(Table table) {
+			List<Dependency> result = new ArrayList<Dependency>();
+			Map<String, List<Dependency>> perKey = outgoing.get(table);
+			if (perKey != null) {
+				for (List<Dependency> dl: perKey.values()) {
+					result.addAll(dl);
+				}
+			}
+			return result;
+		}
+
+		synchronized List<Dependency> all() {
+			List<Dependency> result = new ArrayList<Dependency>();
+			for (Map<String, List<Dependency>> perKey: outgoing.values()) {
+				for (List<Dependency> dl: perKey.values()) {
+					result.addAll(dl);
+				}
+			}
+			return result;
+		}
+
+		synchronized void setTraversed(Table from, String fromKey, int assoc) {
+			for (Dependency d: find(outgoing, from, fromKey)) {
+				if (d.assoc == assoc) {
+					d.traversed = true;
+				}
+			}
+		}
+
+		synchronized boolean hasOutgoing(Table table, String key, int assoc) {
+			for (Dependency d: find(outgoing, table, key)) {
+				if (d.assoc == assoc) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		synchronized boolean hasIncoming(Table table, String key) {
+			return !find(incoming, table, key).isEmpty();
+		}
+
+		synchronized void remove(Collection<Dependency> dependencies) {
+			for (Dependency d: dependencies) {
+				if (find(outgoing, d.from, d.fromKey).remove(d)) {
+					find(incoming, d.to, d.toKey).remove(d);
+					--size;
+				}
+			}
+		}
+
+		synchronized void clear() {
+			outgoing.clear();
+			incoming.clear();
+			size = 0;
+		}
+
+		private static List<Dependency> index(Map<Table, Map<String, List<Dependency>>> index, Table table, String key) {
+			Map<String, List<Dependency>> perKey = index.get(table);
+			if (perKey == null) {
+				perKey = new HashMap<String, List<Dependency>>();
+				index.put(table, perKey);
+			}
+			List<Dependency> dl = perKey.get(key);
+			if (dl == null) {
+				dl = new ArrayList<Dependency>(2);
+				perKey.put(key, dl);
+			}
+			return dl;
+		}
+
+		private static List<Dependency> find(Map<Table, Map<String, List<Dependency>>> index, Table table, String key) {
+			Map<String, List<Dependency>> perKey = index.get(table);
+			if (perKey != null) {
+				List<Dependency> dl = perKey.get(key);
+				if (dl != null) {
+					return dl;
+				}
+			}
+			return new ArrayList<Dependency>(0);
+		}
+	}
+
+	/**
+	 * Passes primary keys to the source database as conditions on the primary key columns.
+	 * Each condition covers up to {@link #CHUNK_SIZE} keys, so that there is one statement per chunk.
+	 */
+	private abstract class KeyConditionBuilder {
+
+		private static final int CHUNK_SIZE = 1000;
+
+		private final Table table;
+		private final String alias;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param table the table
+		 * @param alias alias of the table in the statement
+		 */
+		public KeyConditionBuilder(Table table, String alias) {
+			this.table = table;
+			this.alias = alias;
+		}
+
+		/**
+		 * Builds one condition per chunk of keys and processes them.
+		 *
+		 * @param keys the encoded primary keys
+		 */
+		public void build(List<String> keys) throws SQLException {
+			build(keys, false);
+		}
+
+		/**
+		 * Builds the conditions for given keys and processes them.
+		 *
+		 * @param keys the encoded primary keys
+		 * @param ordered if <code>true</code>, the keys are sorted before they are split into chunks,
+		 *  so that the chunks cover consecutive key ranges and the ordered results of the chunks
+		 *  are ordered as a whole
+		 */
+		public void build(List<String> keys, boolean ordered) throws SQLException {
+			if (ordered) {
+				keys = new ArrayList<String>(keys);
+				Collections.sort(keys, new KeyComparator(rowIdSupport.getPrimaryKey(table).getColumns().size()));
+			}
+			for (int start = 0; start < keys.size(); start += CHUNK_SIZE) {
+				process(condition(keys.subList(start, Math.min(keys.size(), start + CHUNK_SIZE))));
+			}
+		}
+
+		/**
+		 * Builds the condition for a chunk of keys. A list of literals for single-column keys,
+		 * a disjunction of the keys otherwise.
+		 */
+		private String condition(List<String> keys) {
+			List<Column> pkColumns = rowIdSupport.getPrimaryKey(table).getColumns();
+			if (pkColumns.size() == 1) {
+				StringBuilder condition = new StringBuilder(alias + "." + quoting.requote(pkColumns.get(0).name) + " in (");
+				boolean first = true;
+				for (String key: keys) {
+					if (!first) {
+						condition.append(", ");
+					}
+					condition.append(key);
+					first = false;
+				}
+				return condition.append(")").toString();
+			}
+			List<String> terms = new ArrayList<String>(keys.size());
+			for (String key: keys) {
+				String[] values = decode(key, pkColumns.size());
+				StringBuilder term = new StringBuilder("(");
+				for (int i = 0; i < values.length; ++i) {
+					if (i > 0) {
+						term.append(" and ");
+					}
+					term.append(alias + "." + quoting.requote(pkColumns.get(i).name) + "=" + values[i]);
+				}
+				terms.add(term.append(")").toString());
+			}
+			return SqlUtil.disjunction(terms);
+		}
+
+		/**
+		 * Processes a condition.
+		 *
+		 * @param condition the condition, selects the rows of a chunk of keys
+		 */
+		protected abstract void process(String condition) throws SQLException;
+
+	}
+
+	/**
+	 * Passes primary keys (together with additional values) to the source database as inline-views.
+	 */
+	private abstract class KeyInlineViewBuilder extends InlineViewBuilder {
+
+		/**
+		 * Constructor.
+		 *
+		 * @param name name of the inline-view
+		 * @param columnNames the column names
+		 */
+		public KeyInlineViewBuilder(String name, String[] columnNames) {
+			super(inlineViewStyle, name, InMemoryEntityGraph.this.session, columnNames);
+		}
+
+		@Override
+		protected CellContentConverter createCellContentConverter() {
+			return null;
+		}
+
+		@Override
+		protected String sqlValue(ResultSet resultSet, int i) throws SQLException {
+			return resultSet.getString(i);
+		}
+
+		/**
+		 * Builds the inline-views for given rows and processes them.
+		 *
+		 * @param allRows the rows (SQL-literals)
+		 */
+		public void buildFromRows(List<String[]> allRows) throws SQLException {
+			int[] types = new int[columnNames.length];
+			for (int i = 0; i < types.length; ++i) {
+				types[i] = Types.VARCHAR;
+			}
+			MemorizedResultSet resultSet = new MemorizedResultSet(new ArrayList<Object[]>(allRows), columnNames.length, columnNames, types);
+			while (resultSet.next()) {
+				readCurrentRow(resultSet);
+			}
+			close();
+		}
+
+		@Override
+		public void close() throws SQLException {
+			if (DBMS.POSTGRESQL.equals(session.dbms) && statementBuilder.size() == 1) {
+				process("(Select " + statementBuilder.getItems().get(0) + " Union Select " + statementBuilder.getItems().get(0) + ") " + name);
+			} else {
+				super.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graphID the unique ID of the graph
+	 * @param dataModel the data model
+	 * @param session for executing SQL-Statements
+	 * @param rowIdSupport the row-id support
+	 * @param executionContext the execution context
+	 */
+	private InMemoryEntityGraph(int graphID, DataModel dataModel, Session session, RowIdSupport rowIdSupport, ExecutionContext executionContext) throws SQLException {
+		super(graphID, dataModel, executionContext);
+		this.session = session;
+		this.rowIdSupport = rowIdSupport;
+		this.quoting = new Quoting(session);
+		this.inlineViewStyle = InlineViewStyle.forSession(session);
+		this.memoryBudget = (long) (Runtime.getRuntime().maxMemory() * MEMORY_BUDGET_FRACTION);
+	}
+
+	/**
+	 * Creates a new entity-graph.
+	 *
+	 * @param dataModel the data model
+	 * @param graphID the unique ID of the graph
+	 * @param session for executing SQL-Statements
+	 * @param executionContext the execution context
+	 * @return the newly created entity-graph
+	 */
+	public static InMemoryEntityGraph create(DataModel dataModel, int graphID, Session session, ExecutionContext executionContext) throws SQLException {
+		return new InMemoryEntityGraph(graphID, dataModel, session, new RowIdSupport(dataModel, session.dbms, executionContext), executionContext);
+	}
+
+	/**
+	 * Sets birthday of subject rows.
+	 *
+	 * @param birthdayOfSubject birthday of subject rows
+	 */
+	@Override
+	public void setBirthdayOfSubject(int birthdayOfSubject) {
+		this.birthdayOfSubject = birthdayOfSubject;
+	}
+
+	/**
+	 * Copies an entity-graph.
+	 *
+	 * @param newGraphID the unique ID of the new graph
+	 * @param session for executing SQL-Statements
+	 * @return the newly created entity-graph
+	 */
+	@Override
+	public EntityGraph copy(int newGraphID, Session session) throws SQLException {
+		InMemoryEntityGraph entityGraph = new InMemoryEntityGraph(newGraphID, dataModel, this.session, rowIdSupport, executionContext);
+		entityGraph.setBirthdayOfSubject(birthdayOfSubject);
+		entityGraph.age = age;
+		synchronized (entities) {
+			for (Map.Entry<Table, EntitySet> e: entities.entrySet()) {
+				entityGraph.entities.put(e.getKey(), e.getValue().copy());
+			}
+		}
+		entityGraph.estimatedSize.set(estimatedSize.get());
+		return entityGraph;
+	}
+
+	/**
+	 * Gets the age of the graph.
+	 *
+	 * @return the age of the graph
+	 */
+	@Override
+	public synchronized int getAge() throws SQLException {
+		return age;
+	}
+
+	/**
+	 * Sets the age of the graph.
+	 *
+	 * @param age the age of the graph
+	 */
+	@Override
+	public synchronized void setAge(int age) throws SQLException {
+		this.age = age;
+	}
+
+	/**
+	 * Gets the number of entities in the graph.
+	 *
+	 * @return the number of entities in the graph
+	 */
+	@Override
+	public long getSize() throws SQLException {
+		return getSize(new HashSet<Table>(dataModel.getTables()));
+	}
+
+	/**
+	 * Gets the number of entities from given tables in the graph.
+	 *
+	 * @return the number of entities in the graph
+	 */
+	@Override
+	public long getSize(Set<Table> tables) throws SQLException {
+		long total = 0;
+		for (Table table: tables) {
+			total += countEntities(table);
+		}
+		return total;
+	}
+
+	/**
+	 * Deletes the graph.
+	 */
+	@Override
+	public void delete() throws SQLException {
+		synchronized (entities) {
+			entities.clear();
+		}
+		dependencies.clear();
+		estimatedSize.set(0);
+	}
+
+	/**
+	 * Deletes this graph. (There is nothing to truncate.)
+	 *
+	 * @param checkExist ignored
+	 */
+	@Override
+	public void truncate(ExecutionContext executionContext, boolean checkExist) throws SQLException {
+		delete();
+	}
+
+	/**
+	 * Check if the graph still exists. (An in-memory graph always exists.)
+	 */
+	@Override
+	public void checkExist(ExecutionContext executionContext) throws SQLException {
+	}
+
+	/**
+	 * Adds entities to the graph.
+	 *
+	 * @param table the table
+	 * @param condition the condition in SQL that the entities must fulfill
+	 * @param today the birthday of the new entities
+	 *
+	 * @return row-count
+	 */
+	@Override
+	public long addEntities(final Table table, String condition, final int today) throws SQLException {
+		final EntitySet entitySet = getEntitySet(table);
+		final long[] rc = new long[1];
+		session.executeQuery(
+				"Select " + pkList(table, "T", "") + " From " + quoting.requote(table.getName()) + " T Where (" + condition + ")",
+				new Session.AbstractResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						String key = readKey(resultSet, 1, table, getCellContentConverter(resultSet, session, session.dbms));
+						if (entitySet.add(key, today)) {
+							++rc[0];
+							addToEstimatedSize(key, ENTITY_OVERHEAD);
+						}
+					}
+				});
+		totalRowcount.addAndGet(rc[0]);
+		return rc[0];
+	}
+
+	/**
+	 * Adds entities to the graph, skipping those which are already part of it.
+	 *
+	 * @param table the table
+	 * @param condition the condition in SQL that the entities must fulfill
+	 * @param today the birthday of the new entities
+	 *
+	 * @return row-count
+	 */
+	@Override
+	public long addNewEntities(Table table, String condition, int today) throws SQLException {
+		return addEntities(table, condition, today);
+	}
+
+	/**
+	 * Resolves an association. Retrieves and adds all entities
+	 * associated with an entity born yesterday in the graph
+	 * and adds the dependencies.
+	 *
+	 * @param table the table
+	 * @param association the association to resolve
+	 * @param today the birthday of the new entities
+	 *
+	 * @return row-count or -1, if association is ignored
+	 */
+	@Override
+	public long resolveAssociation(final Table table, final Association association, final int today) throws SQLException {
+		if (association.getJoinCondition() == null) {
+			return -1;
+		}
+		final String jc = SqlUtil.resolvePseudoColumns(association.getJoinCondition(), today, birthdayOfSubject, association.reversed, inDeleteMode);
+		final String destAlias;
+		final String sourceAlias;
+		if (association.reversed) {
+			destAlias = "A";
+			sourceAlias = "B";
+		} else {
+			destAlias = "B";
+			sourceAlias = "A";
+		}
+		final Table source = association.source;
+		final Table destination = association.destination;
+		final EntitySet destinationSet = getEntitySet(destination);
+		final long[] rc = new long[1];
+
+		new KeyConditionBuilder(source, sourceAlias) {
+			@Override
+			protected void process(String condition) throws SQLException {
+				String select =
+						"Select distinct " + pkList(destination, destAlias, "") +
+						" From " + quoting.requote(source.getName()) + " " + sourceAlias +
+						" join " + quoting.requote(destination.getName()) + " " + destAlias + " on (" + jc + ")" +
+						" Where " + condition;
+				session.executeQuery(select, new Session.AbstractResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						String key = readKey(resultSet, 1, destination, getCellContentConverter(resultSet, session, session.dbms));
+						if (destinationSet.add(key, today)) {
+							++rc[0];
+							addToEstimatedSize(key, ENTITY_OVERHEAD);
+						}
+					}
+				});
+			}
+		}.build(getEntitySet(source).keys(today - 1, today - 1));
+
+		totalRowcount.addAndGet(rc[0]);
+		return rc[0];
+	}
+
+	/**
+	 * Adds dependencies.
+	 *
+	 * @param from source of dependency
+	 * @param fromAlias alias for from-table
+	 * @param to destination of dependency
+	 * @param toAlias alias for to-table
+	 * @param condition condition of dependency
+	 * @param aggregationId id of aggregation association (for XML export), 0 if not applicable
+	 * @param dependencyId id of dependency
+	 */
+	@Override
+	public void addDependencies(final Table from, final String fromAlias, final Table to, final String toAlias, final String condition, final int aggregationId, final int dependencyId, boolean isAssociationReversed) throws SQLException {
+		checkPseudoColumns(from, condition);
+		final EntitySet toSet = getEntitySet(to);
+		final int fromKeySize = keyColumnNames(from, "").length;
+		new KeyConditionBuilder(from, fromAlias) {
+			@Override
+			protected void process(String keyCondition) throws SQLException {
+				String select =
+						"Select " + pkList(from, fromAlias, "F") + ", " + pkList(to, toAlias, "T") +
+						" From " + quoting.requote(from.getName()) + " " + fromAlias + ", " + quoting.requote(to.getName()) + " " + toAlias +
+						" Where (" + condition + ")" +
+						" and " + keyCondition;
+				session.executeQuery(select, new Session.AbstractResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						CellContentConverter cellContentConverter = getCellContentConverter(resultSet, session, session.dbms);
+						String fromKey = readKey(resultSet, 1, from, cellContentConverter);
+						String toKey = readKey(resultSet, 1 + fromKeySize, to, cellContentConverter);
+						if (toSet.get(toKey) != EntitySet.NONE) {
+							dependencies.add(new Dependency(aggregationId, dependencyId, from, to, fromKey, toKey));
+							totalRowcount.incrementAndGet();
+							addToEstimatedSize(null, DEPENDENCY_OVERHEAD);
+						}
+					}
+				});
+			}
+		}.build(getEntitySet(from).keys(Integer.MIN_VALUE + 1, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Gets distinct association-ids of all edged.
+	 */
+	@Override
+	public Set<Integer> getDistinctDependencyIDs() throws SQLException {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (Dependency d: dependencies.all()) {
+			ids.add(d.dependId);
+		}
+		return ids;
+	}
+
+	/**
+	 * Marks all entities of a given table which don't dependent on other entities,
+	 * s.t. they can be read and deleted.
+	 */
+	@Override
+	public void markIndependentEntities(Table table) throws SQLException {
+		Collection<Table> tables;
+		if (table != null) {
+			tables = new ArrayList<Table>();
+			tables.add(table);
+		} else {
+			tables = dataModel.getTables();
+		}
+		for (final Table t: tables) {
+			getEntitySet(t).update(new EntitySet.BirthdayFunction() {
+				@Override
+				public int apply(String key, int birthday) {
+					if (birthday > 0 && !dependencies.hasOutgoing(t, key, 0)) {
+						return 0;
+					}
+					return birthday;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Offset of the level in the birthday of entities after levels have been assigned.
+	 */
+	private static final int LEVEL_OFFSET = 1;
+
+	/**
+	 * Assigns to each entity of the given tables the level on which it becomes independent.
+	 * The level is stored in the birthday of the entity (level + {@link #LEVEL_OFFSET}),
+	 * entities which never become independent get a birthday beyond the last level.
+	 *
+	 * @param tables the tables
+	 * @return the tables having entities on a level, per level
+	 */
+	@Override
+	public List<Set<Table>> assignIndependenceLevels(Set<Table> tables) throws SQLException {
+		List<Set<Table>> result = new ArrayList<Set<Table>>();
+		if (tables.isEmpty()) {
+			return result;
+		}
+		DependencyLevels dependencyLevels = new DependencyLevels();
+		List<Table> entityTable = new ArrayList<Table>();
+		List<String> entityKey = new ArrayList<String>();
+		Set<Integer> excluded = new HashSet<Integer>();
+		for (Table table: tables) {
+			for (Dependency d: dependencies.outgoing(table)) {
+				if (d.assoc == 0) {
+					int fromID = entityID(dependencyLevels, d.from, d.fromKey, entityTable, entityKey);
+					int toID = entityID(dependencyLevels, d.to, d.toKey, entityTable, entityKey);
+					if (!tables.contains(d.to)) {
+						// entity is not removed by level-wise export
+						dependencyLevels.block(toID);
+						excluded.add(toID);
+					}
+					dependencyLevels.addDependency(fromID, toID);
+				}
+			}
+			// entities marked as deleted are never removed
+			for (String key: getEntitySet(table).keys(Integer.MIN_VALUE + 1, -1)) {
+				int id = entityID(dependencyLevels, table, key, entityTable, entityKey);
+				dependencyLevels.block(id);
+				excluded.add(id);
+			}
+		}
+
+		int[] levels = dependencyLevels.computeLevels();
+		int numLevels = 1;
+		for (int level: levels) {
+			numLevels = Math.max(numLevels, level + 1);
+		}
+		for (int i = 0; i < numLevels; ++i) {
+			result.add(i == 0? new HashSet<Table>(tables) : new HashSet<Table>());
+		}
+		final Map<Table, Map<String, Integer>> birthdays = new HashMap<Table, Map<String, Integer>>();
+		for (int id = 0; id < levels.length; ++id) {
+			if (levels[id] != 0 && !excluded.contains(id)) {
+				Table table = entityTable.get(id);
+				int birthday;
+				if (levels[id] == DependencyLevels.NO_LEVEL) {
+					birthday = numLevels + LEVEL_OFFSET;
+				} else {
+					birthday = levels[id] + LEVEL_OFFSET;
+					result.get(levels[id]).add(table);
+				}
+				Map<String, Integer> birthdayPerKey = birthdays.get(table);
+				if (birthdayPerKey == null) {
+					birthdayPerKey = new HashMap<String, Integer>();
+					birthdays.put(table, birthdayPerKey);
+				}
+				birthdayPerKey.put(entityKey.get(id), birthday);
+			}
+		}
+		Session._log.info(dependencyLevels.getNumberOfDependencies() + " dependencies between " + dependencyLevels.size() + " entities, " + numLevels + " level(s)");
+
+		for (Table table: tables) {
+			final Map<String, Integer> birthdayPerKey = birthdays.get(table);
+			getEntitySet(table).update(new EntitySet.BirthdayFunction() {
+				@Override
+				public int apply(String key, int birthday) {
+					if (birthday > 0) {
+						Integer level = birthdayPerKey == null? null : birthdayPerKey.get(key);
+						return level == null? LEVEL_OFFSET : level;
+					}
+					return birthday;
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the ID of an entity, registers the entity if it is not yet known.
+	 */
+	private int entityID(DependencyLevels dependencyLevels, Table table, String key, List<Table> entityTable, List<String> entityKey) {
+		int id = dependencyLevels.getID(table.getOrdinal() + "|" + key);
+		if (id == entityTable.size()) {
+			entityTable.add(table);
+			entityKey.add(key);
+		}
+		return id;
+	}
+
+	/**
+	 * Marks all entities of a given table on a given level,
+	 * s.t. they can be read and deleted.
+	 *
+	 * @param table the table
+	 * @param level the level
+	 */
+	@Override
+	public void markIndependentEntities(Table table, final int level) throws SQLException {
+		getEntitySet(table).update(new EntitySet.BirthdayFunction() {
+			@Override
+			public int apply(String key, int birthday) {
+				return birthday == level + LEVEL_OFFSET? 0 : birthday;
+			}
+		});
+	}
+
+	/**
+	 * Deletes all entities of a given table which are marked as independent,
+	 * but keeps their dependencies.
+	 *
+	 * @param table the table
+	 */
+	@Override
+	public void deleteMarkedEntities(Table table) throws SQLException {
+		getEntitySet(table).update(new EntitySet.BirthdayFunction() {
+			@Override
+			public int apply(String key, int birthday) {
+				return birthday == 0? EntitySet.NONE : birthday;
+			}
+		});
+	}
+
+	/**
+	 * Deletes all dependencies from or to entities of given tables which are no longer part of the graph.
+	 *
+	 * @param tables the tables
+	 */
+	@Override
+	public void deleteDanglingDependencies(Set<Table> tables) throws SQLException {
+		List<Dependency> toRemove = new ArrayList<Dependency>();
+		for (Dependency d: dependencies.all()) {
+			if (d.assoc == 0) {
+				if (tables.contains(d.from) && getEntitySet(d.from).get(d.fromKey) == EntitySet.NONE
+						|| tables.contains(d.to) && getEntitySet(d.to).get(d.toKey) == EntitySet.NONE) {
+					toRemove.add(d);
+				}
+			}
+		}
+		dependencies.remove(toRemove);
+	}
+
+	/**
+	 * Marks all rows which are not target of a dependency.
+	 */
+	@Override
+	public void markRoots(final Table table) throws SQLException {
+		getEntitySet(table).update(new EntitySet.BirthdayFunction() {
+			@Override
+			public int apply(String key, int birthday) {
+				if (birthday > 0 && !dependencies.hasIncoming(table, key)) {
+					return 0;
+				}
+				return birthday;
+			}
+		});
+	}
+
+	/**
+	 * Reads all entities of a given table which are marked as independent or as roots.
+	 *
+	 * @param table the table
+	 * @param orderByPK if <code>true</code>, result will be ordered by primary keys
+	 */
+	@Override
+	public void readMarkedEntities(Table table, boolean orderByPK) throws SQLException {
+		Session.ResultSetReader reader = getTransformerFactory().create(table);
+		readMarkedEntities(table, reader, filteredSelectionClause(table), null, orderByPK);
+	}
+
+	/**
+	 * Reads all entities of a given table which are marked as independent or as roots.
+	 *
+	 * @param reader for reading the result-set
+	 * @param table the table
+	 * @param orderByPK if <code>true</code>, result will be ordered by primary keys
+	 */
+	@Override
+	public void readMarkedEntities(final Table table, final Session.ResultSetReader reader, final String selectionSchema, final String originalPKAliasPrefix, final boolean orderByPK) throws SQLException {
+		new KeyConditionBuilder(table, "T") {
+			@Override
+			protected void process(String condition) throws SQLException {
+				String orderBy = "";
+				if (orderByPK) {
+					orderBy = " order by " + rowIdSupport.getPrimaryKey(table).columnList("T.", quoting);
+				}
+				String sqlQuery;
+				if (originalPKAliasPrefix != null) {
+					sqlQuery = "Select " + selectionSchema + " From (" +
+							"Select " + originalPKList(table, originalPKAliasPrefix) + ", " + filteredSelectionClause(table) + " From " + quoting.requote(table.getName()) + " T Where " +
+							condition +
+							") T ";
+				} else {
+					sqlQuery = "Select " + selectionSchema + " From " + quoting.requote(table.getName()) + " T Where " +
+							condition;
+				}
+				long rc = session.executeQuery(sqlQuery + orderBy, reader);
+				executionContext.getProgressListenerRegistry().fireExported(table, rc);
+				addExportedCount(rc);
+			}
+		}.build(getEntitySet(table).keys(0, 0), orderByPK);
+	}
+
+	/**
+	 * Unites the graph with another one and deletes the other graph.
+	 *
+	 * @param graph the graph to be united with this graph
+	 */
+	@Override
+	public void uniteWith(EntityGraph graph) throws SQLException {
+		InMemoryEntityGraph other = (InMemoryEntityGraph) graph;
+		List<Map.Entry<Table, EntitySet>> otherEntities;
+		synchronized (other.entities) {
+			otherEntities = new ArrayList<Map.Entry<Table, EntitySet>>(other.entities.entrySet());
+		}
+		for (Map.Entry<Table, EntitySet> e: otherEntities) {
+			getEntitySet(e.getKey()).addAll(e.getValue());
+		}
+		estimatedSize.addAndGet(other.estimatedSize.get());
+		graph.delete();
+	}
+
+	/**
+	 * Reads all entities of a given table.
+	 *
+	 * @param table the table
+	 * @param orderByPK if <code>true</code>, result will be ordered by primary keys
+	 */
+	@Override
+	public void readEntities(Table table, boolean orderByPK) throws SQLException {
+		Session.ResultSetReader reader = getTransformerFactory().create(table);
+		readEntities(table, orderByPK, reader, true);
+	}
+
+	/**
+	 * Reads all entities of a given table.
+	 *
+	 * @param table the table
+	 * @param orderByPK if <code>true</code>, result will be ordered by primary keys
+	 */
+	private long readEntities(final Table table, final boolean orderByPK, final Session.ResultSetReader reader, final boolean fireProgressEvents) throws SQLException {
+		final long[] rc = new long[1];
+		new KeyConditionBuilder(table, "T") {
+			@Override
+			protected void process(String condition) throws SQLException {
+				String sqlQuery = "Select " + filteredSelectionClause(table) + " From " + quoting.requote(table.getName()) + " T Where " +
+						condition;
+				long lrc;
+				if (orderByPK) {
+					String sqlQueryWithOrderBy = sqlQuery +
+						" order by " + rowIdSupport.getPrimaryKey(table).columnList("T.", quoting);
+					lrc = session.executeQuery(sqlQueryWithOrderBy, reader, sqlQuery, null, 0);
+				} else {
+					lrc = session.executeQuery(sqlQuery, reader);
+				}
+				rc[0] += lrc;
+				if (fireProgressEvents) {
+					executionContext.getProgressListenerRegistry().fireExported(table, lrc);
+					addExportedCount(lrc);
+				}
+			}
+		}.build(getEntitySet(table).keys(0, Integer.MAX_VALUE), orderByPK);
+		return rc[0];
+	}
+
+	/**
+	 * Updates columns of a table.
+	 *
+	 * @param table the table
+	 * @param columns the columns;
+	 * @param reason to be written as comment
+	 */
+	@Override
+	public void updateEntities(Table table, Set<Column> columns, OutputStreamWriter scriptFileWriter, DBMS targetConfiguration, String reason) throws SQLException {
+		Session.ResultSetReader reader = new UpdateTransformer(table, columns, scriptFileWriter, executionContext.getNumberOfEntities(), getTargetSession(), targetConfiguration, importFilterManager, reason, executionContext);
+		readEntities(table, false, reader, false);
+	}
+
+	/**
+	 * Reads some columns of all entities of a given table without using filters.
+	 *
+	 * @param table the table
+	 * @param columns the columns
+	 * @param reader to read
+	 */
+	@Override
+	public long readUnfilteredEntityColumns(final Table table, final List<Column> columns, final Session.ResultSetReader reader) throws SQLException {
+		StringBuilder sb = new StringBuilder();
+		boolean first = true;
+		for (Column c: columns) {
+			if (!first) {
+				sb.append(", ");
+			}
+			sb.append("T." + quoting.requote(c.name));
+			sb.append(" as " + quoting.requote(c.name));
+			first = false;
+		}
+		final String columnList = sb.toString();
+		final long[] rc = new long[1];
+		new KeyConditionBuilder(table, "T") {
+			@Override
+			protected void process(String condition) throws SQLException {
+				String sqlQuery = "Select distinct " + columnList + " From " + quoting.requote(table.getName()) + " T Where " +
+						condition;
+				rc[0] += session.executeQuery(sqlQuery, reader);
+			}
+		}.build(getEntitySet(table).keys(0, Integer.MAX_VALUE));
+		return rc[0];
+	}
+
+	/**
+	 * Deletes all entities which are marked as independent.
+	 */
+	@Override
+	public void deleteIndependentEntities(Table table) throws SQLException {
+		EntitySet entitySet = getEntitySet(table);
+		List<Dependency> toRemove = new ArrayList<Dependency>();
+		for (String key: entitySet.keys(0, 0)) {
+			for (Dependency d: dependencies.outgoing(table, key)) {
+				if (d.assoc == 0) {
+					toRemove.add(d);
+				}
+			}
+			for (Dependency d: dependencies.incoming(table, key)) {
+				if (d.assoc == 0) {
+					toRemove.add(d);
+				}
+			}
+		}
+		dependencies.remove(toRemove);
+		entitySet.update(new EntitySet.BirthdayFunction() {
+			@Override
+			public int apply(String key, int birthday) {
+				return birthday == 0? EntitySet.NONE : birthday;
+			}
+		});
+	}
+
+	/**
+	 * Deletes all entities from a given table.
+	 */
+	@Override
+	public long deleteEntities(Table table) throws SQLException {
+		return getEntitySet(table).update(new EntitySet.BirthdayFunction() {
+			@Override
+			public int apply(String key, int birthday) {
+				return EntitySet.NONE;
+			}
+		});
+	}
+
+	/**
+	 * Counts the entities of a given table in this graph.
+	 *
+	 * @param table the table
+	 * @return the number of entities from table in this graph
+	 */
+	@Override
+	public long countEntities(Table table) throws SQLException {
+		return getEntitySet(table).count(0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Removes all entities from this graph which are associated with an entity
+	 * outside the graph.
+	 *
+	 * @param deletedEntitiesAreMarked if true, consider entity as deleted if its birthday is negative
+	 * @param association the association
+	 * @return number of removed entities
+	 */
+	@Override
+	public long removeAssociatedDestinations(final Association association, final boolean deletedEntitiesAreMarked) throws SQLException {
+		final String jc = association.getJoinCondition();
+		checkPseudoColumns(association.source, jc);
+		if (jc == null) {
+			return 0;
+		}
+		final String destAlias;
+		final String sourceAlias;
+		if (association.reversed) {
+			destAlias = "A";
+			sourceAlias = "B";
+		} else {
+			destAlias = "B";
+			sourceAlias = "A";
+		}
+		final Table source = association.source;
+		final Table destination = association.destination;
+		final EntitySet sourceSet = getEntitySet(source);
+		final EntitySet destinationSet = getEntitySet(destination);
+		final int destinationKeySize = keyColumnNames(destination, "").length;
+		final long[] rc = new long[1];
+
+		new KeyConditionBuilder(destination, destAlias) {
+			@Override
+			protected void process(String condition) throws SQLException {
+				String selectSource =
+						"Select distinct " + pkList(destination, destAlias, "D") + ", " + pkList(source, sourceAlias, "S") + " from " +
+						quoting.requote(destination.getName()) + " " + destAlias + " " +
+						"join " + quoting.requote(source.getName()) + " " + sourceAlias + " " + " on " + jc +
+						" Where " + condition;
+				final Set<String> toRemove = new HashSet<String>();
+				session.executeQuery(selectSource, new Session.AbstractResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						CellContentConverter cellContentConverter = getCellContentConverter(resultSet, session, session.dbms);
+						String destinationKey = readKey(resultSet, 1, destination, cellContentConverter);
+						String sourceKey = readKey(resultSet, 1 + destinationKeySize, source, cellContentConverter);
+						int sourceBirthday = sourceSet.get(sourceKey);
+						if (deletedEntitiesAreMarked? sourceBirthday == -1 : sourceBirthday == EntitySet.NONE) {
+							toRemove.add(destinationKey);
+						}
+					}
+				});
+				if (!toRemove.isEmpty()) {
+					rc[0] += destinationSet.update(new EntitySet.BirthdayFunction() {
+						@Override
+						public int apply(String key, int birthday) {
+							return toRemove.contains(key)? -1 : birthday;
+						}
+					});
+				}
+			}
+		}.build(destinationSet.keys(deletedEntitiesAreMarked? 0 : Integer.MIN_VALUE + 1, Integer.MAX_VALUE));
+		return rc[0];
+	}
+
+	/**
+	 * Reads all entities which depends on given entity.
+	 *
+	 * @param table the table from which to read entities
+	 * @param association the dependency
+	 * @param resultSet current row is given entity
+	 * @param reader reads the entities
+	 * @param selectionSchema the selection schema
+	 */
+	@Override
+	public void readDependentEntities(final Table table, final Association association, ResultSet resultSet, ResultSetMetaData resultSetMetaData, final ResultSetReader reader, Map<String, Integer> typeCache, final String selectionSchema, final String originalPKAliasPrefix) throws SQLException {
+		String fromKey = readKey(resultSet, association.source, new CellContentConverter(resultSetMetaData, session, session.dbms));
+		List<String> keys = new ArrayList<String>();
+		for (Dependency d: dependencies.outgoing(association.source, fromKey)) {
+			if (d.to == table && d.assoc == association.getId()) {
+				keys.add(d.toKey);
+			}
+		}
+		new KeyConditionBuilder(table, "T") {
+			@Override
+			protected void process(String condition) throws SQLException {
+				String select;
+				if (originalPKAliasPrefix != null) {
+					select =
+						"Select " + selectionSchema + " from (" +
+						"Select " + originalPKList(table, originalPKAliasPrefix) + ", " + filteredSelectionClause(table) + " from " + quoting.requote(table.getName()) + " T Where " +
+						condition + ") T";
+				} else {
+					select = "Select " + selectionSchema + " from " + quoting.requote(table.getName()) + " T Where " +
+						condition;
+				}
+				long rc = session.executeQuery(select, reader);
+				executionContext.getProgressListenerRegistry().fireExported(table, rc);
+				addExportedCount(rc);
+			}
+		}.build(keys);
+	}
+
+	/**
+	 * Marks all entities which depends on given entity as traversed.
+	 *
+	 * @param table the table from which to read entities
+	 * @param association the dependency
+	 * @param resultSet current row is given entity
+	 */
+	@Override
+	public void markDependentEntitiesAsTraversed(Association association, ResultSet resultSet, ResultSetMetaData resultSetMetaData, Map<String, Integer> typeCache) throws SQLException {
+		String fromKey = readKey(resultSet, association.source, new CellContentConverter(resultSetMetaData, session, session.dbms));
+		dependencies.setTraversed(association.source, fromKey, association.getId());
+	}
+
+	@Override
+	public boolean supportsSetBasedDependentEntities() {
+		return inlineViewStyle != null;
+	}
+
+	/**
+	 * Reads all entities which depend on a set of given entities.
+	 * The keys of the dependent entities are passed to the source database as one inline-view
+	 * per chunk of keys if the DBMS supports inline-views, otherwise as key conditions per given entity.
+	 *
+	 * @param table the table from which to read entities
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association)
+	 * @param reader reads the entities
+	 * @param selectionSchema the selection schema
+	 */
+	@Override
+	public void readDependentEntities(final Table table, final Association association, List<String[]> parentKeys, final ResultSetReader reader, final String selectionSchema, final String originalPKAliasPrefix) throws SQLException {
+		if (inlineViewStyle == null) {
+			for (int i = 0; i < parentKeys.size(); ++i) {
+				final String parentIndex = i + " AS " + PARENT_INDEX_COLUMN;
+				List<String> keys = new ArrayList<String>();
+				for (Dependency d: dependencies.outgoing(association.source, encode(parentKeys.get(i)))) {
+					if (d.to == table && d.assoc == association.getId()) {
+						keys.add(d.toKey);
+					}
+				}
+				new KeyConditionBuilder(table, "T") {
+					@Override
+					protected void process(String condition) throws SQLException {
+						String select;
+						if (originalPKAliasPrefix != null) {
+							select =
+								"Select " + selectionSchema + ", T." + PARENT_INDEX_COLUMN + " from (" +
+								"Select " + originalPKList(table, originalPKAliasPrefix) + ", " + filteredSelectionClause(table) + ", " + parentIndex + " from " + quoting.requote(table.getName()) + " T Where " +
+								condition + ") T";
+						} else {
+							select = "Select " + selectionSchema + ", " + parentIndex + " from " + quoting.requote(table.getName()) + " T Where " +
+								condition;
+						}
+						long rc = session.executeQuery(select, reader);
+						executionContext.getProgressListenerRegistry().fireExported(table, rc);
+						addExportedCount(rc);
+					}
+				}.build(keys);
+			}
+			return;
+		}
+		String[] keyColumnNames = keyColumnNames(table, "");
+		final String[] columnNames = new String[keyColumnNames.length + 1];
+		System.arraycopy(keyColumnNames, 0, columnNames, 0, keyColumnNames.length);
+		columnNames[keyColumnNames.length] = PARENT_INDEX_COLUMN;
+		List<String[]> rows = new ArrayList<String[]>();
+		for (int i = 0; i < parentKeys.size(); ++i) {
+			for (Dependency d: dependencies.outgoing(association.source, encode(parentKeys.get(i)))) {
+				if (d.to == table && d.assoc == association.getId()) {
+					String[] row = new String[columnNames.length];
+					System.arraycopy(decode(d.toKey, keyColumnNames.length), 0, row, 0, keyColumnNames.length);
+					row[keyColumnNames.length] = String.valueOf(i);
+					rows.add(row);
+				}
+			}
+		}
+		new KeyInlineViewBuilder("D", columnNames) {
+			@Override
+			protected void process(String inlineView) throws SQLException {
+				String select;
+				if (originalPKAliasPrefix != null) {
+					select =
+						"Select " + selectionSchema + ", T." + PARENT_INDEX_COLUMN + " from (" +
+						"Select " + originalPKList(table, originalPKAliasPrefix) + ", " + filteredSelectionClause(table) + ", D." + PARENT_INDEX_COLUMN + " from " + quoting.requote(table.getName()) + " T join " + inlineView + " on " +
+						pkEqualsEntityID(table, "T", "D", "") + ") T";
+				} else {
+					select = "Select " + selectionSchema + ", D." + PARENT_INDEX_COLUMN + " from " + quoting.requote(table.getName()) + " T join " + inlineView + " on " +
+						pkEqualsEntityID(table, "T", "D", "") + "";
+				}
+				long rc = session.executeQuery(select, reader);
+				executionContext.getProgressListenerRegistry().fireExported(table, rc);
+				addExportedCount(rc);
+			}
+		}.buildFromRows(rows);
+	}
+
+	/**
+	 * Marks all entities which depend on a set of given entities as traversed.
+	 *
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association)
+	 */
+	@Override
+	public void markDependentEntitiesAsTraversed(Association association, List<String[]> parentKeys) throws SQLException {
+		for (String[] parentKey: parentKeys) {
+			dependencies.setTraversed(association.source, encode(parentKey), association.getId());
+		}
+	}
+
+	/**
+	 * Reads all non-traversed dependencies.
+	 *
+	 * @param table the source of dependencies to look for
+	 * @param reader reads the entities
+	 */
+	@Override
+	public void readNonTraversedDependencies(Table table, ResultSetReader reader) throws SQLException {
+		String[] names = new String[] { "R_ENTITYGRAPH", "ASSOC", "DEPEND_ID", "TRAVERSED", "FROM_TYPE", "TO_TYPE" };
+		int[] types = new int[] { Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER };
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (Dependency d: dependencies.outgoing(table)) {
+			if (!d.traversed) {
+				rows.add(new Object[] { graphID, d.assoc, d.dependId, null, d.from.getOrdinal(), d.to.getOrdinal() });
+			}
+		}
+		MemorizedResultSet resultSet = new MemorizedResultSet(rows, names.length, names, types);
+		while (resultSet.next()) {
+			reader.readCurrentRow(resultSet);
+		}
+		reader.close();
+	}
+
+	/**
+	 * Removes all reflexive dependencies of given table.
+	 *
+	 * @param table the table
+	 */
+	@Override
+	public void removeReflexiveDependencies(Table table) throws SQLException {
+		List<Dependency> toRemove = new ArrayList<Dependency>();
+		for (Dependency d: dependencies.outgoing(table)) {
+			if (d.to == table && d.fromKey.equals(d.toKey)) {
+				toRemove.add(d);
+			}
+		}
+		dependencies.remove(toRemove);
+	}
+
+	/**
+	 * Removes all dependencies for a given association.
+	 *
+	 * @param association the asociation
+	 */
+	@Override
+	public void removeDependencies(Association association) throws SQLException {
+		List<Dependency> toRemove = new ArrayList<Dependency>();
+		for (Dependency d: dependencies.all()) {
+			if (d.dependId == association.getId()) {
+				toRemove.add(d);
+			}
+		}
+		dependencies.remove(toRemove);
+	}
+
+	/**
+	 * Gets total row-count.
+	 *
+	 * @return total row-count
+	 */
+	@Override
+	public long getTotalRowcount() {
+		return totalRowcount.get();
+	}
+
+	/**
+	 * Whether or not to store additional information in order to create a 'explain.log'.
+	 *
+	 * @param explain <code>true</code> iff predecessors of each entity must be stored
+	 */
+	@Override
+	public void setExplain(boolean explain) {
+		if (explain) {
+			throw new RuntimeException("Explanation (-explain) is not supported for working table scope MEMORY");
+		}
+	}
+
+	/**
+	 * Gets the universal primary key.
+	 *
+	 * @return the universal primary key
+	 */
+	@Override
+	public PrimaryKey getUniversalPrimaryKey() {
+		return rowIdSupport.getUniversalPrimaryKey();
+	}
+
+	/**
+	 * Shuts down statement-executor.
+	 */
+	@Override
+	public void shutDown() throws SQLException {
+		session.shutDown();
+	}
+
+	/**
+	 * Gets the session.
+	 *
+	 * @return the session
+	 */
+	@Override
+	public Session getSession() {
+		return session;
+	}
+
+	@Override
+	public Session getTargetSession() {
+		return session;
+	}
+
+	@Override
+	public DataModel getDatamodel() {
+		return dataModel;
+	}
+
+	/**
+	 * Closes the graph.
+	 */
+	@Override
+	public void close() throws SQLException {
+		delete();
+	}
+
+	/**
+	 * Gets the set of entities of a table.
+	 *
+	 * @param table the table
+	 * @return the set of entities of the table
+	 */
+	private EntitySet getEntitySet(Table table) {
+		synchronized (entities) {
+			EntitySet entitySet = entities.get(table);
+			if (entitySet == null) {
+				entitySet = new EntitySet();
+				entities.put(table, entitySet);
+			}
+			return entitySet;
+		}
+	}
+
+	/**
+	 * Accounts for added entities or dependencies and checks the memory budget.
+	 *
+	 * @param key the encoded primary key or <code>null</code>
+	 * @param overhead additional number of bytes
+	 */
+	private void addToEstimatedSize(String key, int overhead) {
+		long size = estimatedSize.addAndGet(overhead + (key == null? 0 : 2L * key.length()));
+		if (size > memoryBudget) {
+			throw new RuntimeException("The in-memory entity graph exceeds the memory budget of " + (memoryBudget / (1024 * 1024)) + " MB. " +
+					"Use working table scope \"" + "LOCAL_DATABASE" + "\" or \"GLOBAL\" for this extraction or increase the heap size.");
+		}
+	}
+
+	/**
+	 * Gets the names of the columns holding the primary key values.
+	 *
+	 * @param table the table
+	 * @param columnPrefix prefix of the names
+	 * @return names of the columns
+	 */
+	private String[] keyColumnNames(Table table, String columnPrefix) {
+		List<Column> pkColumns = rowIdSupport.getPrimaryKey(table).getColumns();
+		String[] names = new String[pkColumns.size()];
+		for (int i = 0; i < names.length; ++i) {
+			names[i] = columnPrefix + "PK" + i;
+		}
+		return names;
+	}
+
+	/**
+	 * Reads the primary key of an entity.
+	 *
+	 * @param resultSet the result set
+	 * @param firstColumn index of the first column of the primary key
+	 * @param table the table
+	 * @param cellContentConverter converts the values into SQL-literals
+	 * @return the encoded primary key
+	 */
+	private String readKey(ResultSet resultSet, int firstColumn, Table table, CellContentConverter cellContentConverter) throws SQLException {
+		int size = rowIdSupport.getPrimaryKey(table).getColumns().size();
+		String[] values = new String[size];
+		for (int i = 0; i < size; ++i) {
+			values[i] = cellContentConverter.toSql(cellContentConverter.getObject(resultSet, firstColumn + i));
+		}
+		return encode(values);
+	}
+
+	/**
+	 * Reads the primary key of an entity from the columns "PK0", "PK1", ...
+	 *
+	 * @param resultSet the result set
+	 * @param table the table
+	 * @param cellContentConverter converts the values into SQL-literals
+	 * @return the encoded primary key
+	 */
+	private String readKey(ResultSet resultSet, Table table, CellContentConverter cellContentConverter) throws SQLException {
+		int size = rowIdSupport.getPrimaryKey(table).getColumns().size();
+		String[] values = new String[size];
+		for (int i = 0; i < size; ++i) {
+			values[i] = cellContentConverter.toSql(cellContentConverter.getObject(resultSet, "PK" + i));
+		}
+		return encode(values);
+	}
+
+	/**
+	 * Orders encoded primary keys column by column. Numerical literals are compared by value,
+	 * string literals by their content and other literals textually.
+	 */
+	static class KeyComparator implements Comparator<String> {
+
+		private final int size;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param size number of primary key columns
+		 */
+		KeyComparator(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public int compare(String key1, String key2) {
+			String[] values1 = decode(key1, size);
+			String[] values2 = decode(key2, size);
+			for (int i = 0; i < size; ++i) {
+				int c = compareLiterals(values1[i], values2[i]);
+				if (c != 0) {
+					return c;
+				}
+			}
+			return 0;
+		}
+
+		private static int compareLiterals(String literal1, String literal2) {
+			BigDecimal number1 = toNumber(literal1);
+			BigDecimal number2 = toNumber(literal2);
+			if (number1 != null && number2 != null) {
+				return number1.compareTo(number2);
+			}
+			if (isStringLiteral(literal1) && isStringLiteral(literal2)) {
+				return literal1.substring(1, literal1.length() - 1).compareTo(literal2.substring(1, literal2.length() - 1));
+			}
+			return literal1.compareTo(literal2);
+		}
+
+		private static BigDecimal toNumber(String literal) {
+			if (literal.length() == 0 || !(Character.isDigit(literal.charAt(0)) || literal.charAt(0) == '-' || literal.charAt(0) == '.')) {
+				return null;
+			}
+			try {
+				return new BigDecimal(literal);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		private static boolean isStringLiteral(String literal) {
+			return literal.length() >= 2 && literal.startsWith("'") && literal.endsWith("'");
+		}
+	}
+
+	/**
+	 * Encodes the SQL-literals of a primary key.
+	 *
+	 * @param values the SQL-literals
+	 * @return the encoded primary key
+	 */
+	static String encode(String[] values) {
+		if (values.length == 1) {
+			return values[0];
+		}
+		StringBuilder sb = new StringBuilder();
+		for (String value: values) {
+			sb.append(value.length()).append(':').append(value);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Decodes a primary key.
+	 *
+	 * @param key the encoded primary key
+	 * @param size number of primary key columns
+	 * @return the SQL-literals
+	 */
+	static String[] decode(String key, int size) {
+		if (size == 1) {
+			return new String[] { key };
+		}
+		String[] values = new String[size];
+		int pos = 0;
+		for (int i = 0; i < size; ++i) {
+			int colon = key.indexOf(':', pos);
+			int length = Integer.parseInt(key.substring(pos, colon));
+			values[i] = key.substring(colon + 1, colon + 1 + length);
+			pos = colon + 1 + length;
+		}
+		return values;
+	}
+
+	/**
+	 * Gets PK-column list for a table. (for Select clause)
+	 *
+	 * @param table the table
+	 * @param tableAlias the alias for table
+	 * @param columnAliasPrefix prefix for column aliases
+	 */
+	private String pkList(Table table, String tableAlias, String columnAliasPrefix) {
+		StringBuilder sb = new StringBuilder();
+		int i = 0;
+		for (Column column: rowIdSupport.getPrimaryKey(table).getColumns()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(tableAlias + "." + quoting.requote(column.name) + " AS " + columnAliasPrefix + "PK" + i++);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the list of primary key columns with the aliases for the original primary key.
+	 *
+	 * @param table the table
+	 * @param originalPKAliasPrefix prefix of the aliases
+	 */
+	private String originalPKList(Table table, String originalPKAliasPrefix) {
+		StringBuilder sb = new StringBuilder();
+		List<Column> pkColumns = rowIdSupport.getPrimaryKey(table).getColumns();
+		for (int i = 0; i < pkColumns.size(); ++i) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append("T." + quoting.requote(pkColumns.get(i).name) + " AS " + originalPKAliasPrefix + i);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets a SQL comparison expression for comparing rows with entities.
+	 *
+	 * @param table the table
+	 * @param tableAlias alias of the table
+	 * @param entityAlias alias of the inline-view holding the entities
+	 * @param columnPrefix prefix of the columns of the inline-view
+	 * @return a SQL comparison expression for comparing rows of <code>table</code> with entities
+	 */
+	private String pkEqualsEntityID(Table table, String tableAlias, String entityAlias, String columnPrefix) {
+		StringBuilder sb = new StringBuilder();
+		int i = 0;
+		for (Column column: rowIdSupport.getPrimaryKey(table).getColumns()) {
+			if (sb.length() > 0) {
+				sb.append(" and ");
+			}
+			sb.append(entityAlias + "." + columnPrefix + "PK" + i++ + "=" + tableAlias + "." + quoting.requote(column.name));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets select clause for reading rows of given type
+	 * with respect of the column filters.
+	 *
+	 * @param table the table to read rows from
+	 * @return select clause
+	 */
+	private String filteredSelectionClause(Table table) {
+		StringBuilder sb = new StringBuilder();
+		boolean first = true;
+
+		for (Column c: table.getSelectionClause()) {
+			if (!first) {
+				sb.append(", ");
+			}
+			String filterExpression = null;
+			if (c.getFilter() != null && c.getFilter().isApplyAtExport()) {
+				filterExpression = c.getFilterExpression();
+			}
+			if (filterExpression != null) {
+				if (filterExpression.trim().toLowerCase().startsWith("select")) {
+					sb.append("(" + filterExpression + ")");
+				} else {
+					sb.append(filterExpression);
+				}
+			} else {
+				sb.append("T." + quoting.requote(c.name));
+			}
+			sb.append(" as " + quoting.requote(c.name));
+			first = false;
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * The pseudo-columns $DISTANCE and $IS_SUBJECT are currently not supported
+	 * if the entity graph is held in memory.
+	 */
+	private void checkPseudoColumns(Table table, String condition) {
+		if (condition != null) {
+			if (!condition.equals(SqlUtil.resolvePseudoColumns(condition, "A", "B", 0, 0, inDeleteMode))) {
+				throw new IllegalArgumentException(
+						"Unsupported use of pseudo-columns in condition:\n\"" + condition + "\"\n(Table " + table.getName() + ")\n\n" +
+						"When generating delete-scripts, the pseudo-columns $DISTANCE and $IS_SUBJECT are currently not supported " +
+						"if the \"working table scope\" is \"memory\". It works with " +
+						"\"global tables\" or \"temporary tables\".");
+			}
+		}
+	}
+
+}
@@ -19,10 +19,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -48,7 +50,10 @@ import net.sf.jailer.datamodel.PrimaryKeyFactory;
 import net.sf.jailer.datamodel.RowIdSupport;
 import net.sf.jailer.datamodel.Table;
 import net.sf.jailer.ddl.DDLCreator;
+import net.sf.jailer.entitygraph.DependencyLevels;
 import net.sf.jailer.entitygraph.EntityGraph;
+import net.sf.jailer.entitygraph.StatementParameters;
+import net.sf.jailer.util.CancellationHandler;
 import net.sf.jailer.util.CellContentConverter;
 import net.sf.jailer.util.CsvFile;
 import net.sf.jailer.util.Quoting;
@@ -156,6 +161,100 @@ public class LocalEntityGraph extends EntityGraph {
 
 	}
 
+	/**
+	 * Reads the primary keys of rows of the remote database and inserts them into
+	 * the local entity-set table using batched prepared statements.
+	 * Unlike the {@link LocalInlineViewBuilder}, values are bound instead of being rendered into SQL statements.
+	 */
+	private abstract class LocalSetBuilder extends Session.AbstractResultSetReader {
+
+		private static final int MAX_BATCH_SIZE = 1000;
+
+		/**
+		 * ID of the set holding the keys.
+		 */
+		protected final int setId;
+		
+		private final Table table;
+		private PreparedStatement statement;
+		private CellContentConverter cellContentConverter;
+		private int columnCount;
+		private int batchSize = 0;
+		private long size = 0;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param table the table
+		 */
+		public LocalSetBuilder(Table table) {
+			this.table = table;
+			this.setId = getNextSetId();
+		}
+
+		@Override
+		public void readCurrentRow(ResultSet resultSet) throws SQLException {
+			if (statement == null) {
+				columnCount = getMetaData(resultSet).getColumnCount();
+				cellContentConverter = new CellContentConverter(getMetaData(resultSet), remoteSession, remoteSession.dbms);
+				StringBuilder values = new StringBuilder("?, ?");
+				for (int i = 1; i <= columnCount; ++i) {
+					values.append(", ?");
+				}
+				statement = localSession.getConnection().prepareStatement(
+						"Insert into " + dmlTableReference(ENTITY_SET_ELEMENT, localSession) +
+						"(set_id, type, " + upkColumnList(table, null) + ") values (" + values + ")");
+			}
+			statement.setInt(1, setId);
+			statement.setInt(2, typeName(table));
+			for (int i = 1; i <= columnCount; ++i) {
+				statement.setString(i + 2, cellContentConverter.toSql(cellContentConverter.getObject(resultSet, i)));
+			}
+			statement.addBatch();
+			++size;
+			if (++batchSize >= MAX_BATCH_SIZE) {
+				executeBatch();
+			}
+		}
+
+		private void executeBatch() throws SQLException {
+			CancellationHandler.checkForCancellation(null);
+			statement.executeBatch();
+			batchSize = 0;
+		}
+
+		@Override
+		public void close() throws SQLException {
+			if (statement == null) {
+				return;
+			}
+			try {
+				if (batchSize > 0) {
+					executeBatch();
+				}
+			} finally {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					// ignore
+				}
+			}
+			try {
+				process(size);
+			} finally {
+				localSession.executeUpdate("Delete from " + dmlTableReference(ENTITY_SET_ELEMENT, localSession) + " where set_id=" + setId + "");
+			}
+		}
+
+		/**
+		 * Processes the set.
+		 * 
+		 * @param size number of keys in the set
+		 */
+		protected abstract void process(long size) throws SQLException;
+
+	}
+
 	private Set<String> upkColumnNames = null;
 	private Set<String> nupkColumnNames = null;
 	
@@ -245,6 +344,7 @@ public class LocalEntityGraph extends EntityGraph {
 		this.rowIdSupport = new RowIdSupport(getDatamodel(), remoteSession.dbms, getConfiguration().getLocalPKType(), executionContext);
 		this.localDatabase = createLocalDatabase(getConfiguration().getDriver(), getConfiguration().getUrlPattern(), getConfiguration().getUser(), getConfiguration().getPassword(), getConfiguration().getLib());
 		this.localSession = this.localDatabase.getSession();
+		this.localSession.getConnectionPool().setMaxConnections(remoteSession.getConnectionPool().getMaxConnections());
 		this.universalPrimaryKey = rowIdSupport.getUniversalPrimaryKey();
 		this.localInlineViewStyle = InlineViewStyle.forSession(localSession);
 		this.remoteInlineViewStyle = InlineViewStyle.forSession(remoteSession);
@@ -419,7 +519,21 @@ public class LocalEntityGraph extends EntityGraph {
 	@Override
 	public long addEntities(Table table, String condition, int today) throws SQLException {
 		// checkPseudoColumns(table, condition);
-		return addEntities(table, "T", condition, today);
+		return addEntities(table, "T", condition, false, today);
+	}
+
+	/**
+	 * Adds entities to the graph, skipping those which are already part of it.
+	 * 
+	 * @param table the table 
+	 * @param condition the condition in SQL that the entities must fulfill
+	 * @param today the birthday of the new entities
+	 * 
+	 * @return row-count
+	 */
+	@Override
+	public long addNewEntities(Table table, String condition, int today) throws SQLException {
+		return addEntities(table, "T", condition, true, today);
 	}
 	
 	/**
@@ -479,7 +593,8 @@ public class LocalEntityGraph extends EntityGraph {
 			// ----
 			
 			final Table destination = association.destination;
-			final String condition = "E.r_entitygraph=" + graphID + " and E.birthday = " + (today - 1) + " and E.type=" + typeName(table) + "";
+			StatementParameters parameters = new StatementParameters(localSession.dbms);
+			final String condition = "E.r_entitygraph=" + parameters.bind(graphID) + " and E.birthday = " + parameters.bind(today - 1) + " and E.type=" + parameters.bind(typeName(table)) + "";
 			final Table source = association.source;
 			
 			String select;
@@ -491,7 +606,7 @@ public class LocalEntityGraph extends EntityGraph {
 			
 			final long[] rc = new long[1];
 			
-			localSession.executeQuery(select, new RemoteInlineViewBuilder("E", upkColumnList(source, null)) {
+			localSession.executeQuery(select, parameters.toArray(), new RemoteInlineViewBuilder("E", upkColumnList(source, null)) {
 				@Override
 				protected void process(String inlineView) throws SQLException {
 					String select =
@@ -499,45 +614,73 @@ public class LocalEntityGraph extends EntityGraph {
 							" From " + inlineView + " join " + quoting.requote(source.getName()) + " " + sourceAlias + " on " + pkEqualsEntityID(source, sourceAlias, "E", "", false) +
 							" join " + quoting.requote(destination.getName()) + " " + destAlias + " on (" + jc + ")";
 					
-					remoteSession.executeQuery(select, new LocalInlineViewBuilder(destAlias, upkColumnList(destination, null)) {
-						@Override
-						protected void process(String inlineView) throws SQLException {
-							Map<Column, Column> match = upkMatch(destination);
-							StringBuffer sb = new StringBuffer();
-							for (Column column: universalPrimaryKey.getColumns()) {
-								if (sb.length() > 0) {
-									sb.append(" and ");
-								}
-								Column tableColumn = match.get(column);
-								sb.append("Duplicate." + column.name);
-								if (tableColumn != null) {
-									sb.append("=" + destAlias + "." + column.name);
-								} else {
-									sb.append(" is null");
-								}
+					if (localSession.dbms.isBatchInsert()) {
+						remoteSession.executeQuery(select, new LocalSetBuilder(destination) {
+							@Override
+							protected void process(long size) throws SQLException {
+								rc[0] += insertNewEntities(destination, source, dmlTableReference(ENTITY_SET_ELEMENT, localSession) + " S", "S", setId, today, associationExplanationID);
 							}
-							
-							String entityJoinCondition = sb.toString();
-							String select = "Select " + graphID + " as GRAPH_ID, " + upkColumnList(destination, destAlias, null) + ", " + today + " AS BIRTHDAY, " + typeName(destination) + " AS TYPE" +
-							(source == null || !explain? "" : ", " + associationExplanationID + " AS ASSOCIATION, " + typeName(source) + " AS SOURCE_TYPE, " + upkColumnList(source, "PRE_")) +
-							" From " + inlineView + 
-							" left join " + dmlTableReference(ENTITY, localSession) + " Duplicate on Duplicate.r_entitygraph=" + graphID + " and Duplicate.type=" + typeName(destination) + " and " +
-							entityJoinCondition + 
-							" Where Duplicate.type is null";
-							
-							String insert = "Insert into " + dmlTableReference(ENTITY, localSession) + " (r_entitygraph, " + upkColumnList(destination, null) + ", birthday, type" + (source == null || !explain? "" : ", association, PRE_TYPE, " + upkColumnList(source, "PRE_"))  + ") " + select;
-							rc[0] += localSession.executeUpdate(insert);
-							totalRowcount += rc[0];
-						}
-					});
+						});
+					} else {
+						remoteSession.executeQuery(select, new LocalInlineViewBuilder(destAlias, upkColumnList(destination, null)) {
+							@Override
+							protected void process(String inlineView) throws SQLException {
+								rc[0] += insertNewEntities(destination, source, inlineView, destAlias, null, today, associationExplanationID);
+							}
+						});
+					}
 					
 				}
-			});
+			}, false);
 			return rc[0];
 		}
 		return -1;
 	}
 
+	/**
+	 * Inserts entities which are not yet in the graph.
+	 * 
+	 * @param destination the table of the entities
+	 * @param source the source of the association
+	 * @param rowSource provides the primary keys (inline-view or entity-set table)
+	 * @param alias alias of the row source
+	 * @param setId ID of the entity-set (if the row source is the entity-set table), or <code>null</code>
+	 * @param today the birthday of the new entities
+	 * @param associationExplanationID ID of the association (for explanation)
+	 * 
+	 * @return row-count
+	 */
+	private long insertNewEntities(Table destination, Table source, String rowSource, String alias, Integer setId, int today, Integer associationExplanationID) throws SQLException {
+		Map<Column, Column> match = upkMatch(destination);
+		StringBuffer sb = new StringBuffer();
+		for (Column column: universalPrimaryKey.getColumns()) {
+			if (sb.length() > 0) {
+				sb.append(" and ");
+			}
+			Column tableColumn = match.get(column);
+			sb.append("Duplicate." + column.name);
+			if (tableColumn != null) {
+				sb.append("=" + alias + "." + column.name);
+			} else {
+				sb.append(" is null");
+			}
+		}
+		
+		String entityJoinCondition = sb.toString();
+		StatementParameters parameters = new StatementParameters(localSession.dbms, rowSource);
+		String select = "Select " + parameters.bindInSelectList(graphID) + " as GRAPH_ID, " + upkColumnList(destination, alias, null) + ", " + parameters.bindInSelectList(today) + " AS BIRTHDAY, " + parameters.bindInSelectList(typeName(destination)) + " AS TYPE" +
+		(source == null || !explain? "" : ", " + associationExplanationID + " AS ASSOCIATION, " + typeName(source) + " AS SOURCE_TYPE, " + upkColumnList(source, "PRE_")) +
+		" From " + rowSource + 
+		" left join " + dmlTableReference(ENTITY, localSession) + " Duplicate on Duplicate.r_entitygraph=" + parameters.bind(graphID) + " and Duplicate.type=" + parameters.bind(typeName(destination)) + " and " +
+		entityJoinCondition + 
+		" Where " + (setId != null? alias + ".set_id=" + parameters.bind(setId) + " and " : "") + "Duplicate.type is null";
+		
+		String insert = "Insert into " + dmlTableReference(ENTITY, localSession) + " (r_entitygraph, " + upkColumnList(destination, null) + ", birthday, type" + (source == null || !explain? "" : ", association, PRE_TYPE, " + upkColumnList(source, "PRE_"))  + ") " + select;
+		long rc = localSession.executeUpdate(insert, parameters.toArray());
+		totalRowcount += rc;
+		return rc;
+	}
+
 	/**
 	 * Adds entities to the graph.
 	 * 
@@ -547,28 +690,51 @@ public class LocalEntityGraph extends EntityGraph {
 	 * @param source optional, the source-table
 	 * @param joinCondition optional condition to join with <code>joinedTable</code>
 	 * @param joinWithEntity whether to join with entity-table too
+	 * @param checkDuplicates whether to skip entities which are already part of the graph
 	 * @param today the birthday of the new entities
 	 * 
 	 * @return row-count
 	 */
-	private long addEntities(final Table table, final String alias, String condition, final int today) throws SQLException {
+	private long addEntities(final Table table, final String alias, String condition, final boolean checkDuplicates, final int today) throws SQLException {
 		String select =
 			"Select " + pkList(table, alias) +
 			" From " + quoting.requote(table.getName()) + " " + alias + " Where (" + condition + ")";
 		
 		final long[] rc = new long[1];
 		
-		remoteSession.executeQuery(select, new LocalInlineViewBuilder(alias, upkColumnList(table, null)) {
-			@Override
-			protected void process(String inlineView) throws SQLException {
-				String select = "Select " + graphID + " as GRAPH_ID, " + upkColumnList(table, alias, null) + ", " + today + " AS BIRTHDAY, " + typeName(table) + " AS TYPE" +
-				" From " + inlineView;
-				
-				String insert = "Insert into " + dmlTableReference(ENTITY, localSession) + " (r_entitygraph, " + upkColumnList(table, null) + ", birthday, type) " + select;
-				rc[0] += localSession.executeUpdate(insert);
-				totalRowcount += rc[0];
-			}
-		});
+		if (localSession.dbms.isBatchInsert()) {
+			remoteSession.executeQuery(select, new LocalSetBuilder(table) {
+				@Override
+				protected void process(long size) throws SQLException {
+					if (checkDuplicates) {
+						rc[0] += insertNewEntities(table, null, dmlTableReference(ENTITY_SET_ELEMENT, localSession) + " S", "S", setId, today, null);
+						return;
+					}
+					String select = "Select " + graphID + " as GRAPH_ID, " + upkColumnList(table, "S", null) + ", " + today + " AS BIRTHDAY, " + typeName(table) + " AS TYPE" +
+					" From " + dmlTableReference(ENTITY_SET_ELEMENT, localSession) + " S Where S.set_id=" + setId;
+					
+					String insert = "Insert into " + dmlTableReference(ENTITY, localSession) + " (r_entitygraph, " + upkColumnList(table, null) + ", birthday, type) " + select;
+					rc[0] += localSession.executeUpdate(insert);
+					totalRowcount += rc[0];
+				}
+			});
+		} else {
+			remoteSession.executeQuery(select, new LocalInlineViewBuilder(alias, upkColumnList(table, null)) {
+				@Override
+				protected void process(String inlineView) throws SQLException {
+					if (checkDuplicates) {
+						rc[0] += insertNewEntities(table, null, inlineView, alias, null, today, null);
+						return;
+					}
+					String select = "Select " + graphID + " as GRAPH_ID, " + upkColumnList(table, alias, null) + ", " + today + " AS BIRTHDAY, " + typeName(table) + " AS TYPE" +
+					" From " + inlineView;
+					
+					String insert = "Insert into " + dmlTableReference(ENTITY, localSession) + " (r_entitygraph, " + upkColumnList(table, null) + ", birthday, type) " + select;
+					rc[0] += localSession.executeUpdate(insert);
+					totalRowcount += rc[0];
+				}
+			});
+		}
 		
 		return rc[0];
 	}
@@ -681,6 +847,276 @@ public class LocalEntityGraph extends EntityGraph {
 								 fromEqualsPK + ")");
 	}
 
+	/**
+	 * Offset of the level in the birthday of entities after levels have been assigned.
+	 */
+	private static final int LEVEL_OFFSET = 1;
+
+	/**
+	 * Maximum number of entities per batch for writing levels back into the entity table.
+	 */
+	private static final int MAX_LEVEL_UPDATE_BATCH_SIZE = 1000;
+
+	/**
+	 * Loads the dependencies between the entities of the given tables into memory and assigns
+	 * to each entity the level on which it becomes independent. The level is stored in the birthday
+	 * of the entity (level + {@link #LEVEL_OFFSET}), entities which never become independent
+	 * get a birthday beyond the last level.
+	 * 
+	 * @param tables the tables
+	 * @return the tables having entities on a level, per level
+	 */
+	@Override
+	public List<Set<Table>> assignIndependenceLevels(final Set<Table> tables) throws SQLException {
+		final List<Set<Table>> result = new ArrayList<Set<Table>>();
+		if (tables.isEmpty()) {
+			return result;
+		}
+		StringBuilder typeList = new StringBuilder();
+		for (Table table: tables) {
+			if (typeList.length() > 0) {
+				typeList.append(", ");
+			}
+			typeList.append(typeName(table));
+		}
+		final List<Column> upkColumns = universalPrimaryKey.getColumns();
+		final DependencyLevels dependencyLevels = new DependencyLevels();
+		final List<Table> entityTable = new ArrayList<Table>();
+		final List<Object[]> entityKey = new ArrayList<Object[]>();
+		final Set<Integer> excluded = new HashSet<Integer>();
+
+		localSession.executeQuery(
+				"Select D.from_type, " + upkColumnList("D.FROM_", upkColumns) + ", D.to_type, " + upkColumnList("D.TO_", upkColumns) +
+				" From " + dmlTableReference(DEPENDENCY, localSession) + " D" +
+				" Where D.r_entitygraph=" + graphID + " and D.assoc=0 and D.from_type in (" + typeList + ")",
+				new Session.ResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						int fromID = readEntity(resultSet, 1);
+						int toID = readEntity(resultSet, 2 + upkColumns.size());
+						dependencyLevels.addDependency(fromID, toID);
+					}
+					private int readEntity(ResultSet resultSet, int column) throws SQLException {
+						Table table = getDatamodel().getTableByOrdinal(resultSet.getInt(column));
+						Object[] key = new Object[upkColumns.size()];
+						for (int i = 0; i < key.length; ++i) {
+							key[i] = resultSet.getObject(column + 1 + i);
+						}
+						int id = dependencyLevels.getID(entityKey(table, key));
+						if (id == entityTable.size()) {
+							entityTable.add(table);
+							entityKey.add(key);
+							if (!tables.contains(table)) {
+								// entity is not removed by level-wise export
+								dependencyLevels.block(id);
+								excluded.add(id);
+							}
+						}
+						return id;
+					}
+					@Override
+					public void close() {
+					}
+				});
+
+		// entities marked as deleted are never removed
+		localSession.executeQuery(
+				"Select E.type, " + upkColumnList("E.", upkColumns) +
+				" From " + dmlTableReference(ENTITY, localSession) + " E" +
+				" Where E.r_entitygraph=" + graphID + " and E.birthday<0 and E.type in (" + typeList + ")",
+				new Session.ResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						Table table = getDatamodel().getTableByOrdinal(resultSet.getInt(1));
+						Object[] key = new Object[upkColumns.size()];
+						for (int i = 0; i < key.length; ++i) {
+							key[i] = resultSet.getObject(2 + i);
+						}
+						int id = dependencyLevels.getID(entityKey(table, key));
+						if (id == entityTable.size()) {
+							entityTable.add(table);
+							entityKey.add(key);
+						}
+						dependencyLevels.block(id);
+						excluded.add(id);
+					}
+					@Override
+					public void close() {
+					}
+				});
+
+		int[] levels = dependencyLevels.computeLevels();
+		int numLevels = 1;
+		for (int level: levels) {
+			numLevels = Math.max(numLevels, level + 1);
+		}
+		for (int i = 0; i < numLevels; ++i) {
+			result.add(i == 0? new HashSet<Table>(tables) : new HashSet<Table>());
+		}
+		Map<Table, List<Object[]>> updates = new HashMap<Table, List<Object[]>>();
+		for (int id = 0; id < levels.length; ++id) {
+			if (levels[id] != 0 && !excluded.contains(id)) {
+				Table table = entityTable.get(id);
+				int birthday;
+				if (levels[id] == DependencyLevels.NO_LEVEL) {
+					birthday = numLevels + LEVEL_OFFSET;
+				} else {
+					birthday = levels[id] + LEVEL_OFFSET;
+					result.get(levels[id]).add(table);
+				}
+				List<Object[]> parameters = updates.get(table);
+				if (parameters == null) {
+					parameters = new ArrayList<Object[]>();
+					updates.put(table, parameters);
+				}
+				Object[] key = entityKey.get(id);
+				Object[] parameter = new Object[key.length + 1];
+				parameter[0] = birthday;
+				System.arraycopy(key, 0, parameter, 1, key.length);
+				parameters.add(parameter);
+			}
+		}
+		Session._log.info(dependencyLevels.getNumberOfDependencies() + " dependencies between " + dependencyLevels.size() + " entities, " + numLevels + " level(s)");
+
+		// write the levels back
+		localSession.executeUpdate(
+				"Update " + dmlTableReference(ENTITY, localSession) + " set birthday=" + LEVEL_OFFSET +
+				" Where r_entitygraph=" + graphID + " and birthday>0 and type in (" + typeList + ")");
+		for (Map.Entry<Table, List<Object[]>> e: updates.entrySet()) {
+			Table table = e.getKey();
+			Map<Column, Column> match = upkMatch(table);
+			StringBuilder pkCondition = new StringBuilder();
+			List<Integer> parameterIndexes = new ArrayList<Integer>();
+			parameterIndexes.add(0);
+			for (int i = 0; i < upkColumns.size(); ++i) {
+				Column column = upkColumns.get(i);
+				pkCondition.append(" and " + column.name);
+				if (match.get(column) != null) {
+					pkCondition.append("=?");
+					parameterIndexes.add(i + 1);
+				} else {
+					pkCondition.append(" is null");
+				}
+			}
+			String update = "Update " + dmlTableReference(ENTITY, localSession) + " set birthday=?" +
+					" Where r_entitygraph=" + graphID + " and type=" + typeName(table) + pkCondition;
+			List<Object[]> batch = new ArrayList<Object[]>();
+			for (Object[] parameter: e.getValue()) {
+				Object[] p = new Object[parameterIndexes.size()];
+				for (int i = 0; i < p.length; ++i) {
+					p[i] = parameter[parameterIndexes.get(i)];
+				}
+				batch.add(p);
+				if (batch.size() >= MAX_LEVEL_UPDATE_BATCH_SIZE) {
+					localSession.executeUpdateBatch(update, batch);
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				localSession.executeUpdateBatch(update, batch);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a unique key of an entity.
+	 */
+	private String entityKey(Table table, Object[] key) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(typeName(table));
+		for (Object value: key) {
+			if (value == null) {
+				sb.append("|-");
+			} else {
+				String s = value.toString();
+				sb.append("|").append(s.length()).append(":").append(s);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets a comma separated list of the universal primary key columns.
+	 */
+	private String upkColumnList(String prefix, List<Column> upkColumns) {
+		StringBuilder sb = new StringBuilder();
+		for (Column column: upkColumns) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(prefix + column.name);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Marks all entities of a given table on a given level,
+	 * s.t. they can be read and deleted.
+	 * 
+	 * @param table the table
+	 * @param level the level
+	 */
+	@Override
+	public void markIndependentEntities(Table table, int level) throws SQLException {
+		localSession.executeUpdate(
+				"Update " + dmlTableReference(ENTITY, localSession) + " set birthday=0 " +
+				"Where r_entitygraph=" + graphID + " and type=" + typeName(table) + " and birthday=" + (level + LEVEL_OFFSET));
+	}
+
+	/**
+	 * Deletes all entities of a given table which are marked as independent,
+	 * but keeps their dependencies.
+	 * 
+	 * @param table the table
+	 */
+	@Override
+	public void deleteMarkedEntities(Table table) throws SQLException {
+		localSession.executeUpdate(
+				"Delete From " + dmlTableReference(ENTITY, localSession) + " " +
+				"Where r_entitygraph=" + graphID + " and type=" + typeName(table) + " and " +
+					   "birthday=0");
+	}
+
+	/**
+	 * Deletes all dependencies from or to entities of given tables which are no longer part of the graph.
+	 * 
+	 * @param tables the tables
+	 */
+	@Override
+	public void deleteDanglingDependencies(Set<Table> tables) throws SQLException {
+		for (Table table: tables) {
+			StringBuffer fromEqualsPK = new StringBuffer();
+			StringBuffer toEqualsPK = new StringBuffer();
+			Map<Column, Column> match = upkMatch(table);
+			for (Column column: universalPrimaryKey.getColumns()) {
+				if (fromEqualsPK.length() > 0) {
+					fromEqualsPK.append(" and ");
+					toEqualsPK.append(" and ");
+				}
+				if (match.containsKey(column)) {
+					fromEqualsPK.append(dmlTableReference(DEPENDENCY, localSession) + ".FROM_" + column.name + "=E." + column.name);
+					toEqualsPK.append(dmlTableReference(DEPENDENCY, localSession) + ".TO_" + column.name + "=E." + column.name);
+				} else {
+					fromEqualsPK.append("E." + column.name + " is null");
+					toEqualsPK.append("E." + column.name + " is null");
+				}
+			}
+			localSession.executeUpdate(
+					"Delete From " + dmlTableReference(DEPENDENCY, localSession) + " " +
+					"Where " + dmlTableReference(DEPENDENCY, localSession) + ".r_entitygraph=" + graphID + " and assoc=0 and from_type=" + typeName(table) + " and " + 
+						  "not exists (Select * from " + dmlTableReference(ENTITY, localSession) + " E Where " + 
+							  "E.r_entitygraph=" + graphID + " and E.type=" + typeName(table) + " and " +
+							  fromEqualsPK + ")");
+			localSession.executeUpdate(
+					"Delete From " + dmlTableReference(DEPENDENCY, localSession) + " " +
+					"Where " + dmlTableReference(DEPENDENCY, localSession) + ".r_entitygraph=" + graphID + " and assoc=0 and to_type=" + typeName(table) + " and " +
+						  "not exists (Select * from " + dmlTableReference(ENTITY, localSession) + " E Where " + 
+							  "E.r_entitygraph=" + graphID + " and E.type=" + typeName(table) + " and " +
+							  toEqualsPK + ")");
+		}
+	}
+
 	private Map<Column, Column> upkMatch(Table table) {
 		return universalPrimaryKey.match(rowIdSupport.getPrimaryKey(getDatamodel().getTable(table.getName())));
 	}
@@ -1064,6 +1500,29 @@ public class LocalEntityGraph extends EntityGraph {
 		return count[0];
 	}
 
+	/**
+	 * Counts the entities of some given tables in this graph.
+	 * 
+	 * @param tables the tables
+	 * @return the number of entities per table (tables without entities are missing)
+	 */
+	@Override
+	public Map<Table, Long> countEntities(final Set<Table> tables) throws SQLException {
+		final Map<Table, Long> counts = new HashMap<Table, Long>();
+		if (!tables.isEmpty()) {
+			localSession.executeQuery("Select type, count(*) From " + dmlTableReference(ENTITY, localSession) + " Where r_entitygraph=" + graphID + " and birthday>=0 group by type", new Session.AbstractResultSetReader() {
+				@Override
+				public void readCurrentRow(ResultSet resultSet) throws SQLException {
+					Table table = dataModel.getTableByOrdinal(resultSet.getInt(1));
+					if (tables.contains(table)) {
+						counts.put(table, resultSet.getLong(2));
+					}
+				}
+			});
+		}
+		return counts;
+	}
+
 	/**
 	 * Removes all entities from this graph which are associated with an entity
 	 * outside the graph.
@@ -1256,6 +1715,115 @@ public class LocalEntityGraph extends EntityGraph {
 		}
 		localSession.executeUpdate(update);
 	}
+
+	/**
+	 * Maximum number of entities per statement marking dependent entities as traversed.
+	 */
+	private static final int MAX_ENTITIES_PER_TRAVERSED_UPDATE = 100;
+
+	/**
+	 * Maximum number of given entities per statement reading dependent entities.
+	 */
+	private static final int MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY = 1000;
+
+	@Override
+	public boolean supportsSetBasedDependentEntities() {
+		return true;
+	}
+
+	/**
+	 * Reads all entities which depend on a set of given entities.
+	 * The keys of the dependent entities are read from the local database together with the index of
+	 * the given entity and passed to the remote database as inline-view. So there are two statements per
+	 * {@link #MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY} given entities.
+	 * 
+	 * @param table the table from which to read entities
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association), distinct
+	 * @param reader reads the entities
+	 * @param selectionSchema the selection schema
+	 */
+	@Override
+	public void readDependentEntities(final Table table, Association association, List<String[]> parentKeys, final ResultSetReader reader, final String selectionSchema, final String originalPKAliasPrefix) throws SQLException {
+		CellContentConverter cellContentConverter = new CellContentConverter(null, localSession, localSession.dbms);
+		String columnList = upkColumnList(table, "TO_") + ", " + PARENT_INDEX_COLUMN;
+		for (int start = 0; start < parentKeys.size(); start += MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY) {
+			int end = Math.min(parentKeys.size(), start + MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY);
+			List<String> conditions = new ArrayList<String>(end - start);
+			StringBuilder parentIndex = new StringBuilder("case");
+			for (int i = start; i < end; ++i) {
+				String condition = pkEqualsEntityID(association.source, parentKeys.get(i), "D", "FROM_", cellContentConverter);
+				conditions.add(condition);
+				parentIndex.append(" when " + condition + " then " + i);
+			}
+			parentIndex.append(" end");
+			String select = "Select " + upkColumnList(table, "TO_") + ", " + parentIndex + " AS " + PARENT_INDEX_COLUMN + " from " + dmlTableReference(DEPENDENCY, localSession) + " D" +
+					 " Where " + SqlUtil.disjunction(conditions) +
+					 " and D.to_type=" + typeName(table) + "" +
+					 " and D.from_type=" + typeName(association.source) + " and assoc=" + association.getId() +
+					 " and D.r_entitygraph=" + graphID;
+
+			localSession.executeQuery(select, new RemoteInlineViewBuilder("D", columnList, true) {
+				@Override
+				protected String sqlValue(ResultSet resultSet, int i) throws SQLException {
+					if (i == columnNames.length) {
+						return String.valueOf(resultSet.getInt(i));
+					}
+					return super.sqlValue(resultSet, i);
+				}
+				@Override
+				protected void process(String inlineView) throws SQLException {
+					String select;
+					if (originalPKAliasPrefix != null) {
+						StringBuffer selectOPK = new StringBuffer();
+						List<Column> pkColumns = rowIdSupport.getPrimaryKey(table).getColumns();
+						for (int i = 0; i < pkColumns.size(); ++i) {
+							if (i > 0) {
+								selectOPK.append(", ");
+							}
+							selectOPK.append("T." + quoting.requote(pkColumns.get(i).name) + " AS " + originalPKAliasPrefix + i);
+						}
+						select = 
+							"Select " + selectionSchema + ", T." + PARENT_INDEX_COLUMN + " from (" +  
+							"Select " + selectOPK + ", " + filteredSelectionClause(table) + ", D." + PARENT_INDEX_COLUMN + " from " + quoting.requote(table.getName()) + " T join " + inlineView + " on " +
+							 pkEqualsEntityID(table, "T", "D", "TO_", false) + ") T";
+					} else {
+						select = "Select " + selectionSchema + ", D." + PARENT_INDEX_COLUMN + " from " + quoting.requote(table.getName()) + " T join " + inlineView + " on " +
+							 pkEqualsEntityID(table, "T", "D", "TO_", false) + "";
+					}
+					long rc = remoteSession.executeQuery(select, reader);
+					executionContext.getProgressListenerRegistry().fireExported(table, rc);
+					addExportedCount(rc);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Marks all entities which depend on a set of given entities as traversed.
+	 * 
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association)
+	 */
+	@Override
+	public void markDependentEntitiesAsTraversed(Association association, List<String[]> parentKeys) throws SQLException {
+		CellContentConverter cellContentConverter = new CellContentConverter(null, localSession, localSession.dbms);
+		boolean isSybase = DBMS.SYBASE.equals(localSession.dbms);
+		String alias = isSybase? dmlTableReference(DEPENDENCY, localSession) : "D";
+		for (int start = 0; start < parentKeys.size(); start += MAX_ENTITIES_PER_TRAVERSED_UPDATE) {
+			StringBuilder condition = new StringBuilder();
+			for (String[] parentKey: parentKeys.subList(start, Math.min(parentKeys.size(), start + MAX_ENTITIES_PER_TRAVERSED_UPDATE))) {
+				if (condition.length() > 0) {
+					condition.append(" or ");
+				}
+				condition.append("(" + pkEqualsEntityID(association.source, parentKey, alias, "FROM_", cellContentConverter) + ")");
+			}
+			localSession.executeUpdate("Update " + dmlTableReference(DEPENDENCY, localSession) + (isSybase? "" : " D") + " set traversed=1" +
+				 " Where (" + condition + ")" +
+				 " and " + alias + ".from_type=" + typeName(association.source) + " and assoc=" + association.getId() +
+				 " and " + alias + ".r_entitygraph=" + graphID);
+		}
+	}
 	
 	/**
 	 * Reads all non-traversed dependencies. 
@@ -1330,6 +1898,38 @@ public class LocalEntityGraph extends EntityGraph {
 		return sb.toString();
 	}
 
+	/**
+	 * Gets a SQL comparison expression for comparing rows with given entity.
+	 * 
+	 * @param table the table
+	 * @param key SQL literals of the primary key columns of the entity
+	 * @return a SQL comparison expression for comparing rows of <code>table</code> with the entity
+	 */
+	private String pkEqualsEntityID(Table table, String[] key, String alias, String columnPrefix, CellContentConverter cellContentConverter) {
+		Map<Column, Column> match = upkMatch(table);
+		StringBuffer sb = new StringBuffer();
+		for (Column column: universalPrimaryKey.getColumns()) {
+			if (sb.length() > 0) {
+				sb.append(" and ");
+			}
+			sb.append(alias + "." + columnPrefix + column.name);
+			Column tableColumn = match.get(column);
+			if (tableColumn != null) {
+				int i = 0;
+				for (Column c: rowIdSupport.getPrimaryKey(table).getColumns()) {
+					if (c.name.equals(tableColumn.name)) {
+						break;
+					}
+					++i;
+				}
+				sb.append("=" + cellContentConverter.toSql(key[i]));
+			} else {
+				sb.append(" is null");
+			}
+		}
+		return sb.toString();
+	}
+
 	private final Set<String> fieldProcTables = new HashSet<String>();
 	
 	/**
@@ -20,6 +20,8 @@ import java.io.OutputStreamWriter;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,13 +34,16 @@ import net.sf.jailer.database.SQLDialect;
 import net.sf.jailer.database.Session;
 import net.sf.jailer.database.Session.ResultSetReader;
 import net.sf.jailer.database.UpdateTransformer;
+import net.sf.jailer.database.WorkingTableScope;
 import net.sf.jailer.datamodel.Association;
 import net.sf.jailer.datamodel.Column;
 import net.sf.jailer.datamodel.DataModel;
 import net.sf.jailer.datamodel.PrimaryKey;
 import net.sf.jailer.datamodel.RowIdSupport;
 import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.entitygraph.DependencyLevels;
 import net.sf.jailer.entitygraph.EntityGraph;
+import net.sf.jailer.entitygraph.StatementParameters;
 import net.sf.jailer.util.CellContentConverter;
 import net.sf.jailer.util.CsvFile;
 import net.sf.jailer.util.Quoting;
@@ -146,6 +151,115 @@ public class RemoteEntityGraph extends EntityGraph {
 		}
 	}
 
+	/**
+	 * Opens an entity-graph whose collection has been interrupted
+	 * and discards the entities collected after the last checkpoint.
+	 * 
+	 * @param graphID the unique ID of the graph
+	 * @param session for executing SQL-Statements
+	 * @param universalPrimaryKey the universal primary key
+	 * @return the entity-graph, reset to the last checkpoint
+	 */
+	public static RemoteEntityGraph resume(DataModel dataModel, int graphID, Session session, PrimaryKey universalPrimaryKey, Runnable updateStatistics, ExecutionContext executionContext) throws SQLException {
+		RemoteEntityGraph entityGraph = new RemoteEntityGraph(dataModel, graphID, session, universalPrimaryKey, updateStatistics, executionContext);
+		final boolean[] found = new boolean[] { false };
+		final int[] checkpointAge = new int[] { 1 };
+		session.executeQuery("Select checkpoint_age From " + SQLDialect.dmlTableReference(ENTITY_GRAPH, session, executionContext) + " Where id=" + graphID + "", new Session.AbstractResultSetReader() {
+			@Override
+			public void readCurrentRow(ResultSet resultSet) throws SQLException {
+				found[0] = true;
+				int age = resultSet.getInt(1);
+				if (!resultSet.wasNull()) {
+					checkpointAge[0] = age;
+				}
+			}
+		});
+		if (!found[0]) {
+			throw new RuntimeException("Entity graph " + graphID + " not found. The collection can't be resumed.");
+		}
+		entityGraph.deleteRows(session, entityGraph.dmlTableReference(DEPENDENCY, session), "r_entitygraph=" + graphID + "");
+		entityGraph.deleteRows(session, entityGraph.dmlTableReference(ENTITY, session), "r_entitygraph=" + graphID + " and birthday>=" + checkpointAge[0]);
+		entityGraph.setAge(checkpointAge[0]);
+		return entityGraph;
+	}
+
+	/**
+	 * The graph outlives the session if the working tables are global.
+	 */
+	@Override
+	public boolean isResumable() {
+		return session.scope == WorkingTableScope.GLOBAL;
+	}
+
+	/**
+	 * Gets the number of chunks of subject rows whose collection is completed.
+	 * 
+	 * @return the checkpoint, 0 if no chunk is completed
+	 */
+	@Override
+	public int getCheckpoint() throws SQLException {
+		final int[] checkpoint = new int[] { 0 };
+		session.executeQuery("Select checkpoint From " + dmlTableReference(ENTITY_GRAPH, session) + " Where id=" + graphID + "", new Session.AbstractResultSetReader() {
+			@Override
+			public void readCurrentRow(ResultSet resultSet) throws SQLException {
+				checkpoint[0] = resultSet.getInt(1);
+			}
+		});
+		return checkpoint[0];
+	}
+
+	/**
+	 * Gets the upper bound of the last chunk of subject rows whose collection is completed.
+	 * 
+	 * @return SQL literal of the first primary key column of the subject at which the next chunk starts,
+	 *         <code>null</code> if no chunk is completed or if all chunks are completed
+	 */
+	@Override
+	public String getCheckpointKey() throws SQLException {
+		final String[] checkpointKey = new String[] { null };
+		session.executeQuery("Select checkpoint_key From " + dmlTableReference(ENTITY_GRAPH, session) + " Where id=" + graphID + "", new Session.AbstractResultSetReader() {
+			@Override
+			public void readCurrentRow(ResultSet resultSet) throws SQLException {
+				checkpointKey[0] = resultSet.getString(1);
+			}
+		});
+		return checkpointKey[0];
+	}
+
+	/**
+	 * Records that the collection of a number of chunks of subject rows is completed.
+	 * The entities born after the checkpoint will be discarded when the collection is resumed.
+	 * 
+	 * @param checkpoint number of completed chunks
+	 * @param checkpointKey SQL literal of the first primary key column of the subject at which the next chunk starts,
+	 *        <code>null</code> if all chunks are completed
+	 */
+	@Override
+	public void setCheckpoint(int checkpoint, String checkpointKey) throws SQLException {
+		session.executeUpdate("Update " + dmlTableReference(ENTITY_GRAPH, session) + " Set checkpoint=" + checkpoint + ", checkpoint_age=age, checkpoint_key=" +
+				(checkpointKey == null? "null" : "'" + checkpointKey.replace("'", "''") + "'") + " Where id=" + graphID + "");
+	}
+
+	/**
+	 * Gets the number of entities per table.
+	 * 
+	 * @return number of entities per table (tables without entities are omitted)
+	 */
+	public Map<Table, Long> getSizePerTable() throws SQLException {
+		final Map<Table, Long> size = new HashMap<Table, Long>();
+		session.executeQuery("Select type, count(*) From " + dmlTableReference(ENTITY, session) + " Where r_entitygraph=" + graphID + " and birthday>=0 group by type", new Session.AbstractResultSetReader() {
+			@Override
+			public void readCurrentRow(ResultSet resultSet) throws SQLException {
+				Table table = dataModel.getTableByOrdinal(resultSet.getInt(1));
+				long count = resultSet.getLong(2);
+				if (table != null && count > 0) {
+					size.put(table, count);
+				}
+			}
+		});
+		return size;
+	}
+
 	/**
 	 * Copies an entity-graph.
 	 * 
@@ -263,7 +377,21 @@ public class RemoteEntityGraph extends EntityGraph {
 	 */
 	@Override
 	public long addEntities(Table table, String condition, int today) throws SQLException {
-		return addEntities(table, "T", condition, null, null, null, null, false, today, 0, true);
+		return addEntities(table, "T", condition, new StatementParameters(session.dbms, condition), null, null, null, null, false, false, today, 0, true);
+	}
+
+	/**
+	 * Adds entities to the graph, skipping those which are already part of it.
+	 * 
+	 * @param table the table 
+	 * @param condition the condition in SQL that the entities must fulfill
+	 * @param today the birthday of the new entities
+	 * 
+	 * @return row-count
+	 */
+	@Override
+	public long addNewEntities(Table table, String condition, int today) throws SQLException {
+		return addEntities(table, "T", condition, new StatementParameters(session.dbms, condition), null, null, null, null, false, true, today, 0, true);
 	}
 	
 	/**
@@ -299,7 +427,9 @@ public class RemoteEntityGraph extends EntityGraph {
 					}
 				}
 			}
-			return addEntities(association.destination, destAlias, "E.r_entitygraph=" + graphID + " and E.birthday = " + (today - 1) + " and E.type=" + typeName(table) + " and " + pkEqualsEntityID(table, sourceAlias, "E"), table, sourceAlias, association.source, jc, true, today, associationExplanationID, association.reversed);
+			StatementParameters conditionParameters = new StatementParameters(session.dbms, jc);
+			String condition = "E.r_entitygraph=" + conditionParameters.bind(graphID) + " and E.birthday = " + conditionParameters.bind(today - 1) + " and E.type=" + conditionParameters.bind(typeName(table)) + " and " + pkEqualsEntityID(table, sourceAlias, "E");
+			return addEntities(association.destination, destAlias, condition, conditionParameters, table, sourceAlias, association.source, jc, true, true, today, associationExplanationID, association.reversed);
 		}
 		return -1;
 	}
@@ -309,26 +439,29 @@ public class RemoteEntityGraph extends EntityGraph {
 	 * 
 	 * @param table the table 
 	 * @param condition the condition in SQL that the entities must fulfill with 'E' as alias for the entity-table
+	 * @param conditionParameters the parameters of the condition
 	 * @param joinedTable optional table to join with
 	 * @param source optional, the source-table
 	 * @param joinCondition optional condition to join with <code>joinedTable</code>
 	 * @param joinWithEntity whether to join with entity-table too
+	 * @param checkDuplicates whether to skip entities which are already part of the graph
 	 * @param today the birthday of the new entities
 	 * 
 	 * @return row-count
 	 */
-	private long addEntities(Table table, String alias, String condition, Table joinedTable, String joinedTableAlias, Table source, String joinCondition, boolean joinWithEntity, int today, int associationExplanationID, boolean isInverseAssociation) throws SQLException {
+	private long addEntities(Table table, String alias, String condition, StatementParameters conditionParameters, Table joinedTable, String joinedTableAlias, Table source, String joinCondition, boolean joinWithEntity, boolean checkDuplicates, int today, int associationExplanationID, boolean isInverseAssociation) throws SQLException {
 		if (joinCondition != null) {
 			joinCondition = SqlUtil.resolvePseudoColumns(joinCondition, isInverseAssociation? null : "E", isInverseAssociation? "E" : null, today, birthdayOfSubject, inDeleteMode);
 		}
 		String select;
+		StatementParameters parameters = new StatementParameters(conditionParameters);
 		LimitTransactionSizeInfo limitTransactionSize = session.dbms.getLimitTransactionSize();
-		if (joinedTable == null && !joinWithEntity && !limitTransactionSize.isApplicable(executionContext)) {
+		if (joinedTable == null && !joinWithEntity && !checkDuplicates && !limitTransactionSize.isApplicable(executionContext)) {
 			select =
-					"Select " + graphID + " " + limitTransactionSize.afterSelectFragment(executionContext) + "as GRAPH_ID, " + pkList(table, alias) + ", " + today + " AS BIRTHDAY, " + typeName(table) + " AS TYPE" +
+					"Select " + parameters.bindInSelectList(graphID) + " " + limitTransactionSize.afterSelectFragment(executionContext) + "as GRAPH_ID, " + pkList(table, alias) + ", " + parameters.bindInSelectList(today) + " AS BIRTHDAY, " + parameters.bindInSelectList(typeName(table)) + " AS TYPE" +
 					(source == null || !explain? "" : ", " + associationExplanationID + " AS ASSOCIATION, " + typeName(source) + " AS SOURCE_TYPE, " + pkList(source, joinedTableAlias, "PRE_")) +
 					" From " + quoting.requote(table.getName()) + " " + alias +
-					" Where (" + condition + ") " + limitTransactionSize.additionalWhereConditionFragment(executionContext) +
+					" Where (" + parameters.bind(condition, conditionParameters) + ") " + limitTransactionSize.additionalWhereConditionFragment(executionContext) +
 					limitTransactionSize.statementSuffixFragment(executionContext);
 		} else {
 			if (session.dbms.isAvoidLeftJoin()) {
@@ -337,32 +470,32 @@ public class RemoteEntityGraph extends EntityGraph {
 				
 				// TODO is this still necessary?
 				select =
-					"Select " + (joinedTable != null? "distinct " : "") + limitTransactionSize.afterSelectFragment(executionContext) + graphID + " as GRAPH_ID, " + pkList(table, alias) + ", " + today + " AS BIRTHDAY, " + typeName(table) + " AS TYPE" +
+					"Select " + (joinedTable != null? "distinct " : "") + limitTransactionSize.afterSelectFragment(executionContext) + parameters.bindInSelectList(graphID) + " as GRAPH_ID, " + pkList(table, alias) + ", " + parameters.bindInSelectList(today) + " AS BIRTHDAY, " + parameters.bindInSelectList(typeName(table)) + " AS TYPE" +
 					(source == null || !explain? "" : ", " + associationExplanationID + " AS ASSOCIATION, " + typeName(source) + " AS SOURCE_TYPE, " + pkList(source, joinedTableAlias, "PRE_")) +
 					" From " + quoting.requote(table.getName()) + " " + alias
 						+
 					(joinedTable != null? ", " + quoting.requote(joinedTable.getName()) + " " + joinedTableAlias + " ": "") +
 					(joinWithEntity? ", " + dmlTableReference(ENTITY, session) + " E" : "") +
-					" Where (" + condition + ") " +
+					" Where (" + parameters.bind(condition, conditionParameters) + ") " +
 						// CW	"and Duplicate.type is null" +
 					(joinedTable != null? " and (" + joinCondition + ")" : "") +
 	
 						" AND NOT EXISTS (select * from " + dmlTableReference(ENTITY, session)
-						+ " DuplicateExists where r_entitygraph=" + graphID + " " + "AND DuplicateExists.type="
-						+ typeName(table)
+						+ " DuplicateExists where r_entitygraph=" + parameters.bind(graphID) + " " + "AND DuplicateExists.type="
+						+ parameters.bind(typeName(table))
 						+ " and " + pkEqualsEntityID(table, alias, "DuplicateExists") + ") " + limitTransactionSize.additionalWhereConditionFragment(executionContext) +
 						limitTransactionSize.statementSuffixFragment(executionContext);
 	
 			} else {
 				select =
-					"Select " + (joinedTable != null? "distinct " : "") + limitTransactionSize.afterSelectFragment(executionContext) + graphID + " as GRAPH_ID, " + pkList(table, alias) + ", " + today + " AS BIRTHDAY, " + typeName(table) + " AS TYPE" +
+					"Select " + (joinedTable != null? "distinct " : "") + limitTransactionSize.afterSelectFragment(executionContext) + parameters.bindInSelectList(graphID) + " as GRAPH_ID, " + pkList(table, alias) + ", " + parameters.bindInSelectList(today) + " AS BIRTHDAY, " + parameters.bindInSelectList(typeName(table)) + " AS TYPE" +
 					(source == null || !explain? "" : ", " + associationExplanationID + " AS ASSOCIATION, " + typeName(source) + " AS SOURCE_TYPE, " + pkList(source, joinedTableAlias, "PRE_")) +
 					" From " + quoting.requote(table.getName()) + " " + alias +
-					" left join " + dmlTableReference(ENTITY, session) + " Duplicate on Duplicate.r_entitygraph=" + graphID + " and Duplicate.type=" + typeName(table) + " and " +
+					" left join " + dmlTableReference(ENTITY, session) + " Duplicate on Duplicate.r_entitygraph=" + parameters.bind(graphID) + " and Duplicate.type=" + parameters.bind(typeName(table)) + " and " +
 					pkEqualsEntityID(table, alias, "Duplicate") + 
 					(joinedTable != null? ", " + quoting.requote(joinedTable.getName()) + " " + joinedTableAlias + " ": "") +
 					(joinWithEntity? ", " + dmlTableReference(ENTITY, session) + " E" : "") +
-					" Where (" + condition + ") and Duplicate.type is null" +
+					" Where (" + parameters.bind(condition, conditionParameters) + ") and Duplicate.type is null" +
 					(joinedTable != null? " and (" + joinCondition + ") " : " ") + limitTransactionSize.additionalWhereConditionFragment(executionContext) +
 					limitTransactionSize.statementSuffixFragment(executionContext);
 			}
@@ -387,8 +520,9 @@ public class RemoteEntityGraph extends EntityGraph {
 		String insert = "Insert into " + dmlTableReference(ENTITY, session) + " (r_entitygraph, " + upkColumnList(table, null) + ", birthday, type" + (source == null || !explain? "" : ", association, PRE_TYPE, " + upkColumnList(source, "PRE_"))  + ") " + select;
 		if (DBMS.SYBASE.equals(session.dbms)) session.execute("set forceplan on ");
 		long rc = 0;
+		Object[] parameterValues = parameters.toArray();
 		for (;;) {
-			long incRc = session.executeUpdate(insert);
+			long incRc = session.executeUpdate(insert, parameterValues);
 			rc += incRc;
 			totalRowcount += incRc;
 			if (updateStatistics != null) {
@@ -416,15 +550,16 @@ public class RemoteEntityGraph extends EntityGraph {
 	@Override
 	public void addDependencies(Table from, String fromAlias, Table to, String toAlias, String condition, int aggregationId, int dependencyId, boolean isAssociationReversed) throws SQLException {
 		condition = SqlUtil.resolvePseudoColumns(condition, isAssociationReversed? "E1" : "E2", isAssociationReversed? "E2" : "E1", 0, birthdayOfSubject, inDeleteMode);
+		StatementParameters parameters = new StatementParameters(session.dbms, condition);
 		String insert = "Insert into " + dmlTableReference(DEPENDENCY, session) + "(r_entitygraph, assoc, depend_id, from_type, to_type, " + upkColumnList(from, "FROM_") + ", " + upkColumnList(to, "TO_") + ") " +
-			"Select " + graphID + ", " + aggregationId  + ", " + dependencyId + ", " + typeName(from) + ", " + typeName(to) + ", " + pkList(from, fromAlias, "FROM") + ", " + pkList(to, toAlias, "TO") +
+			"Select " + parameters.bindInSelectList(graphID) + ", " + aggregationId  + ", " + dependencyId + ", " + parameters.bindInSelectList(typeName(from)) + ", " + parameters.bindInSelectList(typeName(to)) + ", " + pkList(from, fromAlias, "FROM") + ", " + pkList(to, toAlias, "TO") +
 			" From " + dmlTableReference(ENTITY, session) + " E1, " + dmlTableReference(ENTITY, session) + " E2, " + quoting.requote(from.getName()) + " " + fromAlias + " ," + quoting.requote(to.getName()) + " " + toAlias + " " +
-			" Where E1.r_entitygraph=" + graphID + " and E2.r_entitygraph=" + graphID + "" +
+			" Where E1.r_entitygraph=" + parameters.bind(graphID) + " and E2.r_entitygraph=" + parameters.bind(graphID) + "" +
 			" and (" + condition + ")" +
-			" and E1.type=" + typeName(from) + " and E2.type=" + typeName(to) + "" +
+			" and E1.type=" + parameters.bind(typeName(from)) + " and E2.type=" + parameters.bind(typeName(to)) + "" +
 			" and " + pkEqualsEntityID(from, fromAlias, "E1") +
 			" and " + pkEqualsEntityID(to, toAlias, "E2");
-		totalRowcount += session.executeUpdate(insert);
+		totalRowcount += session.executeUpdate(insert, parameters.toArray());
 	}
 	
 	/**
@@ -473,6 +608,278 @@ public class RemoteEntityGraph extends EntityGraph {
 								 fromEqualsPK + ")");
 	}
 
+	/**
+	 * Offset of the level in the birthday of entities after levels have been assigned.
+	 */
+	private static final int LEVEL_OFFSET = 1;
+
+	/**
+	 * Maximum number of entities per batch for writing levels back into the entity table.
+	 */
+	private static final int MAX_LEVEL_UPDATE_BATCH_SIZE = 1000;
+
+	/**
+	 * Loads the dependencies between the entities of the given tables into memory and assigns
+	 * to each entity the level on which it becomes independent. The level is stored in the birthday
+	 * of the entity (level + {@link #LEVEL_OFFSET}), entities which never become independent
+	 * get a birthday beyond the last level.
+	 * 
+	 * @param tables the tables
+	 * @return the tables having entities on a level, per level
+	 */
+	@Override
+	public List<Set<Table>> assignIndependenceLevels(final Set<Table> tables) throws SQLException {
+		final List<Set<Table>> result = new ArrayList<Set<Table>>();
+		if (tables.isEmpty()) {
+			return result;
+		}
+		StringBuilder typeList = new StringBuilder();
+		for (Table table: tables) {
+			if (typeList.length() > 0) {
+				typeList.append(", ");
+			}
+			typeList.append(typeName(table));
+		}
+		final List<Column> upkColumns = universalPrimaryKey.getColumns();
+		final DependencyLevels dependencyLevels = new DependencyLevels();
+		final List<Table> entityTable = new ArrayList<Table>();
+		final List<Object[]> entityKey = new ArrayList<Object[]>();
+		final Set<Integer> excluded = new HashSet<Integer>();
+
+		session.executeQuery(
+				"Select D.from_type, " + upkColumnList("D.FROM_", upkColumns) + ", D.to_type, " + upkColumnList("D.TO_", upkColumns) +
+				" From " + dmlTableReference(DEPENDENCY, session) + " D" +
+				" Where D.r_entitygraph=" + graphID + " and D.assoc=0 and D.from_type in (" + typeList + ")",
+				new Session.ResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						int fromID = readEntity(resultSet, 1);
+						int toID = readEntity(resultSet, 2 + upkColumns.size());
+						dependencyLevels.addDependency(fromID, toID);
+					}
+					private int readEntity(ResultSet resultSet, int column) throws SQLException {
+						Table table = dataModel.getTableByOrdinal(resultSet.getInt(column));
+						Object[] key = new Object[upkColumns.size()];
+						for (int i = 0; i < key.length; ++i) {
+							key[i] = resultSet.getObject(column + 1 + i);
+						}
+						int id = dependencyLevels.getID(entityKey(table, key));
+						if (id == entityTable.size()) {
+							entityTable.add(table);
+							entityKey.add(key);
+							if (!tables.contains(table)) {
+								// entity is not removed by level-wise export
+								dependencyLevels.block(id);
+								excluded.add(id);
+							}
+						}
+						return id;
+					}
+					@Override
+					public void close() {
+					}
+				}, withExplicitCommit());
+
+		// entities marked as deleted are never removed
+		session.executeQuery(
+				"Select E.type, " + upkColumnList("E.", upkColumns) +
+				" From " + dmlTableReference(ENTITY, session) + " E" +
+				" Where E.r_entitygraph=" + graphID + " and E.birthday<0 and E.type in (" + typeList + ")",
+				new Session.ResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						Table table = dataModel.getTableByOrdinal(resultSet.getInt(1));
+						Object[] key = new Object[upkColumns.size()];
+						for (int i = 0; i < key.length; ++i) {
+							key[i] = resultSet.getObject(2 + i);
+						}
+						int id = dependencyLevels.getID(entityKey(table, key));
+						if (id == entityTable.size()) {
+							entityTable.add(table);
+							entityKey.add(key);
+						}
+						dependencyLevels.block(id);
+						excluded.add(id);
+					}
+					@Override
+					public void close() {
+					}
+				}, withExplicitCommit());
+
+		int[] levels = dependencyLevels.computeLevels();
+		int numLevels = 1;
+		for (int level: levels) {
+			numLevels = Math.max(numLevels, level + 1);
+		}
+		for (int i = 0; i < numLevels; ++i) {
+			result.add(i == 0? new HashSet<Table>(tables) : new HashSet<Table>());
+		}
+		Map<Table, List<Object[]>> updates = new HashMap<Table, List<Object[]>>();
+		for (int id = 0; id < levels.length; ++id) {
+			if (levels[id] != 0 && !excluded.contains(id)) {
+				Table table = entityTable.get(id);
+				int birthday;
+				if (levels[id] == DependencyLevels.NO_LEVEL) {
+					birthday = numLevels + LEVEL_OFFSET;
+				} else {
+					birthday = levels[id] + LEVEL_OFFSET;
+					result.get(levels[id]).add(table);
+				}
+				List<Object[]> parameters = updates.get(table);
+				if (parameters == null) {
+					parameters = new ArrayList<Object[]>();
+					updates.put(table, parameters);
+				}
+				Object[] key = entityKey.get(id);
+				Object[] parameter = new Object[key.length + 1];
+				parameter[0] = birthday;
+				System.arraycopy(key, 0, parameter, 1, key.length);
+				parameters.add(parameter);
+			}
+		}
+		Session._log.info(dependencyLevels.getNumberOfDependencies() + " dependencies between " + dependencyLevels.size() + " entities, " + numLevels + " level(s)");
+
+		// write the levels back
+		session.executeUpdate(
+				"Update " + dmlTableReference(ENTITY, session) + " set birthday=" + LEVEL_OFFSET +
+				" Where r_entitygraph=" + graphID + " and birthday>0 and type in (" + typeList + ")");
+		for (Map.Entry<Table, List<Object[]>> e: updates.entrySet()) {
+			Table table = e.getKey();
+			Map<Column, Column> match = universalPrimaryKey.match(rowIdSupport.getPrimaryKey(table));
+			StringBuilder pkCondition = new StringBuilder();
+			List<Integer> parameterIndexes = new ArrayList<Integer>();
+			parameterIndexes.add(0);
+			for (int i = 0; i < upkColumns.size(); ++i) {
+				Column column = upkColumns.get(i);
+				pkCondition.append(" and " + column.name);
+				if (match.get(column) != null) {
+					pkCondition.append("=?");
+					parameterIndexes.add(i + 1);
+				} else {
+					pkCondition.append(" is null");
+				}
+			}
+			String update = "Update " + dmlTableReference(ENTITY, session) + " set birthday=?" +
+					" Where r_entitygraph=" + graphID + " and type=" + typeName(table) + pkCondition;
+			List<Object[]> batch = new ArrayList<Object[]>();
+			for (Object[] parameter: e.getValue()) {
+				Object[] p = new Object[parameterIndexes.size()];
+				for (int i = 0; i < p.length; ++i) {
+					p[i] = parameter[parameterIndexes.get(i)];
+				}
+				batch.add(p);
+				if (batch.size() >= MAX_LEVEL_UPDATE_BATCH_SIZE) {
+					session.executeUpdateBatch(update, batch);
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				session.executeUpdateBatch(update, batch);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a unique key of an entity.
+	 */
+	private String entityKey(Table table, Object[] key) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(typeName(table));
+		for (Object value: key) {
+			if (value == null) {
+				sb.append("|-");
+			} else {
+				String s = value.toString();
+				sb.append("|").append(s.length()).append(":").append(s);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets a comma separated list of the universal primary key columns.
+	 */
+	private String upkColumnList(String prefix, List<Column> upkColumns) {
+		StringBuilder sb = new StringBuilder();
+		for (Column column: upkColumns) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(prefix + column.name);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Marks all entities of a given table on a given level,
+	 * s.t. they can be read and deleted.
+	 * 
+	 * @param table the table
+	 * @param level the level
+	 */
+	@Override
+	public void markIndependentEntities(Table table, int level) throws SQLException {
+		StatementParameters parameters = new StatementParameters(session.dbms);
+		session.executeUpdate(
+				"Update " + dmlTableReference(ENTITY, session) + " set birthday=0 " +
+				"Where r_entitygraph=" + parameters.bind(graphID) + " and type=" + parameters.bind(typeName(table)) + " and birthday=" + parameters.bind(level + LEVEL_OFFSET),
+				parameters.toArray());
+	}
+
+	/**
+	 * Deletes all entities of a given table which are marked as independent,
+	 * but keeps their dependencies.
+	 * 
+	 * @param table the table
+	 */
+	@Override
+	public void deleteMarkedEntities(Table table) throws SQLException {
+		deleteRows(session,
+				dmlTableReference(ENTITY, session),
+				"r_entitygraph=" + graphID + " and type=" + typeName(table) + " and " +
+					   "birthday=0");
+	}
+
+	/**
+	 * Deletes all dependencies from or to entities of given tables which are no longer part of the graph.
+	 * 
+	 * @param tables the tables
+	 */
+	@Override
+	public void deleteDanglingDependencies(Set<Table> tables) throws SQLException {
+		for (Table table: tables) {
+			StringBuffer fromEqualsPK = new StringBuffer();
+			StringBuffer toEqualsPK = new StringBuffer();
+			Map<Column, Column> match = universalPrimaryKey.match(rowIdSupport.getPrimaryKey(table));
+			for (Column column: universalPrimaryKey.getColumns()) {
+				if (fromEqualsPK.length() > 0) {
+					fromEqualsPK.append(" and ");
+					toEqualsPK.append(" and ");
+				}
+				if (match.containsKey(column)) {
+					fromEqualsPK.append(dmlTableReference(DEPENDENCY, session) + ".FROM_" + column.name + "=E." + column.name);
+					toEqualsPK.append(dmlTableReference(DEPENDENCY, session) + ".TO_" + column.name + "=E." + column.name);
+				} else {
+					fromEqualsPK.append("E." + column.name + " is null");
+					toEqualsPK.append("E." + column.name + " is null");
+				}
+			}
+			deleteRows(session,
+					dmlTableReference(DEPENDENCY, session),
+					dmlTableReference(DEPENDENCY, session) + ".r_entitygraph=" + graphID + " and assoc=0 and from_type=" + typeName(table) + " and " + 
+						  "not exists (Select * from " + dmlTableReference(ENTITY, session) + " E Where " + 
+							  "E.r_entitygraph=" + graphID + " and E.type=" + typeName(table) + " and " +
+							  fromEqualsPK + ")");
+			deleteRows(session,
+					dmlTableReference(DEPENDENCY, session),
+					dmlTableReference(DEPENDENCY, session) + ".r_entitygraph=" + graphID + " and assoc=0 and to_type=" + typeName(table) + " and " +
+						  "not exists (Select * from " + dmlTableReference(ENTITY, session) + " E Where " + 
+							  "E.r_entitygraph=" + graphID + " and E.type=" + typeName(table) + " and " +
+							  toEqualsPK + ")");
+		}
+	}
+
 	/**
 	 * Marks all rows which are not target of a dependency.
 	 */
@@ -522,12 +929,12 @@ public class RemoteEntityGraph extends EntityGraph {
 		if (orderByPK) {
 			orderBy = " order by " + rowIdSupport.getPrimaryKey(table).columnList("T.", quoting);
 		}
-		long rc = session.executeQuery(
-				"Select " + selectionSchema + " From " + dmlTableReference(ENTITY, session) + " E join " + quoting.requote(table.getName()) + " T on " +
+		StatementParameters parameters = new StatementParameters(session.dbms, selectionSchema);
+		String sqlQuery = "Select " + selectionSchema + " From " + dmlTableReference(ENTITY, session) + " E join " + quoting.requote(table.getName()) + " T on " +
 				pkEqualsEntityID(table, "T", "E") +
-				" Where E.birthday=0 and E.r_entitygraph=" + graphID + " and E.type=" + typeName(table) + "" +
-				orderBy,
-				reader, withExplicitCommit());
+				" Where E.birthday=0 and E.r_entitygraph=" + parameters.bind(graphID) + " and E.type=" + parameters.bind(typeName(table)) + "" +
+				orderBy;
+		long rc = session.executeQuery(sqlQuery, parameters.toArray(), reader, withExplicitCommit());
 		executionContext.getProgressListenerRegistry().fireExported(table, rc);
 		addExportedCount(rc);
 	}
@@ -558,13 +965,16 @@ public class RemoteEntityGraph extends EntityGraph {
 			selectOPK.append("T." + quoting.requote(pkColumns.get(i).name) + " AS " + originalPKAliasPrefix + i);
 		}
 		orderBy = "order by " + sb;
+		String filteredSelectionClause = filteredSelectionClause(table, false);
+		StatementParameters parameters = new StatementParameters(session.dbms, selectionSchema, filteredSelectionClause);
 		String sqlQuery = "Select " + selectionSchema + " From (" +
-						"Select " + selectOPK + ", " + filteredSelectionClause(table, false) + " From " + dmlTableReference(ENTITY, session) + " E join " + quoting.requote(table.getName()) + " T on " +
+						"Select " + selectOPK + ", " + filteredSelectionClause + " From " + dmlTableReference(ENTITY, session) + " E join " + quoting.requote(table.getName()) + " T on " +
 						pkEqualsEntityID(table, "T", "E") +
-						" Where E.birthday=0 and E.r_entitygraph=" + graphID + " and E.type=" + typeName(table) + "" +
+						" Where E.birthday=0 and E.r_entitygraph=" + parameters.bind(graphID) + " and E.type=" + parameters.bind(typeName(table)) + "" +
 						") T ";
 		long rc = session.executeQuery(
 				sqlQuery + (orderByPK? orderBy : ""),
+				parameters.toArray(),
 				reader,
 				(!orderByPK? sqlQuery : null), null, 0, withExplicitCommit());
 		executionContext.getProgressListenerRegistry().fireExported(table, rc);
@@ -644,16 +1054,18 @@ public class RemoteEntityGraph extends EntityGraph {
 	 * @param orderByPK if <code>true</code>, result will be ordered by primary keys
 	 */
 	protected long readEntities(Table table, boolean orderByPK, Session.ResultSetReader reader) throws SQLException {
-		String sqlQuery = "Select " + filteredSelectionClause(table, false) + " From " + dmlTableReference(ENTITY, session) + " E join " + quoting.requote(table.getName()) + " T on " +
+		String filteredSelectionClause = filteredSelectionClause(table, false);
+		StatementParameters parameters = new StatementParameters(session.dbms, filteredSelectionClause);
+		String sqlQuery = "Select " + filteredSelectionClause + " From " + dmlTableReference(ENTITY, session) + " E join " + quoting.requote(table.getName()) + " T on " +
 			pkEqualsEntityID(table, "T", "E") +
-			" Where E.birthday>=0 and E.r_entitygraph=" + graphID + " and E.type=" + typeName(table) + "";
+			" Where E.birthday>=0 and E.r_entitygraph=" + parameters.bind(graphID) + " and E.type=" + parameters.bind(typeName(table)) + "";
 		long rc;
 		if (orderByPK) {
 			String sqlQueryWithOrderBy = sqlQuery +
 				(orderByPK? " order by " + rowIdSupport.getPrimaryKey(table).columnList("T.", quoting) : "");
-			rc = session.executeQuery(sqlQueryWithOrderBy, reader, sqlQuery, null, 0, withExplicitCommit());
+			rc = session.executeQuery(sqlQueryWithOrderBy, parameters.toArray(), reader, sqlQuery, null, 0, withExplicitCommit());
 		} else {
-			rc = session.executeQuery(sqlQuery, reader, withExplicitCommit());
+			rc = session.executeQuery(sqlQuery, parameters.toArray(), reader, withExplicitCommit());
 		}
 		return rc;
 	}
@@ -814,6 +1226,29 @@ public class RemoteEntityGraph extends EntityGraph {
 		return count[0];
 	}
 
+	/**
+	 * Counts the entities of some given tables in this graph.
+	 * 
+	 * @param tables the tables
+	 * @return the number of entities per table (tables without entities are missing)
+	 */
+	@Override
+	public Map<Table, Long> countEntities(final Set<Table> tables) throws SQLException {
+		final Map<Table, Long> counts = new HashMap<Table, Long>();
+		if (!tables.isEmpty()) {
+			session.executeQuery("Select type, count(*) From " + dmlTableReference(ENTITY, session) + " Where r_entitygraph=" + graphID + " and birthday>=0 group by type", new Session.AbstractResultSetReader() {
+				@Override
+				public void readCurrentRow(ResultSet resultSet) throws SQLException {
+					Table table = dataModel.getTableByOrdinal(resultSet.getInt(1));
+					if (tables.contains(table)) {
+						counts.put(table, resultSet.getLong(2));
+					}
+				}
+			});
+		}
+		return counts;
+	}
+
 	/**
 	 * Removes all entities from this graph which are associated with an entity
 	 * outside the graph.
@@ -956,6 +1391,104 @@ public class RemoteEntityGraph extends EntityGraph {
 		session.executeUpdate(update);
 	}
 	
+	/**
+	 * Maximum number of entities per statement marking dependent entities as traversed.
+	 */
+	private static final int MAX_ENTITIES_PER_TRAVERSED_UPDATE = 100;
+
+	/**
+	 * Maximum number of given entities per statement reading dependent entities.
+	 */
+	private static final int MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY = 1000;
+
+	@Override
+	public boolean supportsSetBasedDependentEntities() {
+		return true;
+	}
+
+	/**
+	 * Reads all entities which depend on a set of given entities.
+	 * The given entities are selected by a disjunction of key conditions, a case-expression
+	 * over the same conditions yields the index of the given entity. So there is one statement per
+	 * {@link #MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY} given entities.
+	 * 
+	 * @param table the table from which to read entities
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association), distinct
+	 * @param reader reads the entities
+	 * @param selectionSchema the selection schema
+	 */
+	@Override
+	public void readDependentEntities(Table table, Association association, List<String[]> parentKeys, ResultSetReader reader, String selectionSchema, String originalPKAliasPrefix) throws SQLException {
+		String selectOPK = null;
+		if (originalPKAliasPrefix != null) {
+			StringBuffer sb = new StringBuffer();
+			List<Column> pkColumns = rowIdSupport.getPrimaryKey(table).getColumns();
+			for (int i = 0; i < pkColumns.size(); ++i) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append("T." + quoting.requote(pkColumns.get(i).name) + " AS " + originalPKAliasPrefix + i);
+			}
+			selectOPK = sb.toString();
+		}
+		for (int start = 0; start < parentKeys.size(); start += MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY) {
+			int end = Math.min(parentKeys.size(), start + MAX_ENTITIES_PER_DEPENDENT_ENTITIES_QUERY);
+			List<String> conditions = new ArrayList<String>(end - start);
+			StringBuilder parentIndex = new StringBuilder("case");
+			for (int i = start; i < end; ++i) {
+				String condition = pkEqualsEntityID(association.source, parentKeys.get(i), "D", "FROM_");
+				conditions.add(condition);
+				parentIndex.append(" when " + condition + " then " + i);
+			}
+			parentIndex.append(" end");
+			String select;
+			if (selectOPK != null) {
+				select = 
+					"Select " + selectionSchema + ", T." + PARENT_INDEX_COLUMN + " from (" +  
+					"Select " + selectOPK + ", " + filteredSelectionClause(table, false) + ", " + parentIndex + " AS " + PARENT_INDEX_COLUMN + " from " + quoting.requote(table.getName()) + " T join " + dmlTableReference(DEPENDENCY, session) + " D on " +
+					 pkEqualsEntityID(table, "T", "D", "TO_") + " and D.to_type=" + typeName(table) + "" +
+					 " Where " + SqlUtil.disjunction(conditions) +
+					 " and D.from_type=" + typeName(association.source) + " and assoc=" + association.getId() +
+					 " and D.r_entitygraph=" + graphID + ") T";
+			} else {
+				select = "Select " + selectionSchema + ", " + parentIndex + " AS " + PARENT_INDEX_COLUMN + " from " + quoting.requote(table.getName()) + " T join " + dmlTableReference(DEPENDENCY, session) + " D on " +
+					 pkEqualsEntityID(table, "T", "D", "TO_") + " and D.to_type=" + typeName(table) + "" +
+					 " Where " + SqlUtil.disjunction(conditions) +
+					 " and D.from_type=" + typeName(association.source) + " and assoc=" + association.getId() +
+					 " and D.r_entitygraph=" + graphID;
+			}
+			long rc = session.executeQuery(select, reader, withExplicitCommit());
+			executionContext.getProgressListenerRegistry().fireExported(table, rc);
+			addExportedCount(rc);
+		}
+	}
+
+	/**
+	 * Marks all entities which depend on a set of given entities as traversed.
+	 * 
+	 * @param association the dependency
+	 * @param parentKeys the given entities (SQL literals of the primary key columns of the source of the association)
+	 */
+	@Override
+	public void markDependentEntitiesAsTraversed(Association association, List<String[]> parentKeys) throws SQLException {
+		boolean isSybase = DBMS.SYBASE.equals(session.dbms);
+		String alias = isSybase? dmlTableReference(DEPENDENCY, session) : "D";
+		for (int start = 0; start < parentKeys.size(); start += MAX_ENTITIES_PER_TRAVERSED_UPDATE) {
+			StringBuilder condition = new StringBuilder();
+			for (String[] parentKey: parentKeys.subList(start, Math.min(parentKeys.size(), start + MAX_ENTITIES_PER_TRAVERSED_UPDATE))) {
+				if (condition.length() > 0) {
+					condition.append(" or ");
+				}
+				condition.append("(" + pkEqualsEntityID(association.source, parentKey, alias, "FROM_") + ")");
+			}
+			session.executeUpdate("Update " + dmlTableReference(DEPENDENCY, session) + (isSybase? "" : " D") + " set traversed=1" +
+				 " Where (" + condition + ")" +
+				 " and " + alias + ".from_type=" + typeName(association.source) + " and assoc=" + association.getId() +
+				 " and " + alias + ".r_entitygraph=" + graphID);
+		}
+	}
+
 	/**
 	 * Reads all non-traversed dependencies. 
 	 * 
@@ -1003,6 +1536,21 @@ public class RemoteEntityGraph extends EntityGraph {
 	 * @return a SQL comparison expression for comparing rows of <code>table</code> with current row of resultSet
 	 */
 	private String pkEqualsEntityID(Table table, ResultSet resultSet, String alias, String columnPrefix, CellContentConverter cellContentConverter) throws SQLException {
+		String[] key = new String[rowIdSupport.getPrimaryKey(table).getColumns().size()];
+		for (int i = 0; i < key.length; ++i) {
+			key[i] = cellContentConverter.toSql(cellContentConverter.getObject(resultSet, "PK" + i));
+		}
+		return pkEqualsEntityID(table, key, alias, columnPrefix);
+	}
+
+	/**
+	 * Gets a SQL comparison expression for comparing rows with given entity.
+	 * 
+	 * @param table the table
+	 * @param key SQL literals of the primary key columns of the entity
+	 * @return a SQL comparison expression for comparing rows of <code>table</code> with the entity
+	 */
+	private String pkEqualsEntityID(Table table, String[] key, String alias, String columnPrefix) {
 		Map<Column, Column> match = universalPrimaryKey.match(rowIdSupport.getPrimaryKey(table));
 		StringBuffer sb = new StringBuffer();
 		for (Column column: universalPrimaryKey.getColumns()) {
@@ -1012,14 +1560,7 @@ public class RemoteEntityGraph extends EntityGraph {
 			sb.append(alias + "." + columnPrefix + column.name);
 			Column tableColumn = match.get(column);
 			if (tableColumn != null) {
-				int i = 0;
-				for (Column c: rowIdSupport.getPrimaryKey(table).getColumns()) {
-					if (c.name.equals(tableColumn.name)) {
-						break;
-					}
-					++i;
-				}
-				sb.append("=" + cellContentConverter.toSql(cellContentConverter.getObject(resultSet, "PK" + i)));
+				sb.append("=" + key[pkIndex(table, tableColumn)]);
 			} else {
 				sb.append(" is null");
 			}
@@ -1027,6 +1568,20 @@ public class RemoteEntityGraph extends EntityGraph {
 		return sb.toString();
 	}
 
+	/**
+	 * Gets the index of a primary key column.
+	 */
+	private int pkIndex(Table table, Column tableColumn) {
+		int i = 0;
+		for (Column c: rowIdSupport.getPrimaryKey(table).getColumns()) {
+			if (c.name.equals(tableColumn.name)) {
+				break;
+			}
+			++i;
+		}
+		return i;
+	}
+
 	/**
 	 * Gets a SQL comparition expression for comparing rows with entities.
 	 * 
@@ -48,6 +48,7 @@ import net.sf.jailer.datamodel.PrimaryKey;
 import net.sf.jailer.datamodel.PrimaryKeyFactory;
 import net.sf.jailer.datamodel.Table;
 import net.sf.jailer.util.CancellationHandler;
+import net.sf.jailer.util.JobManager;
 import net.sf.jailer.util.Pair;
 import net.sf.jailer.util.Quoting;
 import net.sf.jailer.util.SqlUtil;
@@ -125,7 +126,7 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 	 * @param session to retrieve the UDT names
 	 * @return names of user defined types
 	 */
-	private Set<String> getUserDefinedTypes(Session session) {
+	private synchronized Set<String> getUserDefinedTypes(Session session) {
 		if (userDefinedTypes == null) {
 			userDefinedTypes = new HashSet<String>();
 			if (session.dbms.getUserDefinedColumnsQuery() != null) {
@@ -150,6 +151,54 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 		return userDefinedTypes;
 	}
 	
+	/**
+	 * Introspects a table.
+	 */
+	private interface IntrospectionTask<T> {
+		void introspect(T table) throws SQLException;
+	}
+
+	/**
+	 * Introspects tables in parallel, using one connection per thread. <br>
+	 * The first table is introspected before all others, so that schema-wide meta data caches are filled only once.
+	 * The tasks must not change shared state, the results are merged afterwards in the order of the tables.
+	 * 
+	 * @param tables the tables
+	 * @param task introspects a table
+	 * @param description describes the task (for logging)
+	 */
+	private <T> void introspect(List<T> tables, final IntrospectionTask<T> task, String description, Session session, ExecutionContext executionContext) throws SQLException {
+		long startTime = System.currentTimeMillis();
+		int threads = Math.min(executionContext.getNumberOfThreads(), tables.size());
+		if (threads <= 1) {
+			for (T table: tables) {
+				task.introspect(table);
+				CancellationHandler.checkForCancellation(null);
+			}
+		} else {
+			task.introspect(tables.get(0));
+			session.getConnectionPool().setMaxConnections(Math.max(session.getConnectionPool().getMaxConnections(), threads));
+			List<JobManager.Job> jobs = new ArrayList<JobManager.Job>();
+			for (final T table: tables.subList(1, tables.size())) {
+				jobs.add(new JobManager.Job() {
+					@Override
+					public void run() throws SQLException {
+						task.introspect(table);
+						CancellationHandler.checkForCancellation(null);
+					}
+				});
+			}
+			JobManager jobManager = new JobManager(threads);
+			try {
+				jobManager.executeJobs(jobs);
+			} finally {
+				jobManager.shutdown();
+			}
+		}
+		long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+		_log.info(description + ": " + tables.size() + " tables in " + elapsedTime + " ms (" + (tables.size() * 1000L / elapsedTime) + " tables/s, " + Math.max(1, threads) + " threads)");
+	}
+
 	/**
 	 * Finds associations by reading the databases meta-data.
 	 * 
@@ -159,34 +208,44 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 	 * @return found associations
 	 */
 	@Override
-	public Collection<Association> findAssociations(DataModel dataModel, Map<Association, String[]> namingSuggestion, Session session, ExecutionContext executionContext) throws Exception {
+	public Collection<Association> findAssociations(DataModel dataModel, Map<Association, String[]> namingSuggestion, final Session session, ExecutionContext executionContext) throws Exception {
 		Collection<Association> associations = new ArrayList<Association>();
 		DatabaseMetaData metaData = session.getMetaData();
-		Quoting quoting = new Quoting(session);
+		final Quoting quoting = new Quoting(session);
 		ResultSet resultSet;
-		String defaultSchema = getDefaultSchema(session, session.getSchema());
+		final String defaultSchema = getDefaultSchema(session, session.getSchema());
 		Set<Association> toRemove = new HashSet<Association>();
 
-		for (Table viewOrTable: dataModel.getTables()) {
+		// read the imported keys in parallel
+		List<Table> tables = new ArrayList<Table>(dataModel.getTables());
+		final Map<Table, ResultSet> importedKeys = Collections.synchronizedMap(new HashMap<Table, ResultSet>());
+		introspect(tables, new IntrospectionTask<Table>() {
+			@Override
+			public void introspect(Table table) {
+				UnderlyingTableInfo uti = underlyingTableInfos.get(table.getName());
+				_log.info("find associations with " + table.getName());
+				try {
+					Table child = uti != null? uti.underlyingTable : table;
+					String ikSchema = quoting.unquote(child.getOriginalSchema(quoting.quote(defaultSchema)));
+					Session ikSession = session;
+					if (sessionWithPermissionToReadSchema.containsKey(Quoting.normalizeIdentifier(ikSchema))) {
+						ikSession = sessionWithPermissionToReadSchema.get(Quoting.normalizeIdentifier(ikSchema));
+					}
+					ResultSet resultSet = getImportedKeys(ikSession, session.getMetaData(), ikSchema, quoting.unquote(child.getUnqualifiedName()), true);
+					importedKeys.put(table, MetaDataCache.memorize(resultSet, MetaDataSnapshot.Kind.IMPORTED_KEYS, session));
+				} catch (Exception e) {
+					_log.info("failed. " + e.getMessage());
+				}
+			}
+		}, "imported keys", session, executionContext);
+
+		for (Table viewOrTable: tables) {
 			Table table;
-			Table underlyingTable = null;
 			UnderlyingTableInfo uti = null;
 			uti = underlyingTableInfos.get(viewOrTable.getName());
-			if (uti != null) {
-				underlyingTable = uti.underlyingTable;
-			}
 			table = viewOrTable;
-			_log.info("find associations with " + table.getName());
-			try {
-				Table child = underlyingTable != null? underlyingTable : table;
-				String ikSchema = quoting.unquote(child.getOriginalSchema(quoting.quote(defaultSchema)));
-				Session ikSession = session;
-				if (sessionWithPermissionToReadSchema.containsKey(Quoting.normalizeIdentifier(ikSchema))) {
-					ikSession = sessionWithPermissionToReadSchema.get(Quoting.normalizeIdentifier(ikSchema));
-				}
-				resultSet = getImportedKeys(ikSession, metaData, ikSchema, quoting.unquote(child.getUnqualifiedName()), true);
-			} catch (Exception e) {
-				_log.info("failed. " + e.getMessage());
+			resultSet = importedKeys.get(table);
+			if (resultSet == null) {
 				continue;
 			}
 			Map<String, Association> fkMap = new HashMap<String, Association>();
@@ -286,7 +345,7 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 			final String NAME = "getImportedKeys " + schema;
 			MetaDataCache metaDataCache = (MetaDataCache) session.getSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME);
 			if (metaDataCache == null) {
-				metaDataCache = MetaDataCache.readImportedKeys(session, schema);
+				metaDataCache = MetaDataSnapshot.getMetaDataCache(session, metaData, schema, MetaDataSnapshot.Kind.IMPORTED_KEYS, NAME);
 				session.setSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME, metaDataCache);
 			}
 			ResultSet resultSet = metaDataCache.forTable(table);
@@ -370,8 +429,8 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 	 * @param introspectionSchema the schema
 	 * @param tableNamePattern table name pattern 
 	 */
-	private Set<Table> findTables(Session session, ExecutionContext executionContext, String introspectionSchema,
-			String tableNamePattern, int depth) throws SQLException {
+	private Set<Table> findTables(final Session session, final ExecutionContext executionContext, final String introspectionSchema,
+			final String tableNamePattern, int depth) throws SQLException {
 		final int MAX_DEPTH = 100;
 		if (depth > MAX_DEPTH) {
 			return new HashSet<Table>();
@@ -380,7 +439,7 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 		
 		Set<Table> tables = new HashSet<Table>();
 		DatabaseMetaData metaData = session.getMetaData();
-		Quoting quoting = new Quoting(session);
+		final Quoting quoting = new Quoting(session);
 		ResultSet resultSet;
 		List<String> types = getTypes(executionContext);
 		resultSet = getTables(session, metaData, introspectionSchema, tableNamePattern, types.toArray(new String[0]));
@@ -409,88 +468,52 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 			CancellationHandler.checkForCancellation(null);
 		}
 		resultSet.close();
-		Map<String, Map<Integer, Column>> pkColumns = new HashMap<String, Map<Integer, Column>>();
+		final Map<String, Map<Integer, Column>> pkColumns = new HashMap<String, Map<Integer, Column>>();
 		for (String tableName: tableNames) {
-			Table tmp = new Table(tableName, null, false, false);
-			resultSet = null;
-			try {
-				resultSet = getPrimaryKeys(session, metaData, quoting.unquote(tmp.getOriginalSchema(quoting.quote(introspectionSchema))), quoting.unquote(tmp.getUnqualifiedName()), true);
-			} catch (Exception e) {
-				_log.warn("can't get PK for " + tableName, e);
-			}
-			Map<Integer, Column> pk = pkColumns.get(tableName);
-			if (pk == null) {
-				pk = new HashMap<Integer, Column>();
-				pkColumns.put(tableName, pk);
-			}
-			boolean hasPK = false;
-			int nextKeySeq = 0;
-			while (resultSet != null && resultSet.next()) {
-				hasPK = true;
-				int keySeq = resultSet.getInt(5);
-				if (DBMS.SQLITE.equals(session.dbms)) {
-					// SQlite driver doesn't return the keySeq
-					keySeq = nextKeySeq++;
-				}
-				pk.put(keySeq, new Column(quoting.quote(resultSet.getString(4)), "", 0, -1));
-			}
-			if (!hasPK) {
-				_log.info("find unique index of table " + tableName);
-				hasPK = findUniqueIndexBasedKey(metaData, quoting, session, tmp, pk, tableTypes.get(tableName));
-			}
-			_log.info((hasPK? "" : "no ") + "primary key found for table " + tableName);
-			if (resultSet != null) {
-				resultSet.close();
-			}
-			CancellationHandler.checkForCancellation(null);
+			pkColumns.put(tableName, Collections.synchronizedMap(new HashMap<Integer, Column>()));
 		}
-		for (String tableName: tableNames) {
-			Table tmp = new Table(tableName, null, false, false);
-			_log.info("getting columns for " + quoting.unquote(tmp.getOriginalSchema(quoting.quote(introspectionSchema))) + "." + quoting.unquote(tmp.getUnqualifiedName()));
-			resultSet = getColumns(session, metaData, quoting.unquote(tmp.getOriginalSchema(quoting.quote(introspectionSchema))), quoting.unquote(tmp.getUnqualifiedName()), tableNamePattern, true, false, tableTypes.get(tableName));
-			_log.info("done");
-			Map<Integer, Column> pk = pkColumns.get(tableName);
-			while (resultSet.next()) {
-				String colName = quoting.quote(resultSet.getString(4));
-				int type = resultSet.getInt(5);
-				int length = 0;
-				int precision = -1;
-				String sqlType = toSqlType(resultSet.getString(6), session.dbms);
-				if (sqlType == null || sqlType.trim().length() == 0 || resultSet.wasNull()) {
-					sqlType = SqlUtil.SQL_TYPE.get(type);
-					if (sqlType == null) {
-						throw new RuntimeException("unknown SQL type: " + type);
-					}
-				}
-				if (TYPES_WITH_LENGTH.contains(sqlType.toUpperCase()) || type == Types.NUMERIC || type == Types.DECIMAL || type == Types.VARCHAR || type == Types.CHAR || type == Types.BINARY || type == Types.VARBINARY) {
-					length = resultSet.getInt(7);
-				}
-				if (DBMS.MSSQL.equals(session.dbms) && sqlType != null && sqlType.equalsIgnoreCase("timestamp")) {
-					length = 0;
-				}
-				if (sqlType != null && sqlType.equalsIgnoreCase("uniqueidentifier")) {
-					length = 0;
-				}
-				if (type == Types.NUMERIC || type == Types.DECIMAL || type == Types.VARCHAR || type == Types.CHAR) {
-					precision = resultSet.getInt(9);
-					if (resultSet.wasNull() || precision == 0) {
-						precision = -1;
+		introspect(tableNames, new IntrospectionTask<String>() {
+			@Override
+			public void introspect(String tableName) throws SQLException {
+				DatabaseMetaData metaData = session.getMetaData();
+				Table tmp = new Table(tableName, null, false, false);
+				ResultSet resultSet = null;
+				try {
+					resultSet = getPrimaryKeys(session, metaData, quoting.unquote(tmp.getOriginalSchema(quoting.quote(introspectionSchema))), quoting.unquote(tmp.getUnqualifiedName()), true);
+				} catch (Exception e) {
+					_log.warn("can't get PK for " + tableName, e);
+				}
+				Map<Integer, Column> pk = pkColumns.get(tableName);
+				boolean hasPK = false;
+				int nextKeySeq = 0;
+				while (resultSet != null && resultSet.next()) {
+					hasPK = true;
+					int keySeq = resultSet.getInt(5);
+					if (DBMS.SQLITE.equals(session.dbms)) {
+						// SQlite driver doesn't return the keySeq
+						keySeq = nextKeySeq++;
 					}
+					pk.put(keySeq, new Column(quoting.quote(resultSet.getString(4)), "", 0, -1));
 				}
-				if (type == Types.DISTINCT || getUserDefinedTypes(session).contains(sqlType)) {
-					length = 0;
-					precision = -1;
+				if (!hasPK) {
+					_log.info("find unique index of table " + tableName);
+					hasPK = findUniqueIndexBasedKey(metaData, quoting, session, tmp, pk, tableTypes.get(tableName));
 				}
-				Column column = new Column(colName, sqlType, filterLength(length, resultSet.getString(6), type, session.dbms, resultSet.getInt(7)), precision);
-				for (int i: pk.keySet()) {
-					if (pk.get(i).name.equals(column.name)) {
-						pk.put(i, column);
-					}
+				_log.info((hasPK? "" : "no ") + "primary key found for table " + tableName);
+				if (resultSet != null) {
+					resultSet.close();
 				}
 			}
-			resultSet.close();
-			_log.info("read primary key type for table " + tableName);
-			
+		}, "primary keys", session, executionContext);
+		introspect(tableNames, new IntrospectionTask<String>() {
+			@Override
+			public void introspect(String tableName) throws SQLException {
+				readPrimaryKeyTypes(tableName, pkColumns.get(tableName), session, quoting, introspectionSchema, tableNamePattern);
+			}
+		}, "columns", session, executionContext);
+		List<Table> tableList = new ArrayList<Table>();
+		for (String tableName: tableNames) {
+			Map<Integer, Column> pk = pkColumns.get(tableName);
 			List<Integer> keySeqs = new ArrayList<Integer>(pk.keySet());
 			Collections.sort(keySeqs);
 			List<Column> columns = new ArrayList<Column>();
@@ -504,52 +527,31 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 			Table table = new Table(tableName, primaryKey, false, false);
 			table.setAuthor(metaData.getDriverName());
 			tables.add(table);
-			CancellationHandler.checkForCancellation(null);
+			tableList.add(table);
 		}
 
-		for (Table table: tables) {
-			String viewText = null;
-			String viewTextOrDDLQuery = session.dbms.getViewTextOrDDLQuery();
-			if ("VIEW".equals(tableTypes.get(table.getName())) && viewTextOrDDLQuery != null) {
-				String viewTextQuery = String.format(viewTextOrDDLQuery, introspectionSchema, table.getUnqualifiedName());
-				final String[] viewTextContainer = new String[1];
-				try {
-					session.executeQuery(viewTextQuery, new Session.AbstractResultSetReader() {
-						@Override
-						public void readCurrentRow(ResultSet resultSet) throws SQLException {
-							viewTextContainer[0] = resultSet.getString(1);
-						}
-					});
-					viewText = viewTextContainer[0];
-					if (viewText != null) {
-						viewText = viewText.trim();
-						viewText = viewText.replaceFirst("(?is)^create.*as\\b(\\W*select\\b)(.*)$", "$1$2").trim();
-					}
-				} catch (Exception e) {
-					_log.info("can't get view text: " + viewTextQuery);
-					_log.info(e.getMessage());
-				}
-			} else if ("SYNONYM".equals(tableTypes.get(table.getName())) || "ALIAS".equals(tableTypes.get(table.getName()))) {
-				if (session.dbms.getSynonymTableQuery() != null) {
-					String synonymTableQuery = String.format(session.dbms.getSynonymTableQuery(), introspectionSchema, table.getUnqualifiedName());
-					final String[] synonymTableQueryContainer = new String[1];
-					try {
-						session.executeQuery(synonymTableQuery, new Session.AbstractResultSetReader() {
-							@Override
-							public void readCurrentRow(ResultSet resultSet) throws SQLException {
-								synonymTableQueryContainer[0] = "Select * from " + resultSet.getString(1);
-							}
-						});
-						viewText = synonymTableQueryContainer[0];
-					} catch (Exception e) {
-						_log.info("can't get synonym table: " + synonymTableQuery);
-						_log.info(e.getMessage());
-					}
+		// read the view texts and synonym tables in parallel
+		final Map<Table, String> viewTexts = Collections.synchronizedMap(new HashMap<Table, String>());
+		List<Table> views = new ArrayList<Table>();
+		for (Table table: tableList) {
+			String tableType = tableTypes.get(table.getName());
+			if ("VIEW".equals(tableType) && session.dbms.getViewTextOrDDLQuery() != null
+					|| "SYNONYM".equals(tableType) || "ALIAS".equals(tableType)) {
+				views.add(table);
+			}
+		}
+		introspect(views, new IntrospectionTask<Table>() {
+			@Override
+			public void introspect(Table table) {
+				String viewText = readViewText(table, session, introspectionSchema);
+				if (viewText != null) {
+					viewTexts.put(table, viewText);
 				}
-			} else {
-				continue;
 			}
-			
+		}, "view texts", session, executionContext);
+
+		for (Table table: views) {
+			String viewText = viewTexts.get(table);
 			if (viewText != null) {
 				UnderlyingTableInfo uti = parseViewText(session, executionContext, quoting, depth, viewText, introspectionSchema, table);
 				if (uti != null) {
@@ -591,6 +593,108 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 		return tables;
 	}
 
+	/**
+	 * Reads the types of the primary key columns of a table.
+	 * 
+	 * @param tableName the table
+	 * @param pk the primary key columns (without types) per key sequence
+	 */
+	private void readPrimaryKeyTypes(String tableName, Map<Integer, Column> pk, Session session, Quoting quoting, String introspectionSchema, String tableNamePattern) throws SQLException {
+		Table tmp = new Table(tableName, null, false, false);
+		_log.info("getting columns for " + quoting.unquote(tmp.getOriginalSchema(quoting.quote(introspectionSchema))) + "." + quoting.unquote(tmp.getUnqualifiedName()));
+		ResultSet resultSet = getColumns(session, session.getMetaData(), quoting.unquote(tmp.getOriginalSchema(quoting.quote(introspectionSchema))), quoting.unquote(tmp.getUnqualifiedName()), tableNamePattern, true, false, tableTypes.get(tableName));
+		_log.info("done");
+		while (resultSet.next()) {
+			String colName = quoting.quote(resultSet.getString(4));
+			int type = resultSet.getInt(5);
+			int length = 0;
+			int precision = -1;
+			String sqlType = toSqlType(resultSet.getString(6), session.dbms);
+			if (sqlType == null || sqlType.trim().length() == 0 || resultSet.wasNull()) {
+				sqlType = SqlUtil.SQL_TYPE.get(type);
+				if (sqlType == null) {
+					throw new RuntimeException("unknown SQL type: " + type);
+				}
+			}
+			if (TYPES_WITH_LENGTH.contains(sqlType.toUpperCase()) || type == Types.NUMERIC || type == Types.DECIMAL || type == Types.VARCHAR || type == Types.CHAR || type == Types.BINARY || type == Types.VARBINARY) {
+				length = resultSet.getInt(7);
+			}
+			if (DBMS.MSSQL.equals(session.dbms) && sqlType != null && sqlType.equalsIgnoreCase("timestamp")) {
+				length = 0;
+			}
+			if (sqlType != null && sqlType.equalsIgnoreCase("uniqueidentifier")) {
+				length = 0;
+			}
+			if (type == Types.NUMERIC || type == Types.DECIMAL || type == Types.VARCHAR || type == Types.CHAR) {
+				precision = resultSet.getInt(9);
+				if (resultSet.wasNull() || precision == 0) {
+					precision = -1;
+				}
+			}
+			if (type == Types.DISTINCT || getUserDefinedTypes(session).contains(sqlType)) {
+				length = 0;
+				precision = -1;
+			}
+			Column column = new Column(colName, sqlType, filterLength(length, resultSet.getString(6), type, session.dbms, resultSet.getInt(7)), precision);
+			for (int i: pk.keySet()) {
+				if (pk.get(i).name.equals(column.name)) {
+					pk.put(i, column);
+				}
+			}
+		}
+		resultSet.close();
+		_log.info("read primary key type for table " + tableName);
+	}
+
+	/**
+	 * Reads the text of a view or the table of a synonym.
+	 * 
+	 * @param table the view or synonym
+	 * @return the query of the view (or a query on the synonym's table), <code>null</code> if not available
+	 */
+	private String readViewText(Table table, Session session, String introspectionSchema) {
+		String viewText = null;
+		String viewTextOrDDLQuery = session.dbms.getViewTextOrDDLQuery();
+		if ("VIEW".equals(tableTypes.get(table.getName())) && viewTextOrDDLQuery != null) {
+			String viewTextQuery = String.format(viewTextOrDDLQuery, introspectionSchema, table.getUnqualifiedName());
+			final String[] viewTextContainer = new String[1];
+			try {
+				session.executeQuery(viewTextQuery, new Session.AbstractResultSetReader() {
+					@Override
+					public void readCurrentRow(ResultSet resultSet) throws SQLException {
+						viewTextContainer[0] = resultSet.getString(1);
+					}
+				});
+				viewText = viewTextContainer[0];
+				if (viewText != null) {
+					viewText = viewText.trim();
+					viewText = viewText.replaceFirst("(?is)^create.*as\\b(\\W*select\\b)(.*)$", "$1$2").trim();
+				}
+			} catch (Exception e) {
+				_log.info("can't get view text: " + viewTextQuery);
+				_log.info(e.getMessage());
+			}
+		} else if ("SYNONYM".equals(tableTypes.get(table.getName())) || "ALIAS".equals(tableTypes.get(table.getName()))) {
+			if (session.dbms.getSynonymTableQuery() != null) {
+				String synonymTableQuery = String.format(session.dbms.getSynonymTableQuery(), introspectionSchema, table.getUnqualifiedName());
+				final String[] synonymTableQueryContainer = new String[1];
+				try {
+					session.executeQuery(synonymTableQuery, new Session.AbstractResultSetReader() {
+						@Override
+						public void readCurrentRow(ResultSet resultSet) throws SQLException {
+							synonymTableQueryContainer[0] = "Select * from " + resultSet.getString(1);
+						}
+					});
+					viewText = synonymTableQueryContainer[0];
+				} catch (Exception e) {
+					_log.info("can't get synonym table: " + synonymTableQuery);
+					_log.info(e.getMessage());
+				}
+			}
+		}
+		return viewText;
+	}
+
 	private UnderlyingTableInfo parseViewText(final Session session, final ExecutionContext executionContext, final Quoting quoting, final int depth, String viewText, final String defaultSchema, final Table view) {
 		net.sf.jsqlparser.statement.Statement st;
 		try {
@@ -824,7 +928,7 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 			final String NAME = "getPrimaryKeys " + schema;
 			MetaDataCache metaDataCache = (MetaDataCache) session.getSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME);
 			if (metaDataCache == null) {
-				metaDataCache = MetaDataCache.readPrimaryKeys(session, schema);
+				metaDataCache = MetaDataSnapshot.getMetaDataCache(session, metaData, schema, MetaDataSnapshot.Kind.PRIMARY_KEYS, NAME);
 				session.setSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME, metaDataCache);
 			}
 			ResultSet resultSet = metaDataCache.forTable(table);
@@ -929,7 +1033,7 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 		final String NAME = "getIndexInfo " + schema;
 		MetaDataCache metaDataCache = (MetaDataCache) session.getSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME);
 		if (metaDataCache == null) {
-			metaDataCache = MetaDataCache.readIndexInfo(session, schema);
+			metaDataCache = MetaDataSnapshot.getMetaDataCache(session, metaData, schema, MetaDataSnapshot.Kind.INDEX_INFO, NAME);
 			session.setSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME, metaDataCache);
 		}
 		ResultSet resultSet = metaDataCache.forTable(table);
@@ -979,7 +1083,7 @@ public class JDBCMetaDataBasedModelElementFinder implements ModelElementFinder {
 				synchronized (session) {
 					MetaDataCache metaDataCache = (MetaDataCache) session.getSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME);
 					if (metaDataCache == null) {
-						metaDataCache = MetaDataCache.readColumns(session, metaData, schemaPattern);
+						metaDataCache = MetaDataSnapshot.getMetaDataCache(session, metaData, schemaPattern, MetaDataSnapshot.Kind.COLUMNS, NAME);
 						session.setSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME, metaDataCache);
 					}
 					ResultSet resultSet = metaDataCache.forTable(tableNamePattern);
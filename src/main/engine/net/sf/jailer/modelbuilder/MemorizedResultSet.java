@@ -236,8 +236,14 @@ public class MemorizedResultSet implements ResultSet {
 
 	@Override
 	public int findColumn(String columnLabel) throws SQLException {
-		throw new UnsupportedOperationException();
-
+		if (resultSetMetaData != null) {
+			for (int i = 1; i <= resultSetMetaData.getColumnCount(); ++i) {
+				if (columnLabel.equalsIgnoreCase(resultSetMetaData.getColumnLabel(i))) {
+					return i;
+				}
+			}
+		}
+		throw new SQLException("unknown column: " + columnLabel);
 	}
 
 	@Override
@@ -452,8 +458,7 @@ public class MemorizedResultSet implements ResultSet {
 
 	@Override
 	public int getInt(String columnLabel) throws SQLException {
-		throw new UnsupportedOperationException();
-
+		return getInt(findColumn(columnLabel));
 	}
 
 	@Override
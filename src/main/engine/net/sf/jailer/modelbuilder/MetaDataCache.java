@@ -15,14 +15,16 @@
  */
 package net.sf.jailer.modelbuilder;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +35,7 @@ import org.apache.log4j.Logger;
 import net.sf.jailer.configuration.DBMS;
 import net.sf.jailer.database.Session;
 import net.sf.jailer.modelbuilder.MemorizedResultSet.MemorizedResultSetMetaData;
+import net.sf.jailer.modelbuilder.MetaDataSnapshot.Kind;
 
 /**
  * Reads database meta data directly from meta data views.
@@ -75,8 +78,7 @@ public class MetaDataCache {
 
 		MetaDataCache metaDataCache = new MetaDataCache();
 		try {
-			Set<Integer> intIndex = new HashSet<Integer>(Arrays.asList(5));
-			readMetaData(metaDataCache, session, primaryKeysQuery.replace("${SCHEMA}", schema), intIndex, 2);
+			readMetaData(metaDataCache, session, primaryKeysQuery.replace("${SCHEMA}", schema), Kind.PRIMARY_KEYS.intIndex, Kind.PRIMARY_KEYS.tableIndex);
 			return metaDataCache;
 		} catch (Exception e) {
 			_log.info(e.getMessage());
@@ -103,8 +105,7 @@ public class MetaDataCache {
 
 		MetaDataCache metaDataCache = new MetaDataCache();
 		try {
-			Set<Integer> intIndex = new HashSet<Integer>(Arrays.asList(4));
-			readMetaData(metaDataCache, session, indexInfoQuery.replace("${SCHEMA}", schema), intIndex, 2);
+			readMetaData(metaDataCache, session, indexInfoQuery.replace("${SCHEMA}", schema), Kind.INDEX_INFO.intIndex, Kind.INDEX_INFO.tableIndex);
 			return metaDataCache;
 		} catch (Exception e) {
 			_log.info(e.getMessage());
@@ -131,8 +132,7 @@ public class MetaDataCache {
 
 		MetaDataCache metaDataCache = new MetaDataCache();
 		try {
-			Set<Integer> intIndex = new HashSet<Integer>(Arrays.asList(9, 10, 11, 14));
-			readMetaData(metaDataCache, session, importedKeysQuery.replace("${SCHEMA}", schema), intIndex, 6);
+			readMetaData(metaDataCache, session, importedKeysQuery.replace("${SCHEMA}", schema), Kind.IMPORTED_KEYS.intIndex, Kind.IMPORTED_KEYS.tableIndex);
 			return metaDataCache;
 		} catch (Exception e) {
 			_log.info(e.getMessage());
@@ -160,7 +160,7 @@ public class MetaDataCache {
 			} else {
 				rs = metaData.getColumns(null, schema, "%", "%");
 			}
-			Set<Integer> intIndex = new HashSet<Integer>(Arrays.asList(5, 7, 9, 10, 11, 14, 15, 16, 17, 22));
+			Set<Integer> intIndex = Kind.COLUMNS.intIndex;
 
 			metaDataCache.cache = new HashMap<String, List<Object[]>>();
 			ResultSetMetaData rsMetaData = rs.getMetaData();
@@ -207,7 +207,198 @@ public class MetaDataCache {
 		}
 	}
 
-	public ResultSet forTable(String tableName) {
+	/**
+	 * Whether nothing has been read.
+	 */
+	boolean isEmpty() {
+		return cache == null;
+	}
+
+	/**
+	 * Reads the meta data of some tables again and replaces the cached rows.<br>
+	 * Meta data that has been read with a DBMS specific query (see {@link #readPrimaryKeys(Session, String)} etc.)
+	 * is read again in full with the same query, because the query may return something different
+	 * from what JDBC returns (the index info query of Oracle, for instance, returns unique constraints only).
+	 * Other meta data is read again table by table via JDBC.
+	 * 
+	 * @param kind the kind of the cached meta data
+	 * @param session the session
+	 * @param metaData meta data of the session's connection
+	 * @param schema name of the schema
+	 * @param tables the tables
+	 */
+	synchronized void refresh(Kind kind, Session session, DatabaseMetaData metaData, String schema, Collection<String> tables) throws SQLException {
+		String query = null;
+		switch (kind) {
+		case PRIMARY_KEYS: query = session.dbms.getPrimaryKeysQuery(); break;
+		case IMPORTED_KEYS: query = session.dbms.getImportedKeysQuery(); break;
+		case INDEX_INFO: query = session.dbms.getIndexInfoQuery(); break;
+		default: break;
+		}
+		if (query != null) {
+			MetaDataCache metaDataCache = new MetaDataCache();
+			readMetaData(metaDataCache, session, query.replace("${SCHEMA}", schema), kind.intIndex, kind.tableIndex);
+			cache = metaDataCache.cache;
+			return;
+		}
+		boolean mySQL = DBMS.MySQL.equals(session.dbms);
+		String catalog = mySQL? schema : null;
+		String schemaPattern = mySQL? null : schema;
+		for (String table: tables) {
+			ResultSet rs;
+			switch (kind) {
+			case COLUMNS: rs = metaData.getColumns(catalog, schemaPattern, table, "%"); break;
+			case PRIMARY_KEYS: rs = metaData.getPrimaryKeys(catalog, schemaPattern, table); break;
+			case IMPORTED_KEYS: rs = metaData.getImportedKeys(catalog, schemaPattern, table); break;
+			case INDEX_INFO: rs = metaData.getIndexInfo(catalog, schemaPattern, table, true, true); break;
+			default: throw new IllegalArgumentException("unknown kind " + kind);
+			}
+			List<Object[]> rowList = new LinkedList<Object[]>();
+			for (Object[] row: readRows(rs, kind, session)) {
+				// table name patterns may match other tables too
+				if (table.equals(row[kind.tableIndex])) {
+					rowList.add(row);
+				}
+			}
+			cache.put(table, rowList);
+		}
+	}
+
+	/**
+	 * Reads a meta data result set into memory.
+	 * 
+	 * @param resultSet the result set, will be closed
+	 * @param kind the kind of meta data
+	 * @param session the session
+	 * @return result set that can be read independently of the connection
+	 */
+	static ResultSet memorize(ResultSet resultSet, Kind kind, Session session) throws SQLException {
+		if (resultSet instanceof MemorizedResultSet) {
+			return resultSet;
+		}
+		ResultSetMetaData rsMetaData = resultSet.getMetaData();
+		int numCol = rsMetaData.getColumnCount();
+		String[] names = new String[numCol];
+		int[] types = new int[numCol];
+		for (int i = 0; i < numCol; ++i) {
+			names[i] = rsMetaData.getColumnName(i + 1);
+			types[i] = rsMetaData.getColumnType(i + 1);
+		}
+		return new MemorizedResultSet(readRows(resultSet, kind, session), numCol, names, types);
+	}
+
+	/**
+	 * Reads the rows of a meta data result set.
+	 */
+	private static List<Object[]> readRows(ResultSet rs, Kind kind, Session session) throws SQLException {
+		List<Object[]> rowList = new ArrayList<Object[]>();
+		int numCol = rs.getMetaData().getColumnCount();
+		while (rs.next()) {
+			Object[] row = new Object[numCol];
+			for (int i = 1; i <= numCol; ++i) {
+				if (kind == Kind.COLUMNS && i >= 22 && DBMS.MSSQL.equals(session.dbms)) {
+					row[i - 1] = null;
+				} else if (kind.intIndex.contains(i)) {
+					row[i - 1] = rs.getInt(i);
+				} else {
+					row[i - 1] = rs.getString(i);
+				}
+			}
+			rowList.add(row);
+		}
+		rs.close();
+		return rowList;
+	}
+
+	/**
+	 * Removes the meta data of some tables.
+	 * 
+	 * @param tables the tables
+	 */
+	synchronized void remove(Collection<String> tables) {
+		for (String table: tables) {
+			cache.remove(table);
+		}
+	}
+
+	/**
+	 * Writes the cached rows.
+	 */
+	synchronized void write(DataOutput out) throws IOException {
+		if (resultSetMetaData == null) {
+			out.writeInt(-1);
+		} else {
+			try {
+				int numCol = resultSetMetaData.getColumnCount();
+				out.writeInt(numCol);
+				for (int i = 1; i <= numCol; ++i) {
+					MetaDataSnapshot.writeString(out, resultSetMetaData.getColumnName(i));
+					out.writeInt(resultSetMetaData.getColumnType(i));
+				}
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+		}
+		out.writeInt(cache.size());
+		for (Map.Entry<String, List<Object[]>> e: cache.entrySet()) {
+			MetaDataSnapshot.writeString(out, e.getKey());
+			out.writeInt(e.getValue().size());
+			for (Object[] row: e.getValue()) {
+				out.writeInt(row.length);
+				for (Object value: row) {
+					if (value instanceof Integer) {
+						out.writeByte(1);
+						out.writeInt((Integer) value);
+					} else if (value != null) {
+						out.writeByte(2);
+						MetaDataSnapshot.writeString(out, value.toString());
+					} else {
+						out.writeByte(0);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads cached rows written with {@link #write(DataOutput)}.
+	 */
+	static MetaDataCache read(DataInput in) throws IOException {
+		MetaDataCache metaDataCache = new MetaDataCache();
+		int numCol = in.readInt();
+		if (numCol >= 0) {
+			String[] names = new String[numCol];
+			int[] types = new int[numCol];
+			for (int i = 0; i < numCol; ++i) {
+				names[i] = MetaDataSnapshot.readString(in);
+				types[i] = in.readInt();
+			}
+			metaDataCache.resultSetMetaData = new MemorizedResultSetMetaData(numCol, names, types);
+		}
+		int numTables = in.readInt();
+		metaDataCache.cache = new HashMap<String, List<Object[]>>(numTables * 2);
+		for (int t = 0; t < numTables; ++t) {
+			String table = MetaDataSnapshot.readString(in);
+			int numRows = in.readInt();
+			List<Object[]> rowList = new LinkedList<Object[]>();
+			for (int r = 0; r < numRows; ++r) {
+				Object[] row = new Object[in.readInt()];
+				for (int i = 0; i < row.length; ++i) {
+					byte type = in.readByte();
+					if (type == 1) {
+						row[i] = in.readInt();
+					} else if (type == 2) {
+						row[i] = MetaDataSnapshot.readString(in);
+					}
+				}
+				rowList.add(row);
+			}
+			metaDataCache.cache.put(table, rowList);
+		}
+		return metaDataCache;
+	}
+
+	public synchronized ResultSet forTable(String tableName) {
 		if (cache == null) {
 			return null;
 		}
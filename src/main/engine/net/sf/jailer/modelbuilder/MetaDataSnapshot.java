@@ -0,0 +1,375 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.modelbuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import net.sf.jailer.configuration.Configuration;
+import net.sf.jailer.database.Session;
+
+/**
+ * Persistent snapshot of the meta data of a schema. <br>
+ * Keeps the meta data read by {@link MetaDataCache} in a file per connection URL, user and schema,
+ * so that new sessions don't have to read the catalog again.
+ * The snapshot is validated with the time of the last DDL of each table (see {@link net.sf.jailer.configuration.DBMS#getLastDDLQuery()}).
+ * The meta data of tables which have been changed since the snapshot was taken are read again,
+ * those of all other tables are reused. Snapshots are not used for DBMS without such a query.
+ *
+ * @author Ralf Wisser
+ */
+public class MetaDataSnapshot {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(MetaDataSnapshot.class);
+
+	/**
+	 * Version of the file format.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Maximum number of changed tables whose meta data are read individually.
+	 * If more tables have been changed, all meta data are read again.
+	 */
+	private static final int MAX_INCREMENTAL_REFRESH = 200;
+
+	private static final Charset UTF8 = Charset.forName("UTF8");
+
+	/**
+	 * Kind of meta data.
+	 */
+	public enum Kind {
+		COLUMNS(2, 5, 7, 9, 10, 11, 14, 15, 16, 17, 22),
+		PRIMARY_KEYS(2, 5),
+		IMPORTED_KEYS(6, 9, 10, 11, 14),
+		INDEX_INFO(2, 4);
+
+		/**
+		 * Index of the column containing the table name (0-based).
+		 */
+		final int tableIndex;
+
+		/**
+		 * Indexes of the columns containing integers (1-based).
+		 */
+		final Set<Integer> intIndex;
+
+		private Kind(int tableIndex, Integer... intIndex) {
+			this.tableIndex = tableIndex;
+			this.intIndex = new HashSet<Integer>(Arrays.asList(intIndex));
+		}
+	}
+
+	/**
+	 * Cached meta data of a kind along with the time of the last DDL of each table at the time the data were read.
+	 */
+	private static class Entry {
+		MetaDataCache metaDataCache;
+		Map<String, String> lastDDL;
+	}
+
+	/**
+	 * The snapshot file.
+	 */
+	private final File file;
+
+	/**
+	 * Identifies the connection and schema.
+	 */
+	private final String id;
+
+	/**
+	 * Time of the last DDL per table, read from the catalog when the snapshot was opened.
+	 */
+	private final Map<String, String> lastDDL;
+
+	/**
+	 * The cached meta data per kind (and variant).
+	 */
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file the snapshot file
+	 * @param id identifies the connection and schema
+	 * @param lastDDL time of the last DDL per table
+	 */
+	private MetaDataSnapshot(File file, String id, Map<String, String> lastDDL) {
+		this.file = file;
+		this.id = id;
+		this.lastDDL = lastDDL;
+	}
+
+	/**
+	 * Gets cached meta data. Reads the meta data if the snapshot doesn't contain them yet
+	 * and refreshes the meta data of the tables which have been changed.
+	 *
+	 * @param session the session
+	 * @param metaData meta data of the session's connection
+	 * @param schema the schema
+	 * @param kind kind of meta data
+	 * @param name identifies the meta data (kind, variant and schema)
+	 * @return the meta data
+	 */
+	public static MetaDataCache getMetaDataCache(Session session, DatabaseMetaData metaData, String schema, Kind kind, String name) {
+		MetaDataSnapshot snapshot = forSchema(session, schema);
+		if (snapshot == null) {
+			return read(session, metaData, schema, kind);
+		}
+		return snapshot.getCache(session, metaData, schema, kind, name);
+	}
+
+	/**
+	 * Opens the snapshot of a schema. The snapshot is opened once per session.
+	 *
+	 * @return the snapshot, or <code>null</code> if snapshots are not supported for the session
+	 */
+	private static synchronized MetaDataSnapshot forSchema(Session session, String schema) {
+		final String NAME = "MetaDataSnapshot " + schema;
+		Object snapshot = session.getSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME);
+		if (snapshot == null) {
+			snapshot = open(session, schema);
+			session.setSessionProperty(JDBCMetaDataBasedModelElementFinder.class, NAME, snapshot == null? Boolean.FALSE : snapshot);
+		}
+		return snapshot instanceof MetaDataSnapshot? (MetaDataSnapshot) snapshot : null;
+	}
+
+	private static MetaDataSnapshot open(Session session, String schema) {
+		String lastDDLQuery = session.dbms.getLastDDLQuery();
+		if (lastDDLQuery == null || session.dbUrl == null || schema == null) {
+			return null;
+		}
+		final Map<String, String> lastDDL = new HashMap<String, String>();
+		boolean wasSilent = session.getSilent();
+		session.setSilent(true);
+		try {
+			session.executeQuery(lastDDLQuery.replace("${SCHEMA}", schema), new Session.AbstractResultSetReader() {
+				@Override
+				public void readCurrentRow(ResultSet resultSet) throws SQLException {
+					lastDDL.put(resultSet.getString(1), String.valueOf(resultSet.getString(2)));
+				}
+			});
+		} catch (Exception e) {
+			_log.info("can't read time of last DDL: " + e.getMessage());
+			return null;
+		} finally {
+			session.setSilent(wasSilent);
+		}
+		String id = session.dbUrl + "\n" + session.getSchema() + "\n" + schema;
+		File file = new File(new File(Configuration.getInstance().getTempFileFolder(), "metadata"), hash(id) + ".mds");
+		MetaDataSnapshot snapshot = new MetaDataSnapshot(file, id, lastDDL);
+		if (file.exists()) {
+			try {
+				snapshot.load();
+			} catch (Exception e) {
+				_log.warn("can't read meta data snapshot '" + file + "': " + e.getMessage());
+				snapshot.entries.clear();
+			}
+		}
+		return snapshot;
+	}
+
+	private synchronized MetaDataCache getCache(Session session, DatabaseMetaData metaData, String schema, Kind kind, String key) {
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			List<String> changedTables = new ArrayList<String>();
+			for (Map.Entry<String, String> e: lastDDL.entrySet()) {
+				if (!e.getValue().equals(entry.lastDDL.get(e.getKey()))) {
+					changedTables.add(e.getKey());
+				}
+			}
+			List<String> droppedTables = new ArrayList<String>(entry.lastDDL.keySet());
+			droppedTables.removeAll(lastDDL.keySet());
+			if (changedTables.isEmpty() && droppedTables.isEmpty()) {
+				_log.info("using meta data snapshot (" + key + ")");
+				return entry.metaDataCache;
+			}
+			if (changedTables.size() <= MAX_INCREMENTAL_REFRESH) {
+				_log.info("refreshing meta data snapshot (" + key + "), " + changedTables.size() + " changed and " + droppedTables.size() + " dropped tables");
+				try {
+					entry.metaDataCache.refresh(kind, session, metaData, schema, changedTables);
+					entry.metaDataCache.remove(droppedTables);
+					entry.lastDDL = new HashMap<String, String>(lastDDL);
+					save();
+					return entry.metaDataCache;
+				} catch (SQLException e) {
+					_log.info("can't refresh meta data snapshot: " + e.getMessage());
+				}
+			}
+			entries.remove(key);
+		}
+		MetaDataCache metaDataCache = read(session, metaData, schema, kind);
+		if (metaDataCache.isEmpty()) {
+			return metaDataCache;
+		}
+		entry = new Entry();
+		entry.metaDataCache = metaDataCache;
+		entry.lastDDL = new HashMap<String, String>(lastDDL);
+		entries.put(key, entry);
+		save();
+		return metaDataCache;
+	}
+
+	/**
+	 * Reads all meta data of a kind.
+	 */
+	private static MetaDataCache read(Session session, DatabaseMetaData metaData, String schema, Kind kind) {
+		switch (kind) {
+		case COLUMNS: return MetaDataCache.readColumns(session, metaData, schema);
+		case PRIMARY_KEYS: return MetaDataCache.readPrimaryKeys(session, schema);
+		case IMPORTED_KEYS: return MetaDataCache.readImportedKeys(session, schema);
+		case INDEX_INFO: return MetaDataCache.readIndexInfo(session, schema);
+		}
+		throw new IllegalArgumentException("unknown kind " + kind);
+	}
+
+	/**
+	 * Saves the snapshot. Failures are logged only.
+	 * The snapshot is written into a temporary file of its own which then replaces the snapshot file.
+	 */
+	private void save() {
+		file.getParentFile().mkdirs();
+		File tmp = null;
+		try {
+			tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(VERSION);
+				writeString(out, id);
+				out.writeInt(entries.size());
+				for (Map.Entry<String, Entry> e: entries.entrySet()) {
+					writeString(out, e.getKey());
+					out.writeInt(e.getValue().lastDDL.size());
+					for (Map.Entry<String, String> t: e.getValue().lastDDL.entrySet()) {
+						writeString(out, t.getKey());
+						writeString(out, t.getValue());
+					}
+					e.getValue().metaDataCache.write(out);
+				}
+			} finally {
+				out.close();
+			}
+			if (file.exists() && !file.delete()) {
+				throw new IOException("can't replace file");
+			}
+			if (!tmp.renameTo(file)) {
+				throw new IOException("can't rename '" + tmp + "'");
+			}
+		} catch (IOException e) {
+			_log.warn("can't save meta data snapshot '" + file + "': " + e.getMessage());
+			if (tmp != null) {
+				tmp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Loads the snapshot.
+	 */
+	private void load() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+		try {
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("incompatible version " + version);
+			}
+			if (!id.equals(readString(in))) {
+				throw new IOException("snapshot belongs to another schema");
+			}
+			int numEntries = in.readInt();
+			for (int i = 0; i < numEntries; ++i) {
+				String key = readString(in);
+				Entry entry = new Entry();
+				int numTables = in.readInt();
+				entry.lastDDL = new HashMap<String, String>(numTables);
+				for (int t = 0; t < numTables; ++t) {
+					String table = readString(in);
+					entry.lastDDL.put(table, readString(in));
+				}
+				entry.metaDataCache = MetaDataCache.read(in);
+				entries.put(key, entry);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes a string (without the size limit of {@link DataOutput#writeUTF(String)}).
+	 */
+	static void writeString(DataOutput out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads a string written with {@link #writeString(DataOutput, String)}.
+	 */
+	static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static String hash(String s) {
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (byte b: MessageDigest.getInstance("MD5").digest(s.getBytes(UTF8))) {
+				sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.progress;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.jailer.datamodel.Association;
+import net.sf.jailer.datamodel.ModelElement;
+import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.util.CancellationException;
+import net.sf.jailer.util.Pair;
+
+/**
+ * Records timing and row-count metrics per association and table.<br>
+ * Collection jobs are measured via the {@link ProgressListener} events, statements
+ * executed by a {@link net.sf.jailer.database.Session} and bytes written into the export
+ * script are attributed to the job currently running in the calling thread.
+ *
+ * @author Ralf Wisser
+ */
+public class MetricsRegistry implements ProgressListener {
+
+	/**
+	 * Metrics of an association or table.
+	 */
+	public static class Metrics {
+		private final ModelElement modelElement;
+		private final AtomicLong jobs = new AtomicLong();
+		private final AtomicLong queueTime = new AtomicLong();
+		private final AtomicLong runTime = new AtomicLong();
+		private final AtomicLong collectedRows = new AtomicLong();
+		private final AtomicLong statements = new AtomicLong();
+		private final AtomicLong statementTime = new AtomicLong();
+		private final AtomicLong statementRows = new AtomicLong();
+		private final AtomicLong exportTime = new AtomicLong();
+		private final AtomicLong exportedRows = new AtomicLong();
+		private final AtomicLong bytesWritten = new AtomicLong();
+
+		private Metrics(ModelElement modelElement) {
+			this.modelElement = modelElement;
+		}
+
+		/**
+		 * Gets the association or table.
+		 */
+		public ModelElement getModelElement() {
+			return modelElement;
+		}
+
+		/**
+		 * Gets the number of collection jobs.
+		 */
+		public long getJobs() {
+			return jobs.get();
+		}
+
+		/**
+		 * Gets the total time (in milliseconds) the collection jobs have been waiting before they were started.
+		 */
+		public long getQueueTime() {
+			return toMillis(queueTime.get());
+		}
+
+		/**
+		 * Gets the total time (in milliseconds) spent executing collection jobs.
+		 */
+		public long getRunTime() {
+			return toMillis(runTime.get());
+		}
+
+		/**
+		 * Gets the number of collected rows.
+		 */
+		public long getCollectedRows() {
+			return collectedRows.get();
+		}
+
+		/**
+		 * Gets the number of executed statements.
+		 */
+		public long getStatements() {
+			return statements.get();
+		}
+
+		/**
+		 * Gets the total wall time (in milliseconds) of the executed statements.
+		 */
+		public long getStatementTime() {
+			return toMillis(statementTime.get());
+		}
+
+		/**
+		 * Gets the number of rows read or updated by the executed statements.
+		 */
+		public long getStatementRows() {
+			return statementRows.get();
+		}
+
+		/**
+		 * Gets the total time (in milliseconds) spent writing the rows of the table into the export script.
+		 */
+		public long getExportTime() {
+			return toMillis(exportTime.get());
+		}
+
+		/**
+		 * Gets the number of exported rows.
+		 */
+		public long getExportedRows() {
+			return exportedRows.get();
+		}
+
+		/**
+		 * Gets the number of bytes written into the export script (before compression).
+		 * Bytes are counted when the script writer flushes its buffer, so the assignment to the tables is approximate.
+		 */
+		public long getBytesWritten() {
+			return bytesWritten.get();
+		}
+
+		/**
+		 * Gets the type of the model element ("table" or "association").
+		 */
+		public String getType() {
+			return modelElement instanceof Association? "association" : "table";
+		}
+
+		/**
+		 * Gets the name of the model element.
+		 */
+		public String getName() {
+			if (modelElement instanceof Association) {
+				Association association = (Association) modelElement;
+				return association.source.getName() + " -> " + association.destination.getName() + " (" + association.getName() + ")";
+			}
+			return ((Table) modelElement).getName();
+		}
+	}
+
+	/**
+	 * Metrics per association or table.
+	 */
+	private final Map<ModelElement, Metrics> metrics = new LinkedHashMap<ModelElement, Metrics>();
+
+	/**
+	 * Point in time (nano-time) at which a collection job has been enqueued, per day and model element.
+	 */
+	private final Map<Pair<Integer, ModelElement>, Long> enqueueTime = new HashMap<Pair<Integer, ModelElement>, Long>();
+
+	/**
+	 * Metrics of the job running in the current thread.
+	 */
+	private static final ThreadLocal<Metrics> currentMetrics = new ThreadLocal<Metrics>();
+
+	/**
+	 * Point in time (nano-time) at which the job running in the current thread has been started.
+	 */
+	private static final ThreadLocal<Long> currentStartTime = new ThreadLocal<Long>();
+
+	/**
+	 * Gets the metrics of an association or table.
+	 *
+	 * @param modelElement the association or table
+	 * @return the metrics
+	 */
+	public synchronized Metrics getMetrics(ModelElement modelElement) {
+		Metrics m = metrics.get(modelElement);
+		if (m == null) {
+			m = new Metrics(modelElement);
+			metrics.put(modelElement, m);
+		}
+		return m;
+	}
+
+	/**
+	 * Gets the metrics of all associations and tables.
+	 *
+	 * @return the metrics in order of first appearance
+	 */
+	public synchronized List<Metrics> getAllMetrics() {
+		return new ArrayList<Metrics>(metrics.values());
+	}
+
+	/**
+	 * A statement has been executed in the current thread.
+	 *
+	 * @param elapsedTime wall time in nano seconds
+	 * @param rows number of rows read or updated
+	 */
+	public static void statementExecuted(long elapsedTime, long rows) {
+		Metrics m = currentMetrics.get();
+		if (m != null) {
+			m.statements.incrementAndGet();
+			m.statementTime.addAndGet(elapsedTime);
+			m.statementRows.addAndGet(Math.max(rows, 0));
+		}
+	}
+
+	/**
+	 * Bytes have been written into the export script in the current thread.
+	 *
+	 * @param bytes number of bytes
+	 */
+	public static void bytesWritten(long bytes) {
+		Metrics m = currentMetrics.get();
+		if (m != null) {
+			m.bytesWritten.addAndGet(bytes);
+		}
+	}
+
+	/**
+	 * Wraps an output stream such that the bytes written into it are attributed to the job running in the writing thread.
+	 *
+	 * @param stream the stream to wrap
+	 * @return stream counting the written bytes
+	 */
+	public static OutputStream countBytesWritten(OutputStream stream) {
+		return new FilterOutputStream(stream) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytesWritten(1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				bytesWritten(len);
+			}
+		};
+	}
+
+	/**
+	 * Writing the rows of a table into the export script has been started in the current thread.
+	 *
+	 * @param table the table
+	 */
+	public void exportStarted(Table table) {
+		currentMetrics.set(getMetrics(table));
+		currentStartTime.set(System.nanoTime());
+	}
+
+	/**
+	 * Writing the rows of a table into the export script has been finished in the current thread.
+	 *
+	 * @param table the table
+	 */
+	public void exportFinished(Table table) {
+		Long startTime = currentStartTime.get();
+		if (startTime != null) {
+			getMetrics(table).exportTime.addAndGet(System.nanoTime() - startTime);
+		}
+		currentMetrics.remove();
+		currentStartTime.remove();
+	}
+
+	@Override
+	public void collectionJobEnqueued(int day, ModelElement modelElement) {
+		synchronized (enqueueTime) {
+			enqueueTime.put(new Pair<Integer, ModelElement>(day, modelElement), System.nanoTime());
+		}
+	}
+
+	@Override
+	public void collectionJobStarted(int day, ModelElement modelElement) {
+		long now = System.nanoTime();
+		Long enqueued;
+		synchronized (enqueueTime) {
+			enqueued = enqueueTime.remove(new Pair<Integer, ModelElement>(day, modelElement));
+		}
+		Metrics m = getMetrics(modelElement);
+		if (enqueued != null) {
+			m.queueTime.addAndGet(now - enqueued);
+		}
+		currentMetrics.set(m);
+		currentStartTime.set(now);
+	}
+
+	@Override
+	public void collected(int day, ModelElement modelElement, long rc) {
+		Metrics m = getMetrics(modelElement);
+		Long startTime = currentStartTime.get();
+		if (startTime != null && currentMetrics.get() == m) {
+			m.runTime.addAndGet(System.nanoTime() - startTime);
+		}
+		m.jobs.incrementAndGet();
+		if (rc > 0) {
+			m.collectedRows.addAndGet(rc);
+		}
+		currentMetrics.remove();
+		currentStartTime.remove();
+	}
+
+	@Override
+	public void exported(Table table, long rc) {
+		if (rc > 0) {
+			getMetrics(table).exportedRows.addAndGet(rc);
+		}
+	}
+
+	@Override
+	public void explained(long rc) {
+	}
+
+	@Override
+	public void newStage(String stage, boolean isErrorStage, boolean isFinalStage) {
+	}
+
+	@Override
+	public void prepareExport() throws CancellationException {
+	}
+
+	/**
+	 * Writes the metrics into a file, as JSON if the file name ends with ".json", else as CSV.
+	 *
+	 * @param file the file
+	 */
+	public void write(File file) throws IOException {
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			if (file.getName().toLowerCase().endsWith(".json")) {
+				writeJSON(out);
+			} else {
+				writeCSV(out);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the metrics as CSV.
+	 *
+	 * @param out to write into
+	 */
+	public void writeCSV(Writer out) throws IOException {
+		out.write("type; name; jobs; queue time (ms); run time (ms); collected rows; statements; statement time (ms); statement rows; export time (ms); exported rows; bytes written\n");
+		for (Metrics m: getAllMetrics()) {
+			out.write(m.getType() + "; " + m.getName().replace(';', ',') + "; " + m.getJobs() + "; " + m.getQueueTime() + "; " + m.getRunTime() + "; " + m.getCollectedRows() + "; "
+					+ m.getStatements() + "; " + m.getStatementTime() + "; " + m.getStatementRows() + "; "
+					+ m.getExportTime() + "; " + m.getExportedRows() + "; " + m.getBytesWritten() + "\n");
+		}
+	}
+
+	/**
+	 * Writes the metrics as JSON.
+	 *
+	 * @param out to write into
+	 */
+	public void writeJSON(Writer out) throws IOException {
+		out.write("[");
+		boolean first = true;
+		for (Metrics m: getAllMetrics()) {
+			out.write(first? "\n" : ",\n");
+			first = false;
+			out.write("  {\"type\": \"" + m.getType() + "\", \"name\": \"" + jsonEscape(m.getName()) + "\""
+					+ ", \"jobs\": " + m.getJobs() + ", \"queueTimeMs\": " + m.getQueueTime() + ", \"runTimeMs\": " + m.getRunTime() + ", \"collectedRows\": " + m.getCollectedRows()
+					+ ", \"statements\": " + m.getStatements() + ", \"statementTimeMs\": " + m.getStatementTime() + ", \"statementRows\": " + m.getStatementRows()
+					+ ", \"exportTimeMs\": " + m.getExportTime() + ", \"exportedRows\": " + m.getExportedRows() + ", \"bytesWritten\": " + m.getBytesWritten() + "}");
+		}
+		out.write("\n]\n");
+	}
+
+	private static String jsonEscape(String s) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < s.length(); ++i) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+}
@@ -17,7 +17,10 @@ INSERT INTO ${schema}${config-dml-reference}${table-suffix}(jversion, jkey, jval
 ${create-table}${schema}JAILER_GRAPH${table-suffix}
 (
    id              INTEGER NOT NULL,
-   age             INTEGER NOT NULL
+   age             INTEGER NOT NULL,
+   checkpoint      INTEGER${constraint},
+   checkpoint_age  INTEGER${constraint},
+   checkpoint_key  VARCHAR(1000)${constraint}
       
 --   ,CONSTRAINT jlr_pk_graph PRIMARY KEY(id)
 ) ${create-table-suffix};
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.subsetting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+
+import net.sf.jailer.configuration.Configuration;
+import net.sf.jailer.datamodel.Association;
+import net.sf.jailer.datamodel.Table;
+
+/**
+ * Estimates the costs of the collection jobs.<br>
+ * The cost of resolving an association is the number of rows of the source table born the day before
+ * multiplied by the time per source row measured when resolving the association on previous days.
+ * Associations which have not been resolved yet are estimated with the time per row measured in previous
+ * extractions from the same database (see {@link #load(String)}) or else with the average time per row of all jobs.
+ *
+ * @author Ralf Wisser
+ */
+class CollectionCostModel {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(CollectionCostModel.class);
+
+	private static final int VERSION = 1;
+
+	/**
+	 * Time per job and time per source row (in nano seconds) assumed as long as no job has been measured.
+	 */
+	private static final double DEFAULT_JOB_COST = 10000000.0;
+	private static final double DEFAULT_ROW_COST = 10000.0;
+
+	/**
+	 * Number of collected rows per day and table.
+	 */
+	private final Map<Integer, Map<Table, Long>> collectedRows = new HashMap<Integer, Map<Table, Long>>();
+
+	/**
+	 * Measured time (in nano seconds) and number of source rows per association.
+	 */
+	private final Map<Association, long[]> history = new HashMap<Association, long[]>();
+
+	private long totalTime = 0;
+	private long totalRows = 0;
+
+	/**
+	 * Time (in nano seconds) and number of source rows per association measured in previous extractions.
+	 * Associations are identified by name and join condition.
+	 */
+	private final Map<String, long[]> previousHistory = new HashMap<String, long[]>();
+
+	/**
+	 * File holding the history of previous extractions, <code>null</code> if the history is not persisted.
+	 */
+	private File file;
+	private String id;
+
+	/**
+	 * Loads the history of previous extractions from the same database.
+	 * Failures are logged only.
+	 *
+	 * @param id identifies the database
+	 */
+	synchronized void load(String id) {
+		this.id = id;
+		file = new File(new File(Configuration.getInstance().getTempFileFolder(), "costs"), hash(id) + ".cch");
+		previousHistory.clear();
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt() != VERSION || !id.equals(in.readUTF())) {
+					return;
+				}
+				for (int n = in.readInt(); n > 0; --n) {
+					String key = in.readUTF();
+					long[] h = new long[] { in.readLong(), in.readLong() };
+					if (h[0] >= 0 && h[1] > 0) {
+						previousHistory.put(key, h);
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			_log.warn("can't read collection cost history '" + file + "': " + e.getMessage());
+			previousHistory.clear();
+		}
+	}
+
+	/**
+	 * Saves the history. Measurements of this extraction replace those of previous extractions.
+	 * Failures are logged only.
+	 */
+	synchronized void save() {
+		if (file == null) {
+			return;
+		}
+		Map<String, long[]> merged = new HashMap<String, long[]>(previousHistory);
+		for (Map.Entry<Association, long[]> e: history.entrySet()) {
+			merged.put(key(e.getKey()), e.getValue());
+		}
+		file.getParentFile().mkdirs();
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(VERSION);
+				out.writeUTF(id);
+				out.writeInt(merged.size());
+				for (Map.Entry<String, long[]> e: merged.entrySet()) {
+					out.writeUTF(e.getKey());
+					out.writeLong(e.getValue()[0]);
+					out.writeLong(e.getValue()[1]);
+				}
+			} finally {
+				out.close();
+			}
+			if (file.exists() && !file.delete()) {
+				throw new IOException("can't replace file");
+			}
+			if (!tmp.renameTo(file)) {
+				throw new IOException("can't rename '" + tmp + "'");
+			}
+		} catch (IOException e) {
+			_log.warn("can't save collection cost history '" + file + "': " + e.getMessage());
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Registers collected rows.
+	 *
+	 * @param table the table
+	 * @param day birthday of the rows
+	 * @param rc number of rows
+	 */
+	synchronized void rowsCollected(Table table, int day, long rc) {
+		if (rc <= 0) {
+			return;
+		}
+		Map<Table, Long> rowsOfDay = collectedRows.get(day);
+		if (rowsOfDay == null) {
+			rowsOfDay = new HashMap<Table, Long>();
+			collectedRows.put(day, rowsOfDay);
+		}
+		Long rows = rowsOfDay.get(table);
+		rowsOfDay.put(table, rows == null? rc : rows + rc);
+	}
+
+	/**
+	 * Registers the time needed to resolve an association.
+	 *
+	 * @param association the association
+	 * @param today birthday of the entities found
+	 * @param elapsedTime time (in nano seconds) the job needed
+	 */
+	synchronized void jobFinished(Association association, int today, long elapsedTime) {
+		long rows = Math.max(1, sourceRows(association, today));
+		long[] h = history.get(association);
+		if (h == null) {
+			h = new long[2];
+			history.put(association, h);
+		}
+		h[0] += elapsedTime;
+		h[1] += rows;
+		totalTime += elapsedTime;
+		totalRows += rows;
+	}
+
+	/**
+	 * Estimates the time needed to resolve an association.
+	 *
+	 * @param association the association
+	 * @param today birthday of the entities to be found
+	 * @return estimated time in nano seconds
+	 */
+	synchronized double estimate(Association association, int today) {
+		long rows = Math.max(1, sourceRows(association, today));
+		long[] h = history.get(association);
+		if (h != null) {
+			return h[0] / (double) h[1] * rows;
+		}
+		h = previousHistory.get(key(association));
+		if (h != null) {
+			return h[0] / (double) h[1] * rows;
+		}
+		if (totalRows > 0) {
+			return totalTime / (double) totalRows * rows;
+		}
+		return DEFAULT_JOB_COST + DEFAULT_ROW_COST * rows;
+	}
+
+	/**
+	 * Identifies an association across extractions.
+	 */
+	private static String key(Association association) {
+		return association.getName() + "\n" + association.getUnrestrictedJoinCondition();
+	}
+
+	private static String hash(String s) {
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (byte b: MessageDigest.getInstance("MD5").digest(s.getBytes("UTF-8"))) {
+				sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Gets the number of rows of the source table of an association born the day before.
+	 */
+	private long sourceRows(Association association, int today) {
+		Map<Table, Long> rowsOfDay = collectedRows.get(today - 1);
+		if (rowsOfDay != null) {
+			Long rows = rowsOfDay.get(association.source);
+			if (rows != null) {
+				return rows;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Predicts the time needed to execute jobs if each job is started by the next idle thread.
+	 *
+	 * @param costs the costs of the jobs in the order in which the jobs are started
+	 * @param threads number of threads
+	 * @return the predicted time
+	 */
+	static double makespan(List<Double> costs, int threads) {
+		PriorityQueue<Double> finishTimes = new PriorityQueue<Double>();
+		for (int i = 0; i < Math.max(1, threads); ++i) {
+			finishTimes.add(0.0);
+		}
+		double makespan = 0;
+		for (Double cost: costs) {
+			double finishTime = finishTimes.poll() + cost;
+			makespan = Math.max(makespan, finishTime);
+			finishTimes.add(finishTime);
+		}
+		return makespan;
+	}
+
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.subsetting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+import net.sf.jailer.database.StatementBuilder;
+import net.sf.jailer.util.PrintUtil;
+
+/**
+ * Snapshot of the rows exported by an incremental export. <br>
+ * Holds the primary key and a fingerprint (the value of the table's change indicator column
+ * or a hash of the row's content) of each exported row. Compared with the snapshot of the previous run,
+ * only rows which entered or changed are written into the script, and the rows which left
+ * the subset are deleted. <br>
+ * The round in which a row has been written is recorded too, so that the rows which left the subset
+ * can be deleted round by round in reverse order. <br>
+ * The snapshot of an export is saved as pending snapshot first. It replaces the snapshot of the previous run
+ * only when it is committed after the script has been imported successfully (see {@link #commit(File)}),
+ * so that the next export still computes the delta against the rows actually imported if the import fails.
+ *
+ * @author Ralf Wisser
+ */
+public class ExportSnapshot {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(ExportSnapshot.class);
+
+	/**
+	 * Version of the file format.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Separates the primary key values within a key.
+	 */
+	private static final char KEY_SEPARATOR = '\u0000';
+
+	/**
+	 * State of an exported row compared with the previous run.
+	 */
+	public enum RowState {
+		/**
+		 * The row was not exported in the previous run.
+		 */
+		NEW,
+		/**
+		 * The row was exported in the previous run, but has changed since then.
+		 */
+		CHANGED,
+		/**
+		 * The row was exported unchanged in the previous run.
+		 */
+		UNCHANGED
+	}
+
+	/**
+	 * An exported row.
+	 */
+	private static class Row {
+		final String fingerprint;
+		final int round;
+
+		Row(String fingerprint, int round) {
+			this.fingerprint = fingerprint;
+			this.round = round;
+		}
+	}
+
+	/**
+	 * Rows of a table.
+	 */
+	public class TableSnapshot {
+		private final String tableName;
+		private final List<String> primaryKeyColumns;
+		private final Map<String, Row> rows = new LinkedHashMap<String, Row>();
+		private Map<String, Row> previousRows = new HashMap<String, Row>();
+		private long newRows = 0;
+		private long changedRows = 0;
+		private long unchangedRows = 0;
+
+		private TableSnapshot(String tableName, List<String> primaryKeyColumns) {
+			this.tableName = tableName;
+			this.primaryKeyColumns = primaryKeyColumns;
+		}
+
+		/**
+		 * Records an exported row and compares it with the previous run.
+		 *
+		 * @param primaryKey the primary key values (as SQL literals, in the order of the primary key columns)
+		 * @param fingerprint the fingerprint of the row
+		 * @return state of the row
+		 */
+		public synchronized RowState put(String[] primaryKey, String fingerprint) {
+			String key = toKey(primaryKey);
+			rows.put(key, new Row(fingerprint, round));
+			Row previousRow = previousRows.remove(key);
+			if (previousRow == null) {
+				++newRows;
+				return RowState.NEW;
+			}
+			if (previousRow.fingerprint.equals(fingerprint)) {
+				++unchangedRows;
+				return RowState.UNCHANGED;
+			}
+			++changedRows;
+			return RowState.CHANGED;
+		}
+
+		/**
+		 * Gets the primary key columns.
+		 */
+		public List<String> getPrimaryKeyColumns() {
+			return primaryKeyColumns;
+		}
+	}
+
+	/**
+	 * The snapshot file.
+	 */
+	private final File file;
+
+	/**
+	 * Rows exported in this run, per table in the order in which the tables are written.
+	 */
+	private final Map<String, TableSnapshot> tables = new LinkedHashMap<String, TableSnapshot>();
+
+	/**
+	 * Rows exported in the previous run, per table in the order in which the tables were written.
+	 */
+	private final Map<String, TableSnapshot> previousTables = new LinkedHashMap<String, TableSnapshot>();
+
+	/**
+	 * The current round.
+	 */
+	private volatile int round = 0;
+
+	/**
+	 * Constructor. Reads the snapshot of the previous run, if any.
+	 *
+	 * @param file the snapshot file
+	 */
+	public ExportSnapshot(File file) throws IOException {
+		this.file = file;
+		if (getPendingFile(file).exists()) {
+			_log.info("pending snapshot '" + getPendingFile(file) + "' has not been committed, the script of the previous export has not been imported");
+		}
+		if (file.exists()) {
+			load();
+		} else {
+			_log.info("no snapshot file '" + file + "', exporting all rows");
+		}
+	}
+
+	/**
+	 * Gets the rows of a table.
+	 *
+	 * @param tableName the qualified name of the table (as it appears in the script)
+	 * @param primaryKeyColumns the primary key columns (as they appear in the script)
+	 * @return the rows of the table
+	 */
+	public synchronized TableSnapshot getTableSnapshot(String tableName, List<String> primaryKeyColumns) {
+		TableSnapshot tableSnapshot = tables.get(tableName);
+		if (tableSnapshot == null) {
+			tableSnapshot = new TableSnapshot(tableName, new ArrayList<String>(primaryKeyColumns));
+			TableSnapshot previous = previousTables.get(tableName);
+			if (previous != null && previous.primaryKeyColumns.equals(tableSnapshot.primaryKeyColumns)) {
+				tableSnapshot.previousRows = previous.rows;
+			}
+			tables.put(tableName, tableSnapshot);
+		}
+		return tableSnapshot;
+	}
+
+	/**
+	 * Starts the next round. The rows of a round don't depend on the rows of later rounds.
+	 */
+	public void nextRound() {
+		++round;
+	}
+
+	/**
+	 * Writes the statements which delete the rows which have been exported in the previous run, but not in this one.
+	 * The rows are deleted round by round in reverse order of the previous export, so that dependent rows are deleted first.
+	 * Within a round, the tables are processed in reverse order of the previous export.
+	 *
+	 * @param out the script
+	 * @param maxBodySize maximum number of rows per statement
+	 * @return number of deleted rows
+	 */
+	public synchronized long writeDeletions(Writer out, int maxBodySize) throws IOException {
+		List<TableSnapshot> previous = new ArrayList<TableSnapshot>(previousTables.values());
+		TreeMap<Integer, Map<TableSnapshot, List<String>>> leftRowsPerRound = new TreeMap<Integer, Map<TableSnapshot, List<String>>>();
+		for (int i = previous.size() - 1; i >= 0; --i) {
+			TableSnapshot previousTable = previous.get(i);
+			TableSnapshot table = tables.get(previousTable.tableName);
+			if (table != null && table.previousRows != previousTable.rows) {
+				_log.warn("primary key of " + previousTable.tableName + " has changed, rows are not deleted");
+				continue;
+			}
+			Map<String, Row> leftRows = table == null? previousTable.rows : table.previousRows;
+			for (Map.Entry<String, Row> e: leftRows.entrySet()) {
+				Map<TableSnapshot, List<String>> leftRowsPerTable = leftRowsPerRound.get(e.getValue().round);
+				if (leftRowsPerTable == null) {
+					leftRowsPerTable = new LinkedHashMap<TableSnapshot, List<String>>();
+					leftRowsPerRound.put(e.getValue().round, leftRowsPerTable);
+				}
+				List<String> keys = leftRowsPerTable.get(previousTable);
+				if (keys == null) {
+					keys = new ArrayList<String>();
+					leftRowsPerTable.put(previousTable, keys);
+				}
+				keys.add(e.getKey());
+			}
+		}
+		long count = 0;
+		for (Map<TableSnapshot, List<String>> leftRowsPerTable: leftRowsPerRound.descendingMap().values()) {
+			for (Map.Entry<TableSnapshot, List<String>> e: leftRowsPerTable.entrySet()) {
+				TableSnapshot previousTable = e.getKey();
+				StatementBuilder deleteStatementBuilder = new StatementBuilder(maxBodySize);
+				String deleteHead = "Delete from " + previousTable.tableName + " Where (";
+				for (String key: e.getValue()) {
+					String[] values = fromKey(key);
+					StringBuilder item = new StringBuilder();
+					for (int c = 0; c < values.length; ++c) {
+						if (c > 0) {
+							item.append(" and ");
+						}
+						item.append(previousTable.primaryKeyColumns.get(c) + "=" + values[c]);
+					}
+					if (!deleteStatementBuilder.isAppendable(deleteHead, item.toString())) {
+						out.write(deleteStatementBuilder.build());
+					}
+					deleteStatementBuilder.append(deleteHead, item.toString(), ") or (", ");" + PrintUtil.LINE_SEPARATOR);
+					++count;
+				}
+				out.write(deleteStatementBuilder.build());
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Logs the number of new, changed and unchanged rows per table.
+	 */
+	public synchronized void logStatistic() {
+		for (TableSnapshot table: tables.values()) {
+			_log.info(table.tableName + ": " + table.newRows + " new, " + table.changedRows + " changed, " + table.unchangedRows + " unchanged rows");
+		}
+	}
+
+	/**
+	 * Saves the rows exported in this run as pending snapshot, replacing any pending snapshot of a previous run.
+	 * The snapshot of the previous run is kept until the pending snapshot is committed.
+	 */
+	public synchronized void save() throws IOException {
+		File pending = getPendingFile(file);
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))));
+		try {
+			out.writeInt(VERSION);
+			out.writeInt(tables.size());
+			for (TableSnapshot table: tables.values()) {
+				out.writeUTF(table.tableName);
+				out.writeInt(table.primaryKeyColumns.size());
+				for (String column: table.primaryKeyColumns) {
+					out.writeUTF(column);
+				}
+				out.writeInt(table.rows.size());
+				for (Map.Entry<String, Row> row: table.rows.entrySet()) {
+					out.writeUTF(row.getKey());
+					out.writeUTF(row.getValue().fingerprint);
+					out.writeInt(row.getValue().round);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		replace(tmp, pending);
+	}
+
+	/**
+	 * Commits the pending snapshot after the script of the export has been imported successfully.
+	 * The pending snapshot replaces the snapshot of the previous run.
+	 *
+	 * @param file the snapshot file
+	 * @return <code>false</code> if there is no pending snapshot
+	 */
+	public static boolean commit(File file) throws IOException {
+		File pending = getPendingFile(file);
+		if (!pending.exists()) {
+			return false;
+		}
+		replace(pending, file);
+		_log.info("committed snapshot '" + file + "'");
+		return true;
+	}
+
+	/**
+	 * Gets the file holding the pending snapshot.
+	 *
+	 * @param file the snapshot file
+	 * @return the file holding the snapshot of the last export until it is committed
+	 */
+	public static File getPendingFile(File file) {
+		return new File(file.getPath() + ".pending");
+	}
+
+	/**
+	 * Replaces a file by another one.
+	 */
+	private static void replace(File source, File target) throws IOException {
+		if (target.exists() && !target.delete()) {
+			throw new IOException("can't replace snapshot file '" + target + "'");
+		}
+		if (!source.renameTo(target)) {
+			throw new IOException("can't rename '" + source + "' to '" + target + "'");
+		}
+	}
+
+	/**
+	 * Reads the snapshot of the previous run.
+	 */
+	private void load() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+		try {
+			int version = in.readInt();
+			if (version != VERSION && version != 1) {
+				throw new IOException("snapshot file '" + file + "' has incompatible version " + version);
+			}
+			int numTables = in.readInt();
+			for (int t = 0; t < numTables; ++t) {
+				String tableName = in.readUTF();
+				int numColumns = in.readInt();
+				List<String> primaryKeyColumns = new ArrayList<String>(numColumns);
+				for (int c = 0; c < numColumns; ++c) {
+					primaryKeyColumns.add(in.readUTF());
+				}
+				TableSnapshot table = new TableSnapshot(tableName, primaryKeyColumns);
+				int numRows = in.readInt();
+				for (int r = 0; r < numRows; ++r) {
+					String key = in.readUTF();
+					String fingerprint = in.readUTF();
+					// version 1 has no rounds, the tables are taken as rounds
+					table.rows.put(key, new Row(fingerprint, version == 1? t : in.readInt()));
+				}
+				previousTables.put(tableName, table);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of a row from the content of its columns.
+	 *
+	 * @param values the values of the row (as SQL literals)
+	 * @return the fingerprint
+	 */
+	public static String hash(List<String> values) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			Charset utf8 = Charset.forName("UTF8");
+			for (String value: values) {
+				digest.update(value.getBytes(utf8));
+				digest.update((byte) 0);
+			}
+			StringBuilder sb = new StringBuilder();
+			for (byte b: digest.digest()) {
+				sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toKey(String[] primaryKey) {
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < primaryKey.length; ++i) {
+			if (i > 0) {
+				key.append(KEY_SEPARATOR);
+			}
+			key.append(primaryKey[i]);
+		}
+		return key.toString();
+	}
+
+	private static String[] fromKey(String key) {
+		return key.split(String.valueOf(KEY_SEPARATOR), -1);
+	}
+
+}
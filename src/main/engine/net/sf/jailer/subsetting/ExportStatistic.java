@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.progress.MetricsRegistry;
 
 /**
  * Provides statistical information about the export process.
@@ -29,6 +30,7 @@ public class ExportStatistic {
 
 	private Map<Table, Long> exportedRows = new HashMap<Table, Long>();
 	private long total;
+	private MetricsRegistry metrics;
 
 	/**
 	 * Gets number of exported rows per table.
@@ -66,4 +68,22 @@ public class ExportStatistic {
 		this.total = total;
 	}
 	
+	/**
+	 * Gets timing and row-count metrics per association and table.
+	 * 
+	 * @return the metrics
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets timing and row-count metrics per association and table.
+	 * 
+	 * @param metrics the metrics
+	 */
+	public void setMetrics(MetricsRegistry metrics) {
+		this.metrics = metrics;
+	}
+	
 }
@@ -43,7 +43,12 @@ public enum ScriptFormat {
 	/**
 	 * Template based XML.
 	 */
-	XML("XML", "XML Export", ".xml");
+	XML("XML", "XML Export", ".xml"),
+
+	/**
+	 * Binary columnar format (see {@link net.sf.jailer.binary.BinaryFormat}).
+	 */
+	BINARY("Binary", "Binary Export", ".jbin");
 
 	/**
 	 * Constructor.
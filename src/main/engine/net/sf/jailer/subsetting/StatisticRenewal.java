@@ -0,0 +1,249 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.subsetting;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import net.sf.jailer.ExecutionContext;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.database.SqlScriptBasedStatisticRenovator;
+import net.sf.jailer.entitygraph.EntityGraph;
+import net.sf.jailer.entitygraph.inmemory.InMemoryEntityGraph;
+
+/**
+ * Renews the DB table statistics for the working-tables while rows are collected.<br>
+ * The statistics are renewed if the number of collected rows has doubled since the last renewal,
+ * or earlier if the number of rows has grown and the average latency of the collection jobs of the current day
+ * has degraded compared to the latency measured right after the last renewal.
+ * Only the working-tables which have been changed since the last renewal are analyzed.<br>
+ * Except for the initial renewal, statistics are renewed in a background thread, so that the collection jobs don't have to wait.
+ * The latency of the jobs before and after each renewal is logged.
+ *
+ * @author Ralf Wisser
+ */
+class StatisticRenewal {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(StatisticRenewal.class);
+
+	/**
+	 * Minimum number of collected rows for renewals (except the initial one).
+	 */
+	private static final long MIN_ROWCOUNT = 1000;
+
+	/**
+	 * Minimum growth of the number of collected rows for a renewal due to degraded latency.
+	 */
+	private static final double MIN_GROWTH = 1.25;
+
+	/**
+	 * Factor by which the latency must have degraded.
+	 */
+	private static final double LATENCY_DEGRADATION = 2.0;
+
+	/**
+	 * Number of jobs needed to measure the average latency.
+	 */
+	private static final int MIN_JOBS = 4;
+
+	private final ExecutionContext executionContext;
+
+	/**
+	 * Working-tables changed since the last renewal.
+	 */
+	private final Set<String> changedTables = new HashSet<String>();
+
+	private boolean initialized = false;
+	private long lastRenewalRowcount = 0;
+	private String lastRenewalReason;
+	private double latencyBeforeLastRenewal = -1;
+
+	/**
+	 * Latency of the first jobs after the last renewal (in nano seconds).
+	 */
+	private long baselineLatency = 0;
+	private int baselineJobs = 0;
+
+	/**
+	 * Latency of the jobs of the current day (in nano seconds), without the jobs measured for the baseline.
+	 */
+	private int currentDay = -1;
+	private long currentLatency = 0;
+	private int currentJobs = 0;
+
+	/**
+	 * Thread running the current renewal, <code>null</code> if no renewal is running.
+	 */
+	private Thread renewalThread;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param executionContext the execution context
+	 */
+	StatisticRenewal(ExecutionContext executionContext) {
+		this.executionContext = executionContext;
+	}
+
+	/**
+	 * Marks a working-table as changed.
+	 *
+	 * @param workingTable name of the working-table ("JAILER_ENTITY", "JAILER_DEPENDENCY", ...)
+	 */
+	synchronized void tableChanged(String workingTable) {
+		changedTables.add(workingTable);
+	}
+
+	/**
+	 * A collection job has been finished. Renews the statistics if necessary.
+	 *
+	 * @param entityGraph the entity graph
+	 * @param day the day of the job
+	 * @param elapsedTime time (in nano seconds) the job needed
+	 */
+	void jobFinished(EntityGraph entityGraph, int day, long elapsedTime) {
+		synchronized (this) {
+			changedTables.add(EntityGraph.ENTITY);
+			if (renewalThread == null) {
+				if (baselineJobs < MIN_JOBS) {
+					baselineLatency += elapsedTime;
+					++baselineJobs;
+					if (baselineJobs == MIN_JOBS && lastRenewalReason != null && latencyBeforeLastRenewal >= 0) {
+						_log.info("statistics renewed after " + lastRenewalRowcount + " rows (" + lastRenewalReason + "), average job latency: "
+								+ toMillis(latencyBeforeLastRenewal) + " ms before, " + toMillis(baselineLatency / (double) baselineJobs) + " ms after renewal");
+					}
+				} else {
+					if (day != currentDay) {
+						currentDay = day;
+						currentLatency = 0;
+						currentJobs = 0;
+					}
+					currentLatency += elapsedTime;
+					++currentJobs;
+				}
+			}
+		}
+		renewIfNeeded(entityGraph);
+	}
+
+	/**
+	 * Renews the statistics if necessary.
+	 *
+	 * @param entityGraph the entity graph
+	 */
+	void renewIfNeeded(EntityGraph entityGraph) {
+		if (entityGraph == null || entityGraph instanceof InMemoryEntityGraph) {
+			return;
+		}
+		final Session session = entityGraph.getSession();
+		final SqlScriptBasedStatisticRenovator statisticRenovator = session.dbms.getStatisticRenovator();
+		if (statisticRenovator == null) {
+			return;
+		}
+		long rowcount = entityGraph.getTotalRowcount();
+		final Set<String> tables;
+		final boolean initial;
+		Thread thread = null;
+		synchronized (this) {
+			if (renewalThread != null) {
+				return;
+			}
+			String reason;
+			initial = !initialized;
+			if (initial) {
+				reason = "initial";
+			} else if (rowcount > MIN_ROWCOUNT && rowcount >= lastRenewalRowcount * 2) {
+				reason = "number of rows doubled";
+			} else if (rowcount > MIN_ROWCOUNT && rowcount >= lastRenewalRowcount * MIN_GROWTH
+					&& baselineJobs >= MIN_JOBS && currentJobs >= MIN_JOBS
+					&& currentLatency / (double) currentJobs > LATENCY_DEGRADATION * baselineLatency / baselineJobs) {
+				reason = "job latency degraded";
+			} else {
+				return;
+			}
+			initialized = true;
+			lastRenewalRowcount = rowcount;
+			lastRenewalReason = reason;
+			latencyBeforeLastRenewal = currentJobs > 0? currentLatency / (double) currentJobs : baselineJobs > 0? baselineLatency / (double) baselineJobs : -1;
+			tables = initial? null : new HashSet<String>(changedTables);
+			changedTables.clear();
+			_log.info("gather statistics after " + rowcount + " inserted rows (" + reason + ")" + (tables == null? "" : " for " + tables) + "...");
+			if (!initial) {
+				thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						renew(session, statisticRenovator, tables);
+					}
+				}, "statistic-renewal");
+				thread.setDaemon(true);
+				renewalThread = thread;
+			}
+		}
+		if (thread != null) {
+			thread.start();
+		} else {
+			renew(session, statisticRenovator, tables);
+		}
+	}
+
+	/**
+	 * Renews the statistics and resets the latency measurement.
+	 */
+	private void renew(Session session, SqlScriptBasedStatisticRenovator statisticRenovator, Set<String> tables) {
+		try {
+			statisticRenovator.renew(session, executionContext, tables);
+		} catch (Throwable t) {
+			_log.warn("unable to update table statistics: " + t.getMessage());
+		} finally {
+			synchronized (this) {
+				renewalThread = null;
+				baselineLatency = 0;
+				baselineJobs = 0;
+				currentDay = -1;
+				currentLatency = 0;
+				currentJobs = 0;
+			}
+		}
+	}
+
+	/**
+	 * Waits until the current renewal (if any) is finished.
+	 */
+	void waitForRenewal() {
+		Thread thread;
+		synchronized (this) {
+			thread = renewalThread;
+		}
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static long toMillis(double nanos) {
+		return TimeUnit.NANOSECONDS.toMillis((long) nanos);
+	}
+
+}
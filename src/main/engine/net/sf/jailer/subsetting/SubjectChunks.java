@@ -0,0 +1,127 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.subsetting;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import net.sf.jailer.database.Session;
+import net.sf.jailer.datamodel.Column;
+import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.util.CellContentConverter;
+import net.sf.jailer.util.Quoting;
+
+/**
+ * Partitions the subject rows into chunks of a limited number of rows
+ * by ranges of the first primary key column.
+ *
+ * @author Ralf Wisser
+ */
+class SubjectChunks {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger _log = Logger.getLogger(SubjectChunks.class);
+
+	/**
+	 * A chunk of subject rows.
+	 */
+	static class Chunk {
+
+		/**
+		 * Condition (with alias "T") selecting the rows of the chunk.
+		 */
+		final String condition;
+
+		/**
+		 * SQL literal of the (exclusive) upper bound of the first primary key column, <code>null</code> for the last chunk.
+		 * The next chunk starts with it.
+		 */
+		final String upperBound;
+
+		Chunk(String condition, String upperBound) {
+			this.condition = condition;
+			this.upperBound = upperBound;
+		}
+	}
+
+	/**
+	 * Creates the chunks. <br>
+	 * The boundaries are computed from the current content of the subject table.
+	 * When a collection is resumed, the chunks are created for the rows following the upper bound
+	 * of the last completed chunk, so that no rows are skipped even if the subject rows have changed in the meantime.
+	 *
+	 * @param subject the subject table
+	 * @param condition the subject condition (with alias "T"), empty for all rows
+	 * @param chunkSize maximum number of rows per chunk
+	 * @param lowerBound SQL literal of the (inclusive) lower bound of the first primary key column, <code>null</code> to start with the first row
+	 * @param session for executing SQL-Statements
+	 * @return the chunks in the order of the ranges, at least one
+	 */
+	static List<Chunk> create(Table subject, String condition, final int chunkSize, String lowerBound, final Session session) throws SQLException {
+		final List<Chunk> chunks = new ArrayList<Chunk>();
+		if (subject.primaryKey == null || subject.primaryKey.getColumns().isEmpty()) {
+			_log.warn("table " + subject.getName() + " has no primary key, subject rows are collected at once");
+			chunks.add(new Chunk("1=1", null));
+			return chunks;
+		}
+		Quoting quoting = new Quoting(session);
+		Column column = subject.primaryKey.getColumns().get(0);
+		final String keyColumn = "T." + quoting.requote(column.name);
+		final List<String> boundaries = new ArrayList<String>();
+		if (lowerBound != null) {
+			String lowerBoundCondition = keyColumn + ">=" + lowerBound;
+			condition = condition.trim().length() > 0? "(" + condition + ") and " + lowerBoundCondition : lowerBoundCondition;
+		}
+		String query = "Select " + keyColumn + " From " + quoting.requote(subject.getName()) + " T" +
+				(condition.trim().length() > 0? " Where (" + condition + ")" : "") +
+				" Order by " + keyColumn;
+		session.executeQuery(query, new Session.AbstractResultSetReader() {
+			private long rowNumber = 0;
+			private String lastBoundary = null;
+			private CellContentConverter cellContentConverter;
+
+			@Override
+			public void readCurrentRow(ResultSet resultSet) throws SQLException {
+				// the first row of each chunk but the first one is a boundary
+				if (++rowNumber > chunkSize && (rowNumber - 1) % chunkSize == 0) {
+					if (cellContentConverter == null) {
+						cellContentConverter = new CellContentConverter(getMetaData(resultSet), session, session.dbms);
+					}
+					String boundary = cellContentConverter.toSql(cellContentConverter.getObject(resultSet, 1));
+					// rows with equal key prefix stay in the same chunk
+					if (!boundary.equals(lastBoundary)) {
+						boundaries.add(boundary);
+						lastBoundary = boundary;
+					}
+				}
+			}
+		});
+		String lower = lowerBound;
+		for (String upper: boundaries) {
+			chunks.add(new Chunk((lower == null? "" : keyColumn + ">=" + lower + " and ") + keyColumn + "<" + upper, upper));
+			lower = upper;
+		}
+		chunks.add(new Chunk(lower == null? "1=1" : keyColumn + ">=" + lower, null));
+		return chunks;
+	}
+
+}
@@ -15,6 +15,7 @@
  */
 package net.sf.jailer.subsetting;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -55,13 +56,15 @@ import org.xml.sax.helpers.AttributesImpl;
 
 import net.sf.jailer.ExecutionContext;
 import net.sf.jailer.JailerVersion;
+import net.sf.jailer.binary.BinaryScriptWriter;
+import net.sf.jailer.binary.BinaryTransformer;
 import net.sf.jailer.configuration.Configuration;
 import net.sf.jailer.configuration.DBMS;
+import net.sf.jailer.database.ConnectionPool;
 import net.sf.jailer.database.DMLTransformer;
 import net.sf.jailer.database.DeletionTransformer;
 import net.sf.jailer.database.PrimaryKeyValidator;
 import net.sf.jailer.database.Session;
-import net.sf.jailer.database.StatisticRenovator;
 import net.sf.jailer.database.WorkingTableScope;
 import net.sf.jailer.datamodel.AggregationSchema;
 import net.sf.jailer.datamodel.Association;
@@ -76,6 +79,7 @@ import net.sf.jailer.dbunit.FlatXMLTransformer;
 import net.sf.jailer.ddl.DDLCreator;
 import net.sf.jailer.enhancer.ScriptEnhancer;
 import net.sf.jailer.entitygraph.EntityGraph;
+import net.sf.jailer.entitygraph.inmemory.InMemoryEntityGraph;
 import net.sf.jailer.entitygraph.intradatabase.IntraDatabaseEntityGraph;
 import net.sf.jailer.entitygraph.local.LocalEntityGraph;
 import net.sf.jailer.entitygraph.remote.RemoteEntityGraph;
@@ -83,14 +87,17 @@ import net.sf.jailer.extractionmodel.ExtractionModel;
 import net.sf.jailer.extractionmodel.ExtractionModel.AdditionalSubject;
 import net.sf.jailer.importfilter.ImportFilterManager;
 import net.sf.jailer.liquibase.LiquibaseXMLTransformer;
+import net.sf.jailer.progress.MetricsRegistry;
 import net.sf.jailer.progress.ProgressListener;
 import net.sf.jailer.util.CancellationException;
 import net.sf.jailer.util.CancellationHandler;
 import net.sf.jailer.util.CycleFinder;
 import net.sf.jailer.util.JobManager;
 import net.sf.jailer.util.JobManager.Job;
+import net.sf.jailer.util.ParallelGZIPOutputStream;
 import net.sf.jailer.util.PrintUtil;
 import net.sf.jailer.util.Quoting;
+import net.sf.jailer.util.SqlUtil;
 import net.sf.jailer.xml.XmlExportTransformer;
 import net.sf.jailer.xml.XmlUtil;
 
@@ -107,10 +114,31 @@ public class SubsettingEngine {
 	 * @param executionContext the command line arguments
 	 */
 	public SubsettingEngine(ExecutionContext executionContext) {
+		this(executionContext, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param executionContext the command line arguments
+	 * @param sharedJobManager job manager shared with other engines (not shut down by this engine), 
+	 *        <code>null</code> to create a job manager for this engine
+	 */
+	public SubsettingEngine(ExecutionContext executionContext, JobManager sharedJobManager) {
 		this.executionContext = executionContext;
 		this.collectedRowsCounter = new CollectedRowsCounter();
 		this.executionContext.getProgressListenerRegistry().addProgressListener(collectedRowsCounter);
-		jobManager = new JobManager(executionContext.getNumberOfThreads());
+		this.metricsRegistry = new MetricsRegistry();
+		this.executionContext.getProgressListenerRegistry().addProgressListener(metricsRegistry);
+		if (sharedJobManager != null) {
+			jobManager = sharedJobManager;
+			ownsJobManager = false;
+		} else {
+			jobManager = new JobManager(executionContext.getNumberOfThreads());
+			ownsJobManager = true;
+		}
+		this.statisticRenewal = new StatisticRenewal(executionContext);
+		this.collectionCostModel = new CollectionCostModel();
 	}
 
 	/**
@@ -130,11 +158,51 @@ public class SubsettingEngine {
 	
 	private final CollectedRowsCounter collectedRowsCounter;
 	
+	/**
+	 * Timing and row-count metrics per association and table.
+	 */
+	private final MetricsRegistry metricsRegistry;
+	
 	/**
 	 * The job-manager to be used for concurrent execution of jobs.
 	 */
 	private final JobManager jobManager;
 
+	/**
+	 * Whether the job manager has been created by this engine (and must be shut down by it).
+	 */
+	private final boolean ownsJobManager;
+
+	/**
+	 * If <code>true</code>, the working tables are known to be up-to-date and are not checked.
+	 */
+	private boolean workingTablesUptodate = false;
+
+	/**
+	 * Declares the working tables as up-to-date (for {@link WorkingTableScope#GLOBAL}),
+	 * so that they are not checked again.
+	 * 
+	 * @param workingTablesUptodate <code>true</code> if the working tables are known to be up-to-date
+	 */
+	public void setWorkingTablesUptodate(boolean workingTablesUptodate) {
+		this.workingTablesUptodate = workingTablesUptodate;
+	}
+
+	/**
+	 * Lock held while the working tables (of scope {@link WorkingTableScope#GLOBAL}) are checked and created.
+	 */
+	private Object workingTablesLock = new Object();
+
+	/**
+	 * Sets the lock held while the working tables are checked and created.
+	 * Concurrent exports sharing the lock don't create the working tables at the same time.
+	 * 
+	 * @param workingTablesLock the lock
+	 */
+	public void setWorkingTablesLock(Object workingTablesLock) {
+		this.workingTablesLock = workingTablesLock;
+	}
+
 	/**
 	 * The logger.
 	 */
@@ -149,6 +217,11 @@ public class SubsettingEngine {
 	 * Export statistic.
 	 */
 	private ExportStatistic exportStatistic;
+
+	/**
+	 * Snapshot of the rows exported in the previous run of an incremental export, <code>null</code> if the export is not incremental.
+	 */
+	private ExportSnapshot exportSnapshot;
 	
 	/**
 	 * Sets the entity-graph to be used for finding the transitive closure.
@@ -168,6 +241,7 @@ public class SubsettingEngine {
 	 */
 	private void setDataModel(DataModel dataModel) {
 		this.datamodel = dataModel;
+		this.chunkedCollectionApplicable = null;
 	}
 
 	/**
@@ -199,6 +273,22 @@ public class SubsettingEngine {
 	 */
 	private Set<Table> export(Table table, String condition, Collection<Table> progressOfYesterday, Set<Table> completedTables) throws SQLException {
 		_log.info("exporting " + datamodel.getDisplayName(table) + " Where " + condition.replace('\n', ' ').replace('\r', ' '));
+		Set<Table> totalProgress = collect(progressOfYesterday, completedTables);
+		_log.info("exported " + datamodel.getDisplayName(table) + " Where " + condition.replace('\n', ' ').replace('\r', ' '));
+		appendStatistic(totalProgress);
+		return totalProgress;
+	}
+
+	/**
+	 * Collects all entities associated with the entities born today.
+	 * 
+	 * @param progressOfYesterday
+	 *            set of tables to account for resolvation
+	 * @param completedTables 
+	 * 
+	 * @return set of tables from which entities are added
+	 */
+	private Set<Table> collect(Collection<Table> progressOfYesterday, Set<Table> completedTables) throws SQLException {
 		int today = entityGraph.getAge();
 		entityGraph.setAge(today + 1);
 		Map<Table, Collection<Association>> progress = new HashMap<Table, Collection<Association>>();
@@ -209,15 +299,27 @@ public class SubsettingEngine {
 		}
 		Set<Table> totalProgress = new HashSet<Table>();
 
-		while (!progress.isEmpty()) {
+		if (executionContext.isPipelinedCollection()) {
 			totalProgress.addAll(progress.keySet());
-			_log.info("day " + today + ", progress: " + asString(progress.keySet()));
-			++today;
-			entityGraph.setAge(today + 1);
-			progress = resolveAssociations(today, progress, completedTables);
+			totalProgress.addAll(new PipelinedCollection(today, progress, completedTables).resolveAssociations());
+		} else {
+			while (!progress.isEmpty()) {
+				totalProgress.addAll(progress.keySet());
+				_log.info("day " + today + ", progress: " + asString(progress.keySet()));
+				++today;
+				entityGraph.setAge(today + 1);
+				progress = resolveAssociations(today, progress, completedTables);
+			}
 		}
+		return totalProgress;
+	}
 
-		_log.info("exported " + datamodel.getDisplayName(table) + " Where " + condition.replace('\n', ' ').replace('\r', ' '));
+	/**
+	 * Logs the export statistic and appends it to the comment header.
+	 * 
+	 * @param totalProgress set of tables from which entities are added
+	 */
+	private void appendStatistic(Set<Table> totalProgress) {
 		_log.info("total progress: " + asString(totalProgress));
 		_log.info("export statistic:");
 
@@ -245,21 +347,120 @@ public class SubsettingEngine {
 				}
 			}
 		}
+	}
 
+	/**
+	 * Exports all entities associated with the subject rows, chunk by chunk.
+	 * The subject rows are partitioned into chunks of at most {@link ExecutionContext#getChunkSize()} rows
+	 * and all entities associated with the rows of a chunk are collected before the next chunk is started.
+	 * If the entity graph is resumable, a checkpoint (the number of completed chunks and the upper bound of the last one)
+	 * is recorded after each chunk. A resumed collection continues with the rows following that bound.
+	 * 
+	 * @param extractionModel the extraction model
+	 * @param session for executing SQL-Statements
+	 * @param completedTables 
+	 * 
+	 * @return set of tables from which entities are added
+	 */
+	private Set<Table> exportInChunks(ExtractionModel extractionModel, Session session, Set<Table> completedTables) throws SQLException {
+		Set<Table> totalProgress = new HashSet<Table>();
+		int checkpoint = entityGraph.getCheckpoint();
+		if (executionContext.getResumeGraphID() != null && entityGraph instanceof RemoteEntityGraph) {
+			// account for the entities collected before the checkpoint
+			int today = entityGraph.getAge();
+			for (Map.Entry<Table, Long> e: ((RemoteEntityGraph) entityGraph).getSizePerTable().entrySet()) {
+				executionContext.getProgressListenerRegistry().fireCollected(today, e.getKey(), e.getValue());
+				totalProgress.add(e.getKey());
+			}
+		}
+		String condition = subjectCondition.equals("1=1")? "" : subjectCondition;
+		List<SubjectChunks.Chunk> chunks;
+		String checkpointKey = checkpoint > 0? entityGraph.getCheckpointKey() : null;
+		if (checkpoint > 0 && checkpointKey == null) {
+			// all chunks are completed
+			chunks = new ArrayList<SubjectChunks.Chunk>();
+		} else {
+			chunks = SubjectChunks.create(extractionModel.subject, condition, executionContext.getChunkSize(), checkpointKey, session);
+		}
+		int numChunks = checkpoint + chunks.size();
+		_log.info("collecting " + numChunks + " chunks of at most " + executionContext.getChunkSize() + " subject rows" + (entityGraph.isResumable()? " (entity graph " + entityGraph.graphID + ")" : ""));
+		if (checkpoint > 0) {
+			_log.info("resuming after chunk " + checkpoint + " of " + numChunks + (checkpointKey != null? " at " + checkpointKey : ""));
+		}
+		for (int i = 0; i < chunks.size(); ++i) {
+			SubjectChunks.Chunk chunk = chunks.get(i);
+			int chunkNumber = checkpoint + i + 1;
+			_log.info("collecting chunk " + chunkNumber + " of " + numChunks + ": " + chunk.condition);
+			Set<Table> progress = exportSubjects(extractionModel, completedTables, chunk.condition, chunkNumber == 1);
+			entityGraph.setBirthdayOfSubject(entityGraph.getAge());
+			progress.addAll(collect(progress, completedTables));
+			totalProgress.addAll(progress);
+			if (entityGraph.isResumable()) {
+				entityGraph.setCheckpoint(chunkNumber, chunk.upperBound);
+			}
+		}
+		_log.info("exported " + datamodel.getDisplayName(extractionModel.subject) + " Where " + subjectCondition.replace('\n', ' ').replace('\r', ' '));
+		appendStatistic(totalProgress);
 		return totalProgress;
 	}
 
+	/**
+	 * Checks whether an interrupted collection can be resumed later.
+	 * 
+	 * @param entityGraph the entity graph
+	 * @param afterCollectionTimestamp time at which the collection has been completed, <code>null</code> if it is not completed
+	 * @return <code>true</code> if the entity graph is to be kept in order to resume the collection
+	 */
+	private boolean isResumable(EntityGraph entityGraph, Long afterCollectionTimestamp) {
+		return entityGraph.isResumable() && executionContext.getChunkSize() > 0 && afterCollectionTimestamp == null && isChunkedCollectionApplicable();
+	}
+
+	/**
+	 * Checks whether the subject rows can be collected in chunks.
+	 * The pseudo-columns $DISTANCE and $IS_SUBJECT refer to the distance from the subject rows,
+	 * which is not the same if the rows are collected in chunks.
+	 * 
+	 * @return <code>true</code> if the subject rows can be collected in chunks
+	 */
+	private boolean isChunkedCollectionApplicable() {
+		if (chunkedCollectionApplicable == null) {
+			chunkedCollectionApplicable = true;
+			for (Association association: datamodel.namedAssociations.values()) {
+				String jc = association.getJoinCondition();
+				if (jc != null && !jc.equals(SqlUtil.resolvePseudoColumns(jc, "A", "B", 0, 0, false))) {
+					_log.warn("association " + association.getName() + " uses pseudo-columns, subject rows are collected at once");
+					chunkedCollectionApplicable = false;
+					break;
+				}
+			}
+		}
+		return chunkedCollectionApplicable;
+	}
+
+	/**
+	 * Whether the subject rows can be collected in chunks, <code>null</code> if not yet checked.
+	 */
+	private Boolean chunkedCollectionApplicable;
+
 	/**
 	 * Exports all entities from initial-data tables.
 	 * 
 	 * @param extractionModel the extraction model
+	 * @param chunk condition selecting a chunk of the subject rows, <code>null</code> for all subject rows
+	 * @param withAdditionalSubjects whether to export the rows of the additional subjects too
 	 */
-	private Set<Table> exportSubjects(ExtractionModel extractionModel, Set<Table> completedTables) throws CancellationException, SQLException {
+	private Set<Table> exportSubjects(ExtractionModel extractionModel, Set<Table> completedTables, final String chunk, boolean withAdditionalSubjects) throws CancellationException, SQLException {
 		List<AdditionalSubject> allSubjects = new ArrayList<ExtractionModel.AdditionalSubject>();
-		for (AdditionalSubject as: extractionModel.additionalSubjects) {
-			allSubjects.add(new AdditionalSubject(as.getSubject(), ParameterHandler.assignParameterValues(as.getCondition(), executionContext.getParameters())));
+		if (withAdditionalSubjects) {
+			for (AdditionalSubject as: extractionModel.additionalSubjects) {
+				allSubjects.add(new AdditionalSubject(as.getSubject(), ParameterHandler.assignParameterValues(as.getCondition(), executionContext.getParameters())));
+			}
 		}
-		allSubjects.add(new AdditionalSubject(extractionModel.subject, subjectCondition.equals("1=1")? "" : subjectCondition));
+		String mainCondition = subjectCondition.equals("1=1")? "" : subjectCondition;
+		if (chunk != null) {
+			mainCondition = mainCondition.length() == 0? chunk : "(" + mainCondition + ") and (" + chunk + ")";
+		}
+		allSubjects.add(new AdditionalSubject(extractionModel.subject, mainCondition));
 		Map<Table, String> conditionPerTable = new HashMap<Table, String>();
 		for (AdditionalSubject as: allSubjects) {
 			String cond = conditionPerTable.get(as.getSubject());
@@ -294,10 +495,16 @@ public class SubsettingEngine {
 					int today = entityGraph.getAge();
 					executionContext.getProgressListenerRegistry().fireCollectionJobEnqueued(today, table);
 					executionContext.getProgressListenerRegistry().fireCollectionJobStarted(today, table);
-					long rc = entityGraph.addEntities(table, condition.length() > 0? condition : "1=1", today);
+					long rc;
+					if (chunk != null) {
+						rc = entityGraph.addNewEntities(table, condition.length() > 0? condition : "1=1", today);
+					} else {
+						rc = entityGraph.addEntities(table, condition.length() > 0? condition : "1=1", today);
+					}
 					if (rc > 0) {
 						progress.add(table);
 					}
+					collectionCostModel.rowsCollected(table, today, rc);
 					executionContext.getProgressListenerRegistry().fireCollected(today, table, rc);
 				}
 			});
@@ -323,6 +530,7 @@ public class SubsettingEngine {
 
 		// resolve associations with same dest-type sequentially
 		Map<Table, List<JobManager.Job>> jobsPerDestination = new HashMap<Table, List<JobManager.Job>>();
+		final Map<Table, Double> costsPerDestination = new HashMap<Table, Double>();
 
 		for (final Table table : progressOfYesterday.keySet()) {
 			for (final Association association : table.associations) {
@@ -346,12 +554,16 @@ public class SubsettingEngine {
 				JobManager.Job job = new JobManager.Job() {
 					@Override
 					public void run() throws SQLException {
-						runstats();
 						if (association.getJoinCondition() != null) {
 							_log.info("resolving " + datamodel.getDisplayName(table) + " -> " + association.toString(0, true) + "...");
 						}
 						executionContext.getProgressListenerRegistry().fireCollectionJobStarted(today, association);
+						long startTime = System.nanoTime();
 						long rc = entityGraph.resolveAssociation(table, association, today);
+						long elapsedTime = System.nanoTime() - startTime;
+						statisticRenewal.jobFinished(entityGraph, today, elapsedTime);
+						collectionCostModel.jobFinished(association, today, elapsedTime);
+						collectionCostModel.rowsCollected(association.destination, today, rc);
 						executionContext.getProgressListenerRegistry().fireCollected(today, association, rc);
 						if (rc >= 0) {
 							_log.info(rc + " entities found resolving " + datamodel.getDisplayName(table) + " -> " + association.toString(0, true));
@@ -372,13 +584,26 @@ public class SubsettingEngine {
 				if (jobList == null) {
 					jobList = new ArrayList<JobManager.Job>();
 					jobsPerDestination.put(association.destination, jobList);
+					costsPerDestination.put(association.destination, 0.0);
 				}
 				jobList.add(job);
+				costsPerDestination.put(association.destination, costsPerDestination.get(association.destination) + collectionCostModel.estimate(association, today));
 			}
 		}
+
+		// start the most expensive job sequences first, so that the threads become idle at about the same time
+		List<Table> destinations = new ArrayList<Table>(jobsPerDestination.keySet());
+		Collections.sort(destinations, new Comparator<Table>() {
+			@Override
+			public int compare(Table o1, Table o2) {
+				int c = costsPerDestination.get(o2).compareTo(costsPerDestination.get(o1));
+				return c != 0? c : o1.getName().compareTo(o2.getName());
+			}
+		});
 		List<JobManager.Job> jobs = new ArrayList<JobManager.Job>();
-		for (Map.Entry<Table, List<JobManager.Job>> entry : jobsPerDestination.entrySet()) {
-			final List<Job> jobList = new ArrayList<Job>(entry.getValue());
+		List<Double> costs = new ArrayList<Double>();
+		for (Table destination: destinations) {
+			final List<Job> jobList = new ArrayList<Job>(jobsPerDestination.get(destination));
 			jobs.add(new JobManager.Job() {
 				@Override
 				public void run() throws CancellationException, SQLException {
@@ -387,8 +612,14 @@ public class SubsettingEngine {
 					}
 				}
 			});
+			costs.add(costsPerDestination.get(destination));
 		}
+		long startTime = System.nanoTime();
 		jobManager.executeJobs(jobs);
+		if (jobs.size() > 1) {
+			_log.info("day " + today + ": " + jobs.size() + " job sequences, predicted makespan " + (long) (CollectionCostModel.makespan(costs, jobManager.getThreads()) / 1000000.0)
+					+ " ms, actual " + (System.nanoTime() - startTime) / 1000000 + " ms");
+		}
 
 		if (EntityGraph.maxTotalRowcount > 0 && EntityGraph.maxTotalRowcount < entityGraph.getTotalRowcount()) {
 			throw new RuntimeException("found more than " + EntityGraph.maxTotalRowcount + " entities.");
@@ -397,6 +628,278 @@ public class SubsettingEngine {
 		return progress;
 	}
 
+	/**
+	 * Resolves all associations without synchronizing the days.
+	 * The associations of a table are resolved as soon as all rows of the table having a given birthday are collected,
+	 * independent of the progress of other tables.
+	 * Associations with same destination are resolved sequentially and in order of the days,
+	 * so that the birthday of each entity is the same as when resolving day by day.
+	 */
+	private class PipelinedCollection implements JobManager.JobSource {
+		
+		/**
+		 * Tables from which the rows of a table are collected.
+		 */
+		private final Map<Table, Set<Table>> predecessors = new HashMap<Table, Set<Table>>();
+		
+		/**
+		 * Last day for which all rows of a table are collected.
+		 */
+		private final Map<Table, Integer> completedDay = new HashMap<Table, Integer>();
+		
+		/**
+		 * Tables having rows with a given birthday, mapped to all associations which lead to the rows.
+		 */
+		private final Map<Integer, Map<Table, Collection<Association>>> progress = new HashMap<Integer, Map<Table, Collection<Association>>>();
+		
+		/**
+		 * Number of not yet executed jobs per day and destination table.
+		 */
+		private final Map<Integer, Map<Table, Integer>> pendingJobs = new HashMap<Integer, Map<Table, Integer>>();
+		
+		/**
+		 * Not yet started jobs per destination table.
+		 */
+		private final Map<Table, List<ResolveJob>> waitingJobs = new HashMap<Table, List<ResolveJob>>();
+		
+		/**
+		 * Destination tables of running jobs.
+		 */
+		private final Set<Table> busyTables = new HashSet<Table>();
+		
+		/**
+		 * Tables from which entities are added.
+		 */
+		private final Set<Table> totalProgress = new HashSet<Table>();
+		
+		/**
+		 * Tables to be skipped.
+		 */
+		private final Set<Table> completedTables;
+		
+		/**
+		 * The last day for which jobs are created.
+		 */
+		private int lastDay;
+		
+		/**
+		 * Resolves an association.
+		 */
+		private class ResolveJob implements JobManager.Job {
+			final Table table;
+			final Association association;
+			final int today;
+			long rc;
+			
+			ResolveJob(Table table, Association association, int today) {
+				this.table = table;
+				this.association = association;
+				this.today = today;
+			}
+
+			@Override
+			public void run() throws SQLException {
+				_log.info("resolving " + datamodel.getDisplayName(table) + " -> " + association.toString(0, true) + " (day " + today + ")...");
+				executionContext.getProgressListenerRegistry().fireCollectionJobStarted(today, association);
+				long startTime = System.nanoTime();
+				rc = entityGraph.resolveAssociation(table, association, today);
+				long elapsedTime = System.nanoTime() - startTime;
+				statisticRenewal.jobFinished(entityGraph, today, elapsedTime);
+				collectionCostModel.jobFinished(association, today, elapsedTime);
+				collectionCostModel.rowsCollected(association.destination, today, rc);
+				executionContext.getProgressListenerRegistry().fireCollected(today, association, rc);
+				if (rc >= 0) {
+					_log.info(rc + " entities found resolving " + datamodel.getDisplayName(table) + " -> " + association.toString(0, true));
+				}
+				if (EntityGraph.maxTotalRowcount > 0 && EntityGraph.maxTotalRowcount < entityGraph.getTotalRowcount()) {
+					throw new RuntimeException("found more than " + EntityGraph.maxTotalRowcount + " entities.");
+				}
+			}
+		}
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param today birthday of the initial entities
+		 * @param progressOfToday set of tables having entities with birthday <code>today</code>
+		 * @param completedTables tables to be skipped
+		 */
+		PipelinedCollection(int today, Map<Table, Collection<Association>> progressOfToday, Set<Table> completedTables) {
+			this.completedTables = completedTables;
+			this.lastDay = today;
+			for (Table table: datamodel.getTables()) {
+				completedDay.put(table, today);
+				predecessors.put(table, new HashSet<Table>());
+			}
+			for (Table table: datamodel.getTables()) {
+				for (Association association: table.associations) {
+					if (association.getJoinCondition() != null && !completedTables.contains(association.destination)) {
+						predecessors.get(association.destination).add(table);
+					}
+				}
+			}
+			progress.put(today, progressOfToday);
+			for (Table table: progressOfToday.keySet()) {
+				createJobs(table, today);
+			}
+		}
+
+		/**
+		 * Resolves all associations.
+		 * 
+		 * @return set of tables from which entities are added
+		 */
+		Set<Table> resolveAssociations() throws CancellationException, SQLException {
+			jobManager.executeJobs(this);
+			entityGraph.setAge(lastDay + 1);
+			return totalProgress;
+		}
+
+		/**
+		 * Creates the jobs for resolving the associations of a table.
+		 * 
+		 * @param table the table
+		 * @param day birthday of the entities to start from
+		 */
+		private void createJobs(Table table, int day) {
+			Collection<Association> as = progress.get(day).get(table);
+			_log.info("day " + day + ", progress: " + datamodel.getDisplayName(table));
+			for (Association association : table.associations) {
+				if (as != null && as.size() == 1 && as.iterator().next() == association.reversalAssociation) {
+					if (association.getCardinality() == Cardinality.MANY_TO_ONE || association.getCardinality() == Cardinality.ONE_TO_ONE) {
+						_log.info("skip reversal association " + datamodel.getDisplayName(table) + " -> " + datamodel.getDisplayName(association.destination));
+						continue;
+					}
+				}
+
+				if (completedTables.contains(association.destination)) {
+					_log.info("skip association " + datamodel.getDisplayName(table) + " -> " + datamodel.getDisplayName(association.destination) + ". All rows exported.");
+					continue;
+				}
+				
+				if (association.getJoinCondition() == null) {
+					continue;
+				}
+				
+				executionContext.getProgressListenerRegistry().fireCollectionJobEnqueued(day + 1, association);
+				Map<Table, Integer> pending = pendingJobs.get(day + 1);
+				if (pending == null) {
+					pending = new HashMap<Table, Integer>();
+					pendingJobs.put(day + 1, pending);
+				}
+				Integer count = pending.get(association.destination);
+				pending.put(association.destination, count == null? 1 : count + 1);
+				List<ResolveJob> jobs = waitingJobs.get(association.destination);
+				if (jobs == null) {
+					jobs = new LinkedList<ResolveJob>();
+					waitingJobs.put(association.destination, jobs);
+				}
+				jobs.add(new ResolveJob(table, association, day + 1));
+				lastDay = Math.max(lastDay, day + 1);
+			}
+		}
+
+		/**
+		 * Gets the next job whose destination table is not busy and
+		 * for which all rows of the destination table of the previous day are collected.
+		 * Of the jobs of the earliest day, the one with the highest estimated cost is chosen.
+		 */
+		@Override
+		public synchronized JobManager.Job nextJob() {
+			ResolveJob next = null;
+			double nextCost = 0;
+			for (Map.Entry<Table, List<ResolveJob>> e: waitingJobs.entrySet()) {
+				if (busyTables.contains(e.getKey())) {
+					continue;
+				}
+				int completed = completedDay.get(e.getKey());
+				for (ResolveJob job: e.getValue()) {
+					if (job.today - 1 <= completed && (next == null || job.today <= next.today)) {
+						double cost = collectionCostModel.estimate(job.association, job.today);
+						if (next == null || job.today < next.today || cost > nextCost) {
+							next = job;
+							nextCost = cost;
+						}
+					}
+				}
+			}
+			if (next != null) {
+				waitingJobs.get(next.association.destination).remove(next);
+				busyTables.add(next.association.destination);
+			}
+			return next;
+		}
+
+		/**
+		 * Registers the result of a job and creates the jobs which are ready now.
+		 */
+		@Override
+		public synchronized void jobDone(JobManager.Job job) {
+			ResolveJob resolveJob = (ResolveJob) job;
+			Table destination = resolveJob.association.destination;
+			busyTables.remove(destination);
+			if (resolveJob.rc > 0) {
+				Map<Table, Collection<Association>> progressOfDay = progress.get(resolveJob.today);
+				if (progressOfDay == null) {
+					progressOfDay = new HashMap<Table, Collection<Association>>();
+					progress.put(resolveJob.today, progressOfDay);
+				}
+				Collection<Association> as = progressOfDay.get(destination);
+				if (as == null) {
+					as = new ArrayList<Association>();
+					progressOfDay.put(destination, as);
+				}
+				as.add(resolveJob.association);
+				totalProgress.add(destination);
+			}
+			Map<Table, Integer> pending = pendingJobs.get(resolveJob.today);
+			pending.put(destination, pending.get(destination) - 1);
+			completeDays();
+		}
+
+		/**
+		 * Marks the days as completed for which all rows are collected
+		 * and creates the jobs for the tables having entities with this birthday.
+		 */
+		private void completeDays() {
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (Table table: datamodel.getTables()) {
+					int day = completedDay.get(table);
+					while (day < lastDay && isComplete(table, day + 1)) {
+						++day;
+						completedDay.put(table, day);
+						changed = true;
+						Map<Table, Collection<Association>> progressOfDay = progress.get(day);
+						if (progressOfDay != null && progressOfDay.containsKey(table)) {
+							createJobs(table, day);
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Checks whether all rows of a table with a given birthday are collected.
+		 */
+		private boolean isComplete(Table table, int day) {
+			Map<Table, Integer> pending = pendingJobs.get(day);
+			if (pending != null) {
+				Integer count = pending.get(table);
+				if (count != null && count > 0) {
+					return false;
+				}
+			}
+			for (Table predecessor: predecessors.get(table)) {
+				if (completedDay.get(predecessor) < day - 1) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
 	/**
 	 * Adds all dependencies.
 	 * 
@@ -469,6 +972,29 @@ public class SubsettingEngine {
 		jobManager.executeJobs(jobs);
 	}
 
+	/**
+	 * Checks whether the export can be written in binary format.
+	 * Rows in binary format are inserted as they are, so there is no way to apply
+	 * import filters or to turn inserts into upserts.
+	 *
+	 * @param progress the tables to be exported
+	 */
+	private void checkBinaryFormatApplicable(Set<Table> progress) {
+		if (executionContext.getUpsertOnly()) {
+			throw new RuntimeException("Binary format does not support upsert statements");
+		}
+		for (Table table: progress) {
+			if (Boolean.TRUE.equals(table.getUpsert())) {
+				throw new RuntimeException("Binary format does not support upsert statements (table " + table.getName() + ")");
+			}
+			for (Column c: table.getColumns()) {
+				if (c.getFilter() != null && (!c.getFilter().isApplyAtExport() || c.getFilter().getExpression().trim().startsWith(Filter.LITERAL_PREFIX))) {
+					throw new RuntimeException("Binary format does not support filters applied at import phase or literal filters (" + table.getName() + "." + c.name + ")");
+				}
+			}
+		}
+	}
+
 	/**
 	 * Writes entities into extract-SQL-script.
 	 * 
@@ -478,7 +1004,30 @@ public class SubsettingEngine {
 	 *            if <code>true</code>, result will be ordered by primary keys
 	 */
 	private void writeEntities(Table table, boolean orderByPK) throws SQLException {
-		entityGraph.readEntities(table, orderByPK);
+		metricsRegistry.exportStarted(table);
+		try {
+			entityGraph.readEntities(table, orderByPK);
+		} finally {
+			metricsRegistry.exportFinished(table);
+		}
+	}
+
+	/**
+	 * Writes marked entities into extract-SQL-script.
+	 * 
+	 * @param theEntityGraph the entity graph
+	 * @param table
+	 *            write entities from this table only
+	 * @param orderByPK
+	 *            if <code>true</code>, result will be ordered by primary keys
+	 */
+	private void writeMarkedEntities(EntityGraph theEntityGraph, Table table, boolean orderByPK) throws SQLException {
+		metricsRegistry.exportStarted(table);
+		try {
+			theEntityGraph.readMarkedEntities(table, orderByPK);
+		} finally {
+			metricsRegistry.exportFinished(table);
+		}
 	}
 
 	/**
@@ -515,6 +1064,8 @@ public class SubsettingEngine {
 				return null;
 			} if (ScriptFormat.DBUNIT_FLAT_XML.equals(executionContext.getScriptFormat())) {
 				return new FlatXMLTransformer.Factory(transformerHandler, targetSession.getMetaData(), targetSession.dbms, executionContext);
+			} else if (ScriptFormat.BINARY.equals(executionContext.getScriptFormat())) {
+				return new BinaryTransformer.Factory((BinaryScriptWriter) outputWriter, targetSession, targetDBMSConfiguration(targetSession), executionContext);
 			} else if (ScriptFormat.LIQUIBASE_XML.equals(executionContext.getScriptFormat())) {
 				return new LiquibaseXMLTransformer.Factory(transformerHandler,targetSession.getMetaData(), entityGraph, filepath,
 						executionContext.getXmlDatePattern(),
@@ -556,9 +1107,14 @@ public class SubsettingEngine {
 			((ZipOutputStream)outputStream).putNextEntry(new ZipEntry(zipFileName.substring(0, zipFileName.length() - 4)));
 		} else {
 			if (sqlScriptFile.toLowerCase().endsWith(".gz")) {
-				outputStream = new GZIPOutputStream(outputStream);
+				if (executionContext.getNumberOfThreads() > 1) {
+					outputStream = new ParallelGZIPOutputStream(new BufferedOutputStream(outputStream), executionContext.getNumberOfThreads());
+				} else {
+					outputStream = new GZIPOutputStream(outputStream);
+				}
 			}
 		}
+		outputStream = MetricsRegistry.countBytesWritten(outputStream);
 		TransformerHandler transformerHandler = null;
 		ImportFilterManager importFilterManager = null;
 		OutputStreamWriter result = null;
@@ -589,7 +1145,10 @@ public class SubsettingEngine {
 			
 			transformerHandler.startElement("", "", "changeSet", attrchangeset);
 		} else {
-			if (executionContext.getUTF8()) {
+			if (scriptType == ScriptType.INSERT && ScriptFormat.BINARY.equals(executionContext.getScriptFormat())) {
+				checkBinaryFormatApplicable(progress);
+				result = new BinaryScriptWriter(outputStream);
+			} else if (executionContext.getUTF8()) {
 				result = new OutputStreamWriter(outputStream, charset);
 			} else {
 				result = new OutputStreamWriter(outputStream);
@@ -626,6 +1185,9 @@ public class SubsettingEngine {
 		if (importFilterManager != null && entityGraph.getTransformerFactory() instanceof DMLTransformer.Factory) {
 			((DMLTransformer.Factory) entityGraph.getTransformerFactory()).setImportFilterTransformer(importFilterManager);
 		}
+		if (exportSnapshot != null && scriptType == ScriptType.INSERT && entityGraph.getTransformerFactory() instanceof DMLTransformer.Factory) {
+			((DMLTransformer.Factory) entityGraph.getTransformerFactory()).setExportSnapshot(exportSnapshot);
+		}
 		
 		Session targetSession = entityGraph.getTargetSession();
 		entityGraph.fillAndWriteMappingTables(jobManager, result, executionContext.getNumberOfEntities(), targetSession, targetDBMSConfiguration(targetSession), session.dbms);
@@ -654,6 +1216,7 @@ public class SubsettingEngine {
 			}
 			if (!executionContext.getNoSorting()) {
 				addDependencies(dependentTables, false);
+				statisticRenewal.tableChanged(EntityGraph.DEPENDENCY);
 				runstats();
 				removeSingleRowCycles(prevProgress, session);
 			} else {
@@ -682,27 +1245,27 @@ public class SubsettingEngine {
 					}
 				}
 				Set<Table> independentTables = datamodel.getIndependentTables(remaining, relevantAssociations);
-				rest = entityGraph.getSize(dependentTables);
+				List<Set<Table>> levels = entityGraph.assignIndependenceLevels(dependentTables);
 				while (!independentTables.isEmpty()) {
 					_log.info("independent tables: " + asString(independentTables));
 					for (final Table independentTable : independentTables) {
-						rest = entityGraph.getSize(dependentTables);
-						for (;;) {
-							entityGraph.markIndependentEntities(independentTable);
-							// don't use jobManager, export rows sequentially, don't
-							// mix rows of different tables in a dataset!
-							entityGraph.readMarkedEntities(independentTable, true);
-							entityGraph.deleteIndependentEntities(independentTable);
-							long newRest = entityGraph.getSize(dependentTables);
-							if (rest == newRest) {
-								break;
+						for (int level = 0; level < levels.size(); ++level) {
+							if (levels.get(level).contains(independentTable)) {
+								entityGraph.markIndependentEntities(independentTable, level);
+								// don't use jobManager, export rows sequentially, don't
+								// mix rows of different tables in a dataset!
+								writeMarkedEntities(entityGraph, independentTable, true);
+								entityGraph.deleteMarkedEntities(independentTable);
 							}
-							rest = newRest;
 						}
 					}
 					remaining.removeAll(independentTables);
 					independentTables = datamodel.getIndependentTables(remaining, relevantAssociations);
 				}
+				rest = entityGraph.getSize(dependentTables);
+				if (rest > 0) {
+					entityGraph.deleteDanglingDependencies(dependentTables);
+				}
 			} else {
 				rest = writeIndependentEntities(result, dependentTables, entityGraph);
 				appendSync(result);
@@ -763,6 +1326,14 @@ public class SubsettingEngine {
 				break;
 			}
 		}
+
+		if (exportSnapshot != null && scriptType == ScriptType.INSERT) {
+			exportSnapshot.logStatistic();
+			appendSync(result);
+			long deleted = exportSnapshot.writeDeletions(result, executionContext.getNumberOfEntities());
+			_log.info(deleted + " rows left the subset");
+			appendSync(result);
+		}
 		
 		if (importFilterManager != null) {
 			importFilterManager.shutDown();
@@ -903,47 +1474,43 @@ public class SubsettingEngine {
 	}
 
 	/**
-	 * Iteratively mark and write out independent entities from a given {@link EntityGraph}
-	 * until no independent entity remains.
+	 * Writes out the independent entities from a given {@link EntityGraph} level by level.
 	 * 
 	 * @param result writer to output file
 	 * @param dependentTables tables to consider
 	 * @param theEntityGraph the entity graph
 	 * @return number of remaining entities
+	 * @see EntityGraph#assignIndependenceLevels(Set)
 	 */
 	private long writeIndependentEntities(OutputStreamWriter result, Set<Table> dependentTables, final EntityGraph theEntityGraph)
 			throws SQLException, IOException {
-		long rest;
-		rest = theEntityGraph.getSize(dependentTables);
-		for (;;) {
-			for (final Table table : dependentTables) {
-				theEntityGraph.markIndependentEntities(table);
-			}
+		List<Set<Table>> levels = theEntityGraph.assignIndependenceLevels(dependentTables);
+		for (int level = 0; level < levels.size(); ++level) {
 			List<JobManager.Job> jobs = new ArrayList<JobManager.Job>();
 			for (final Table table : dependentTables) {
-				jobs.add(new JobManager.Job() {
-					@Override
-					public void run() throws SQLException {
-						theEntityGraph.readMarkedEntities(table, false);
-					}
-				});
+				if (levels.get(level).contains(table)) {
+					theEntityGraph.markIndependentEntities(table, level);
+					jobs.add(new JobManager.Job() {
+						@Override
+						public void run() throws SQLException {
+							writeMarkedEntities(theEntityGraph, table, false);
+						}
+					});
+				}
 			}
 			if (result != null && !jobs.isEmpty()) {
 				appendSync(result);
 			}
 			jobManager.executeJobs(jobs);
 			for (final Table table : dependentTables) {
-				theEntityGraph.deleteIndependentEntities(table);
-			}
-			long newRest = theEntityGraph.getSize(dependentTables);
-			if (newRest == 0) {
-				rest = 0;
-				break;
-			}
-			if (rest == newRest) {
-				break;
+				if (levels.get(level).contains(table)) {
+					theEntityGraph.deleteMarkedEntities(table);
+				}
 			}
-			rest = newRest;
+		}
+		long rest = theEntityGraph.getSize(dependentTables);
+		if (rest > 0) {
+			theEntityGraph.deleteDanglingDependencies(dependentTables);
 		}
 		return rest;
 	}
@@ -1028,10 +1595,12 @@ public class SubsettingEngine {
 				outputStream = new GZIPOutputStream(outputStream);
 			}
 		}
+		outputStream = MetricsRegistry.countBytesWritten(outputStream);
 
 		// then write entities of tables having cyclic-dependencies
 		_log.info("create hierarchy for: " + asString(progress));
 		addDependencies(progress, true);
+		statisticRenewal.tableChanged(EntityGraph.DEPENDENCY);
 		runstats();
 		removeSingleRowCycles(progress, session);
 
@@ -1109,7 +1678,12 @@ public class SubsettingEngine {
 		for (Table table: sortedTables) {
 			_log.info("exporting table " + datamodel.getDisplayName(table));
 			reader.setTable(table);
-			entityGraph.readMarkedEntities(table, reader, reader.getTableMapping(table).selectionSchema, reader.getTableMapping(table).originalPKAliasPrefix, true);
+			metricsRegistry.exportStarted(table);
+			try {
+				entityGraph.readMarkedEntities(table, reader, reader.getTableMapping(table).selectionSchema, reader.getTableMapping(table).originalPKAliasPrefix, true);
+			} finally {
+				metricsRegistry.exportFinished(table);
+			}
 		}
 		reader.endDocument();
 
@@ -1221,6 +1795,10 @@ public class SubsettingEngine {
 		if (executionContext.getScriptFormat() != ScriptFormat.INTRA_DATABASE) {
 			result.append("-- sync" + PrintUtil.LINE_SEPARATOR);
 		}
+		if (exportSnapshot != null) {
+			// rows written after a sync-point may depend on the rows written before
+			exportSnapshot.nextRound();
+		}
 	}
 	
 	/**
@@ -1233,7 +1811,10 @@ public class SubsettingEngine {
 	 */
 	private void shutDown() throws SQLException {
 		if (!isDown) {
-			jobManager.shutdown();
+			if (ownsJobManager) {
+				jobManager.shutdown();
+			}
+			statisticRenewal.waitForRenewal();
 			entityGraph.shutDown();
 			isDown = true;
 		}
@@ -1258,30 +1839,20 @@ public class SubsettingEngine {
 	}
 
 	/**
-	 * Total row-count at last runstats run.
+	 * Renews the DB-statistics of the working-tables.
 	 */
-	private long lastRunstats = 0;
+	private final StatisticRenewal statisticRenewal;
 
 	/**
-	 * Runs script for updating the DB-statistics.
+	 * Estimates the costs of the collection jobs.
 	 */
-	private synchronized void runstats() {
-		if (entityGraph != null) {
-			Session session = entityGraph.getSession();
-			if (lastRunstats == 0 || (lastRunstats * 2 <= entityGraph.getTotalRowcount() && entityGraph.getTotalRowcount() > 1000)) {
-				lastRunstats = entityGraph.getTotalRowcount();
+	private final CollectionCostModel collectionCostModel;
 	
-				StatisticRenovator statisticRenovator = session.dbms.getStatisticRenovator();
-				if (statisticRenovator != null) {
-					_log.info("gather statistics after " + lastRunstats + " inserted rows...");
-					try {
-						statisticRenovator.renew(session, executionContext);
-					} catch (Throwable t) {
-						_log.warn("unable to update table statistics: " + t.getMessage());
-					}
-				}
-			}
-		}
+	/**
+	 * Runs script for updating the DB-statistics if necessary.
+	 */
+	private void runstats() {
+		statisticRenewal.renewIfNeeded(entityGraph);
 	}
 
 	private String subjectCondition;
@@ -1303,6 +1874,8 @@ public class SubsettingEngine {
 		}
 
 		Session session = new Session(dataSource, dbms, executionContext.getIsolationLevel(), executionContext.getScope(), executionContext.getTransactional());
+		// a connection for each job-runner and for the main thread and the background tasks
+		session.getConnectionPool().setMaxConnections(Math.max(ConnectionPool.DEFAULT_MAX_CONNECTIONS, jobManager.getThreads() + 2));
 		ExtractionModel extractionModel = null;
 		if (modelPoolSize > 0) {
 			synchronized (modelPool) {
@@ -1320,9 +1893,11 @@ public class SubsettingEngine {
 		if (executionContext.getScope() == WorkingTableScope.SESSION_LOCAL
 		 || executionContext.getScope() == WorkingTableScope.TRANSACTION_LOCAL) {
 			ddlCreator.createDDL(extractionModel.dataModel, session, executionContext.getScope(), executionContext.getWorkingTableSchema());
-		} else if (executionContext.getScope() == WorkingTableScope.GLOBAL) {
-			if (!ddlCreator.isUptodate(session, !executionContext.getNoRowid(), executionContext.getWorkingTableSchema())) {
-				ddlCreator.createDDL(extractionModel.dataModel, session, executionContext.getScope(), executionContext.getWorkingTableSchema());
+		} else if (executionContext.getScope() == WorkingTableScope.GLOBAL && !workingTablesUptodate) {
+			synchronized (workingTablesLock) {
+				if (!ddlCreator.isUptodate(session, !executionContext.getNoRowid(), executionContext.getWorkingTableSchema())) {
+					ddlCreator.createDDL(extractionModel.dataModel, session, executionContext.getScope(), executionContext.getWorkingTableSchema());
+				}
 			}
 		}
 
@@ -1335,12 +1910,24 @@ public class SubsettingEngine {
 			}
 		};
 		
+		if (executionContext.getSnapshotFile() != null && (scriptFile == null || scriptFormat != ScriptFormat.SQL)) {
+			throw new RuntimeException("Incremental export is only supported for SQL scripts");
+		}
+
 		EntityGraph entityGraph;
-		if (scriptFormat == ScriptFormat.INTRA_DATABASE) {
+		if (executionContext.getResumeGraphID() != null) {
+			if (executionContext.getChunkSize() <= 0 || scriptFormat == ScriptFormat.INTRA_DATABASE || executionContext.getScope() != WorkingTableScope.GLOBAL) {
+				throw new RuntimeException("Only a chunked collection with working tables of scope GLOBAL can be resumed (use -chunk-size and -scope GLOBAL)");
+			}
+			RowIdSupport rowIdSupport = new RowIdSupport(extractionModel.dataModel, session.dbms, executionContext);
+			entityGraph = RemoteEntityGraph.resume(extractionModel.dataModel, executionContext.getResumeGraphID(), session, rowIdSupport.getUniversalPrimaryKey(session), updateStatistics, executionContext);
+		} else if (scriptFormat == ScriptFormat.INTRA_DATABASE) {
 			RowIdSupport rowIdSupport = new RowIdSupport(extractionModel.dataModel, session.dbms, executionContext);
 			entityGraph = IntraDatabaseEntityGraph.create(extractionModel.dataModel, EntityGraph.createUniqueGraphID(), session, rowIdSupport.getUniversalPrimaryKey(session), updateStatistics, executionContext);
 		} else if (executionContext.getScope() == WorkingTableScope.LOCAL_DATABASE) {
 			entityGraph = LocalEntityGraph.create(extractionModel.dataModel, EntityGraph.createUniqueGraphID(), session, executionContext);
+		} else if (executionContext.getScope() == WorkingTableScope.MEMORY) {
+			entityGraph = InMemoryEntityGraph.create(extractionModel.dataModel, EntityGraph.createUniqueGraphID(), session, executionContext);
 		} else {
 			RowIdSupport rowIdSupport = new RowIdSupport(extractionModel.dataModel, session.dbms, executionContext);
 			entityGraph = RemoteEntityGraph.create(extractionModel.dataModel, EntityGraph.createUniqueGraphID(), session, rowIdSupport.getUniversalPrimaryKey(session), updateStatistics, executionContext);
@@ -1427,16 +2014,26 @@ public class SubsettingEngine {
 		try {
 			runstats();
 			entityGraph.checkExist(executionContext);
+			collectionCostModel.load(session.dbUrl + "\n" + session.getSchema());
 			executionContext.getProgressListenerRegistry().fireNewStage("collecting rows", false, false);
 			Set<Table> completedTables = new HashSet<Table>();
-			Set<Table> progress = exportSubjects(extractionModel, completedTables);
-			entityGraph.setBirthdayOfSubject(entityGraph.getAge());
-			progress.addAll(export(extractionModel.subject, subjectCondition, progress, completedTables));
+			Set<Table> progress;
+			if (executionContext.getResumeGraphID() != null && !isChunkedCollectionApplicable()) {
+				throw new RuntimeException("The collection can't be resumed because the association conditions use the pseudo-columns $DISTANCE or $IS_SUBJECT");
+			}
+			if (executionContext.getChunkSize() > 0 && isChunkedCollectionApplicable()) {
+				progress = exportInChunks(extractionModel, session, completedTables);
+			} else {
+				progress = exportSubjects(extractionModel, completedTables, null, true);
+				entityGraph.setBirthdayOfSubject(entityGraph.getAge());
+				progress.addAll(export(extractionModel.subject, subjectCondition, progress, completedTables));
+			}
 			totalProgress.addAll(progress);
 			subjects.add(extractionModel.subject);
 			entityGraph.checkExist(executionContext);
 			
 			afterCollectionTimestamp = System.currentTimeMillis();
+			collectionCostModel.save();
 			
 			if (explain) {
 //				executionContext.getProgressListenerRegistry().fireNewStage("generating explain-log", false, false);
@@ -1457,7 +2054,18 @@ public class SubsettingEngine {
 				if (ScriptFormat.XML.equals(scriptFormat)) {
 					writeEntitiesAsXml(scriptFile, totalProgress, subjects, session);
 				} else {
-					writeEntities(scriptFile, ScriptType.INSERT, totalProgress, session, "exporting rows", startTimestamp, afterCollectionTimestamp);
+					if (executionContext.getSnapshotFile() != null) {
+						exportSnapshot = new ExportSnapshot(new File(executionContext.getSnapshotFile()));
+					}
+					try {
+						writeEntities(scriptFile, ScriptType.INSERT, totalProgress, session, "exporting rows", startTimestamp, afterCollectionTimestamp);
+						if (exportSnapshot != null) {
+							// pending until the script has been imported
+							exportSnapshot.save();
+						}
+					} finally {
+						exportSnapshot = null;
+					}
 				}
 			}
 			exportedCount = entityGraph.getExportedCount();
@@ -1504,8 +2112,12 @@ public class SubsettingEngine {
 				_log.info("cleaning up after cancellation...");
 				CancellationHandler.reset(null);
 				entityGraph.getSession().rollbackAll();
-				entityGraph.truncate(executionContext, false);
-				entityGraph.delete();
+				if (isResumable(entityGraph, afterCollectionTimestamp)) {
+					_log.info("keeping entity graph " + entityGraph.graphID + ", use \"-resume " + entityGraph.graphID + "\" to continue the collection");
+				} else {
+					entityGraph.truncate(executionContext, false);
+					entityGraph.delete();
+				}
 				if (exportedEntities != null) {
 					if (entityGraph.getSession().scope == WorkingTableScope.GLOBAL) {
 						exportedEntities.delete();
@@ -1524,8 +2136,12 @@ public class SubsettingEngine {
 		} catch (Exception e) {
 			try {
 				_log.info("cleaning up...");
-				entityGraph.truncate(executionContext, false);
-				entityGraph.delete();
+				if (isResumable(entityGraph, afterCollectionTimestamp)) {
+					_log.info("keeping entity graph " + entityGraph.graphID + ", use \"-resume " + entityGraph.graphID + "\" to continue the collection");
+				} else {
+					entityGraph.truncate(executionContext, false);
+					entityGraph.delete();
+				}
 				if (exportedEntities != null) {
 					if (entityGraph.getSession().scope == WorkingTableScope.GLOBAL) {
 						exportedEntities.delete();
@@ -1555,6 +2171,11 @@ public class SubsettingEngine {
 		}
 		shutDown();
 		
+		exportStatistic.setMetrics(metricsRegistry);
+		if (executionContext.getMetricsFile() != null) {
+			metricsRegistry.write(new File(executionContext.getMetricsFile()));
+			_log.info("metrics written into '" + executionContext.getMetricsFile() + "'");
+		}
 		return exportStatistic;
 	}
 
@@ -1607,76 +2228,93 @@ public class SubsettingEngine {
 		}
 				
 		// remove tabu entities
-		for (Table tabuTable : tabuTables) {
-			executionContext.getProgressListenerRegistry().fireCollectionJobStarted(today, tabuTable);
-			long rc = entityGraph.deleteEntities(tabuTable);
-			executionContext.getProgressListenerRegistry().fireCollected(today, tabuTable, rc);
-			_log.info("excluded " + rc + " entities from " + datamodel.getDisplayName(tabuTable) + " (tabu)");
-			allTables.remove(tabuTable);
+		List<JobManager.Job> tabuJobs = new ArrayList<JobManager.Job>();
+		for (final Table tabuTable : tabuTables) {
+			final int finalToday = today;
+			tabuJobs.add(new JobManager.Job() {
+				@Override
+				public void run() throws SQLException {
+					executionContext.getProgressListenerRegistry().fireCollectionJobStarted(finalToday, tabuTable);
+					long rc = entityGraph.deleteEntities(tabuTable);
+					executionContext.getProgressListenerRegistry().fireCollected(finalToday, tabuTable, rc);
+					_log.info("excluded " + rc + " entities from " + datamodel.getDisplayName(tabuTable) + " (tabu)");
+				}
+			});
 		}
+		jobManager.executeJobs(tabuJobs);
+		allTables.removeAll(tabuTables);
 
 		// set of tables which are known to have no entities in entityGraph
 		Set<Table> emptyTables = new HashSet<Table>();
 
-		Set<Table> tablesToCheck = new HashSet<Table>(allTables);
+		// associations to be checked. Initially all, after that only those whose source entities have changed.
+		Set<Association> associationsToCheck = new HashSet<Association>();
+		for (Table table: allTables) {
+			for (Association a: table.associations) {
+				associationsToCheck.add(a.reversalAssociation);
+			}
+		}
 
 		boolean firstStep = true;
 		final Set<Table> roots = new HashSet<Table>();
 		final Map<Association, Long> rootAssocs = new HashMap<Association, Long>();
 		// remove associated entities
-		while (!tablesToCheck.isEmpty()) {
+		while (!associationsToCheck.isEmpty()) {
 			++today;
+			Set<Table> tablesToCheck = new HashSet<Table>();
+			for (Association association: associationsToCheck) {
+				if (!association.isIgnored() && allTables.contains(association.destination)) {
+					tablesToCheck.add(association.destination);
+				}
+			}
+			tablesToCheck.removeAll(emptyTables);
 			_log.info("tables to check: " + new PrintUtil().tableSetAsString(tablesToCheck, null));
+			Map<Table, Long> entityCounts = entityGraph.countEntities(tablesToCheck);
+			for (Table table: tablesToCheck) {
+				Long entityCount = entityCounts.get(table);
+				if (entityCount == null || entityCount == 0) {
+					emptyTables.add(table);
+				}
+			}
 			List<JobManager.Job> jobs = new ArrayList<JobManager.Job>();
-			final Set<Table> tablesToCheckNextTime = new HashSet<Table>();
-			Map<Table, Long> entityCounts = new HashMap<Table, Long>();
-			for (final Table table : tablesToCheck) {
-				for (final Association a : table.associations) {
-					if (emptyTables.contains(table)) {
-						continue;
-					}
-					if (!a.reversalAssociation.isIgnored()) {
-						Long entityCount = entityCounts.get(table);
-						if (entityCount == null) {
-							entityCount = entityGraph.countEntities(table);
-							entityCounts.put(table, entityCount);
-						}
-						if (entityCount == 0) {
-							emptyTables.add(table);
-							continue;
+			final Set<Association> associationsToCheckNextTime = new HashSet<Association>();
+			for (final Association association : associationsToCheck) {
+				final Table table = association.destination;
+				if (association.isIgnored() || !tablesToCheck.contains(table) || emptyTables.contains(table)) {
+					continue;
+				}
+				final boolean isFirstStep = firstStep;
+				final int finalToday = today;
+				if (!isFirstStep) {
+					executionContext.getProgressListenerRegistry().fireCollectionJobEnqueued(today, association);
+				}
+				jobs.add(new JobManager.Job() {
+					@Override
+					public void run() throws SQLException {
+						if (!isFirstStep) {
+							executionContext.getProgressListenerRegistry().fireCollectionJobStarted(finalToday, association);
 						}
-						final boolean isFirstStep = firstStep;
-						final int finalToday = today;
+						long rc = entityGraph.removeAssociatedDestinations(association, !isFirstStep);
 						if (!isFirstStep) {
-							executionContext.getProgressListenerRegistry().fireCollectionJobEnqueued(today, a.reversalAssociation);
+							executionContext.getProgressListenerRegistry().fireCollected(finalToday, association, rc);
 						}
-						jobs.add(new JobManager.Job() {
-							@Override
-							public void run() throws SQLException {
-								if (!isFirstStep) {
-									executionContext.getProgressListenerRegistry().fireCollectionJobStarted(finalToday, a.reversalAssociation);
-								}
-								long rc = entityGraph.removeAssociatedDestinations(a.reversalAssociation, !isFirstStep);
-								if (!isFirstStep) {
-									executionContext.getProgressListenerRegistry().fireCollected(finalToday, a.reversalAssociation, rc);
-								} else if (rc > 0) {
-									roots.add(a.destination);
-									rootAssocs.put(a, rc);
+						if (rc > 0) {
+							synchronized (removedEntities) {
+								if (isFirstStep) {
+									roots.add(association.source);
+									rootAssocs.put(association.reversalAssociation, rc);
 								}
-								if (rc > 0) {
-									synchronized (removedEntities) {
-										Long oldRc = removedEntities.get(table);
-										removedEntities.put(table, rc + (oldRc == null ? 0 : oldRc));
-										_log.info("excluded " + rc + " entities from " + datamodel.getDisplayName(table) + " referenced by " + a);
-										for (Association a2 : table.associations) {
-											tablesToCheckNextTime.add(a2.destination);
-										}
-									}
+								Long oldRc = removedEntities.get(table);
+								removedEntities.put(table, rc + (oldRc == null ? 0 : oldRc));
+								_log.info("excluded " + rc + " entities from " + datamodel.getDisplayName(table) + " referenced by " + association.reversalAssociation);
+								// entities of the neighbors which are associated with the removed entities must be checked again
+								for (Association a2 : table.associations) {
+									associationsToCheckNextTime.add(a2);
 								}
 							}
-						});
+						}
 					}
-				}
+				});
 			}
 			jobManager.executeJobs(jobs);
 			if (firstStep) {
@@ -1692,8 +2330,7 @@ public class SubsettingEngine {
 									
 				}
 			}
-			tablesToCheck = tablesToCheckNextTime;
-			tablesToCheck.retainAll(allTables);
+			associationsToCheck = associationsToCheckNextTime;
 			firstStep = false;
 		}
 
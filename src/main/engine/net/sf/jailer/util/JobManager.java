@@ -16,10 +16,15 @@
 package net.sf.jailer.util;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 
@@ -41,74 +46,56 @@ public class JobManager {
 		void run() throws SQLException, CancellationException;
 	};
 
+	/**
+	 * Provides jobs which are created while other jobs are executed.
+	 */
+	public interface JobSource {
+		
+		/**
+		 * Gets the next job which is ready for execution.
+		 * 
+		 * @return next job or <code>null</code> if currently no job is ready
+		 */
+		Job nextJob();
+		
+		/**
+		 * A job has been executed successfully.
+		 * 
+		 * @param job the job
+		 */
+		void jobDone(Job job);
+	};
+
 	/**
 	 * The logger.
 	 */
 	private static final Logger _log = Logger.getLogger(JobManager.class);
 
 	/**
-	 * The runners list.
+	 * Maximum number of threads.
 	 */
-	private final List<JobRunner> runnersList;
+	private final int threads;
 	
 	/**
-	 * Maximum number of threads.
+	 * Executes the jobs. <code>null</code> if jobs are executed in the calling thread.
 	 */
-	private final int threads;
+	private final ThreadPoolExecutor executor;
 	
 	/**
-	 * Thread for executing jobs.
+	 * Total time (in nanoseconds) jobs have been waiting in queue.
 	 */
-	private class JobRunner implements Runnable {
-
-		/**
-		 * For shutting down the runner.
-		 */
-		private boolean isRunning = true;
-		
-		/**
-		 * Shuts the runner down.
-		 */
-		public synchronized void shutdown() {
-			isRunning = false;
-		}
-
-		/**
-		 * Still running?
-		 */
-		public synchronized boolean isRunning() {
-			return isRunning;
-		}
-		
-		/**
-		 * Executes jobs.
-		 */
-		@Override
-		public void run() {
-			_log.debug("start up");
-			while (isRunning()) {
-				Job job = nextJob();
-				if (job == null) {
-					try {
-						Thread.sleep(100);
-					} catch (InterruptedException e) {
-					}
-				} else {
-					try {
-						incrementJobsInExecutionCounter();
-						job.run();
-						incrementJobsDoneCounter();
-					} catch (Exception e) {
-						setException(e);
-					} finally {
-						decrementJobsInExecutionCounter();
-					}
-				}
-			}
-			_log.debug("shutting down");
-		}
-	}
+	private final AtomicLong totalQueueWaitTime = new AtomicLong();
+	
+	/**
+	 * Total time (in nanoseconds) spent executing jobs.
+	 */
+	private final AtomicLong totalRunTime = new AtomicLong();
 	
+	/**
+	 * Number of executed jobs.
+	 */
+	private final AtomicLong executedJobs = new AtomicLong();
+
 	/**
 	 * Constructor.
 	 * 
@@ -116,23 +103,23 @@ public class JobManager {
 	 */
 	public JobManager(int threads) {
 		this.threads = threads;
-		runnersList = new ArrayList<JobRunner>(threads);
-	}
-	
-	private void ensureThreadCapacity(int capacity) {
 		if (threads > 1) {
-			while (runnersList.size() < Math.min(capacity, threads)) {
-				JobRunner jobRunner = new JobRunner();
-				runnersList.add(jobRunner);
-				String threadName = "job-runner " + runnersList.size();
-				_log.debug("starting " + threadName);
-				Thread thread = new Thread(jobRunner, threadName);
-				thread.setDaemon(true);
-				thread.start();
-			}
+			final AtomicInteger threadNumber = new AtomicInteger(0);
+			executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					String threadName = "job-runner " + threadNumber.incrementAndGet();
+					_log.debug("starting " + threadName);
+					Thread thread = new Thread(runnable, threadName);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		} else {
+			executor = null;
 		}
 	}
-
+	
 	/**
 	 * Executes a list of jobs.
 	 * 
@@ -140,147 +127,208 @@ public class JobManager {
 	 */
 	public void executeJobs(Collection<Job> jobs) throws CancellationException, SQLException {
 		int jobCount = jobs.size();
-		ensureThreadCapacity(jobCount);
 		_log.info("starting " + jobCount + " jobs");
-		if (runnersList.isEmpty()) {
+		long queueWaitTimeBefore = totalQueueWaitTime.get();
+		long runTimeBefore = totalRunTime.get();
+		if (executor == null) {
 			for (Job job: jobs) {
-				job.run();
+				runJob(job, System.nanoTime());
 			}
 		} else {
-			setJobs(new LinkedList<Job>(jobs));
-			while (getJobsDoneCounter() < jobCount || getJobsInExecutionCounter() > 0) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e1) {
-					throw new RuntimeException(e1);
-				}
-				Exception e = getException();
-				if (e != null) {
-					if (!(e instanceof CancellationException)) {
-						_log.error("Job-error", e);
-					}
-					// wait for other jobs
-					while (getJobsInExecutionCounter() > 0) {
+			final CountDownLatch done = new CountDownLatch(jobCount);
+			final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+			for (final Job job: jobs) {
+				final long enqueueTime = System.nanoTime();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
 						try {
-							Thread.sleep(50);
-						} catch (InterruptedException e1) {
-							throw new RuntimeException(e1);
+							// skip remaining jobs after a failure
+							if (exception.get() == null) {
+								runJob(job, enqueueTime);
+							}
+						} catch (Throwable t) {
+							setException(exception, t);
+						} finally {
+							done.countDown();
 						}
 					}
-					if (e instanceof CancellationException) {
-						throw (CancellationException) e;
-					}
-					if (e instanceof SQLException) {
-						throw (SQLException) e;
-					}
-					throw new RuntimeException(e);
-				}
+				});
+			}
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
 			}
+			rethrow(exception.get());
 		}
 		_log.info("executed " + jobCount + " jobs");
-	}
-	
-	/**
-	 * Shuts the manager down.
-	 */
-	public void shutdown() {
-		for (int i = 0; i < runnersList.size(); ++i) {
-			String threadName = "job-runner " + (i + 1);
-			_log.debug("shutting down " + threadName);
-			runnersList.get(i).shutdown();
+		if (_log.isDebugEnabled()) {
+			_log.debug("queue-wait time " + toMillis(totalQueueWaitTime.get() - queueWaitTimeBefore) + " ms, run time " + toMillis(totalRunTime.get() - runTimeBefore) + " ms");
 		}
 	}
-	
-	/**
-	 * Number of executed jobs.
-	 */
-	private int jobsDoneCounter;
-	
-	/**
-	 * Number of jobs currently executed.
-	 */
-	private int jobsInExecutionCounter;
-	
-	/**
-	 * The job-list.
-	 */
-	private List<Job> jobs;
 
 	/**
-	 * Exception during job-execution.
+	 * Executes jobs provided by a {@link JobSource} until no job is running
+	 * and the source provides no more jobs.
+	 * 
+	 * @param jobSource provides the jobs
 	 */
-	private Exception exception;
+	public void executeJobs(final JobSource jobSource) throws CancellationException, SQLException {
+		int jobCount = 0;
+		_log.info("starting jobs");
+		long queueWaitTimeBefore = totalQueueWaitTime.get();
+		long runTimeBefore = totalRunTime.get();
+		if (executor == null) {
+			for (Job job = jobSource.nextJob(); job != null; job = jobSource.nextJob()) {
+				runJob(job, System.nanoTime());
+				jobSource.jobDone(job);
+				++jobCount;
+			}
+		} else {
+			final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+			final int[] running = new int[1];
+			synchronized (running) {
+				for (;;) {
+					if (exception.get() == null) {
+						for (Job job = jobSource.nextJob(); job != null; job = jobSource.nextJob()) {
+							final Job theJob = job;
+							final long enqueueTime = System.nanoTime();
+							++running[0];
+							++jobCount;
+							executor.execute(new Runnable() {
+								@Override
+								public void run() {
+									try {
+										if (exception.get() == null) {
+											runJob(theJob, enqueueTime);
+											jobSource.jobDone(theJob);
+										}
+									} catch (Throwable t) {
+										setException(exception, t);
+									} finally {
+										synchronized (running) {
+											--running[0];
+											running.notifyAll();
+										}
+									}
+								}
+							});
+						}
+					}
+					if (running[0] == 0) {
+						break;
+					}
+					try {
+						running.wait();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+			rethrow(exception.get());
+		}
+		_log.info("executed " + jobCount + " jobs");
+		if (_log.isDebugEnabled()) {
+			_log.debug("queue-wait time " + toMillis(totalQueueWaitTime.get() - queueWaitTimeBefore) + " ms, run time " + toMillis(totalRunTime.get() - runTimeBefore) + " ms");
+		}
+	}
 
 	/**
-	 * Sets the job-list.
-	 * Resets the job-counter to 0.
+	 * Remembers the first exception thrown by a job.
 	 */
-	private synchronized void setJobs(List<Job> jobs) {
-		jobsDoneCounter = 0;
-		jobsInExecutionCounter = 0;
-		this.jobs = jobs;
-		exception = null;
+	private void setException(AtomicReference<Exception> exception, Throwable t) {
+		exception.compareAndSet(null, (t instanceof CancellationException || t instanceof SQLException)? (Exception) t
+				: new RuntimeException(Thread.currentThread().getName() + " failed", t));
 	}
 
 	/**
-	 * Gets the Number of executed jobs.
+	 * Re-throws the exception thrown by a job.
+	 * 
+	 * @param e the exception, may be <code>null</code>
 	 */
-	private synchronized int getJobsDoneCounter() {
-		return jobsDoneCounter;
+	private void rethrow(Exception e) throws CancellationException, SQLException {
+		if (e != null) {
+			if (!(e instanceof CancellationException)) {
+				_log.error("Job-error", e);
+			}
+			if (e instanceof CancellationException) {
+				throw (CancellationException) e;
+			}
+			if (e instanceof SQLException) {
+				throw (SQLException) e;
+			}
+			throw (RuntimeException) e;
+		}
 	}
 
 	/**
-	 * Increments the Number of executed jobs.
+	 * Runs a job and updates the metrics.
+	 * 
+	 * @param job the job
+	 * @param enqueueTime point in time (nano-time) at which the job has been enqueued
 	 */
-	private synchronized void incrementJobsDoneCounter() {
-		++jobsDoneCounter;
+	private void runJob(Job job, long enqueueTime) throws CancellationException, SQLException {
+		// don't start queued jobs after cancellation has been requested
+		CancellationHandler.checkForCancellation(null);
+		long startTime = System.nanoTime();
+		totalQueueWaitTime.addAndGet(startTime - enqueueTime);
+		try {
+			job.run();
+		} finally {
+			totalRunTime.addAndGet(System.nanoTime() - startTime);
+			executedJobs.incrementAndGet();
+		}
 	}
-
+	
 	/**
-	 * Gets the Number of jobs currently executed.
+	 * Shuts the manager down.
 	 */
-	private synchronized int getJobsInExecutionCounter() {
-		return jobsInExecutionCounter;
+	public void shutdown() {
+		if (executor != null) {
+			_log.debug("shutting down " + threads + " job-runners");
+			executor.shutdown();
+		}
 	}
 
 	/**
-	 * Increments the Number of jobs currently executed.
+	 * Gets the number of job-runner threads.
+	 * 
+	 * @return number of threads
 	 */
-	private synchronized void incrementJobsInExecutionCounter() {
-		++jobsInExecutionCounter;
+	public int getThreads() {
+		return threads;
 	}
 
 	/**
-	 * Decrements the Number of jobs currently executed.
+	 * Gets the total time (in milliseconds) the jobs have been waiting for a free job-runner.
+	 * 
+	 * @return total queue-wait time in ms
 	 */
-	private synchronized void decrementJobsInExecutionCounter() {
-		--jobsInExecutionCounter;
+	public long getTotalQueueWaitTime() {
+		return toMillis(totalQueueWaitTime.get());
 	}
 
 	/**
-	 * Gets the exception.
+	 * Gets the total time (in milliseconds) spent executing jobs.
+	 * 
+	 * @return total run time in ms
 	 */
-	private synchronized Exception getException() {
-		return exception;
+	public long getTotalRunTime() {
+		return toMillis(totalRunTime.get());
 	}
-	
+
 	/**
-	 * Gets next job.
+	 * Gets the number of executed jobs.
+	 * 
+	 * @return number of executed jobs
 	 */
-	private synchronized Job nextJob() {
-		if (jobs != null && !jobs.isEmpty()) {
-			return jobs.remove(0);
-		}
-		return null;
+	public long getExecutedJobs() {
+		return executedJobs.get();
 	}
-	
-	/**
-	 * Sets an exception.
-	 */
-	private synchronized void setException(Exception e) {
-		exception = e == null? null : (e instanceof CancellationException || e instanceof SQLException)? e 
-				: new RuntimeException(Thread.currentThread().getName() + " failed", e);
-		jobs = null;
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
 	}
-	
+
 }
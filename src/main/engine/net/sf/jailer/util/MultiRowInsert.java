@@ -0,0 +1,188 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A (multi-row) insert statement of the form
+ * <code>Insert into T(c1, c2) values (v11, v12), (v21, v22)</code>
+ * whose values are plain literals (strings, numbers and NULL).<br>
+ * Such statements can be executed as a parameterized batch.
+ *
+ * @author Ralf Wisser
+ */
+public class MultiRowInsert {
+
+	/**
+	 * Head of an insert statement.
+	 */
+	private static final Pattern INSERT_PATTERN = Pattern.compile("^\\s*insert\\s+into\\s+([^\\s(]+)\\s*\\(([^()]*)\\)\\s*values\\s*(\\(.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	/**
+	 * Numeric literal.
+	 */
+	private static final Pattern NUMBER_PATTERN = Pattern.compile("[-+]?([0-9]+(\\.[0-9]*)?|\\.[0-9]+)([eE][-+]?[0-9]+)?");
+
+	/**
+	 * The table name (as written in the statement).
+	 */
+	public final String tableName;
+
+	/**
+	 * The column list (as written in the statement).
+	 */
+	public final String columns;
+
+	/**
+	 * Number of columns.
+	 */
+	public final int columnCount;
+
+	/**
+	 * The rows. Values are <code>null</code>, {@link String} or {@link BigDecimal}.
+	 */
+	public final List<Object[]> rows;
+
+	private MultiRowInsert(String tableName, String columns, int columnCount, List<Object[]> rows) {
+		this.tableName = tableName;
+		this.columns = columns;
+		this.columnCount = columnCount;
+		this.rows = rows;
+	}
+
+	/**
+	 * Gets the parameterized single-row insert statement.
+	 *
+	 * @return insert statement with one parameter per column
+	 */
+	public String getParameterizedStatement() {
+		StringBuilder sb = new StringBuilder("Insert into " + tableName + "(" + columns + ") values (");
+		for (int i = 0; i < columnCount; ++i) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append("?");
+		}
+		return sb.append(")").toString();
+	}
+
+	/**
+	 * Parses a statement.
+	 *
+	 * @param sql the statement
+	 * @return the parsed insert statement or <code>null</code> if the statement is not a
+	 *         plain (multi-row) insert statement with literal values
+	 */
+	public static MultiRowInsert parse(String sql) {
+		Matcher matcher = INSERT_PATTERN.matcher(sql);
+		if (!matcher.matches()) {
+			return null;
+		}
+		String columns = matcher.group(2).trim();
+		int columnCount = columns.split(",").length;
+		String values = matcher.group(3);
+		int length = values.length();
+		List<Object[]> rows = new ArrayList<Object[]>();
+		int pos = 0;
+		for (;;) {
+			pos = skipWhitespace(values, pos);
+			if (pos >= length || values.charAt(pos) != '(') {
+				return null;
+			}
+			++pos;
+			Object[] row = new Object[columnCount];
+			for (int i = 0; i < columnCount; ++i) {
+				pos = skipWhitespace(values, pos);
+				if (pos >= length) {
+					return null;
+				}
+				char c = values.charAt(pos);
+				int end;
+				if (c == '\'') {
+					StringBuilder sb = new StringBuilder();
+					end = pos + 1;
+					for (;;) {
+						if (end >= length) {
+							return null;
+						}
+						char sc = values.charAt(end);
+						if (sc == '\'') {
+							if (end + 1 < length && values.charAt(end + 1) == '\'') {
+								sb.append('\'');
+								end += 2;
+								continue;
+							}
+							++end;
+							break;
+						}
+						if (sc == '\\') {
+							// may be an escape sequence, depending on the DBMS
+							return null;
+						}
+						sb.append(sc);
+						++end;
+					}
+					row[i] = sb.toString();
+				} else {
+					end = pos;
+					while (end < length && values.charAt(end) != ',' && values.charAt(end) != ')' && !Character.isWhitespace(values.charAt(end))) {
+						++end;
+					}
+					String literal = values.substring(pos, end);
+					if (literal.equalsIgnoreCase("null")) {
+						row[i] = null;
+					} else if (NUMBER_PATTERN.matcher(literal).matches()) {
+						row[i] = new BigDecimal(literal);
+					} else {
+						return null;
+					}
+				}
+				pos = skipWhitespace(values, end);
+				if (pos >= length) {
+					return null;
+				}
+				char delimiter = values.charAt(pos);
+				if (delimiter != (i == columnCount - 1? ')' : ',')) {
+					return null;
+				}
+				++pos;
+			}
+			rows.add(row);
+			pos = skipWhitespace(values, pos);
+			if (pos >= length) {
+				break;
+			}
+			if (values.charAt(pos) != ',') {
+				return null;
+			}
+			++pos;
+		}
+		return new MultiRowInsert(matcher.group(1), columns, columnCount, rows);
+	}
+
+	private static int skipWhitespace(String s, int pos) {
+		while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+			++pos;
+		}
+		return pos;
+	}
+
+}
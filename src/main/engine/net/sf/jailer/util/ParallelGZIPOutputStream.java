@@ -0,0 +1,266 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream which writes data in GZIP format.<br>
+ * The data is split into blocks which are compressed in parallel. Each block is primed
+ * with the last 32K of the preceding block, so the result is a single ordinary GZIP member.
+ * A dedicated writer thread appends the compressed blocks in order.
+ *
+ * @author Ralf Wisser
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+	/**
+	 * Size of uncompressed blocks.
+	 */
+	private static final int BLOCK_SIZE = 128 * 1024;
+
+	/**
+	 * Size of the deflate window.
+	 */
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	/**
+	 * Marks the end of the stream in the queue of pending blocks.
+	 */
+	private final Future<byte[]> endOfStream = new FutureTask<byte[]>(new Callable<byte[]>() {
+		@Override
+		public byte[] call() {
+			return null;
+		}
+	});
+
+	private final OutputStream out;
+	private final ExecutorService compressor;
+	private final BlockingQueue<Future<byte[]>> pendingBlocks;
+	private final Thread writer;
+	private final CRC32 crc = new CRC32();
+	private long size = 0;
+	private byte[] buffer = new byte[BLOCK_SIZE];
+	private int count = 0;
+	private byte[] dictionary = null;
+	private boolean closed = false;
+	private volatile Throwable failure = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out the stream to write the compressed data to
+	 * @param numberOfThreads number of compressing threads
+	 */
+	public ParallelGZIPOutputStream(final OutputStream out, int numberOfThreads) throws IOException {
+		this.out = out;
+		numberOfThreads = Math.max(1, numberOfThreads);
+		this.compressor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "gzip-compressor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.pendingBlocks = new ArrayBlockingQueue<Future<byte[]>>(2 * numberOfThreads);
+		out.write(new byte[] { (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff });
+		this.writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (;;) {
+						Future<byte[]> block = pendingBlocks.take();
+						if (block == endOfStream) {
+							break;
+						}
+						out.write(block.get());
+					}
+				} catch (ExecutionException e) {
+					failure = e.getCause();
+					compressor.shutdownNow();
+				} catch (Throwable t) {
+					failure = t;
+					compressor.shutdownNow();
+				}
+			}
+		}, "gzip-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkFailure();
+		if (closed) {
+			throw new IOException("stream closed");
+		}
+		crc.update(b, off, len);
+		size += len;
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+			if (count == BLOCK_SIZE) {
+				submitBlock(false);
+			}
+		}
+	}
+
+	/**
+	 * Does not flush incomplete blocks in order to not impair compression.
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkFailure();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			submitBlock(true);
+			put(endOfStream);
+			writer.join();
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} finally {
+			compressor.shutdown();
+		}
+		checkFailure();
+		long crcValue = crc.getValue();
+		out.write(new byte[] {
+				(byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24),
+				(byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24) });
+		out.close();
+	}
+
+	/**
+	 * Hands the current block over to the compressor.
+	 *
+	 * @param last <code>true</code> if it's the last block of the stream
+	 */
+	private void submitBlock(final boolean last) throws IOException {
+		final byte[] data = Arrays.copyOf(buffer, count);
+		final byte[] blockDictionary = dictionary;
+		if (count >= DICTIONARY_SIZE) {
+			dictionary = Arrays.copyOfRange(data, count - DICTIONARY_SIZE, count);
+		} else if (count > 0) {
+			int fromPrevious = Math.min(DICTIONARY_SIZE - count, dictionary == null? 0 : dictionary.length);
+			byte[] newDictionary = new byte[fromPrevious + count];
+			if (fromPrevious > 0) {
+				System.arraycopy(dictionary, dictionary.length - fromPrevious, newDictionary, 0, fromPrevious);
+			}
+			System.arraycopy(data, 0, newDictionary, fromPrevious, count);
+			dictionary = newDictionary;
+		}
+		count = 0;
+		try {
+			put(compressor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() {
+					return deflate(data, blockDictionary, last);
+				}
+			}));
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Puts a block into the queue of pending blocks.
+	 */
+	private void put(Future<byte[]> block) throws InterruptedException, IOException {
+		while (!pendingBlocks.offer(block, 100, TimeUnit.MILLISECONDS)) {
+			checkFailure();
+		}
+	}
+
+	/**
+	 * Compresses a block.
+	 *
+	 * @param data the uncompressed data
+	 * @param dictionary the preset dictionary or <code>null</code>
+	 * @param last <code>true</code> if it's the last block of the stream
+	 * @return the compressed block
+	 */
+	private static byte[] deflate(byte[] data, byte[] dictionary, boolean last) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(data);
+			ByteArrayOutputStream result = new ByteArrayOutputStream(data.length / 3 + 64);
+			byte[] out = new byte[64 * 1024];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					int n = deflater.deflate(out);
+					result.write(out, 0, n);
+				}
+			} else {
+				int n;
+				do {
+					n = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+					result.write(out, 0, n);
+				} while (n == out.length);
+			}
+			return result.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Rethrows exception caught by the writer thread or a compressing thread.
+	 */
+	private void checkFailure() throws IOException {
+		Throwable t = failure;
+		if (t != null) {
+			if (t instanceof IOException) {
+				throw (IOException) t;
+			}
+			throw new IOException(t);
+		}
+	}
+
+}
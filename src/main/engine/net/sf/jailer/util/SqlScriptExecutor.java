@@ -27,7 +27,21 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -90,6 +104,26 @@ public class SqlScriptExecutor {
 
 	private RuntimeException exception;
 	
+	/**
+	 * Number of statements per JDBC batch. 0 if statements are executed one by one.
+	 */
+	private int batchSize = 0;
+
+	/**
+	 * Number of statements after which the rows are committed (batch mode only). 0 for no intermediate commits.
+	 */
+	private int commitInterval = 0;
+
+	/**
+	 * Statements to be executed as a batch.
+	 */
+	private List<String> pendingBatch = new ArrayList<String>();
+
+	/**
+	 * SQL types of the columns of insert statements, per table and column list.
+	 */
+	private final Map<String, int[]> columnTypes = new ConcurrentHashMap<String, int[]>();
+	
 	/**
 	 * Constructor.
 	 * 
@@ -113,6 +147,27 @@ public class SqlScriptExecutor {
 		this(session, threads, true);
 	}
 
+	/**
+	 * Sets the number of statements per JDBC batch.<br>
+	 * If greater than 0, consecutive statements between two "sync" markers are executed as batches.
+	 * Plain multi-row insert statements are executed as parameterized batches.
+	 * 
+	 * @param batchSize number of statements per batch, 0 to execute statements one by one
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the number of statements after which the rows are committed.
+	 * Only applies to batch mode and non-transactional sessions.
+	 * 
+	 * @param commitInterval number of statements, 0 for no intermediate commits
+	 */
+	public void setCommitInterval(int commitInterval) {
+		this.commitInterval = commitInterval;
+	}
+
 	/**
 	 * Reads in and executes a SQL-script.
 	 * 
@@ -185,6 +240,9 @@ public class SqlScriptExecutor {
 	
 	private long submittedTasks;
 	private AtomicLong executedTasks;
+	private AtomicLong linesRead;
+	private AtomicLong totalRowCount;
+	private AtomicInteger count;
 	
 	/**
 	 * Reads in and executes a SQL-script.
@@ -261,10 +319,12 @@ public class SqlScriptExecutor {
 		
 		String line = null;
 		StringBuffer currentStatement = new StringBuffer();
-		final AtomicLong linesRead = new AtomicLong(0);
-		final AtomicLong totalRowCount = new AtomicLong(0);
-		final AtomicLong t = new AtomicLong(System.currentTimeMillis());
-		final AtomicInteger count = new AtomicInteger(0);
+		linesRead = new AtomicLong(0);
+		totalRowCount = new AtomicLong(0);
+		final long startTime = System.currentTimeMillis();
+		final AtomicLong t = new AtomicLong(startTime);
+		count = new AtomicInteger(0);
+		pendingBatch = new ArrayList<String>();
 		submittedTasks = 0;
 		executedTasks = new AtomicLong(0);
 		final long finalFileSize = fileSize;
@@ -287,7 +347,7 @@ public class SqlScriptExecutor {
 							p = 999;
 						}
 					}
-					_log.info(linesRead + " statements" + (p >= 0? " (" + String.format("%1.1f", p / 10.0) + "%)" : ""));
+					_log.info(linesRead + " statements" + (p >= 0? " (" + String.format("%1.1f", p / 10.0) + "%)" : "") + ", " + statementsPerSecond(startTime) + " statements/sec");
 				}
 			}
 		};
@@ -333,7 +393,8 @@ public class SqlScriptExecutor {
 				}
 				if (line.endsWith(";")) {
 					currentStatement.append(line.substring(0, line.length() - 1));
-					if (IDENTITY_INSERT.matcher(currentStatement).matches()) {
+					boolean isIdentityInsert = IDENTITY_INSERT.matcher(currentStatement).matches();
+					if (isIdentityInsert) {
 						sync();
 						if (executor != null) {
 							executor.shutdown();
@@ -342,63 +403,70 @@ public class SqlScriptExecutor {
 					}
 					final String stmt = currentStatement.toString();
 					final boolean finalTryMode = tryMode;
-					execute(new Runnable() {
-						@Override
-						public void run() {
-							boolean startsWithDrop = stmt.trim().toLowerCase().startsWith("drop");
-							boolean silent = session.getSilent();
-							session.setSilent(silent || finalTryMode || startsWithDrop);
-							boolean oldLogStatements = session.getLogStatements();
-							session.setLogStatements(logStatements);
-							try {
-								if (stmt.trim().length() > 0) {
-									boolean done = false;
-									long rc = 0;
-									if (startsWithDrop) {
-										// [bugs:#37] PostreSQL: transactional execution
-										String withExists = stmt.replaceFirst("(?is)(DROP\\s+TABLE\\s+)", "$1IF EXISTS ");
-										if (!withExists.equals(stmt)) {
-											try {
-												rc = session.execute(withExists);
-											} catch (SQLException e) {
-												rc = session.execute(stmt);
+					if (batchSize > 0 && inSync && !tryMode && !isIdentityInsert && stmt.trim().length() > 0 && !stmt.trim().toLowerCase().startsWith("drop")) {
+						pendingBatch.add(stmt);
+						if (pendingBatch.size() >= Math.max(batchSize, commitInterval)) {
+							flushBatch();
+						}
+					} else {
+						execute(new Runnable() {
+							@Override
+							public void run() {
+								boolean startsWithDrop = stmt.trim().toLowerCase().startsWith("drop");
+								boolean silent = session.getSilent();
+								session.setSilent(silent || finalTryMode || startsWithDrop);
+								boolean oldLogStatements = session.getLogStatements();
+								session.setLogStatements(logStatements);
+								try {
+									if (stmt.trim().length() > 0) {
+										boolean done = false;
+										long rc = 0;
+										if (startsWithDrop) {
+											// [bugs:#37] PostreSQL: transactional execution
+											String withExists = stmt.replaceFirst("(?is)(DROP\\s+TABLE\\s+)", "$1IF EXISTS ");
+											if (!withExists.equals(stmt)) {
+												try {
+													rc = session.execute(withExists);
+												} catch (SQLException e) {
+													rc = session.execute(stmt);
+												}
+												done = true;
 											}
-											done = true;
+										}
+										if (!done) {
+											rc = session.execute(stmt);
+										}
+										totalRowCount.addAndGet(rc);
+										linesRead.getAndIncrement();
+										if (!startsWithDrop) {
+											count.getAndIncrement();
 										}
 									}
-									if (!done) {
-										rc = session.execute(stmt);
-									}
-									totalRowCount.addAndGet(rc);
-									linesRead.getAndIncrement();
-									if (!startsWithDrop) {
-										count.getAndIncrement();
+								} catch (SQLException e) {
+									try {
+										// [bugs:#37] PostreSQL: transactional execution
+										session.getConnection().rollback();
+									} catch (SQLException e1) {
+										// ignore
 									}
-								}
-							} catch (SQLException e) {
-								try {
-									// [bugs:#37] PostreSQL: transactional execution
-									session.getConnection().rollback();
-								} catch (SQLException e1) {
-									// ignore
-								}
-								// drop may fail
-								if (!finalTryMode && !startsWithDrop) {
-									// fix for bug [2946477]
-									if (!stmt.trim().toUpperCase().contains("DROP TABLE JAILER_DUAL")) {
-										Session._log.warn(stmt, e);
-										if (e instanceof SqlException) {
-											((SqlException) e).setInsufficientPrivileges(count.get() == 0);
+									// drop may fail
+									if (!finalTryMode && !startsWithDrop) {
+										// fix for bug [2946477]
+										if (!stmt.trim().toUpperCase().contains("DROP TABLE JAILER_DUAL")) {
+											Session._log.warn(stmt, e);
+											if (e instanceof SqlException) {
+												((SqlException) e).setInsufficientPrivileges(count.get() == 0);
+											}
+											throw new RuntimeException(e);
 										}
-										throw new RuntimeException(e);
 									}
+								} finally {
+									session.setSilent(silent);
+									session.setLogStatements(oldLogStatements);
 								}
-							} finally {
-								session.setSilent(silent);
-								session.setLogStatements(oldLogStatements);
 							}
-						}
-					}, inSync);
+						}, inSync);
+					}
 					currentStatement.setLength(0);
 					logProgress.run();
 					tryMode = false;
@@ -417,7 +485,7 @@ public class SqlScriptExecutor {
 			}
 			bufferedReader.close();
 			sync();
-			_log.info(linesRead + " statements (100%)");
+			_log.info(linesRead + " statements (100%), " + statementsPerSecond(startTime) + " statements/sec");
 			_log.info("successfully read file '" + scriptFileName + "'");
 			Pair<Integer, Long> r = new Pair<Integer, Long>(count.get(), totalRowCount.get());
 			synchronized (SqlScriptExecutor.class) {
@@ -478,7 +546,291 @@ public class SqlScriptExecutor {
 		}
 	}
 
+	/**
+	 * Gets number of executed statements per second.
+	 * 
+	 * @param startTime time at which the execution started
+	 */
+	private long statementsPerSecond(long startTime) {
+		return (1000L * linesRead.get()) / Math.max(1, System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Submits the pending batch for execution.
+	 */
+	private void flushBatch() {
+		if (pendingBatch.isEmpty()) {
+			return;
+		}
+		final List<String> batch = pendingBatch;
+		pendingBatch = new ArrayList<String>();
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					totalRowCount.addAndGet(executeBatch(batch));
+					linesRead.addAndGet(batch.size());
+					count.addAndGet(batch.size());
+				} catch (SQLException e) {
+					Session._log.warn("batch execution failed", e);
+					if (e instanceof SqlException) {
+						((SqlException) e).setInsufficientPrivileges(count.get() == 0);
+					}
+					throw new RuntimeException(e);
+				}
+			}
+		}, true);
+	}
+
+	/**
+	 * Executes statements as JDBC batches. Plain multi-row insert statements are
+	 * executed as parameterized batches.
+	 * 
+	 * @param statements the statements
+	 * @return row count
+	 */
+	private long executeBatch(List<String> statements) throws SQLException {
+		Connection connection = session.getConnection();
+		boolean explicitCommit = commitInterval > 0 && connection.getAutoCommit();
+		if (explicitCommit) {
+			connection.setAutoCommit(false);
+		}
+		long rc = 0;
+		Statement statement = null;
+		PreparedStatement preparedStatement = null;
+		String preparedSQL = null;
+		int pending = 0;
+		String currentSQL = null;
+		try {
+			for (String stmt: statements) {
+				currentSQL = stmt;
+				MultiRowInsert insert = MultiRowInsert.parse(stmt);
+				int[] types = insert == null? null : getColumnTypes(connection, insert);
+				if (types != null && isBindable(insert, types)) {
+					if (statement != null) {
+						rc += executeBatch(statement, 0);
+						statement.close();
+						statement = null;
+						pending = 0;
+					}
+					String sql = insert.getParameterizedStatement();
+					if (!sql.equals(preparedSQL)) {
+						if (preparedStatement != null) {
+							rc += executeBatch(preparedStatement, 1);
+							preparedStatement.close();
+							pending = 0;
+						}
+						preparedStatement = connection.prepareStatement(sql);
+						preparedSQL = sql;
+					}
+					for (Object[] row: insert.rows) {
+						for (int i = 0; i < row.length; ++i) {
+							bind(preparedStatement, i + 1, row[i], types[i]);
+						}
+						preparedStatement.addBatch();
+						++pending;
+					}
+				} else {
+					if (preparedStatement != null) {
+						rc += executeBatch(preparedStatement, 1);
+						preparedStatement.close();
+						preparedStatement = null;
+						preparedSQL = null;
+						pending = 0;
+					}
+					if (statement == null) {
+						statement = connection.createStatement();
+					}
+					statement.addBatch(stmt);
+					++pending;
+				}
+				if (pending >= batchSize) {
+					if (statement != null) {
+						rc += executeBatch(statement, 0);
+					}
+					if (preparedStatement != null) {
+						rc += executeBatch(preparedStatement, 1);
+					}
+					pending = 0;
+				}
+			}
+			currentSQL = null;
+			if (statement != null) {
+				rc += executeBatch(statement, 0);
+			}
+			if (preparedStatement != null) {
+				rc += executeBatch(preparedStatement, 1);
+			}
+			if (explicitCommit) {
+				connection.commit();
+			}
+			return rc;
+		} catch (SQLException e) {
+			if (explicitCommit) {
+				try {
+					connection.rollback();
+				} catch (SQLException e1) {
+					// ignore
+				}
+			}
+			String sql = currentSQL == null? statements.get(statements.size() - 1) : currentSQL;
+			throw new SqlException("\"" + e.getMessage() + "\" in batch containing statement \"" + sql + "\"", sql, e);
+		} finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					// ignore
+				}
+			}
+			if (preparedStatement != null) {
+				try {
+					preparedStatement.close();
+				} catch (SQLException e) {
+					// ignore
+				}
+			}
+			if (explicitCommit) {
+				connection.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * Executes a batch.
+	 * 
+	 * @param statement the statement
+	 * @param defaultRowCount row count of statements for which the driver doesn't report a row count
+	 * @return row count
+	 */
+	private long executeBatch(Statement statement, int defaultRowCount) throws SQLException {
+		long rc = 0;
+		for (int n: statement.executeBatch()) {
+			rc += n == Statement.SUCCESS_NO_INFO? defaultRowCount : Math.max(n, 0);
+		}
+		return rc;
+	}
+
+	/**
+	 * Gets the SQL types of the columns of an insert statement.
+	 * 
+	 * @return the types or <code>null</code> if the types are unknown
+	 */
+	private int[] getColumnTypes(Connection connection, MultiRowInsert insert) {
+		String key = insert.tableName + "(" + insert.columns + ")";
+		int[] types = columnTypes.get(key);
+		if (types == null) {
+			types = new int[0];
+			Statement statement = null;
+			try {
+				statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("Select " + insert.columns + " from " + insert.tableName + " where 1=0");
+				ResultSetMetaData metaData = resultSet.getMetaData();
+				if (metaData.getColumnCount() == insert.columnCount) {
+					types = new int[insert.columnCount];
+					for (int i = 0; i < types.length; ++i) {
+						types[i] = metaData.getColumnType(i + 1);
+					}
+				}
+				resultSet.close();
+			} catch (SQLException e) {
+				_log.info("unknown column types for " + key + ": " + e.getMessage());
+			} finally {
+				if (statement != null) {
+					try {
+						statement.close();
+					} catch (SQLException e) {
+						// ignore
+					}
+				}
+			}
+			columnTypes.put(key, types);
+		}
+		return types.length == 0? null : types;
+	}
+
+	/**
+	 * Checks whether all values of an insert statement can be bound to parameters without loss of information.
+	 */
+	private boolean isBindable(MultiRowInsert insert, int[] types) {
+		for (Object[] row: insert.rows) {
+			for (int i = 0; i < row.length; ++i) {
+				if (row[i] != null && toParameter(row[i], types[i]) == null) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Binds a value to a parameter.
+	 */
+	private void bind(PreparedStatement statement, int index, Object value, int type) throws SQLException {
+		if (value == null) {
+			statement.setNull(index, type);
+		} else {
+			statement.setObject(index, toParameter(value, type));
+		}
+	}
+
+	/**
+	 * Converts a literal into a parameter value of a given SQL type.
+	 * 
+	 * @param value the literal value
+	 * @param type the SQL type
+	 * @return the parameter value or <code>null</code> if the literal can't be converted without loss of information
+	 */
+	private static Object toParameter(Object value, int type) {
+		try {
+			if (value instanceof BigDecimal) {
+				BigDecimal number = (BigDecimal) value;
+				switch (type) {
+				case Types.TINYINT:
+				case Types.SMALLINT:
+				case Types.INTEGER:
+				case Types.BIGINT:
+					return number.longValueExact();
+				case Types.NUMERIC:
+				case Types.DECIMAL:
+					return number;
+				}
+			} else {
+				String string = (String) value;
+				switch (type) {
+				case Types.CHAR:
+				case Types.VARCHAR:
+				case Types.LONGVARCHAR:
+				case Types.NCHAR:
+				case Types.NVARCHAR:
+				case Types.LONGNVARCHAR:
+				case Types.CLOB:
+				case Types.NCLOB:
+					return string;
+				case Types.DATE:
+					if (string.length() == 10) {
+						return Date.valueOf(string);
+					}
+					break;
+				case Types.TIME:
+					if (string.length() == 8) {
+						return Time.valueOf(string);
+					}
+					break;
+				case Types.TIMESTAMP:
+					return Timestamp.valueOf(string);
+				}
+			}
+		} catch (ArithmeticException e) {
+			// not convertible
+		} catch (IllegalArgumentException e) {
+			// not convertible
+		}
+		return null;
+	}
+
 	private void sync() {
+		flushBatch();
 		if (executor != null) {
 			while (submittedTasks > executedTasks.get()) {
 				try {
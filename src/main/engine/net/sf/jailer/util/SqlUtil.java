@@ -362,6 +362,61 @@ public class SqlUtil {
 		return sb.toString();
 	}
 
+	/**
+	 * Joins conditions with "or". The disjunction is nested as a balanced tree
+	 * so that the parser of the DBMS doesn't have to descend into a deep chain.
+	 * 
+	 * @param conditions the conditions (at least one)
+	 * @return the disjunction
+	 */
+	public static String disjunction(List<String> conditions) {
+		return disjunction(conditions, 0, conditions.size());
+	}
+
+	private static String disjunction(List<String> conditions, int from, int to) {
+		if (to - from == 1) {
+			return "(" + conditions.get(from) + ")";
+		}
+		int mid = (from + to) / 2;
+		return "(" + disjunction(conditions, from, mid) + " or " + disjunction(conditions, mid, to) + ")";
+	}
+
+	/**
+	 * Gets the condition for the rows following a given key in key order (keyset pagination).
+	 * 
+	 * @param alias alias of the table
+	 * @param columns the (quoted) key columns, in sort order
+	 * @param key the key values (SQL literals)
+	 * @return condition selecting the rows whose key is greater than the given one
+	 */
+	public static String keysetCondition(String alias, List<String> columns, String[] key) {
+		return keysetCondition(alias, columns, key, false);
+	}
+
+	/**
+	 * Gets the condition for the rows following or preceding a given key in key order (keyset pagination).
+	 * 
+	 * @param alias alias of the table
+	 * @param columns the (quoted) key columns, in sort order
+	 * @param key the key values (SQL literals)
+	 * @param preceding <code>true</code> for the rows preceding the given key
+	 * @return condition selecting the rows whose key is greater (or less) than the given one
+	 */
+	public static String keysetCondition(String alias, List<String> columns, String[] key, boolean preceding) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < columns.size(); ++i) {
+			if (i > 0) {
+				sb.append(" or ");
+			}
+			sb.append("(");
+			for (int j = 0; j < i; ++j) {
+				sb.append(alias + "." + columns.get(j) + "=" + key[j] + " and ");
+			}
+			sb.append(alias + "." + columns.get(i) + (preceding? "<" : ">") + key[i] + ")");
+		}
+		return sb.toString();
+	}
+
 	public static final String LETTERS_AND_DIGITS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_0123456789";
 
 	public static String toString(Double content) {
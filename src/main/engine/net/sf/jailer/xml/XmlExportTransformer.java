@@ -22,6 +22,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -115,6 +116,81 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 
 	private final Quoting quoting;
 	
+	/**
+	 * Maximum number of top-level entities to be buffered before they are written out
+	 * if the dependent entities are read set-based.
+	 */
+	private static final int MAX_BUFFERED_ROOTS = 1000;
+
+	/**
+	 * Whether the dependent entities are read for a set of entities at once.
+	 */
+	private final boolean setBased;
+
+	/**
+	 * Buffered top-level entities. (set-based mode)
+	 */
+	private final List<Row> bufferedRoots = new ArrayList<Row>();
+
+	/**
+	 * An entity read into memory. (set-based mode)
+	 */
+	private static class Row {
+
+		/**
+		 * Entity's table.
+		 */
+		final Table table;
+
+		/**
+		 * Association to parent, <code>null</code> for top-level entities.
+		 */
+		final Association association;
+
+		/**
+		 * The parent, <code>null</code> for top-level entities.
+		 */
+		final Row parent;
+
+		/**
+		 * SQL literals of the primary key columns.
+		 */
+		final String[] keys;
+
+		/**
+		 * The primary key as string (for cycle detection).
+		 */
+		final String primaryKey;
+
+		/**
+		 * The column values ("C0", "C1", ...).
+		 */
+		final Object[] values;
+
+		/**
+		 * The aggregated entities per association.
+		 */
+		final Map<Association, List<Row>> children = new LinkedHashMap<Association, List<Row>>();
+
+		Row(Table table, Association association, Row parent, String[] keys, String primaryKey, Object[] values) {
+			this.table = table;
+			this.association = association;
+			this.parent = parent;
+			this.keys = keys;
+			this.primaryKey = primaryKey;
+			this.values = values;
+		}
+
+		List<Row> getChildren(Association association) {
+			List<Row> rows = children.get(association);
+			if (rows == null) {
+				rows = new ArrayList<Row>();
+				children.put(association, rows);
+			}
+			return rows;
+		}
+	}
+
 	/**
 	 * Constructor.
 	 * 
@@ -137,6 +213,7 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 		this.session = session;
 		this.quoting = new Quoting(session);
 		this.rowIdSupport = new RowIdSupport(entityGraph.getDatamodel(), session.dbms, executionContext);
+		this.setBased = entityGraph.supportsSetBasedDependentEntities();
 	}
 
 	/**
@@ -145,6 +222,13 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 	@Override
 	public void readCurrentRow(ResultSet resultSet) throws SQLException {
 		try {
+			if (setBased) {
+				bufferedRoots.add(readRow(table, null, null, resultSet));
+				if (bufferedRoots.size() >= MAX_BUFFERED_ROOTS) {
+					flush();
+				}
+				return;
+			}
 			writeEntity(table, null, resultSet, new ArrayList<String>(), getCellContentConverter(resultSet, session, session.dbms));
 		} catch (SAXException e) {
 			throw new RuntimeException(e);
@@ -187,15 +271,7 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 		
 		TableMapping tableMapping = getTableMapping(table);
 		
-		Map<String, Association> associationMap = associationCache.get(table);
-		if (associationMap == null) {
-			associationMap = new HashMap<String, Association>();
-			for (Association a: table.associations) {
-				associationMap.put(a.getName(), a);
-			}
-			associationCache.put(table, associationMap);
-		}
-		final Map<String, Association> finalAssociationMap = associationMap;
+		final Map<String, Association> finalAssociationMap = getAssociationMap(table);
 		
 		XmlUtil.visitDocumentNodes(tableMapping.template, xmlRowWriter.new XmlWritingNodeVisitor(resultSet, getMetaData(resultSet), table, association, session) {
 			@Override
@@ -240,6 +316,240 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 		ancestors.remove(ancestors.size() - 1);
 	}
 
+	/**
+	 * Gets the associations of a table by name.
+	 * 
+	 * @param table the table
+	 * @return the associations of table by name
+	 */
+	private Map<String, Association> getAssociationMap(Table table) {
+		Map<String, Association> associationMap = associationCache.get(table);
+		if (associationMap == null) {
+			associationMap = new HashMap<String, Association>();
+			for (Association a: table.associations) {
+				associationMap.put(a.getName(), a);
+			}
+			associationCache.put(table, associationMap);
+		}
+		return associationMap;
+	}
+
+	/**
+	 * Gets the association with a given name if entities are aggregated along it.
+	 * 
+	 * @param table the table
+	 * @param associationName the name
+	 * @return the association or <code>null</code>
+	 */
+	private Association getAggregatingAssociation(Table table, String associationName) {
+		Association sa = getAssociationMap(table).get(associationName);
+		if (sa != null && totalProgress.contains(sa.destination) && sa.getAggregationSchema() != AggregationSchema.NONE) {
+			return sa;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the current row of a result set into memory. (set-based mode)
+	 * 
+	 * @param table entity's table
+	 * @param association association to parent, <code>null</code> for top-level entities
+	 * @param parent the parent, <code>null</code> for top-level entities
+	 * @param resultSet current row contains entity to read
+	 * @return the entity
+	 */
+	private Row readRow(Table table, Association association, Row parent, ResultSet resultSet) throws SQLException, SAXException, IOException {
+		CellContentConverter cellContentConverter = getCellContentConverter(resultSet, session, session.dbms);
+		String[] keys = new String[rowIdSupport.getPrimaryKey(table).getColumns().size()];
+		StringBuilder sb = new StringBuilder(table.getName() + "(");
+		for (int i = 0; i < keys.length; ++i) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			keys[i] = cellContentConverter.toSql(cellContentConverter.getObject(resultSet, "PK" + i));
+			sb.append(keys[i]);
+		}
+		sb.append(")");
+		String primaryKey = sb.toString();
+
+		checkAggregationCycle(parent, primaryKey);
+
+		XmlRowWriter.XmlWritingNodeVisitor valueReader = xmlRowWriter.new XmlWritingNodeVisitor(resultSet, getMetaData(resultSet), table, association, session) {
+			@Override
+			public void visitAssociationElement(String associationName) {
+			}
+		};
+		Object[] values = new Object[getTableMapping(table).numberOfColumns];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = valueReader.getValue("C" + i);
+		}
+		return new Row(table, association, parent, keys, primaryKey, values);
+	}
+
+	/**
+	 * Fails if an entity would aggregate itself. (set-based mode)
+	 * 
+	 * @param parent the parent of the entity
+	 * @param primaryKey the primary key of the entity
+	 */
+	private void checkAggregationCycle(Row parent, String primaryKey) {
+		for (Row ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+			if (ancestor.primaryKey.equals(primaryKey)) {
+				throw new RuntimeException("cyclic aggregation: " + primaryKey
+						+ " aggregates itself");
+			}
+		}
+	}
+
+	/**
+	 * Reads the entities aggregated by a set of entities of the same table, recursively. (set-based mode)
+	 * 
+	 * @param table the table
+	 * @param rows the entities
+	 */
+	private void readAggregatedRows(Table table, final List<Row> rows) throws SQLException, SAXException, IOException {
+		if (rows.isEmpty()) {
+			return;
+		}
+		final List<Association> associations = new ArrayList<Association>();
+		final Table finalTable = table;
+		XmlUtil.visitDocumentNodes(getTableMapping(table).template, new NodeVisitor() {
+			@Override
+			public void visitAssociationElement(String associationName) {
+				Association sa = getAggregatingAssociation(finalTable, associationName);
+				if (sa != null && !associations.contains(sa)) {
+					associations.add(sa);
+				}
+			}
+			@Override
+			public void visitComment(String comment) {
+			}
+			@Override
+			public void visitElementEnd(String elementName, boolean isRoot) {
+			}
+			@Override
+			public void visitText(String text) {
+			}
+			@Override
+			public void visitElementStart(String elementName, boolean isRoot, String[] attributeNames, String[] attributeValues) {
+			}
+		});
+		if (associations.isEmpty()) {
+			return;
+		}
+		// an entity can be aggregated by more than one parent, the keys are passed to the entity graph only once
+		List<String[]> parentKeys = new ArrayList<String[]>(rows.size());
+		final List<List<Row>> parentsPerKey = new ArrayList<List<Row>>(rows.size());
+		Map<String, List<Row>> parentsByKey = new HashMap<String, List<Row>>();
+		for (Row row: rows) {
+			List<Row> parents = parentsByKey.get(row.primaryKey);
+			if (parents == null) {
+				parents = new ArrayList<Row>(1);
+				parentsByKey.put(row.primaryKey, parents);
+				parentKeys.add(row.keys);
+				parentsPerKey.add(parents);
+			}
+			parents.add(row);
+		}
+		for (final Association sa: associations) {
+			final List<Row> children = new ArrayList<Row>();
+			ResultSetReader reader = new ResultSetReader() {
+				@Override
+				public void readCurrentRow(ResultSet resultSet) throws SQLException {
+					List<Row> parents = parentsPerKey.get(resultSet.getInt(getMetaData(resultSet).getColumnCount()));
+					try {
+						Row child = readRow(sa.destination, sa, parents.get(0), resultSet);
+						parents.get(0).getChildren(sa).add(child);
+						children.add(child);
+						for (Row parent: parents.subList(1, parents.size())) {
+							checkAggregationCycle(parent, child.primaryKey);
+							Row copy = new Row(child.table, sa, parent, child.keys, child.primaryKey, child.values);
+							parent.getChildren(sa).add(copy);
+							children.add(copy);
+						}
+					} catch (SAXException e) {
+						throw new RuntimeException(e);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+				@Override
+				public void close() {
+				}
+			};
+			TableMapping destinationMapping = getTableMapping(sa.destination);
+			entityGraph.readDependentEntities(sa.destination, sa, parentKeys, reader, destinationMapping.selectionSchema, destinationMapping.originalPKAliasPrefix);
+			if (cyclicAggregatedTables.contains(sa.destination)) {
+				entityGraph.markDependentEntitiesAsTraversed(sa, parentKeys);
+			}
+			readAggregatedRows(sa.destination, children);
+		}
+	}
+
+	/**
+	 * Writes an entity read into memory as XML hierarchy. (set-based mode)
+	 * 
+	 * @param row the entity
+	 */
+	private void writeRow(final Row row) throws SAXException, IOException {
+		XmlUtil.visitDocumentNodes(getTableMapping(row.table).template, xmlRowWriter.new XmlWritingNodeVisitor(null, null, row.table, row.association, session) {
+			@Override
+			protected Object getValue(String columnName) {
+				return row.values[Integer.parseInt(columnName.substring(1))];
+			}
+			@Override
+			public void visitAssociationElement(String associationName) {
+				Association sa = getAggregatingAssociation(row.table, associationName);
+				if (sa != null) {
+					try {
+						xmlRowWriter.startList(sa);
+						List<Row> children = row.children.get(sa);
+						if (children != null) {
+							for (Row child: children) {
+								writeRow(child);
+							}
+						}
+						xmlRowWriter.endList(sa);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reads the entities aggregated by the buffered top-level entities and writes them all out. (set-based mode)
+	 */
+	private void flush() throws SQLException {
+		if (bufferedRoots.isEmpty()) {
+			return;
+		}
+		try {
+			Map<Table, List<Row>> rootsPerTable = new LinkedHashMap<Table, List<Row>>();
+			for (Row row: bufferedRoots) {
+				List<Row> rows = rootsPerTable.get(row.table);
+				if (rows == null) {
+					rows = new ArrayList<Row>();
+					rootsPerTable.put(row.table, rows);
+				}
+				rows.add(row);
+			}
+			for (Map.Entry<Table, List<Row>> e: rootsPerTable.entrySet()) {
+				readAggregatedRows(e.getKey(), e.getValue());
+			}
+			for (Row row: bufferedRoots) {
+				writeRow(row);
+			}
+		} catch (SAXException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			bufferedRoots.clear();
+		}
+	}
+
 	/**
 	 * Gets type cache for given table.
 	 * 
@@ -265,7 +575,8 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 	/**
 	 * Closes the XML document.
 	 */
-	public void endDocument() throws SAXException {
+	public void endDocument() throws SAXException, SQLException {
+		flush();
 		xmlRowWriter.close();
 	}
 
@@ -273,7 +584,8 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 	 * Flushes the export-reader.
 	 */
 	@Override
-	public void close() {
+	public void close() throws SQLException {
+		flush();
 	}
 	
 	/**
@@ -295,6 +607,11 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 		 * Prefix of column aliases for selection of unfiltered PK values.
 		 */
 		public String originalPKAliasPrefix;
+
+		/**
+		 * Number of columns (other than primary key columns) in selection schema.
+		 */
+		public int numberOfColumns;
 	}
 	
 	/**
@@ -312,7 +629,7 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 		if (tableMappings.containsKey(table)) {
 			return tableMappings.get(table);
 		}
-		TableMapping tableMapping = new TableMapping();
+		final TableMapping tableMapping = new TableMapping();
 		tableMappings.put(table, tableMapping);
 		
 		boolean isFiltered = false;
@@ -379,6 +696,7 @@ public class XmlExportTransformer extends AbstractResultSetReader {
 						sb.append(", ");
 					}
 					sb.append(text.substring(XmlUtil.SQL_PREFIX.length()) + " AS C" + nr++);
+					tableMapping.numberOfColumns = nr;
 				}
 			}
 			@Override
@@ -201,58 +201,66 @@ public class XmlRowWriter {
 		private String toXml(String text, boolean returnNull) {
 			if (text != null && text.startsWith(XmlUtil.SQL_PREFIX)) {
 				String columnName = "C" + nr++;
-				int type;
 				try {
-					Map<String, Integer> typeCache = typeCachesForStringKey.get(table);
-					if (typeCache == null) {
-						typeCache = new HashMap<String, Integer>();
-						typeCachesForStringKey.put(table, typeCache);
+					Object o = getValue(columnName);
+					if (o == null) {
+						return returnNull? null : "";
 					}
-					type = SqlUtil.getColumnType(resultSet, resultSetMetaData, columnName, typeCache);
-					if ((type == Types.BLOB || type == Types.CLOB|| type == Types.NCLOB) && !DBMS.SQLITE.equals(session.dbms)) {
-						Object object = resultSet.getObject(columnName);
-						if (returnNull && (object == null || resultSet.wasNull())) {
-							return null;
-						}
-						if (object instanceof Blob) {
-							Blob blob = (Blob) object;
-							byte[] blobValue = blob.getBytes(1, (int) blob.length());
-							return Base64.encodeBytes(blobValue);
-						}
-
-						if (object instanceof Clob) {
-							Clob clobValue = (Clob) object;
-							int length = (int) clobValue.length();
-							if (length > 0) {
-								return clobValue.getSubString(1, length);
-							}
-							return "";
-						}
+					String value;
+					if (o instanceof Timestamp) {
+						value = timestampPattern.format((Timestamp) o);
+					} else if (o instanceof Date) {
+						value = datePattern.format((Date) o);
 					} else {
-						Object o = cellContentConverter.getObject(resultSet, columnName);
-						if (returnNull && (o == null || resultSet.wasNull())) {
-							return null;
-						}
-						if (o != null) {
-							String value;
-							
-							if (o instanceof Timestamp) {
-								value = timestampPattern.format((Timestamp) o);
-							} else if (o instanceof Date) {
-								value = datePattern.format((Date) o);
-							} else {
-								value = o.toString();
-							}
-							return value;
-						}
+						value = o.toString();
 					}
-					return "";
+					return value;
 				} catch (SQLException e) {
 					throw new RuntimeException(e);
 				}
 			}
 			return text;
 		}
+
+		/**
+		 * Reads the value of a column of the current row.
+		 * The content of LOBs is returned as string (BLOBs Base64 encoded).
+		 * 
+		 * @param columnName the column name
+		 * @return the value or <code>null</code> if it is null
+		 */
+		protected Object getValue(String columnName) throws SQLException {
+			Map<String, Integer> typeCache = typeCachesForStringKey.get(table);
+			if (typeCache == null) {
+				typeCache = new HashMap<String, Integer>();
+				typeCachesForStringKey.put(table, typeCache);
+			}
+			int type = SqlUtil.getColumnType(resultSet, resultSetMetaData, columnName, typeCache);
+			if ((type == Types.BLOB || type == Types.CLOB|| type == Types.NCLOB) && !DBMS.SQLITE.equals(session.dbms)) {
+				Object object = resultSet.getObject(columnName);
+				if (object == null || resultSet.wasNull()) {
+					return null;
+				}
+				if (object instanceof Blob) {
+					Blob blob = (Blob) object;
+					byte[] blobValue = blob.getBytes(1, (int) blob.length());
+					return Base64.encodeBytes(blobValue);
+				}
+				if (object instanceof Clob) {
+					Clob clobValue = (Clob) object;
+					int length = (int) clobValue.length();
+					if (length > 0) {
+						return clobValue.getSubString(1, length);
+					}
+				}
+				return "";
+			}
+			Object o = cellContentConverter.getObject(resultSet, columnName);
+			if (o == null || resultSet.wasNull()) {
+				return null;
+			}
+			return o;
+		}
 		
 		@Override
 		public void visitComment(String comment) {
@@ -289,7 +289,7 @@ public abstract class ExportDialog extends javax.swing.JDialog {
 			orderByPKCheckbox.setEnabled(ScriptFormat.SQL.equals(scriptFormat));
 			orderByPKCheckbox.setVisible(ScriptFormat.SQL.equals(scriptFormat));
 			
-			sortedCheckBox.setEnabled(ScriptFormat.SQL.equals(scriptFormat) || ScriptFormat.INTRA_DATABASE.equals(scriptFormat) || ScriptFormat.DBUNIT_FLAT_XML.equals(scriptFormat) || ScriptFormat.LIQUIBASE_XML.equals(scriptFormat));
+			sortedCheckBox.setEnabled(ScriptFormat.SQL.equals(scriptFormat) || ScriptFormat.BINARY.equals(scriptFormat) || ScriptFormat.INTRA_DATABASE.equals(scriptFormat) || ScriptFormat.DBUNIT_FLAT_XML.equals(scriptFormat) || ScriptFormat.LIQUIBASE_XML.equals(scriptFormat));
 			sortedCheckBox.setSelected(true);
 			upsertCheckbox.setEnabled(ScriptFormat.SQL.equals(scriptFormat) || ScriptFormat.INTRA_DATABASE.equals(scriptFormat));
 			rowsPerThread.setEnabled(ScriptFormat.SQL.equals(scriptFormat));
@@ -302,7 +302,7 @@ public abstract class ExportDialog extends javax.swing.JDialog {
 				jPanel8.setVisible(false);
 			}
 			
-			if ((!ScriptFormat.SQL.equals(scriptFormat)) && (!ScriptFormat.INTRA_DATABASE.equals(scriptFormat)) && (!ScriptFormat.DBUNIT_FLAT_XML.equals(scriptFormat)) && !ScriptFormat.LIQUIBASE_XML.equals(scriptFormat)) {
+			if ((!ScriptFormat.SQL.equals(scriptFormat)) && (!ScriptFormat.BINARY.equals(scriptFormat)) && (!ScriptFormat.INTRA_DATABASE.equals(scriptFormat)) && (!ScriptFormat.DBUNIT_FLAT_XML.equals(scriptFormat)) && !ScriptFormat.LIQUIBASE_XML.equals(scriptFormat)) {
 				schemaMappingPanel.setVisible(false);
 			} else {
 				schemaMappingPanel.setVisible(true);
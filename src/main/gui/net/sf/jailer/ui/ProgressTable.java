@@ -78,6 +78,7 @@ public class ProgressTable extends JTable {
 		public String tableName;
 		public long numberOfRows;
 		public Set<String> parentNames;
+		public long queueTime = 0, runTime = 0; // in ms
 		// Calculated
 		public int row, column;
 		public List<CellInfo> parents;
@@ -219,7 +220,7 @@ public class ProgressTable extends JTable {
 					
 					tableRender.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
 					tableRender.setText(cellInfo.tableName);
-					outer.setToolTipText(cellInfo.tableName);
+					outer.setToolTipText(cellInfo.tableName + (cellInfo.numberOfRows < 0? "" : ": " + UIUtil.format(cellInfo.numberOfRows) + " rows in " + UIUtil.format(cellInfo.runTime) + " ms (queued " + UIUtil.format(cellInfo.queueTime) + " ms)"));
 					if (selectedCells.contains(cellInfo)) {
 						numberRender.setFont(bold);
 						tableRender.setFont(bold);
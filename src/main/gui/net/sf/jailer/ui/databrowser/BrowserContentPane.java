@@ -31,6 +31,8 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.awt.event.InputEvent;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
@@ -52,6 +54,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
 import java.sql.SQLXML;
 import java.sql.Types;
 import java.text.SimpleDateFormat;
@@ -63,12 +66,12 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.PriorityBlockingQueue;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -91,10 +94,12 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
+import javax.swing.JScrollBar;
 import javax.swing.JSeparator;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.JTree;
+import javax.swing.JViewport;
 import javax.swing.KeyStroke;
 import javax.swing.ListCellRenderer;
 import javax.swing.RowSorter;
@@ -179,7 +184,7 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 	/**
 	 * Concurrently loads rows.
 	 */
-	public class LoadJob implements RunnableWithPriority {
+	public class LoadJob implements BrowserQueryScheduler.CancellableJob {
 		private List<Row> rows = Collections.synchronizedList(new ArrayList<Row>());
 		private Throwable exception;
 		private boolean isCanceled;
@@ -191,11 +196,28 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 		private final RowBrowser parentBrowser;
 		private Session theSession;
 		public boolean closureLimitExceeded = false;
+		private int roundTrips = 0;
+		private final String[] pageKey;
+		private final boolean preceding;
+		private final List<Row> readOrder;
 		
 		public LoadJob(int limit, String andCond, RowBrowser parentBrowser, boolean selectDistinct) {
+			this(limit, andCond, parentBrowser, selectDistinct, null, false);
+		}
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pageKey primary key of the row next to the page to be loaded, <code>null</code> if the first page is to be loaded
+		 * @param preceding <code>true</code> if the page preceding the key is to be loaded, else the page following it
+		 */
+		public LoadJob(int limit, String andCond, RowBrowser parentBrowser, boolean selectDistinct, String[] pageKey, boolean preceding) {
 			this.andCond = andCond;
 			this.selectDistinct = selectDistinct;
 			this.inputResultSet = null;
+			this.pageKey = pageKey;
+			this.preceding = preceding;
+			this.readOrder = isPageable()? new ArrayList<Row>() : null;
 			synchronized (this) {
 				this.limit = limit;
 				finished = false;
@@ -208,6 +230,9 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 			this.andCond = "";
 			this.selectDistinct = false;
 			this.inputResultSet = inputResultSet;
+			this.pageKey = null;
+			this.preceding = false;
+			this.readOrder = null;
 			synchronized (this) {
 				this.limit = limit;
 				finished = false;
@@ -296,6 +321,9 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 				}
 			}
 
+			if (roundTrips > 0) {
+				Session._log.info(table.getName() + ": " + rows.size() + " rows loaded with " + roundTrips + " queries");
+			}
 			reconnectIfConnectionIsInvalid(false);
 			CancellationHandler.reset(this);
 			UIUtil.invokeLater(new Runnable() {
@@ -304,9 +332,22 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 					Throwable e;
 					int l;
 					boolean limitExceeded = false;
+					String[] lastKey = null;
 					synchronized (rows) {
 						e = exception;
 						l = limit;
+						if (rows.size() > limit && readOrder != null && readOrder.size() > limit && limit > 0) {
+							// keep the rows with the smallest keys, the next page starts right after them
+							Set<Row> excess = Collections.newSetFromMap(new IdentityHashMap<Row, Boolean>());
+							excess.addAll(readOrder.subList(limit, readOrder.size()));
+							for (Iterator<Row> i = rows.iterator(); i.hasNext(); ) {
+								if (excess.contains(i.next())) {
+									limitExceeded = true;
+									i.remove();
+								}
+							}
+							lastKey = readOrder.get(limit - 1).primaryKey;
+						}
 						while (rows.size() > limit) {
 							limitExceeded = true;
 							rows.remove(rows.size() - 1);
@@ -315,6 +356,11 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 						sortRowsByParentViewIndex();
 					}
 					if (e != null) {
+						if (pageKey != null) {
+							// stop paging
+							nextPageKey = null;
+							prevPageKey = null;
+						}
 						updateMode("error", null);
 						unhide();
 						if (theSession == null || !theSession.isDown()) {
@@ -348,10 +394,44 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 								}
 							}
 						}
-						onContentChange(new ArrayList<Row>(), false);
-						BrowserContentPane.this.rows.clear();
-						BrowserContentPane.this.rows.addAll(rows);
-						updateTableModel(l, limitExceeded, closureLimitExceeded);
+						List<Row> allRows = rows;
+						boolean hasMoreRows = limitExceeded && isValidPageKey(lastKey);
+						if (pageKey == null) {
+							onContentChange(new ArrayList<Row>(), false);
+							BrowserContentPane.this.rows.clear();
+							BrowserContentPane.this.rows.addAll(rows);
+							updateTableModel(l, limitExceeded, closureLimitExceeded);
+							nextPageKey = hasMoreRows? lastKey : null;
+							prevPageKey = null;
+						} else {
+							Row anchor = getFirstVisibleRow();
+							int anchorOffset = anchor == null? 0 : getFirstVisibleRowOffset();
+							List<Row> window = BrowserContentPane.this.rows;
+							int maxWindowSize = Math.max(1, l) * WINDOW_PAGES;
+							if (preceding) {
+								List<Row> page = new ArrayList<Row>(rows);
+								Collections.reverse(page);
+								window.addAll(0, page);
+								if (window.size() > maxWindowSize) {
+									window.subList(maxWindowSize, window.size()).clear();
+									nextPageKey = window.get(window.size() - 1).primaryKey;
+								}
+								prevPageKey = hasMoreRows && !window.isEmpty()? window.get(0).primaryKey : null;
+							} else {
+								window.addAll(rows);
+								if (window.size() > maxWindowSize) {
+									window.subList(0, window.size() - maxWindowSize).clear();
+									prevPageKey = window.get(0).primaryKey;
+								}
+								nextPageKey = hasMoreRows? lastKey : null;
+							}
+							allRows = new ArrayList<Row>(window);
+							updateTableModel(allRows.size(), limitExceeded, closureLimitExceeded);
+							scrollToRow(anchor, anchorOffset);
+						}
+						if (pageKey == null && nextPageKey != null) {
+							countRows(andCond);
+						}
 						Set<String> currentIDs = new TreeSet<String>();
 						long currentHash = 0;
 						if (rows != null) {
@@ -369,7 +449,7 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 							}
 						}
 						setPendingState(false, true);
-						onContentChange(rows, true); // rows.isEmpty() || currentHash != prevHash || rows.size() != prevSize || !prevIDs.equals(currentIDs) || rows.size() != currentIDs.size());
+						onContentChange(allRows, true); // rows.isEmpty() || currentHash != prevHash || rows.size() != prevSize || !prevIDs.equals(currentIDs) || rows.size() != currentIDs.size());
 						updateMode("table", null);
 						updateWhereField();
 						if (reloadAction != null) {
@@ -400,6 +480,14 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 			}
 		}
 
+		/**
+		 * Whether the job is finished or cancelled.
+		 */
+		public synchronized boolean isDone() {
+			return isCanceled;
+		}
+
+		@Override
 		public synchronized void cancel() {
 			if (isCanceled) {
 				return;
@@ -977,6 +1065,29 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 		
 		rowsTableScrollPane.getVerticalScrollBar().setUnitIncrement(32);
 		singleRowViewScrollPane.getVerticalScrollBar().setUnitIncrement(32);
+		rowsTableScrollPane.getVerticalScrollBar().addAdjustmentListener(new AdjustmentListener() {
+			@Override
+			public void adjustmentValueChanged(AdjustmentEvent e) {
+				JScrollBar scrollBar = rowsTableScrollPane.getVerticalScrollBar();
+				if (nextPageKey != null && scrollBar.getMaximum() > scrollBar.getVisibleAmount()
+						&& scrollBar.getValue() + scrollBar.getVisibleAmount() >= scrollBar.getMaximum()) {
+					UIUtil.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							loadPage(false);
+						}
+					});
+				} else if (prevPageKey != null && scrollBar.getMaximum() > scrollBar.getVisibleAmount()
+						&& scrollBar.getValue() <= scrollBar.getMinimum()) {
+					UIUtil.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							loadPage(true);
+						}
+					});
+				}
+			}
+		});
 		
 		rowTableListener = new MouseListener() {
 			private JPopupMenu lastMenu;
@@ -1705,7 +1816,7 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 
 			private void cancel() {
 				CancellationHandler.cancelSilently(context);
-				getRunnableQueue().add(new RunnableWithPriority() {
+				getQueryScheduler().add(new RunnableWithPriority() {
 					
 					@Override
 					public void run() {
@@ -2808,7 +2919,7 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 			final boolean fExcludeFromANEmpty = excludeFromANEmpty;
 			
 			if (!isPending && !rows.isEmpty()) {
-				getRunnableQueue().add(new RunnableWithPriority() {
+				getQueryScheduler().add(new RunnableWithPriority() {
 					
 					final int MAX_RC = 1000;
 
@@ -2906,6 +3017,10 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 		if (!suppressReload) {
 			lastReloadTS = System.currentTimeMillis();
 			cancelLoadJob(true);
+			nextPageKey = null;
+			prevPageKey = null;
+			pageLoadJob = null;
+			totalRowCount = null;
 			setPendingState(true, true);
 			rows.clear();
 			updateMode("loading", cause);
@@ -2920,10 +3035,195 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 			synchronized (this) {
 				currentLoadJob = reloadJob;
 			}
-			getRunnableQueue().add(reloadJob);
+			getQueryScheduler().add(reloadJob, this);
+		}
+	}
+
+	/**
+	 * Primary key of the last row loaded if there are more rows to be loaded page by page, else <code>null</code>.
+	 */
+	private String[] nextPageKey;
+
+	/**
+	 * Primary key of the first row loaded if preceding rows have been evicted from the window of loaded rows, else <code>null</code>.
+	 */
+	private String[] prevPageKey;
+
+	/**
+	 * The job loading a page, if any.
+	 */
+	private LoadJob pageLoadJob;
+
+	/**
+	 * Total number of rows, counted asynchronously if not all rows are loaded.
+	 */
+	private RowCount totalRowCount;
+
+	/**
+	 * Maximum number of rows to be counted.
+	 */
+	private static final int MAX_TOTAL_ROW_COUNT = 100000;
+
+	/**
+	 * Maximum number of pages kept in memory. If more pages are loaded, the pages farthest from the one loaded last are evicted.
+	 * They will be loaded again if needed.
+	 */
+	private static final int WINDOW_PAGES = 3;
+
+	/**
+	 * Whether the rows can be loaded page by page, ordered by primary key (keyset pagination).
+	 * That's the case for the rows of a table with primary key that are not related to parent rows.
+	 */
+	private boolean isPageable() {
+		if (association != null || parentRows != null || statementForReloading != null || table instanceof SqlStatementTable || resultSetType != null) {
+			return false;
+		}
+		PrimaryKey primaryKey = rowIdSupport.getPrimaryKey(table, session);
+		if (primaryKey == null || primaryKey.getColumns().isEmpty()) {
+			return false;
+		}
+		for (Column column: primaryKey.getColumns()) {
+			if (rowIdSupport.isRowIdColumn(column)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isValidPageKey(String[] key) {
+		if (key == null) {
+			return false;
+		}
+		for (String value: key) {
+			if (value == null || "null".equalsIgnoreCase(value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Loads the page of rows following (or preceding) the loaded rows, if there is one.
+	 * 
+	 * @param preceding <code>true</code> to load the preceding page
+	 */
+	private void loadPage(boolean preceding) {
+		String[] pageKey = preceding? prevPageKey : nextPageKey;
+		if (suppressReload || pageKey == null || (pageLoadJob != null && !pageLoadJob.isDone())) {
+			return;
+		}
+		LoadJob pageJob = new LoadJob(getReloadLimit(), getAndConditionText(), getParentBrowser(), selectDistinctCheckBox.isSelected(), pageKey, preceding);
+		pageLoadJob = pageJob;
+		synchronized (this) {
+			currentLoadJob = pageJob;
+		}
+		getQueryScheduler().add(pageJob, this);
+	}
+
+	/**
+	 * Gets the row at the top of the rows table's viewport.
+	 * 
+	 * @return the row or <code>null</code> if there is none
+	 */
+	private Row getFirstVisibleRow() {
+		int viewIndex = rowsTable.rowAtPoint(rowsTable.getVisibleRect().getLocation());
+		if (viewIndex < 0 || viewIndex >= rowsTable.getRowCount()) {
+			return null;
+		}
+		int modelIndex = rowsTable.getRowSorter() == null? viewIndex : rowsTable.getRowSorter().convertRowIndexToModel(viewIndex);
+		return modelIndex >= 0 && modelIndex < rows.size()? rows.get(modelIndex) : null;
+	}
+
+	/**
+	 * Gets the distance between the top of the viewport and the top of the row at the top of the viewport.
+	 */
+	private int getFirstVisibleRowOffset() {
+		Rectangle visibleRect = rowsTable.getVisibleRect();
+		int viewIndex = rowsTable.rowAtPoint(visibleRect.getLocation());
+		return viewIndex < 0? 0 : visibleRect.y - rowsTable.getCellRect(viewIndex, 0, true).y;
+	}
+
+	/**
+	 * Scrolls the rows table such that a given row is at the top of the viewport again after rows have been added or evicted.
+	 * 
+	 * @param row the row
+	 * @param offset distance between the top of the viewport and the top of the row
+	 */
+	private void scrollToRow(Row row, int offset) {
+		if (row == null) {
+			return;
+		}
+		int modelIndex = -1;
+		for (int i = 0; i < rows.size(); ++i) {
+			if (rows.get(i) == row) {
+				modelIndex = i;
+				break;
+			}
+		}
+		if (modelIndex < 0 || modelIndex >= rowsTable.getModel().getRowCount()) {
+			return;
+		}
+		int viewIndex = rowsTable.getRowSorter() == null? modelIndex : rowsTable.getRowSorter().convertRowIndexToView(modelIndex);
+		if (viewIndex >= 0 && rowsTable.getParent() instanceof JViewport) {
+			Rectangle pos = rowsTable.getCellRect(viewIndex, 0, true);
+			((JViewport) rowsTable.getParent()).setViewPosition(new Point(rowsTable.getVisibleRect().x, Math.max(0, pos.y + offset)));
 		}
 	}
 
+	/**
+	 * Counts the rows asynchronously.
+	 * 
+	 * @param andCond the condition
+	 */
+	private void countRows(final String andCond) {
+		final LoadJob loadJob;
+		synchronized (this) {
+			loadJob = currentLoadJob;
+		}
+		final long reloadTS = lastReloadTS;
+		getQueryScheduler().add(new RunnableWithPriority() {
+			@Override
+			public void run() {
+				final RowCount rowCount;
+				try {
+					RowCounter rowCounter = new RowCounter(table, null, Collections.<Row>singletonList(null), session, rowIdSupport);
+					rowCount = rowCounter.countRows(andCond, loadJob, MAX_TOTAL_ROW_COUNT + 1, false);
+				} catch (SQLException e) {
+					return;
+				}
+				UIUtil.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						if (reloadTS == lastReloadTS && rowCount.count >= 0) {
+							totalRowCount = rowCount;
+							Set<BrowserContentPane> browserInClosure = new HashSet<BrowserContentPane>();
+							for (Pair<BrowserContentPane, Row> rid: rowsClosure.currentClosure) {
+								browserInClosure.add(rid.a);
+							}
+							updateRowsCountLabel(browserInClosure);
+						}
+					}
+				});
+			}
+
+			@Override
+			public int getPriority() {
+				return 20;
+			}
+		});
+	}
+
+	/**
+	 * Gets the condition for the rows following (or preceding) a given primary key in key order.
+	 */
+	private String keysetCondition(String[] key, boolean preceding, Quoting quoting) {
+		List<String> pk = new ArrayList<String>();
+		for (Column column: rowIdSupport.getPrimaryKey(table, session).getColumns()) {
+			pk.add(quoting.requote(column.name));
+		}
+		return SqlUtil.keysetCondition("A", pk, key, preceding);
+	}
+
 	/**
 	 * Reload rows from {@link #table}.
 	 * 
@@ -3080,6 +3380,70 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 		return session.dbms.isUseInlineViewsInDataBrowser();
 	}
 
+	/**
+	 * Ways to limit the number of rows of a query, in the order in which they are tried.
+	 */
+	private enum LimitStrategy {
+		SQL_LIMIT_SUFFIX(true, false),
+		OLAP(false, true),
+		NONE(false, false);
+
+		final boolean useSqlLimitSuffix;
+		final boolean useOLAPLimitation;
+
+		private LimitStrategy(boolean useSqlLimitSuffix, boolean useOLAPLimitation) {
+			this.useSqlLimitSuffix = useSqlLimitSuffix;
+			this.useOLAPLimitation = useOLAPLimitation;
+		}
+	}
+
+	/**
+	 * Gets the limit strategy that has worked for a query shape within the current session.
+	 * 
+	 * @param queryShape the query shape
+	 * @return the limit strategy or <code>null</code> if it's not yet known
+	 */
+	@SuppressWarnings("unchecked")
+	private LimitStrategy getLimitStrategy(String queryShape) {
+		Map<String, LimitStrategy> strategies = (Map<String, LimitStrategy>) session.getSessionProperty(BrowserContentPane.class, "LimitStrategies");
+		return strategies == null? null : strategies.get(queryShape);
+	}
+
+	/**
+	 * Remembers the limit strategy that has worked for a query shape within the current session.
+	 * A strategy is only remembered if all better strategies have been rejected by the DBMS (see {@link #isSyntaxError(Throwable)}),
+	 * so that a transient failure doesn't downgrade the query shape for the rest of the session.
+	 * 
+	 * @param queryShape the query shape
+	 * @param strategy the limit strategy
+	 */
+	@SuppressWarnings("unchecked")
+	private void setLimitStrategy(String queryShape, LimitStrategy strategy) {
+		synchronized (session) {
+			Map<String, LimitStrategy> strategies = (Map<String, LimitStrategy>) session.getSessionProperty(BrowserContentPane.class, "LimitStrategies");
+			if (strategies == null) {
+				strategies = Collections.synchronizedMap(new HashMap<String, LimitStrategy>());
+				session.setSessionProperty(BrowserContentPane.class, "LimitStrategies", strategies);
+			}
+			strategies.put(queryShape, strategy);
+		}
+	}
+
+	/**
+	 * Whether an exception indicates that the DBMS doesn't support a statement (as opposed to a transient failure).
+	 */
+	private static boolean isSyntaxError(Throwable e) {
+		if (e instanceof SQLSyntaxErrorException) {
+			return true;
+		}
+		if (e instanceof SQLException) {
+			String sqlState = ((SQLException) e).getSQLState();
+			// class 42: syntax error or access rule violation
+			return sqlState != null && sqlState.startsWith("42");
+		}
+		return false;
+	}
+
 	private void loadRowBlocks(ResultSet inputResultSet, InlineViewStyle inlineViewStyle, String andCond, final List<Row> rows, LoadJob loadJob, int limit, boolean selectDistinct, List<Row> pRows,
 			Map<String, Row> rowSet, int NUM_PARENTS, Set<String> existingColumnsLowerCase) throws SQLException {
 		List<List<Row>> parentBlocks = new ArrayList<List<Row>>();
@@ -3133,31 +3497,48 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 				pRowBlock = null;
 			}
 			
-			if (session.dbms.getSqlLimitSuffix() != null) {
+			String queryShape = (inlineViewStyle == null? "" : inlineViewStyle.name()) + (pRowBlock == null? ":all" : ":block") + (loadJob.readOrder != null? ":keyset" : "");
+			LimitStrategy knownStrategy = getLimitStrategy(queryShape);
+			if (knownStrategy != null) {
 				try {
 					session.setSilent(true);
-					reloadRows(inputResultSet, inlineViewStyle, andCond, pRowBlock, newBlockRows, loadJob, limit, false, session.dbms.getSqlLimitSuffix(), existingColumnsLowerCase);
+					++loadJob.roundTrips;
+					reloadRows(inputResultSet, inlineViewStyle, andCond, pRowBlock, newBlockRows, loadJob, limit, knownStrategy.useOLAPLimitation, knownStrategy.useSqlLimitSuffix? session.dbms.getSqlLimitSuffix() : null, existingColumnsLowerCase);
 					loaded = true;
+				} catch (CancellationException e) {
+					throw e;
 				} catch (Throwable e) { // embedded DBMS may throw non-SQLException
 					Session._log.warn("failed, try another limit-strategy (" +  e.getMessage() + ")");
+					newBlockRows.clear();
 				} finally {
 					session.setSilent(false);
 				}
 			}
 			if (!loaded) {
-				try {
-					session.setSilent(true);
-					reloadRows(inputResultSet, inlineViewStyle, andCond, pRowBlock, newBlockRows, loadJob, limit, true, null, existingColumnsLowerCase);
-					loaded = true;
-				} catch (Throwable e) { // embedded DBMS may throw non-SQLException
-					Session._log.warn("failed, try another limit-strategy (" +  e.getMessage() + ")");
-				} finally {
-					session.setSilent(false);
-				}
-				if (!loaded) {
+				boolean rejected = true;
+				for (LimitStrategy strategy: LimitStrategy.values()) {
+					if (strategy.useSqlLimitSuffix && session.dbms.getSqlLimitSuffix() == null) {
+						continue;
+					}
 					try {
 						session.setSilent(true);
-						reloadRows(inputResultSet, inlineViewStyle, andCond, pRowBlock, newBlockRows, loadJob, limit, false, null, existingColumnsLowerCase);
+						++loadJob.roundTrips;
+						reloadRows(inputResultSet, inlineViewStyle, andCond, pRowBlock, newBlockRows, loadJob, limit, strategy.useOLAPLimitation, strategy.useSqlLimitSuffix? session.dbms.getSqlLimitSuffix() : null, existingColumnsLowerCase);
+						if (rejected) {
+							setLimitStrategy(queryShape, strategy);
+						}
+						break;
+					} catch (CancellationException e) {
+						throw e;
+					} catch (Throwable e) { // embedded DBMS may throw non-SQLException
+						if (strategy == LimitStrategy.NONE) {
+							throw e;
+						}
+						if (!isSyntaxError(e)) {
+							rejected = false;
+						}
+						Session._log.warn("failed, try another limit-strategy (" +  e.getMessage() + ")");
+						newBlockRows.clear();
 					} finally {
 						session.setSilent(false);
 					}
@@ -3321,6 +3702,20 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 		final boolean selectParentPK = association != null && parentRows != null && parentRows.size() > 1;
 		final Set<Integer> unknownColumnIndexes = new HashSet<Integer>();
 		int numParentPKColumns = 0;
+		String orderBy = null;
+		final List<Row> readOrder = loadJob != null? loadJob.readOrder : null;
+		
+		if (readOrder != null) {
+			readOrder.clear();
+			orderBy = "";
+			for (Column pk: rowIdSupport.getPrimaryKey(table, session).getColumns()) {
+				orderBy += (orderBy.length() > 0? ", " : "") + "A." + quoting.requote(pk.name) + (loadJob.preceding? " desc" : "");
+			}
+			if (loadJob.pageKey != null) {
+				String keysetCondition = keysetCondition(loadJob.pageKey, loadJob.preceding, quoting);
+				andCond = andCond.trim().length() > 0? "(" + andCond + ") and (" + keysetCondition + ")" : keysetCondition;
+			}
+		}
 		
 		if (table instanceof SqlStatementTable || statementForReloading != null) {
 			sql = andCond;
@@ -3386,7 +3781,7 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 			if (useOLAPLimitation) {
 				sql += ", row_number() over(";
 				if (useOLAPLimitation) {
-					sql += "order by -1"; // + orderBy;
+					sql += "order by " + (orderBy != null? orderBy : "-1");
 				}
 				sql += ") as " + ROWNUMBERALIAS + "";
 			}
@@ -3461,6 +3856,11 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 			olapPrefix += " From (";
 			if (useOLAPLimitation) {
 				sql = olapPrefix + sql + olapSuffix;
+				if (orderBy != null) {
+					sql += " order by S." + ROWNUMBERALIAS;
+				}
+			} else if (orderBy != null) {
+				sql += " order by " + orderBy;
 			}
 			if (sqlLimitSuffix != null && !limitSuffixInSelectClause) {
 				sql += " " + (sqlLimitSuffix.replace("%s", Integer.toString(limit)));
@@ -3561,7 +3961,11 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 						cRows = new ArrayList<Row>();
 						rows.put(parentRowId, cRows);
 					}
-					cRows.add(new Row(rowId, primaryKey, v));
+					Row row = new Row(rowId, primaryKey, v);
+					cRows.add(row);
+					if (readOrder != null) {
+						readOrder.add(row);
+					}
 				}
 
 				private String readRowFromResultSet(final Set<String> pkColumnNames, ResultSet resultSet, int i, int vi, String rowId, Object[] v, Column column, Map<String, String> pkColumn, Map<String, String> pkColumnValue, Set<Integer> unknownColumnIndexes)
@@ -3844,7 +4248,7 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 								theRow.values[column] = oldContent;
 								updateMode("updating", null);
 								
-								getRunnableQueue().add(new RunnableWithPriority() {
+								getQueryScheduler().add(new RunnableWithPriority() {
 									private Exception exception;
 									
 									@Override
@@ -4279,7 +4683,11 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 		if (size > limit) {
 			size = limit;
 		}
-		rowsCount.setText((limitExceeded ? " more than " : " ") + size + " row" + (size != 1 ? "s" : ""));
+		if (limitExceeded && totalRowCount != null && totalRowCount.count > size) {
+			rowsCount.setText(" " + size + " of " + (totalRowCount.count > MAX_TOTAL_ROW_COUNT || !totalRowCount.isExact? "more than " + Math.min(totalRowCount.count, MAX_TOTAL_ROW_COUNT) : totalRowCount.count) + " rows");
+		} else {
+			rowsCount.setText((limitExceeded ? " more than " : " ") + size + " row" + (size != 1 ? "s" : ""));
+		}
 		RowBrowser theParentWithExceededLimit = parentWithExceededLimit();
 		boolean cle = closureLimitExceeded;
 		boolean cleRelevant = true;
@@ -5243,7 +5651,7 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 			cLoadJob = currentLoadJob;
 		}
 		if (cLoadJob != null) {
-			cLoadJob.cancel();
+			getQueryScheduler().cancel(cLoadJob);
 		}
 		if (propagate) {
 			for (RowBrowser child: getChildBrowsers()) {
@@ -5432,7 +5840,12 @@ public abstract class BrowserContentPane extends javax.swing.JPanel {
 		int getPriority();
 	};
 	
-	protected abstract PriorityBlockingQueue<RunnableWithPriority> getRunnableQueue();
+	/**
+	 * Gets the scheduler executing the queries of this browser.
+	 */
+	protected BrowserQueryScheduler getQueryScheduler() {
+		return BrowserQueryScheduler.forSession(session);
+	}
 	
 	/**
 	 * Collect layout of tables in a extraction model.
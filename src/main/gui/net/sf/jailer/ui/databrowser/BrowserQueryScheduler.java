@@ -0,0 +1,359 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer.ui.databrowser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.sf.jailer.database.Session;
+import net.sf.jailer.ui.databrowser.BrowserContentPane.RunnableWithPriority;
+import net.sf.jailer.ui.util.UISettings;
+import net.sf.jailer.util.CancellationException;
+
+/**
+ * Executes the queries of the data browser. <br>
+ * There is one scheduler per session, so that the queries against one connection
+ * don't have to wait for queries against another one. Pending jobs are executed
+ * in order of priority, the priority of a job increases while it waits (aging).
+ * A job replaces a pending job with the same key (for instance a superseded reload of a {@link BrowserContentPane}).
+ * The maximum number of concurrent queries can be configured per connection alias (see {@link #storeMaxConcurrency(String, int)}).
+ * Cancelled jobs are cancelled at the database and free their slot immediately. Their workers are not
+ * waited for, but the total number of workers, including those whose cancelled statements are still running,
+ * never exceeds the size of the session's connection pool.
+ *
+ * @author Ralf Wisser
+ */
+public class BrowserQueryScheduler {
+
+	/**
+	 * A job that can be cancelled.
+	 */
+	public interface CancellableJob extends RunnableWithPriority {
+		void cancel();
+	}
+
+	/**
+	 * Default maximum number of concurrent queries per session.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENCY = 6;
+
+	/**
+	 * Time (in ms) after which the priority of a waiting job is increased by one.
+	 */
+	private static final long AGING_INTERVAL = 50;
+
+	/**
+	 * Time (in ms) after which an idle worker terminates.
+	 */
+	private static final long KEEP_ALIVE_TIME = 30000;
+
+	/**
+	 * The schedulers per session.
+	 */
+	private static final Map<Session, BrowserQueryScheduler> schedulers = new WeakHashMap<Session, BrowserQueryScheduler>();
+
+	/**
+	 * Gets the scheduler for a session.
+	 *
+	 * @param session the session
+	 * @return the scheduler for the session
+	 */
+	public static synchronized BrowserQueryScheduler forSession(Session session) {
+		BrowserQueryScheduler scheduler = schedulers.get(session);
+		if (scheduler == null) {
+			int maxWorkers = Integer.MAX_VALUE;
+			if (session != null && session.getConnectionPool() != null) {
+				maxWorkers = session.getConnectionPool().getMaxConnections();
+			}
+			scheduler = new BrowserQueryScheduler(DEFAULT_MAX_CONCURRENCY, maxWorkers);
+			schedulers.put(session, scheduler);
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Gets the maximum number of concurrent queries configured for a connection.
+	 *
+	 * @param alias the connection alias
+	 * @return the maximum number of concurrent queries
+	 */
+	@SuppressWarnings("unchecked")
+	public static int restoreMaxConcurrency(String alias) {
+		Object setting = UISettings.restore(UISettings.MAX_CONCURRENT_QUERIES);
+		if (setting instanceof Map && alias != null) {
+			Object maxConcurrency = ((Map<String, Object>) setting).get(alias);
+			if (maxConcurrency instanceof Integer && (Integer) maxConcurrency > 0) {
+				return (Integer) maxConcurrency;
+			}
+		}
+		return DEFAULT_MAX_CONCURRENCY;
+	}
+
+	/**
+	 * Configures the maximum number of concurrent queries for a connection.
+	 *
+	 * @param alias the connection alias
+	 * @param maxConcurrency the maximum number of concurrent queries
+	 */
+	@SuppressWarnings("unchecked")
+	public static void storeMaxConcurrency(String alias, int maxConcurrency) {
+		Object setting = UISettings.restore(UISettings.MAX_CONCURRENT_QUERIES);
+		HashMap<String, Object> perAlias = new HashMap<String, Object>();
+		if (setting instanceof Map) {
+			perAlias.putAll((Map<String, Object>) setting);
+		}
+		perAlias.put(alias, maxConcurrency);
+		UISettings.store(UISettings.MAX_CONCURRENT_QUERIES, perAlias);
+	}
+
+	/**
+	 * A scheduled job.
+	 */
+	private static class Entry {
+		final RunnableWithPriority job;
+		final Object key;
+		final long enqueueTime;
+		boolean released;
+
+		Entry(RunnableWithPriority job, Object key, long enqueueTime) {
+			this.job = job;
+			this.key = key;
+			this.enqueueTime = enqueueTime;
+		}
+
+		long priority(long now) {
+			return job.getPriority() + (now - enqueueTime) / AGING_INTERVAL;
+		}
+	}
+
+	private final List<Entry> pending = new ArrayList<Entry>();
+	private final List<Entry> running = new ArrayList<Entry>();
+	private final int maxWorkers;
+	private int maxConcurrency;
+	private int workers = 0;
+	private int releasedWorkers = 0;
+	private int idleWorkers = 0;
+	private int workerNumber = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxConcurrency maximum number of concurrent queries
+	 * @param maxWorkers maximum number of workers, including the released ones
+	 */
+	public BrowserQueryScheduler(int maxConcurrency, int maxWorkers) {
+		this.maxWorkers = Math.max(1, maxWorkers);
+		this.maxConcurrency = Math.min(this.maxWorkers, Math.max(1, maxConcurrency));
+	}
+
+	/**
+	 * Gets the maximum number of concurrent queries.
+	 */
+	public synchronized int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent queries. It is limited to the maximum number of workers.
+	 *
+	 * @param maxConcurrency maximum number of concurrent queries
+	 */
+	public synchronized void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = Math.min(maxWorkers, Math.max(1, maxConcurrency));
+		dispatch();
+		notifyAll();
+	}
+
+	/**
+	 * Schedules a job.
+	 *
+	 * @param job the job
+	 */
+	public void add(RunnableWithPriority job) {
+		add(job, null);
+	}
+
+	/**
+	 * Schedules a job that supersedes all jobs with the same key.
+	 * Superseded jobs are removed from the queue or cancelled if they are already running.
+	 * The job inherits the waiting time of a superseded pending job.
+	 *
+	 * @param job the job
+	 * @param key the key, <code>null</code> if the job doesn't supersede other jobs
+	 */
+	public void add(RunnableWithPriority job, Object key) {
+		List<Entry> superseded = new ArrayList<Entry>();
+		synchronized (this) {
+			long enqueueTime = System.currentTimeMillis();
+			if (key != null) {
+				for (Iterator<Entry> i = pending.iterator(); i.hasNext(); ) {
+					Entry entry = i.next();
+					if (key.equals(entry.key)) {
+						i.remove();
+						enqueueTime = Math.min(enqueueTime, entry.enqueueTime);
+						superseded.add(entry);
+					}
+				}
+				for (Entry entry: running) {
+					if (key.equals(entry.key) && !entry.released) {
+						release(entry);
+						superseded.add(entry);
+					}
+				}
+			}
+			pending.add(new Entry(job, key, enqueueTime));
+			dispatch();
+		}
+		cancel(superseded);
+	}
+
+	/**
+	 * Cancels a job. The job is removed from the queue if it is still pending.
+	 * If it is running, its statements are cancelled and its worker is replaced.
+	 *
+	 * @param job the job
+	 */
+	public void cancel(CancellableJob job) {
+		synchronized (this) {
+			for (Iterator<Entry> i = pending.iterator(); i.hasNext(); ) {
+				if (i.next().job == job) {
+					i.remove();
+				}
+			}
+			for (Entry entry: running) {
+				if (entry.job == job && !entry.released) {
+					release(entry);
+				}
+			}
+			dispatch();
+		}
+		job.cancel();
+	}
+
+	/**
+	 * Cancels jobs.
+	 */
+	private void cancel(List<Entry> entries) {
+		for (Entry entry: entries) {
+			if (entry.job instanceof CancellableJob) {
+				((CancellableJob) entry.job).cancel();
+			}
+		}
+	}
+
+	/**
+	 * Releases the worker executing a cancelled job. Its slot is free immediately,
+	 * the worker terminates as soon as the job returns.
+	 */
+	private void release(Entry entry) {
+		entry.released = true;
+		--workers;
+		++releasedWorkers;
+	}
+
+	/**
+	 * Starts workers as long as there are more pending jobs than idle workers.
+	 * Released workers don't count towards the maximum number of concurrent queries,
+	 * but towards the maximum number of workers.
+	 */
+	private void dispatch() {
+		while (workers < maxConcurrency && workers + releasedWorkers < maxWorkers && pending.size() > idleWorkers) {
+			++workers;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			}, "Query Scheduler Worker " + (++workerNumber));
+			thread.setDaemon(true);
+			thread.start();
+		}
+		if (!pending.isEmpty()) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Removes the pending job with the highest priority from the queue.
+	 *
+	 * @return the job or <code>null</code> if the queue is empty
+	 */
+	private Entry next() {
+		long now = System.currentTimeMillis();
+		Entry next = null;
+		for (Entry entry: pending) {
+			if (next == null || entry.priority(now) > next.priority(now)) {
+				next = entry;
+			}
+		}
+		if (next != null) {
+			pending.remove(next);
+		}
+		return next;
+	}
+
+	/**
+	 * Executes pending jobs until the worker is idle for too long, released or no longer needed.
+	 */
+	private void work() {
+		for (;;) {
+			Entry entry;
+			synchronized (this) {
+				long idleSince = System.currentTimeMillis();
+				while ((entry = next()) == null) {
+					long waitTime = KEEP_ALIVE_TIME - (System.currentTimeMillis() - idleSince);
+					if (waitTime <= 0 || workers > maxConcurrency) {
+						--workers;
+						return;
+					}
+					++idleWorkers;
+					try {
+						wait(waitTime);
+					} catch (InterruptedException e) {
+						// ignore
+					}
+					--idleWorkers;
+				}
+				running.add(entry);
+			}
+			try {
+				entry.job.run();
+			} catch (CancellationException e) {
+				// ignore
+			} catch (Throwable t) {
+				t.printStackTrace();
+			}
+			synchronized (this) {
+				running.remove(entry);
+				if (entry.released) {
+					// another worker has taken over
+					--releasedWorkers;
+					dispatch();
+					return;
+				}
+				if (workers > maxConcurrency) {
+					--workers;
+					return;
+				}
+			}
+		}
+	}
+
+}
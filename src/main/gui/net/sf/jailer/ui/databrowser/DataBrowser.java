@@ -240,6 +240,7 @@ public class DataBrowser extends javax.swing.JFrame {
         
         UpdateInfoManager.checkUpdateAvailability(updateInfoPanel, updateInfoLabel, downloadMenuItem, "B");
 		UIUtil.initPLAFMenuItem(nativeLAFCheckBoxMenuItem, this);
+		initMaxConcurrencyMenuItem();
 		if (datamodel != null) {
 			UISettings.dmStats(datamodel);
 		}
@@ -3430,6 +3431,42 @@ public class DataBrowser extends javax.swing.JFrame {
     private MetaDataPanel metaDataPanel;
     private Runnable createMetaDataPanel;
 
+    /**
+     * Adds the menu item for configuring the maximum number of concurrent queries of the current connection.
+     */
+    private void initMaxConcurrencyMenuItem() {
+    	JMenuItem maxConcurrencyMenuItem = new JMenuItem("Concurrent Queries...");
+    	maxConcurrencyMenuItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				ConnectionInfo connection = dbConnectionDialog != null ? dbConnectionDialog.currentConnection : null;
+				if (connection == null || session == null) {
+					return;
+				}
+				BrowserQueryScheduler scheduler = BrowserQueryScheduler.forSession(session);
+				Object input = JOptionPane.showInputDialog(DataBrowser.this,
+						"Maximum number of concurrent queries for connection \"" + connection.alias + "\":",
+						"Concurrent Queries", JOptionPane.QUESTION_MESSAGE, null, null, String.valueOf(scheduler.getMaxConcurrency()));
+				if (input == null) {
+					return;
+				}
+				int maxConcurrency;
+				try {
+					maxConcurrency = Integer.parseInt(input.toString().trim());
+				} catch (NumberFormatException ex) {
+					maxConcurrency = 0;
+				}
+				if (maxConcurrency <= 0) {
+					JOptionPane.showMessageDialog(DataBrowser.this, "\"" + input + "\" is not a positive number.", "Concurrent Queries", JOptionPane.ERROR_MESSAGE);
+					return;
+				}
+				BrowserQueryScheduler.storeMaxConcurrency(connection.alias, maxConcurrency);
+				scheduler.setMaxConcurrency(maxConcurrency);
+			}
+		});
+    	jMenu3.add(maxConcurrencyMenuItem);
+    }
+
     private void onNewSession(Session newSession) {
     	if (newSession == null) {
     		return;
@@ -3437,6 +3474,9 @@ public class DataBrowser extends javax.swing.JFrame {
 
     	ConnectionInfo connection = dbConnectionDialog != null ? dbConnectionDialog.currentConnection : null;
     	String alias = connection != null ? " " + connection.alias : " ";
+    	if (connection != null) {
+    		BrowserQueryScheduler.forSession(newSession).setMaxConcurrency(BrowserQueryScheduler.restoreMaxConcurrency(connection.alias));
+    	}
     	
     	UIUtil.setWaitCursor(this);
     	CancellationHandler.reset(null);
@@ -69,7 +69,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
@@ -111,7 +110,6 @@ import net.sf.jailer.ui.QueryBuilderDialog;
 import net.sf.jailer.ui.QueryBuilderDialog.Relationship;
 import net.sf.jailer.ui.UIUtil;
 import net.sf.jailer.ui.databrowser.BrowserContentPane.RowsClosure;
-import net.sf.jailer.ui.databrowser.BrowserContentPane.RunnableWithPriority;
 import net.sf.jailer.ui.databrowser.BrowserContentPane.SqlStatementTable;
 import net.sf.jailer.ui.databrowser.TreeLayoutOptimizer.Node;
 import net.sf.jailer.ui.databrowser.metadata.MDTable;
@@ -896,10 +894,6 @@ public abstract class Desktop extends JDesktopPane {
 				Desktop.this.restoreSession(tableBrowser, null);
 			}
 
-			@Override
-			protected PriorityBlockingQueue<RunnableWithPriority> getRunnableQueue() {
-				return runnableQueue;
-			}
 
 			@Override
 			protected void collectPositions(Map<String, Map<String, double[]>> positions) {
@@ -3380,18 +3374,6 @@ public abstract class Desktop extends JDesktopPane {
 		}
 	}
 
-	/**
-	 * For concurrent reload of rows.
-	 */
-	public static final PriorityBlockingQueue<RunnableWithPriority> runnableQueue = new PriorityBlockingQueue<RunnableWithPriority>(100,
-		new Comparator<RunnableWithPriority>() {
-
-			@Override
-			public int compare(RunnableWithPriority o1,	RunnableWithPriority o2) {
-				return o2.getPriority() - o1.getPriority();
-			}
-		});
-
 	static boolean noArrangeLayoutOnNewTableBrowser = false;
 	static boolean noArrangeLayoutOnNewTableBrowserWithAnchor = false;
 	private static JInternalFrame lastInternalFrame = null;
@@ -3476,34 +3458,4 @@ public abstract class Desktop extends JDesktopPane {
 		}
 	}
 
-	/**
-	 * Maximum number of concurrent DB connections.
-	 */
-	private static final int MAX_CONCURRENT_CONNECTIONS = 6;
-	static {
-		// initialize listeners for #runnableQueue
-		for (int i = 0; i < MAX_CONCURRENT_CONNECTIONS; ++i) {
-			Thread t = new Thread(new Runnable() {
-				@Override
-				public void run() {
-					for (;;) {
-						RunnableWithPriority take = null;
-						try {
-							take = runnableQueue.take();
-							take.run();
-						} catch (InterruptedException e) {
-							// ignore
-						} catch (CancellationException e) {
-							// ignore
-						} catch (Throwable t) {
-							t.printStackTrace();
-						}
-					}
-				}
-			}, "PQueue Worker " + i);
-			t.setDaemon(true);
-			t.start();
-		}
-	}
-
 }
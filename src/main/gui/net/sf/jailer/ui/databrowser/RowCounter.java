@@ -280,13 +280,19 @@ public class RowCounter {
 			if (association != null) {
 				sql += qualifiedTableName(association.destination, quoting) + " A join ";
 			}
-			sql += qualifiedTableName(table, quoting) + " B";
 			if (association != null) {
+				sql += qualifiedTableName(table, quoting) + " B";
 				if (association.reversed) {
 					sql += " on " + association.getUnrestrictedJoinCondition();
 				} else {
 					sql += " on " + SqlUtil.reversRestrictionCondition(association.getUnrestrictedJoinCondition());
 				}
+			} else {
+				// counts the rows of the table itself
+				sql += qualifiedTableName(table, quoting) + " A";
+				if (andCond != null && andCond.trim().length() > 0) {
+					sql += " Where (" + andCond + ")";
+				}
 			}
 	
 			if (parentRows != null && !parentRows.isEmpty()) {
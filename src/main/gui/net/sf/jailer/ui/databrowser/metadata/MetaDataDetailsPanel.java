@@ -32,7 +32,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
 
 import javax.swing.JButton;
 import javax.swing.JComponent;
@@ -290,10 +289,6 @@ public abstract class MetaDataDetailsPanel extends javax.swing.JPanel {
 						return null;
 					}
 					@Override
-					protected PriorityBlockingQueue<RunnableWithPriority> getRunnableQueue() {
-						return null;
-					}
-					@Override
 					protected QueryBuilderDialog getQueryBuilderDialog() {
 						return null;
 					}
@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.PriorityBlockingQueue;
 
 import javax.swing.JComponent;
 import javax.swing.JFrame;
@@ -188,10 +187,6 @@ public class ResultSetRenderer extends javax.swing.JPanel {
             return null;
         }
         @Override
-        protected PriorityBlockingQueue<RunnableWithPriority> getRunnableQueue() {
-            return Desktop.runnableQueue;
-        }
-        @Override
         protected QueryBuilderDialog getQueryBuilderDialog() {
             return null;
         }
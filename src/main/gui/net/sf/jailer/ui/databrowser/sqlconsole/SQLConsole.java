@@ -53,7 +53,6 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -1769,10 +1768,6 @@ public abstract class SQLConsole extends javax.swing.JPanel {
             return null;
         }
         @Override
-        protected PriorityBlockingQueue<RunnableWithPriority> getRunnableQueue() {
-            return Desktop.runnableQueue;
-        }
-        @Override
         protected QueryBuilderDialog getQueryBuilderDialog() {
             return null;
         }
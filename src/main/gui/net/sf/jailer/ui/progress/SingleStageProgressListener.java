@@ -60,6 +60,14 @@ public abstract class SingleStageProgressListener implements ProgressListener {
 	 */
 	private final List<Map<ModelElement, Long>> collections = new ArrayList<Map<ModelElement, Long>>();
 
+	/**
+	 * Holds point in time at which a job has been enqueued or started, and queue and run time (in ms) of the jobs, per day.
+	 */
+	private final List<Map<ModelElement, Long>> enqueueTimes = new ArrayList<Map<ModelElement, Long>>();
+	private final List<Map<ModelElement, Long>> startTimes = new ArrayList<Map<ModelElement, Long>>();
+	private final List<Map<ModelElement, Long>> queueTimes = new ArrayList<Map<ModelElement, Long>>();
+	private final List<Map<ModelElement, Long>> runTimes = new ArrayList<Map<ModelElement, Long>>();
+
 	/**
 	 * Holds rows per tables.
 	 */
@@ -246,6 +254,14 @@ public abstract class SingleStageProgressListener implements ProgressListener {
 				cell.parentNames = new HashSet<String>();
 				row.put(getDestination(e.getKey()), cell);
 			}
+			Long queueTime = queueTimes.get(day).get(e.getKey());
+			if (queueTime != null) {
+				cell.queueTime += queueTime;
+			}
+			Long runTime = runTimes.get(day).get(e.getKey());
+			if (runTime != null) {
+				cell.runTime += runTime;
+			}
 			if (e.getKey() instanceof Association) {
 				if (day == today || e.getValue() != null && e.getValue() > 0) {
 					cell.parentNames.add(dataModel.getDisplayName(((Association) e.getKey()).source));
@@ -309,6 +325,10 @@ public abstract class SingleStageProgressListener implements ProgressListener {
 			inProgress.put(destination, count - 1);
 		}
 		if (collections.size() > day) {
+			Long startTime = startTimes.get(day).remove(modelElement);
+			if (startTime != null) {
+				runTimes.get(day).put(modelElement, System.currentTimeMillis() - startTime);
+			}
 			collections.get(day).put(modelElement, rc);
 			if (rc < 0) {
 				collections.get(day).remove(modelElement);
@@ -341,11 +361,18 @@ public abstract class SingleStageProgressListener implements ProgressListener {
 	 */
 	@Override
 	public synchronized void collectionJobEnqueued(int day, ModelElement modelElement) {
-		today = day;
+		today = Math.max(today, day);
 		while (collections.size() <= today) {
 			collections.add(new HashMap<ModelElement, Long>());
+			enqueueTimes.add(new HashMap<ModelElement, Long>());
+			startTimes.add(new HashMap<ModelElement, Long>());
+			queueTimes.add(new HashMap<ModelElement, Long>());
+			runTimes.add(new HashMap<ModelElement, Long>());
 		}
 		collections.get(today).put(modelElement, null);
+		if (day >= 0) {
+			enqueueTimes.get(day).put(modelElement, System.currentTimeMillis());
+		}
 		lastRowIsUptodate = false;
 		readjustColumnWidth = true;
 	}
@@ -366,6 +393,14 @@ public abstract class SingleStageProgressListener implements ProgressListener {
 			count = count + 1;
 		}
 		inProgress.put(destination, count);
+		if (day >= 0 && startTimes.size() > day) {
+			long now = System.currentTimeMillis();
+			startTimes.get(day).put(modelElement, now);
+			Long enqueueTime = enqueueTimes.get(day).remove(modelElement);
+			if (enqueueTime != null) {
+				queueTimes.get(day).put(modelElement, now - enqueueTime);
+			}
+		}
 		lastRowIsUptodate = false;
 	}
 
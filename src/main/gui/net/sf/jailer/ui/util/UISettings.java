@@ -53,6 +53,11 @@ public class UISettings  {
 	 */
 	public static final String RECENT_ALIASES = "RECENT_ALIASES";
 
+	/**
+	 * Name of property (map from connection alias to int) holding the maximum number of concurrent queries of the data browser.
+	 */
+	public static final String MAX_CONCURRENT_QUERIES = "MAX_CONCURRENT_QUERIES";
+
 	/**
 	 * Persistent properties.
 	 */
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import net.sf.jailer.binary.BinaryScriptExecutor;
+import net.sf.jailer.binary.BinaryScriptWriter;
+import net.sf.jailer.binary.BinaryTransformer;
+import net.sf.jailer.database.BasicDataSource;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.database.Session.ResultSetReader;
+import net.sf.jailer.datamodel.Column;
+import net.sf.jailer.datamodel.PrimaryKeyFactory;
+import net.sf.jailer.datamodel.Table;
+import net.sf.jailer.util.Pair;
+
+/**
+ * Tests {@link BinaryTransformer}
+ *
+ * @author Ralf Wisser
+ */
+public class BinaryTransformerTest extends TestCase {
+
+	private Session session;
+	private File script;
+
+	@Override
+	protected void setUp() throws Exception {
+		BasicDataSource dataSource = new BasicDataSource("org.h2.Driver", "jdbc:h2:mem:BinaryTransformerTest", "sa", "", 0, new URL[0]);
+		session = new Session(dataSource, dataSource.dbms, null);
+		script = File.createTempFile("jailer", ".jbin");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		session.shutDown();
+		script.delete();
+	}
+
+	public void testMoreThanOneBlock() throws Exception {
+		session.execute("CREATE TABLE ITEM(ID INTEGER, TEXT VARCHAR(1000))");
+		session.execute("INSERT INTO ITEM SELECT X, REPEAT('x', 600) FROM SYSTEM_RANGE(1, 3000)");
+
+		ExecutionContext executionContext = new ExecutionContext();
+		Table table = new Table("ITEM", new PrimaryKeyFactory(executionContext).createPrimaryKey(new ArrayList<Column>(), "ITEM"), false, false);
+		BinaryScriptWriter scriptWriter = new BinaryScriptWriter(new FileOutputStream(script));
+		BinaryTransformer.Factory factory = new BinaryTransformer.Factory(scriptWriter, session, session.dbms, executionContext);
+		ResultSetReader transformer = factory.create(table);
+		session.executeQuery("SELECT ID, TEXT FROM ITEM ORDER BY ID", transformer);
+		transformer.close();
+		scriptWriter.close();
+
+		// 3000 rows of about 600 bytes are 3 blocks of 1000 rows, each below the block size limit
+		Pair<Integer, Long> result = new BinaryScriptExecutor(session, 1).executeScript(script.getPath());
+		assertEquals(3, (int) result.a);
+		assertEquals(3000L, (long) result.b);
+		assertEquals(6000L, count("SELECT COUNT(*) FROM ITEM"));
+		assertEquals(2L, count("SELECT COUNT(*) FROM ITEM WHERE ID = 3000"));
+	}
+
+	private long count(String query) throws SQLException {
+		final long[] count = new long[1];
+		session.executeQuery(query, new Session.AbstractResultSetReader() {
+			@Override
+			public void readCurrentRow(ResultSet resultSet) throws SQLException {
+				count[0] = resultSet.getLong(1);
+			}
+		});
+		return count[0];
+	}
+
+}
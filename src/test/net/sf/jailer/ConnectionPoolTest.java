@@ -0,0 +1,102 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer;
+
+import java.net.URL;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import net.sf.jailer.database.BasicDataSource;
+import net.sf.jailer.database.ConnectionPool;
+import net.sf.jailer.database.Session;
+
+/**
+ * Tests {@link ConnectionPool}
+ *
+ * @author Ralf Wisser
+ */
+public class ConnectionPoolTest extends TestCase {
+
+	private Session session;
+
+	@Override
+	protected void setUp() throws Exception {
+		BasicDataSource dataSource = new BasicDataSource("org.h2.Driver", "jdbc:h2:mem:ConnectionPoolTest", "sa", "", 0, new URL[0]);
+		session = new Session(dataSource, dataSource.dbms, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		session.shutDown();
+	}
+
+	public void testThreadAffinity() throws Exception {
+		Connection con = session.getConnection();
+		assertSame(con, session.getConnection());
+		Connection otherCon = connectionOfNewThread();
+		assertNotSame(con, otherCon);
+		assertEquals(2, session.getConnectionPool().getSize());
+	}
+
+	public void testReuseConnectionOfDiedThread() throws Exception {
+		session.getConnection();
+		Connection otherCon = connectionOfNewThread();
+		assertSame(otherCon, connectionOfNewThread());
+		assertEquals(2, session.getConnectionPool().getSize());
+		assertEquals(2, session.getConnectionPool().getPeakConnections());
+	}
+
+	public void testSharingIfExhausted() throws Exception {
+		session.getConnectionPool().setMaxConnections(1);
+		final Connection con = session.getConnection();
+		final AtomicReference<Connection> otherCon = new AtomicReference<Connection>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					otherCon.set(session.getConnection());
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+		assertSame(con, otherCon.get());
+		assertEquals(1, session.getConnectionPool().getSize());
+		assertEquals(1, session.getConnectionPool().getWaits());
+		assertEquals(1, session.getConnectionPool().getSharedConnections());
+	}
+
+	private Connection connectionOfNewThread() throws Exception {
+		final AtomicReference<Connection> con = new AtomicReference<Connection>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					con.set(session.getConnection());
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+		return con.get();
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer;
+
+import junit.framework.TestCase;
+import net.sf.jailer.entitygraph.DependencyLevels;
+
+/**
+ * Tests {@link DependencyLevels}
+ *
+ * @author Ralf Wisser
+ */
+public class DependencyLevelsTest extends TestCase {
+
+	public void testChain() throws Exception {
+		DependencyLevels levels = new DependencyLevels();
+		int a = levels.getID("A");
+		int b = levels.getID("B");
+		int c = levels.getID("C");
+		int d = levels.getID("D");
+		assertEquals(a, levels.getID("A"));
+		levels.addDependency(a, b);
+		levels.addDependency(b, c);
+		levels.addDependency(a, c);
+		levels.addDependency(d, c);
+		int[] level = levels.computeLevels();
+		assertEquals(2, level[a]);
+		assertEquals(1, level[b]);
+		assertEquals(0, level[c]);
+		assertEquals(1, level[d]);
+	}
+
+	public void testCycleAndBlocked() throws Exception {
+		DependencyLevels levels = new DependencyLevels();
+		int a = levels.getID("A");
+		int b = levels.getID("B");
+		int c = levels.getID("C");
+		int d = levels.getID("D");
+		int e = levels.getID("E");
+		int f = levels.getID("F");
+		levels.addDependency(a, b);
+		levels.addDependency(b, a);
+		levels.addDependency(c, a);
+		levels.addDependency(d, e);
+		levels.block(e);
+		int[] level = levels.computeLevels();
+		assertEquals(DependencyLevels.NO_LEVEL, level[a]);
+		assertEquals(DependencyLevels.NO_LEVEL, level[b]);
+		assertEquals(DependencyLevels.NO_LEVEL, level[c]);
+		assertEquals(DependencyLevels.NO_LEVEL, level[d]);
+		assertEquals(DependencyLevels.NO_LEVEL, level[e]);
+		assertEquals(0, level[f]);
+	}
+
+	public void testLargeGraph() throws Exception {
+		DependencyLevels levels = new DependencyLevels();
+		int prev = levels.getID("0");
+		for (int i = 1; i < 5000; ++i) {
+			int id = levels.getID(String.valueOf(i));
+			levels.addDependency(id, prev);
+			prev = id;
+		}
+		int[] level = levels.computeLevels();
+		assertEquals(5000, level.length);
+		assertEquals(4999, level[levels.getID("4999")]);
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.jailer.subsetting.ExportSnapshot;
+import net.sf.jailer.subsetting.ExportSnapshot.RowState;
+import net.sf.jailer.subsetting.ExportSnapshot.TableSnapshot;
+import net.sf.jailer.util.PrintUtil;
+
+/**
+ * Tests {@link ExportSnapshot}
+ *
+ * @author Ralf Wisser
+ */
+public class ExportSnapshotTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("snapshot", ".gz");
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+		ExportSnapshot.getPendingFile(file).delete();
+	}
+
+	public void testDelta() throws Exception {
+		ExportSnapshot snapshot = new ExportSnapshot(file);
+		TableSnapshot dept = snapshot.getTableSnapshot("DEPARTMENT", Arrays.asList("DEPTNO"));
+		TableSnapshot emp = snapshot.getTableSnapshot("EMPLOYEE", Arrays.asList("EMPNO", "ORG"));
+		assertEquals(RowState.NEW, dept.put(new String[] { "10" }, "a"));
+		assertEquals(RowState.NEW, dept.put(new String[] { "20" }, "b"));
+		assertEquals(RowState.NEW, emp.put(new String[] { "7839", "'X'" }, "c"));
+		assertEquals(RowState.NEW, emp.put(new String[] { "7566", "'X'" }, "d"));
+		assertEquals(0, snapshot.writeDeletions(new StringWriter(), 10));
+		snapshot.save();
+		assertTrue(ExportSnapshot.commit(file));
+
+		snapshot = new ExportSnapshot(file);
+		dept = snapshot.getTableSnapshot("DEPARTMENT", Arrays.asList("DEPTNO"));
+		assertEquals(RowState.UNCHANGED, dept.put(new String[] { "10" }, "a"));
+		assertEquals(RowState.CHANGED, dept.put(new String[] { "20" }, "x"));
+		assertEquals(RowState.NEW, dept.put(new String[] { "30" }, "e"));
+		StringWriter out = new StringWriter();
+		assertEquals(2, snapshot.writeDeletions(out, 10));
+		assertEquals("Delete from EMPLOYEE Where (EMPNO=7839 and ORG='X') or (EMPNO=7566 and ORG='X');" + PrintUtil.LINE_SEPARATOR, out.toString());
+		snapshot.save();
+		assertTrue(ExportSnapshot.commit(file));
+
+		snapshot = new ExportSnapshot(file);
+		dept = snapshot.getTableSnapshot("DEPARTMENT", Arrays.asList("DEPTNO"));
+		assertEquals(RowState.UNCHANGED, dept.put(new String[] { "20" }, "x"));
+		out = new StringWriter();
+		assertEquals(2, snapshot.writeDeletions(out, 1));
+		assertEquals("Delete from DEPARTMENT Where (DEPTNO=10);" + PrintUtil.LINE_SEPARATOR + "Delete from DEPARTMENT Where (DEPTNO=30);" + PrintUtil.LINE_SEPARATOR, out.toString());
+	}
+
+	public void testDeletionOrderOfRounds() throws Exception {
+		ExportSnapshot snapshot = new ExportSnapshot(file);
+		TableSnapshot emp = snapshot.getTableSnapshot("EMPLOYEE", Arrays.asList("EMPNO"));
+		TableSnapshot dept = snapshot.getTableSnapshot("DEPARTMENT", Arrays.asList("DEPTNO"));
+		// employee 7566 works in department 10, which is managed by employee 7839
+		emp.put(new String[] { "7839" }, "a");
+		snapshot.nextRound();
+		dept.put(new String[] { "10" }, "b");
+		snapshot.nextRound();
+		emp.put(new String[] { "7566" }, "c");
+		snapshot.save();
+		assertTrue(ExportSnapshot.commit(file));
+
+		snapshot = new ExportSnapshot(file);
+		StringWriter out = new StringWriter();
+		assertEquals(3, snapshot.writeDeletions(out, 10));
+		assertEquals(
+				"Delete from EMPLOYEE Where (EMPNO=7566);" + PrintUtil.LINE_SEPARATOR +
+				"Delete from DEPARTMENT Where (DEPTNO=10);" + PrintUtil.LINE_SEPARATOR +
+				"Delete from EMPLOYEE Where (EMPNO=7839);" + PrintUtil.LINE_SEPARATOR, out.toString());
+	}
+
+	public void testPendingUntilCommitted() throws Exception {
+		ExportSnapshot snapshot = new ExportSnapshot(file);
+		snapshot.getTableSnapshot("DEPARTMENT", Arrays.asList("DEPTNO")).put(new String[] { "10" }, "a");
+		snapshot.save();
+		assertTrue(ExportSnapshot.commit(file));
+
+		// the script of this export is never imported
+		snapshot = new ExportSnapshot(file);
+		snapshot.getTableSnapshot("DEPARTMENT", Arrays.asList("DEPTNO")).put(new String[] { "20" }, "b");
+		snapshot.save();
+
+		snapshot = new ExportSnapshot(file);
+		TableSnapshot dept = snapshot.getTableSnapshot("DEPARTMENT", Arrays.asList("DEPTNO"));
+		assertEquals(RowState.UNCHANGED, dept.put(new String[] { "10" }, "a"));
+		assertEquals(RowState.NEW, dept.put(new String[] { "20" }, "b"));
+		assertFalse(ExportSnapshot.commit(new File(file.getPath() + ".none")));
+	}
+
+	public void testHash() throws Exception {
+		assertEquals(ExportSnapshot.hash(Arrays.asList("1", "'a'")), ExportSnapshot.hash(Arrays.asList("1", "'a'")));
+		assertFalse(ExportSnapshot.hash(Arrays.asList("1", "'a'")).equals(ExportSnapshot.hash(Arrays.asList("1'", "a'"))));
+	}
+
+}
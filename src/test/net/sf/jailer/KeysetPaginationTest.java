@@ -0,0 +1,347 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JFrame;
+import javax.swing.JScrollBar;
+import javax.swing.SwingUtilities;
+
+import junit.framework.TestCase;
+import net.sf.jailer.configuration.DBMS;
+import net.sf.jailer.database.BasicDataSource;
+import net.sf.jailer.database.Session;
+import net.sf.jailer.datamodel.Association;
+import net.sf.jailer.datamodel.DataModel;
+import net.sf.jailer.ui.DbConnectionDialog;
+import net.sf.jailer.ui.QueryBuilderDialog;
+import net.sf.jailer.ui.QueryBuilderDialog.Relationship;
+import net.sf.jailer.ui.databrowser.BrowserContentPane;
+import net.sf.jailer.ui.databrowser.Desktop.RowBrowser;
+import net.sf.jailer.ui.databrowser.Row;
+import net.sf.jailer.ui.databrowser.metadata.MetaDataSource;
+import net.sf.jailer.ui.databrowser.sqlconsole.SQLConsole;
+import net.sf.jailer.util.Pair;
+
+/**
+ * Tests the keyset pagination of {@link BrowserContentPane} with a composite key,
+ * scrolling forward to the last page and back to the first one.
+ *
+ * @author Ralf Wisser
+ */
+public class KeysetPaginationTest extends TestCase {
+
+	private static final int PAGE_SIZE = 4;
+	private static final int WINDOW_SIZE = 3 * PAGE_SIZE;
+
+	/**
+	 * The H2 driver the test is pinned to. Older drivers on the classpath don't support window functions.
+	 */
+	private static final String H2_JAR = "lib/h2-1.4.199.jar";
+
+	private final List<Driver> deregisteredDrivers = new ArrayList<Driver>();
+	private Driver pinnedDriver;
+	private File dataModelFolder;
+	private Session session;
+
+	@Override
+	protected void setUp() throws Exception {
+		pinDriver();
+		dataModelFolder = File.createTempFile("jailer", "datamodel");
+		dataModelFolder.delete();
+		dataModelFolder.mkdirs();
+		write("table.csv", "T; N; K1 INTEGER; K2 VARCHAR(10); ; Test; ; ");
+		write("column.csv", "T; K1 INTEGER; K2 VARCHAR(10); V INTEGER null; ; ");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (session != null) {
+			session.shutDown();
+		}
+		new File(dataModelFolder, "table.csv").delete();
+		new File(dataModelFolder, "column.csv").delete();
+		dataModelFolder.delete();
+		DriverManager.deregisterDriver(pinnedDriver);
+		for (Driver driver: deregisteredDrivers) {
+			DriverManager.registerDriver(driver);
+		}
+	}
+
+	public void testLimitSuffix() throws Exception {
+		browse(DBMS.H2, "KeysetPaginationTestLimitSuffix");
+	}
+
+	public void testOLAPLimitation() throws Exception {
+		DBMS dbms = new DBMS(DBMS.H2);
+		dbms.setSqlLimitSuffix(null);
+		browse(dbms, "KeysetPaginationTestOLAP");
+	}
+
+	/**
+	 * Loads the first page, scrolls down to the last page and up to the first page again.
+	 * Checks that the window of loaded rows always consists of consecutive rows in key order.
+	 */
+	private void browse(DBMS dbms, String dbName) throws Exception {
+		BasicDataSource dataSource = new BasicDataSource("org.h2.Driver", "jdbc:h2:mem:" + dbName, "sa", "", dbms, 0, new URL[0]);
+		session = new Session(dataSource, dbms, null);
+		// 7 * 5 rows, the groups of K1 span the page boundaries
+		session.execute("CREATE TABLE T(K1 INTEGER, K2 VARCHAR(10), V INTEGER, PRIMARY KEY(K1, K2))");
+		session.execute("INSERT INTO T SELECT X / 5, CHAR(97 + MOD(X, 5)), X FROM SYSTEM_RANGE(0, 34)");
+		int numRows = 35;
+
+		ExecutionContext executionContext = new ExecutionContext();
+		executionContext.setDatamodelFolder(dataModelFolder.getPath());
+		DataModel dataModel = new DataModel(executionContext);
+		final TestContentPane pane = new TestContentPane(dataModel, session, executionContext);
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				pane.reloadRows();
+			}
+		});
+		assertWindow(pane.nextContent(), 0, PAGE_SIZE);
+
+		int from = 0;
+		int to = PAGE_SIZE;
+		while (to < numRows) {
+			pane.scroll(false);
+			to = Math.min(numRows, to + PAGE_SIZE);
+			from = Math.max(0, to - WINDOW_SIZE);
+			assertWindow(pane.nextContent(), from, to);
+		}
+		while (from > 0) {
+			pane.scroll(true);
+			from = Math.max(0, from - PAGE_SIZE);
+			to = Math.min(to, from + WINDOW_SIZE);
+			assertWindow(pane.nextContent(), from, to);
+		}
+		pane.scroll(true);
+		assertNull("no page precedes the first one", pane.content.poll(1, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Asserts that the loaded rows are the rows with the row numbers <code>from</code> (inclusive) to <code>to</code> (exclusive).
+	 */
+	private void assertWindow(List<Row> rows, int from, int to) {
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = from; i < to; ++i) {
+			expected.add(i);
+		}
+		List<Integer> actual = new ArrayList<Integer>();
+		for (Row row: rows) {
+			actual.add(((Number) row.values[2]).intValue());
+		}
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Makes sure that the test uses the H2 driver from {@link #H2_JAR}, regardless of the order of the drivers on the classpath.
+	 */
+	private void pinDriver() throws Exception {
+		String url = "jdbc:h2:mem:";
+		for (Enumeration<Driver> drivers = DriverManager.getDrivers(); drivers.hasMoreElements(); ) {
+			Driver driver = drivers.nextElement();
+			if (driver.acceptsURL(url)) {
+				deregisteredDrivers.add(driver);
+			}
+		}
+		for (Driver driver: deregisteredDrivers) {
+			DriverManager.deregisterDriver(driver);
+		}
+		URLClassLoader classLoader = new URLClassLoader(new URL[] { new File(H2_JAR).toURI().toURL() }, null);
+		pinnedDriver = new BasicDataSource.DriverShim((Driver) Class.forName("org.h2.Driver", true, classLoader).newInstance());
+		DriverManager.registerDriver(pinnedDriver);
+	}
+
+	private void write(String fileName, String line) throws IOException {
+		FileWriter out = new FileWriter(new File(dataModelFolder, fileName));
+		try {
+			out.write(line + "\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Browses table T.
+	 */
+	@SuppressWarnings("serial")
+	private static class TestContentPane extends BrowserContentPane {
+
+		final LinkedBlockingQueue<List<Row>> content = new LinkedBlockingQueue<List<Row>>();
+
+		TestContentPane(DataModel dataModel, Session session, ExecutionContext executionContext) {
+			super(dataModel, dataModel.getTable("T"), "", session, null, null, null, new BrowserContentPane.RowsClosure(), false, false, executionContext);
+			rowsTableScrollPane.setSize(400, 40);
+		}
+
+		/**
+		 * Waits for the next content.
+		 */
+		List<Row> nextContent() throws InterruptedException {
+			List<Row> rows = content.poll(20, TimeUnit.SECONDS);
+			assertNotNull("rows not loaded", rows);
+			return rows;
+		}
+
+		/**
+		 * Scrolls to the top or bottom of the rows table.
+		 */
+		void scroll(final boolean toTop) throws Exception {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					rowsTableScrollPane.doLayout();
+					rowsTableScrollPane.getViewport().doLayout();
+					JScrollBar scrollBar = rowsTableScrollPane.getVerticalScrollBar();
+					scrollBar.setValue(toTop? scrollBar.getMinimum() : scrollBar.getMaximum() - scrollBar.getVisibleAmount());
+				}
+			});
+		}
+
+		@Override
+		protected void onContentChange(List<Row> rows, boolean reloadChildren) {
+			if (reloadChildren) {
+				content.add(new ArrayList<Row>(rows));
+			}
+		}
+
+		@Override
+		protected int getReloadLimit() {
+			return PAGE_SIZE;
+		}
+
+		@Override
+		protected List<RowBrowser> getChildBrowsers() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		protected boolean renderRowAsPK(Row theRow) {
+			return false;
+		}
+		@Override
+		protected SQLConsole getSqlConsole(boolean switchToConsole) {
+			return null;
+		}
+		@Override
+		protected RowBrowser navigateTo(Association association, List<Row> pRows) {
+			return null;
+		}
+		@Override
+		protected void onRedraw() {
+		}
+		@Override
+		protected void onHide() {
+		}
+		@Override
+		protected void beforeReload() {
+		}
+		@Override
+		protected Relationship createQBRelations(boolean withParents) {
+			return null;
+		}
+		@Override
+		protected List<Relationship> createQBChildrenRelations(RowBrowser tabu, boolean all) {
+			return null;
+		}
+		@Override
+		protected void addRowToRowLink(Row pRow, Row exRow) {
+		}
+		@Override
+		protected JFrame getOwner() {
+			return null;
+		}
+		@Override
+		protected void findClosure(Row row) {
+		}
+		@Override
+		protected void findClosure(Row row, Set<Pair<BrowserContentPane, Row>> closure, boolean forward) {
+		}
+		@Override
+		protected QueryBuilderDialog getQueryBuilderDialog() {
+			return null;
+		}
+		@Override
+		protected void openSchemaMappingDialog() {
+		}
+		@Override
+		protected void openSchemaAnalyzer() {
+		}
+		@Override
+		protected DbConnectionDialog getDbConnectionDialog() {
+			return null;
+		}
+		@Override
+		protected double getLayoutFactor() {
+			return 0;
+		}
+		@Override
+		protected RowBrowser getParentBrowser() {
+			return null;
+		}
+		@Override
+		protected List<RowBrowser> getTableBrowser() {
+			return null;
+		}
+		@Override
+		protected void unhide() {
+		}
+		@Override
+		protected void close() {
+		}
+		@Override
+		protected void showInNewWindow() {
+		}
+		@Override
+		protected void appendLayout() {
+		}
+		@Override
+		protected void adjustClosure(BrowserContentPane tabu, BrowserContentPane thisOne) {
+		}
+		@Override
+		protected void reloadDataModel() throws Exception {
+		}
+		@Override
+		protected MetaDataSource getMetaDataSource() {
+			return null;
+		}
+		@Override
+		protected void deselectChildrenIfNeededWithoutReload() {
+		}
+		@Override
+		protected void collectPositions(Map<String, Map<String, double[]>> positions) {
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer;
+
+import java.math.BigDecimal;
+
+import junit.framework.TestCase;
+import net.sf.jailer.util.MultiRowInsert;
+
+/**
+ * Tests {@link MultiRowInsert}
+ *
+ * @author Ralf Wisser
+ */
+public class MultiRowInsertTest extends TestCase {
+
+	public void testMultiRowInsert() throws Exception {
+		MultiRowInsert insert = MultiRowInsert.parse("Insert into EMPLOYEE(EMPNO, NAME, BOSS, SALARY) values \n (7839, 'KING', null, 5000.00), \n (7566, 'O''NEIL', 7839, -1.5e3)");
+		assertNotNull(insert);
+		assertEquals("EMPLOYEE", insert.tableName);
+		assertEquals(4, insert.columnCount);
+		assertEquals(2, insert.rows.size());
+		assertEquals(new BigDecimal("7839"), insert.rows.get(0)[0]);
+		assertEquals("KING", insert.rows.get(0)[1]);
+		assertNull(insert.rows.get(0)[2]);
+		assertEquals(new BigDecimal("5000.00"), insert.rows.get(0)[3]);
+		assertEquals("O'NEIL", insert.rows.get(1)[1]);
+		assertEquals(new BigDecimal("-1.5e3"), insert.rows.get(1)[3]);
+		assertEquals("Insert into EMPLOYEE(EMPNO, NAME, BOSS, SALARY) values (?, ?, ?, ?)", insert.getParameterizedStatement());
+	}
+
+	public void testNonLiteralValues() throws Exception {
+		assertNull(MultiRowInsert.parse("Insert into T(A, B) values (1, to_date('2019-01-01', 'YYYY-MM-DD'))"));
+		assertNull(MultiRowInsert.parse("Insert into T(A, B) values (1, N'x')"));
+		assertNull(MultiRowInsert.parse("Insert into T(A, B) values (1, 'a\\'b')"));
+		assertNull(MultiRowInsert.parse("Insert into T(A, B) values (1)"));
+		assertNull(MultiRowInsert.parse("Insert into T(A, B) values (1, 2, 3)"));
+		assertNull(MultiRowInsert.parse("Insert into T(A, B) Select 1, 2 from dual where not exists (Select * from T where A=1)"));
+		assertNull(MultiRowInsert.parse("Update T set A=1 where B=2"));
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2007 - 2019 Ralf Wisser.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sf.jailer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+import net.sf.jailer.util.ParallelGZIPOutputStream;
+
+/**
+ * Tests {@link ParallelGZIPOutputStream}
+ *  
+ * @author Ralf Wisser
+ */
+public class ParallelGZIPOutputStreamTest extends TestCase {
+
+	public void testEmpty() throws Exception {
+		assertTrue(Arrays.equals(new byte[0], roundTrip(new byte[0])));
+	}
+
+	public void testSmall() throws Exception {
+		byte[] data = "Insert into EMPLOYEE(EMPNO, NAME) values (7369, 'SMITH');\n".getBytes("UTF-8");
+		assertTrue(Arrays.equals(data, roundTrip(data)));
+	}
+
+	public void testManyBlocks() throws Exception {
+		Random random = new Random(4711);
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 2 * 1024 * 1024 + 17) {
+			sb.append("Insert into EMPLOYEE(EMPNO, NAME) values (" + random.nextInt(100000) + ", 'N" + random.nextInt(1000) + "');\n");
+		}
+		byte[] data = sb.toString().getBytes("UTF-8");
+		assertTrue(Arrays.equals(data, roundTrip(data)));
+		byte[] noise = new byte[700 * 1024];
+		random.nextBytes(noise);
+		assertTrue(Arrays.equals(noise, roundTrip(noise)));
+	}
+
+	private byte[] roundTrip(byte[] data) throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(compressed, 4);
+		int pos = 0;
+		Random random = new Random(17);
+		while (pos < data.length) {
+			int len = Math.min(data.length - pos, random.nextInt(100000));
+			out.write(data, pos, len);
+			pos += len;
+		}
+		out.close();
+		InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			result.write(buffer, 0, n);
+		}
+		in.close();
+		return result.toByteArray();
+	}
+
+}